@@ -0,0 +1,59 @@
+package com.example.payment_gateway.api;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.example.payment_gateway.api.dto.CreatePaymentRequest;
+import com.example.payment_gateway.domain.Amount;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+
+// Cost of the @Valid check on POST /payments bodies, for accepted and rejected requests.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CreatePaymentRequestValidationBenchmark {
+
+    private final CreatePaymentRequest valid =
+            new CreatePaymentRequest(Amount.parse("125.50"), "EUR", "customer-0001");
+
+    private final CreatePaymentRequest invalid =
+            new CreatePaymentRequest(Amount.parse("-1.00"), "", "customer-0001");
+
+    private ValidatorFactory factory;
+
+    private Validator validator;
+
+    @Setup
+    public void setUp() {
+        factory = Validation.buildDefaultValidatorFactory();
+        validator = factory.getValidator();
+    }
+
+    @TearDown
+    public void tearDown() {
+        factory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<CreatePaymentRequest>> validRequest() {
+        return validator.validate(valid);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<CreatePaymentRequest>> invalidRequest() {
+        return validator.validate(invalid);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.payment_gateway.api;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.example.payment_gateway.api.dto.CreatePaymentRequest;
+import com.example.payment_gateway.api.dto.PaymentResponse;
+import com.example.payment_gateway.domain.Amount;
+import com.example.payment_gateway.domain.Payment;
+
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+// Cost of turning a payment into the bytes of an HTTP response body.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PaymentResponseBenchmark {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+
+    private final Payment payment =
+            Payment.create(new CreatePaymentRequest(Amount.parse("125.50"), "EUR", "customer-0001"));
+
+    private final PaymentResponse response = PaymentController.toResponse(payment);
+
+    @Benchmark
+    public PaymentResponse toResponse() {
+        return PaymentController.toResponse(payment);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] toResponseAndSerialize() {
+        return objectMapper.writeValueAsBytes(PaymentController.toResponse(payment));
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.payment_gateway.benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Compares a JMH JSON result file with a stored baseline and prints the change in score and in
+ * bytes allocated per operation for every benchmark present in both. A benchmark regresses when
+ * either gets worse by more than the tolerance; with failOnRegression the process then exits with 1.
+ * Usage: JmhBaselineComparator result.json baseline.json [tolerance] [failOnRegression]
+ */
+public final class JmhBaselineComparator {
+
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+    private JmhBaselineComparator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path resultFile = Path.of(args[0]);
+        Path baselineFile = Path.of(args[1]);
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+        boolean failOnRegression = args.length > 3 && Boolean.parseBoolean(args[3]);
+
+        if (!Files.exists(resultFile)) {
+            System.out.println("No JMH result at " + resultFile + "; nothing to compare.");
+            return;
+        }
+        if (!Files.exists(baselineFile)) {
+            System.out.println("No baseline at " + baselineFile + "; copy " + resultFile + " there to create one.");
+            return;
+        }
+
+        ObjectMapper mapper = JsonMapper.builder().build();
+        Map<String, Measurement> results = read(mapper, resultFile);
+        Map<String, Measurement> baseline = read(mapper, baselineFile);
+
+        System.out.printf("%nJMH results vs baseline (tolerance %.0f%%)%n", tolerance * 100);
+        System.out.printf("%-70s %14s %14s %9s %12s %12s %9s%n",
+                "benchmark", "score", "baseline", "change", "B/op", "base B/op", "change");
+
+        int regressions = 0;
+        for (Entry<String, Measurement> entry : results.entrySet()) {
+            Measurement current = entry.getValue();
+            Measurement base = baseline.get(entry.getKey());
+            if (base == null) {
+                System.out.printf("%-70s %14.2f %14s%n", entry.getKey(), current.score(), "(new)");
+                continue;
+            }
+
+            // Positive changes are always improvements, whatever the benchmark mode.
+            double scoreChange = current.higherIsBetter()
+                    ? current.score() / base.score() - 1
+                    : base.score() / current.score() - 1;
+            double allocationChange = base.bytesPerOp() > 0
+                    ? base.bytesPerOp() / Math.max(current.bytesPerOp(), 1e-9) - 1
+                    : 0;
+            boolean regressed = scoreChange < -tolerance
+                    || (current.bytesPerOp() - base.bytesPerOp() > 16 && allocationChange < -tolerance);
+            if (regressed) {
+                regressions++;
+            }
+
+            System.out.printf("%-70s %14.2f %14.2f %+8.1f%% %12.1f %12.1f %+8.1f%%%s%n",
+                    entry.getKey(), current.score(), base.score(), scoreChange * 100,
+                    current.bytesPerOp(), base.bytesPerOp(), allocationChange * 100,
+                    regressed ? "  REGRESSION" : "");
+        }
+
+        System.out.printf("%d regression(s)%n", regressions);
+        if (regressions > 0 && failOnRegression) {
+            System.exit(1);
+        }
+    }
+
+    // Indexes the results by benchmark name, parameters and mode.
+    private static Map<String, Measurement> read(ObjectMapper mapper, Path file) throws Exception {
+        Map<String, Measurement> measurements = new LinkedHashMap<>();
+        for (JsonNode run : mapper.readTree(Files.readAllBytes(file))) {
+            StringBuilder name = new StringBuilder(run.get("benchmark").asString()
+                    .replace("com.example.payment_gateway.", ""));
+            JsonNode params = run.get("params");
+            if (params != null) {
+                for (Entry<String, JsonNode> param : params.properties()) {
+                    name.append(':').append(param.getKey()).append('=').append(param.getValue().asString());
+                }
+            }
+            String mode = run.get("mode").asString();
+            name.append(" (").append(mode).append(')');
+
+            double bytesPerOp = 0;
+            JsonNode secondary = run.get("secondaryMetrics");
+            if (secondary != null) {
+                for (Entry<String, JsonNode> metric : secondary.properties()) {
+                    if (metric.getKey().endsWith(ALLOCATION_METRIC)) {
+                        bytesPerOp = metric.getValue().get("score").asDouble();
+                    }
+                }
+            }
+
+            measurements.put(name.toString(), new Measurement(
+                    run.get("primaryMetric").get("score").asDouble(), bytesPerOp, mode.equals("thrpt")));
+        }
+        return measurements;
+    }
+
+    private record Measurement(double score, double bytesPerOp, boolean higherIsBetter) {}
+}
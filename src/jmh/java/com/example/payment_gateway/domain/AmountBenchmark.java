@@ -0,0 +1,86 @@
+package com.example.payment_gateway.domain;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Amount handling on the create and reconciliation paths, as Amount and long minor units against the
+ * BigDecimal it replaced: reading and writing the JSON number, checking its precision for the currency,
+ * and comparing a stored amount with a settled one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AmountBenchmark {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+
+    private final byte[] json = "125.50".getBytes();
+
+    // Not final, so the JIT cannot fold the conversions below into constants.
+    private CurrencyUnit currency = CurrencyUnit.of("EUR");
+
+    private Amount amount = Amount.parse("125.50");
+
+    private BigDecimal decimal = new BigDecimal("125.50");
+
+    // A settled amount in stored units, as SettlementFile parses it.
+    private long settled = 1_255_000;
+
+    private long minorUnits = 12_550;
+
+    @Benchmark
+    public Amount readJson() {
+        return objectMapper.readValue(json, Amount.class);
+    }
+
+    @Benchmark
+    public BigDecimal readJsonBigDecimal() {
+        return objectMapper.readValue(json, BigDecimal.class);
+    }
+
+    // Responses are built from a payment per request; a reused BigDecimal would serialize its cached string.
+    @Benchmark
+    public byte[] writeJson() {
+        return objectMapper.writeValueAsBytes(Amount.ofMinorUnits(minorUnits, currency));
+    }
+
+    @Benchmark
+    public byte[] writeJsonBigDecimal() {
+        return objectMapper.writeValueAsBytes(BigDecimal.valueOf(minorUnits, currency.exponent()));
+    }
+
+    // Validation and Payment.create: reject extra decimals, then convert to minor units.
+    @Benchmark
+    public long toMinorUnits() {
+        return amount.fitsIn(currency) ? amount.toMinorUnits(currency) : -1;
+    }
+
+    @Benchmark
+    public long toMinorUnitsBigDecimal() {
+        return decimal.stripTrailingZeros().scale() <= currency.exponent()
+                ? decimal.movePointRight(currency.exponent()).longValueExact()
+                : -1;
+    }
+
+    // Reconciliation: a payment's amount against the settled amount of its line.
+    @Benchmark
+    public boolean compareSettled() {
+        return currency.toStorageUnits(minorUnits) == settled;
+    }
+
+    @Benchmark
+    public boolean compareSettledBigDecimal() {
+        return decimal.movePointRight(CurrencyUnit.STORAGE_SCALE).longValueExact() == settled;
+    }
+}
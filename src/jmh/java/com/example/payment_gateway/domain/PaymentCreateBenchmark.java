@@ -0,0 +1,32 @@
+package com.example.payment_gateway.domain;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.example.payment_gateway.api.dto.CreatePaymentRequest;
+
+// Cost of building a new payment: id generation, currency normalization and the builder.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PaymentCreateBenchmark {
+
+    private final CreatePaymentRequest request =
+            new CreatePaymentRequest(Amount.parse("125.50"), "eur", "customer-0001");
+
+    @Benchmark
+    public Payment create() {
+        return Payment.create(request);
+    }
+
+    @Benchmark
+    public Object generateId() {
+        return UuidV7.generate();
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.payment_gateway.service;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+/**
+ * Throughput of the full admission path (concurrency slot, token bucket, release) with four threads
+ * hammering either one customer or many. The rate is high enough that every call is admitted, so each
+ * one performs the CAS on its bucket and on the shared semaphore: the contended worst case.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+public class AdmissionControlBenchmark {
+
+    @Param({"1", "10000"})
+    private int customers;
+
+    private String[] customerIds;
+
+    private AdmissionControl admission;
+
+    @Setup
+    public void setUp() {
+        customerIds = new String[customers];
+        for (int i = 0; i < customers; i++) {
+            customerIds[i] = "customer-" + i;
+        }
+        admission = new AdmissionControl(true,
+                new CustomerRateLimiter(1e9, 1_000_000, Duration.ofMinutes(5), 64, System::nanoTime),
+                new ConcurrencyLimiter(1000, () -> 0, 8), Duration.ofSeconds(1), new CompositeMeterRegistry());
+    }
+
+    // Returns whether the call was admitted; a thread preempted mid-call may rarely see a stale clock.
+    @Benchmark
+    public boolean admitAndRelease() {
+        String customerId = customerIds[ThreadLocalRandom.current().nextInt(customers)];
+        try (AdmissionControl.Permit permit = admission.admit(customerId)) {
+            // Holds the slot only for the duration of the call, like an instantly served request.
+            return true;
+        } catch (AdmissionRejectedException e) {
+            return false;
+        }
+    }
+}
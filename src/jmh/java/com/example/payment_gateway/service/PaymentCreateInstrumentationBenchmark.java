@@ -0,0 +1,98 @@
+package com.example.payment_gateway.service;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.payment_gateway.api.dto.CreatePaymentRequest;
+import com.example.payment_gateway.config.IdempotencyProperties;
+import com.example.payment_gateway.config.LedgerProperties;
+import com.example.payment_gateway.config.PaymentBatchingProperties;
+import com.example.payment_gateway.domain.Amount;
+import com.example.payment_gateway.service.PaymentServiceCreateBenchmark.InMemoryStore;
+import com.example.payment_gateway.service.PaymentServiceCreateBenchmark.NoOpTransactionManager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Cost of the create-path meters: the same in-memory PaymentService.create flow as
+ * PaymentServiceCreateBenchmark, once with no-op meters (a composite registry with no children)
+ * and once recording every stage timer, histogram and counter into a Prometheus registry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PaymentCreateInstrumentationBenchmark {
+
+    @Param({"noop", "prometheus"})
+    private String registry;
+
+    private final AtomicLong keys = new AtomicLong();
+
+    private final CreatePaymentRequest request =
+            new CreatePaymentRequest(Amount.parse("125.50"), "EUR", "customer-0001");
+
+    private PaymentService service;
+
+    private String replayKey;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        ObjectMapper objectMapper = JsonMapper.builder().build();
+        InMemoryStore store = new InMemoryStore();
+        MeterRegistry meterRegistry = registry.equals("prometheus")
+                ? new PrometheusMeterRegistry(PrometheusConfig.DEFAULT)
+                : new CompositeMeterRegistry();
+        PaymentCreateBatcher disabledBatcher = new PaymentCreateBatcher(null,
+                new PaymentBatchingProperties(false, 64, Duration.ofMillis(5), 1, 1),
+                meterRegistry, new SimpleAsyncTaskExecutorBuilder());
+
+        service = new PaymentService(
+                store.paymentJdbcRepository(),
+                new OutboxWriter(store.outboxRepository(), objectMapper),
+                new LedgerWriter(store.ledgerRepository(),
+                        new LedgerProperties("merchant:default", "customer:", false, Duration.ofSeconds(5))),
+                store.sagaWriter(),
+                store,
+                new RequestHasher(objectMapper),
+                new CreatedResponseEncoder(objectMapper),
+                new TransactionTemplate(new NoOpTransactionManager()),
+                new IdempotencyProperties(IdempotencyWriteMode.RESERVE_FIRST, true),
+                disabledBatcher,
+                meterRegistry
+        );
+
+        replayKey = "replay-" + UUID.randomUUID();
+        service.create(replayKey, request);
+    }
+
+    // New key: hash, lookup, upsert, payment and outbox stages plus the created latency and a miss.
+    @Benchmark
+    public PaymentService.CreateResult createNew() {
+        return service.create("key-" + keys.incrementAndGet(), request);
+    }
+
+    // Known key: hash and lookup stages plus the replayed latency and a hit.
+    @Benchmark
+    public PaymentService.CreateResult replay() {
+        return service.create(replayKey, request);
+    }
+}
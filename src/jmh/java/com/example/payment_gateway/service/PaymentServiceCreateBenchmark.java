@@ -0,0 +1,253 @@
+package com.example.payment_gateway.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.payment_gateway.api.dto.CreatePaymentRequest;
+import com.example.payment_gateway.config.IdempotencyProperties;
+import com.example.payment_gateway.config.LedgerProperties;
+import com.example.payment_gateway.config.PaymentBatchingProperties;
+import com.example.payment_gateway.config.SagaProperties;
+import com.example.payment_gateway.domain.Amount;
+import com.example.payment_gateway.domain.IdempotencyKey;
+import com.example.payment_gateway.domain.LedgerEntry;
+import com.example.payment_gateway.domain.OutboxEvent;
+import com.example.payment_gateway.domain.Payment;
+import com.example.payment_gateway.domain.PaymentSaga;
+import com.example.payment_gateway.domain.StoredResponse;
+import com.example.payment_gateway.repository.IdempotencyKeyRepository;
+import com.example.payment_gateway.repository.LedgerJdbcRepository;
+import com.example.payment_gateway.repository.OutboxJdbcRepository;
+import com.example.payment_gateway.repository.PaymentJdbcRepository;
+import com.example.payment_gateway.repository.PaymentSagaJdbcRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Runs the whole PaymentService.create flow (hashing, single-flight, transaction template,
+ * idempotency reservation, payment and outbox writes) against in-memory repositories, so the
+ * score is the service's own CPU and allocation cost without any database round trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PaymentServiceCreateBenchmark {
+
+    @Param({"RESERVE_FIRST", "PAYMENT_FIRST"})
+    private IdempotencyWriteMode writeMode;
+
+    private final AtomicLong keys = new AtomicLong();
+
+    private final CreatePaymentRequest request =
+            new CreatePaymentRequest(Amount.parse("125.50"), "EUR", "customer-0001");
+
+    private InMemoryStore store;
+
+    private PaymentService service;
+
+    private String replayKey;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        ObjectMapper objectMapper = JsonMapper.builder().build();
+        store = new InMemoryStore();
+        PaymentCreateBatcher disabledBatcher = new PaymentCreateBatcher(null,
+                new PaymentBatchingProperties(false, 64, Duration.ofMillis(5), 1, 1),
+                new SimpleMeterRegistry(), new SimpleAsyncTaskExecutorBuilder());
+
+        service = new PaymentService(
+                store.paymentJdbcRepository(),
+                new OutboxWriter(store.outboxRepository(), objectMapper),
+                new LedgerWriter(store.ledgerRepository(),
+                        new LedgerProperties("merchant:default", "customer:", false, Duration.ofSeconds(5))),
+                store.sagaWriter(),
+                store,
+                new RequestHasher(objectMapper),
+                new CreatedResponseEncoder(objectMapper),
+                new TransactionTemplate(new NoOpTransactionManager()),
+                new IdempotencyProperties(writeMode, true),
+                disabledBatcher,
+                new SimpleMeterRegistry()
+        );
+
+        replayKey = "replay-" + UUID.randomUUID();
+        service.create(replayKey, request);
+    }
+
+    // First request for a new Idempotency-Key, including serializing the response to store with it.
+    @Benchmark
+    public PaymentService.CreateResult createNew() {
+        return service.create("key-" + keys.incrementAndGet(), request);
+    }
+
+    // Retry of a request that already succeeded, answered with the stored response.
+    @Benchmark
+    public PaymentService.CreateResult replay() {
+        return service.create(replayKey, request);
+    }
+
+    // Stands in for the payments, idempotency_keys, outbox_events and ledger_entries tables.
+    static final class InMemoryStore implements IdempotencyKeyRepository {
+
+        private final Map<UUID, Payment> payments = new ConcurrentHashMap<>();
+
+        private final Map<String, IdempotencyKey> idempotencyKeys = new ConcurrentHashMap<>();
+
+        private final AtomicLong outboxEvents = new AtomicLong();
+
+        private final AtomicLong ledgerEntries = new AtomicLong();
+
+        private final AtomicLong sagas = new AtomicLong();
+
+        PaymentJdbcRepository paymentJdbcRepository() {
+            return new PaymentJdbcRepository(null) {
+                @Override
+                public void insert(Payment payment) {
+                    payments.put(payment.getId(), payment);
+                }
+
+                @Override
+                public void insertAll(List<Payment> batch) {
+                    batch.forEach(this::insert);
+                }
+
+                @Override
+                public Optional<Payment> findById(UUID id) {
+                    return Optional.ofNullable(payments.get(id));
+                }
+
+                @Override
+                public List<Payment> findAllById(Collection<UUID> ids) {
+                    List<Payment> found = new ArrayList<>();
+                    for (UUID id : ids) {
+                        Payment payment = payments.get(id);
+                        if (payment != null) {
+                            found.add(payment);
+                        }
+                    }
+                    return found;
+                }
+            };
+        }
+
+        OutboxJdbcRepository outboxRepository() {
+            return new OutboxJdbcRepository(null) {
+                @Override
+                public void insert(OutboxEvent event) {
+                    outboxEvents.incrementAndGet();
+                }
+
+                @Override
+                public void insertAll(List<OutboxEvent> events) {
+                    outboxEvents.addAndGet(events.size());
+                }
+            };
+        }
+
+        LedgerJdbcRepository ledgerRepository() {
+            return new LedgerJdbcRepository(null) {
+                @Override
+                public void insertAll(List<LedgerEntry> entries) {
+                    ledgerEntries.addAndGet(entries.size());
+                }
+            };
+        }
+
+        PaymentSagaWriter sagaWriter() {
+            PaymentSagaJdbcRepository sagaRepository = new PaymentSagaJdbcRepository(null) {
+                @Override
+                public void insertAll(List<PaymentSaga> started) {
+                    sagas.addAndGet(started.size());
+                }
+            };
+            return new PaymentSagaWriter(sagaRepository, new SagaProperties(false, "simulated", Duration.ofMillis(200),
+                    100, 32, Map.of(), Duration.ofSeconds(10), 5, Duration.ofSeconds(1), Duration.ofMinutes(5), 4));
+        }
+
+        @Override
+        public Optional<IdempotencyKey> findByKey(String idempotencyKey) {
+            return Optional.ofNullable(idempotencyKeys.get(idempotencyKey));
+        }
+
+        @Override
+        public IdempotencyKey insertOrGetExisting(String idempotencyKey, byte[] requestHash, UUID paymentId,
+                                                  StoredResponse response) {
+            IdempotencyKey record = IdempotencyKey.builder()
+                    .idempotencyKey(idempotencyKey)
+                    .requestHash(requestHash)
+                    .paymentId(paymentId)
+                    .createdAt(Instant.now())
+                    .response(response)
+                    .build();
+            IdempotencyKey existing = idempotencyKeys.putIfAbsent(idempotencyKey, record);
+            return existing != null ? existing : record;
+        }
+
+        @Override
+        public Map<String, IdempotencyKey> findAllByKeys(Collection<String> keys) {
+            Map<String, IdempotencyKey> found = new HashMap<>();
+            for (String key : keys) {
+                IdempotencyKey record = idempotencyKeys.get(key);
+                if (record != null) {
+                    found.put(key, record);
+                }
+            }
+            return found;
+        }
+
+        @Override
+        public Map<String, IdempotencyKey> insertAllOrGetExisting(List<IdempotencyKey> records) {
+            Map<String, IdempotencyKey> resolved = new HashMap<>();
+            for (IdempotencyKey record : records) {
+                IdempotencyKey existing = idempotencyKeys.putIfAbsent(record.getIdempotencyKey(), record);
+                resolved.put(record.getIdempotencyKey(), existing != null ? existing : record);
+            }
+            return resolved;
+        }
+    }
+
+    // Runs the template callback without any real transaction behind it.
+    static final class NoOpTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.payment_gateway.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.example.payment_gateway.api.dto.CreatePaymentRequest;
+import com.example.payment_gateway.domain.Amount;
+
+import tools.jackson.databind.json.JsonMapper;
+
+// Cost of fingerprinting a create request for idempotency checks, canonical encoding vs the JSON-based original.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RequestHasherBenchmark {
+
+    private final JsonMapper objectMapper = JsonMapper.builder().build();
+
+    private final RequestHasher hasher = new RequestHasher(objectMapper);
+
+    private final LegacyRequestHasher legacyHasher = new LegacyRequestHasher(objectMapper);
+
+    private final CreatePaymentRequest request =
+            new CreatePaymentRequest(Amount.parse("125.50"), "EUR", "customer-0001");
+
+    @Benchmark
+    public byte[] hash() {
+        return hasher.hash(request);
+    }
+
+    // JSON serialization plus a fresh MessageDigest, as used for hash version 0 records.
+    @Benchmark
+    public byte[] legacyHash() {
+        return legacyHasher.hash(request);
+    }
+
+    // The original hasher including its String.format hex encoding, kept for comparison.
+    @Benchmark
+    public String legacyHexHash() {
+        byte[] hash = legacyHasher.hash(request);
+        StringBuilder sb = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}
@@ -1,9 +1,12 @@
 package com.example.payment_gateway.api;
 
+import com.example.payment_gateway.service.AdmissionRejectedException;
 import com.example.payment_gateway.service.IdempotencyConflictException;
 import com.example.payment_gateway.service.PaymentNotFoundException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
 
@@ -54,6 +57,24 @@ public class ApiExceptionHandler {
         return pd;
     }
 
+    // Handles requests shed by admission control; Retry-After tells well-behaved clients when to come back.
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public ResponseEntity<ProblemDetail> handleAdmissionRejected(AdmissionRejectedException ex) {
+        HttpStatus status = ex.getReason() == AdmissionRejectedException.Reason.RATE_LIMITED
+                ? HttpStatus.TOO_MANY_REQUESTS
+                : HttpStatus.SERVICE_UNAVAILABLE;
+        ProblemDetail pd = ProblemDetail.forStatus(status);
+        pd.setTitle(status == HttpStatus.TOO_MANY_REQUESTS ? "Rate limit exceeded" : "Service overloaded");
+        pd.setDetail(ex.getMessage());
+        pd.setProperty("timestamp", Instant.now().toString());
+
+        // Retry-After takes whole seconds; rounds up so a retry never arrives before a token does.
+        long retryAfterSeconds = Math.max(1, (ex.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(status)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds))
+                .body(pd);
+    }
+
     // Handles invalid arguments that indicate a malformed or incorrect client request.
     @ExceptionHandler(IllegalArgumentException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
@@ -0,0 +1,47 @@
+package com.example.payment_gateway.api;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.UUID;
+
+import com.example.payment_gateway.domain.Payment;
+
+/**
+ * Opaque position in a customer's payment history: the (created_at, id) of the last payment returned.
+ * Encoded as base64url of the creation time in epoch microseconds followed by the id, so clients
+ * cannot build or tamper with it meaningfully and the format can change without breaking the API.
+ */
+record CustomerPaymentCursor(Instant createdAt, UUID id) {
+
+    private static final int ENCODED_BYTES = Long.BYTES * 3;
+
+    static CustomerPaymentCursor after(Payment payment) {
+        return new CustomerPaymentCursor(payment.getCreatedAt(), payment.getId());
+    }
+
+    static CustomerPaymentCursor decode(String cursor) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (bytes.length != ENCODED_BYTES) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        Instant createdAt = Instant.EPOCH.plus(buffer.getLong(), ChronoUnit.MICROS);
+        return new CustomerPaymentCursor(createdAt, new UUID(buffer.getLong(), buffer.getLong()));
+    }
+
+    // Microseconds match the precision of timestamptz, so the position compares exactly with the stored row.
+    String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(ENCODED_BYTES)
+                .putLong(ChronoUnit.MICROS.between(Instant.EPOCH, createdAt))
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+}
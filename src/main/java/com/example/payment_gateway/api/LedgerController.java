@@ -0,0 +1,32 @@
+package com.example.payment_gateway.api;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.payment_gateway.api.dto.AccountBalanceResponse;
+import com.example.payment_gateway.service.LedgerService;
+
+import lombok.RequiredArgsConstructor;
+
+// Exposes ledger account balances.
+@RestController
+@RequestMapping("/ledger")
+@RequiredArgsConstructor
+public class LedgerController {
+
+    // Reads balances from snapshots and their tails.
+    private final LedgerService ledgerService;
+
+    // Current balance of one account in one currency.
+    @GetMapping("/accounts/{accountId}/balance")
+    public AccountBalanceResponse balance(@PathVariable String accountId, @RequestParam String currency) {
+        if (currency.length() != 3) {
+            throw new IllegalArgumentException("currency must be a 3-letter code");
+        }
+        String code = currency.toUpperCase();
+        return AccountBalanceResponse.from(accountId, code, ledgerService.balance(accountId, code));
+    }
+}
@@ -1,8 +1,14 @@
 package com.example.payment_gateway.api;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -10,15 +16,28 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.payment_gateway.api.dto.BatchPaymentRequest;
+import com.example.payment_gateway.api.dto.BatchPaymentResult;
 import com.example.payment_gateway.api.dto.CreatePaymentRequest;
+import com.example.payment_gateway.api.dto.PaymentPage;
 import com.example.payment_gateway.api.dto.PaymentResponse;
 import com.example.payment_gateway.domain.Payment;
+import com.example.payment_gateway.domain.StoredResponse;
+import com.example.payment_gateway.service.AdmissionControl;
+import com.example.payment_gateway.service.PaymentBulkService;
+import com.example.payment_gateway.service.PaymentHistoryService;
+import com.example.payment_gateway.service.PaymentLookupService;
+import com.example.payment_gateway.service.PaymentResponseCache;
 import com.example.payment_gateway.service.PaymentService;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import tools.jackson.databind.MappingIterator;
+import tools.jackson.databind.ObjectMapper;
 
 // Exposes REST endpoints related to payment operations.
 @RestController
@@ -26,38 +45,157 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class PaymentController {
 
+    // Upper bound for page sizes requested by clients.
+    private static final int MAX_PAGE_SIZE = 1000;
+
     // Injects the payment service to delegate business logic.
     private final PaymentService service;
 
+    // Applies per-customer rate limits and the global concurrency limit to payment creation.
+    private final AdmissionControl admissionControl;
+
+    // Serves single payments from the response cache.
+    private final PaymentLookupService lookupService;
+
+    // Serves the per-customer history pages and exports.
+    private final PaymentHistoryService historyService;
+
+    // Creates payments from a streamed batch request.
+    private final PaymentBulkService bulkService;
+
+    // Reads batch items and writes exports and batch results one JSON line at a time.
+    private final ObjectMapper objectMapper;
+
     // Creates a new payment using an idempotency key to prevent duplicate processing.
     @PostMapping
-    public ResponseEntity<PaymentResponse> create(@RequestHeader("Idempotency-Key") String idempotencyKey,
-                                                  @Valid
-                                                  @RequestBody CreatePaymentRequest request) {
-        
-        Payment payment = service.create(idempotencyKey, request);
-        
+    public ResponseEntity<byte[]> create(@RequestHeader("Idempotency-Key") String idempotencyKey,
+                                         @Valid
+                                         @RequestBody CreatePaymentRequest request) {
+
+        // Sheds the request up front when the customer is over its rate or the instance is saturated.
+        StoredResponse response;
+        try (AdmissionControl.Permit permit = admissionControl.admit(request.customerId())) {
+            // The body was serialized once when the key was first used; retries get the same bytes back.
+            response = service.create(idempotencyKey, request).response();
+        }
+
         // Returns HTTP 201 with Location header pointing to the created resource.
         return ResponseEntity
-            .created(URI.create("/payments/" + payment.getId()))
-            .body(toResponse(payment));
+            .status(response.status())
+            .location(URI.create(response.location()))
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(response.body());
+    }
+
+    /**
+     * Creates many payments from a JSON array or NDJSON body in which every item carries its own
+     * idempotency key, and streams one NDJSON result line per item as each chunk is committed.
+     * The body is parsed incrementally, so neither the request nor the response is held in memory.
+     */
+    @PostMapping(value = "/batch",
+                 consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+                 produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> createBatch(InputStream body) {
+        StreamingResponseBody response = out -> {
+            try (MappingIterator<BatchPaymentRequest> items =
+                         objectMapper.readerFor(BatchPaymentRequest.class).readValues(body)) {
+                bulkService.createAll(items, results -> {
+                    try {
+                        for (PaymentBulkService.ItemResult result : results) {
+                            out.write(objectMapper.writeValueAsBytes(toBatchResult(result)));
+                            out.write('\n');
+                        }
+                        // Sends each chunk's results as soon as it is committed.
+                        out.flush();
+                    } catch (IOException e) {
+                        // Stops reading further chunks when the client goes away.
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(response);
     }
 
-    // Retrieves a payment by its unique identifier.
+    /**
+     * Retrieves a payment by its unique identifier, tagged with a strong ETag taken from its version.
+     * A cached payment is served without a database read, and a request whose If-None-Match still
+     * matches gets 304 Not Modified with no body.
+     */
     @GetMapping("/{id}")
-    public PaymentResponse get(@PathVariable UUID id) {
-        return toResponse(service.get(id));
-    }
-
-    // Maps domain Payment entity to an API response DTO.
-    private PaymentResponse toResponse(Payment p) {
-        return new PaymentResponse(
-                p.getId(),
-                p.getAmount(),
-                p.getCurrency(),
-                p.getCustomerId(),
-                p.getStatus(),
-                p.getCreatedAt()
+    public ResponseEntity<byte[]> get(@PathVariable UUID id) {
+        PaymentResponseCache.Entry payment = lookupService.get(id);
+        return ResponseEntity.ok()
+            .eTag(Long.toString(payment.version()))
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(payment.body());
+    }
+
+    // Lists payments created in [from, to) in creation order, one page at a time.
+    @GetMapping(params = {"from", "to"})
+    public PaymentPage listCreatedBetween(@RequestParam Instant from,
+                                          @RequestParam Instant to,
+                                          @RequestParam(required = false) UUID after,
+                                          @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        List<Payment> payments = service.findCreatedBetween(from, to, after, limit);
+
+        // A full page may have more results; the last id is the cursor for the next one.
+        String nextCursor = payments.size() == limit ? payments.get(payments.size() - 1).getId().toString() : null;
+        return new PaymentPage(payments.stream().map(PaymentController::toResponse).toList(), nextCursor);
+    }
+
+    // Lists a customer's payments, newest first, one keyset page at a time.
+    @GetMapping(params = "customerId")
+    public PaymentPage listByCustomer(@RequestParam String customerId,
+                                      @RequestParam(required = false) String cursor,
+                                      @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        CustomerPaymentCursor after = cursor == null ? null : CustomerPaymentCursor.decode(cursor);
+        List<Payment> payments = after == null
+                ? historyService.findByCustomer(customerId, null, null, limit)
+                : historyService.findByCustomer(customerId, after.createdAt(), after.id(), limit);
+
+        // A full page may have more results; the position of its last payment is the cursor for the next one.
+        String nextCursor = payments.size() == limit
+                ? CustomerPaymentCursor.after(payments.get(payments.size() - 1)).encode()
+                : null;
+        return new PaymentPage(payments.stream().map(PaymentController::toResponse).toList(), nextCursor);
+    }
+
+    // Streams a customer's whole history as NDJSON, newest first, without holding it in memory.
+    @GetMapping(value = "/export", params = "customerId", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportByCustomer(@RequestParam String customerId) {
+        StreamingResponseBody body = out -> historyService.exportByCustomer(customerId, payment -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(toResponse(payment)));
+                out.write('\n');
+            } catch (IOException e) {
+                // Aborts the query when the client goes away.
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    private static BatchPaymentResult toBatchResult(PaymentBulkService.ItemResult result) {
+        return new BatchPaymentResult(
+                result.index(),
+                result.idempotencyKey(),
+                result.outcome(),
+                result.payment() == null ? null : toResponse(result.payment()),
+                result.error()
         );
     }
+
+    // Maps domain Payment entity to an API response DTO; package-private for the JMH benchmarks.
+    static PaymentResponse toResponse(Payment p) {
+        return PaymentResponse.from(p);
+    }
 }
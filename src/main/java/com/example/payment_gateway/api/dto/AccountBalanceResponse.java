@@ -0,0 +1,21 @@
+package com.example.payment_gateway.api.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import com.example.payment_gateway.repository.LedgerJdbcRepository.Balance;
+
+// Balance of a ledger account; positive when debits exceed credits.
+public record AccountBalanceResponse(
+        String accountId,
+        String currency,
+        BigDecimal balance,
+        Instant snapshotTakenAt,
+        long entriesSinceSnapshot
+) {
+
+    public static AccountBalanceResponse from(String accountId, String currency, Balance balance) {
+        return new AccountBalanceResponse(accountId, currency, balance.amount(), balance.snapshotTakenAt(),
+                balance.tailEntries());
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.payment_gateway.api.dto;
+
+import com.example.payment_gateway.domain.Amount;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+// One item of POST /payments/batch; carries its own idempotency key instead of a header.
+@ValidAmount
+public record BatchPaymentRequest(
+        @NotBlank @Size(max = 100) String idempotencyKey,
+        @NotNull Amount amount,
+        @NotBlank String currency,
+        @NotBlank String customerId
+) implements ValidAmount.Subject {
+
+    public CreatePaymentRequest toCreatePaymentRequest() {
+        return new CreatePaymentRequest(amount, currency, customerId);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.payment_gateway.api.dto;
+
+import com.example.payment_gateway.service.PaymentBulkService.Outcome;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// One line of the POST /payments/batch response; index is the item's zero-based position in the request.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchPaymentResult(
+        int index,
+        String idempotencyKey,
+        Outcome outcome,
+        PaymentResponse payment,
+        String error
+) {}
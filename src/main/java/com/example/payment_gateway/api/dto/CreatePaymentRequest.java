@@ -1,14 +1,13 @@
 package com.example.payment_gateway.api.dto;
 
-import java.math.BigDecimal;
+import com.example.payment_gateway.domain.Amount;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
-import jakarta.validation.constraints.Positive;
 
+@ValidAmount
 public record CreatePaymentRequest(
-        @NotNull @Positive BigDecimal amount,
+        @NotNull Amount amount,
         @NotBlank String currency,
         @NotBlank String customerId
-) {}
-
+) implements ValidAmount.Subject {}
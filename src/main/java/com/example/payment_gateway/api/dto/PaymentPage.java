@@ -0,0 +1,8 @@
+package com.example.payment_gateway.api.dto;
+
+import java.util.List;
+
+public record PaymentPage(
+        List<PaymentResponse> items,
+        String nextCursor
+) {}
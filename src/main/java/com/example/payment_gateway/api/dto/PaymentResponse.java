@@ -1,17 +1,32 @@
 package com.example.payment_gateway.api.dto;
 
-import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.UUID;
 
+import com.example.payment_gateway.domain.Amount;
+import com.example.payment_gateway.domain.CurrencyUnit;
+import com.example.payment_gateway.domain.Payment;
 import com.example.payment_gateway.domain.PaymentStatus;
 
 public record PaymentResponse(
         UUID id,
-        BigDecimal amount,
+        Amount amount,
         String currency,
         String customerId,
         PaymentStatus status,
         Instant createdAt
-) {}
+) {
+
+    // Maps domain Payment entity to the API response.
+    public static PaymentResponse from(Payment p) {
+        return new PaymentResponse(
+                p.getId(),
+                Amount.ofMinorUnits(p.getAmount(), CurrencyUnit.of(p.getCurrency())),
+                p.getCurrency(),
+                p.getCustomerId(),
+                p.getStatus(),
+                p.getCreatedAt()
+        );
+    }
+}
 
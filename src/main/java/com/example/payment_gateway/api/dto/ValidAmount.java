@@ -0,0 +1,36 @@
+package com.example.payment_gateway.api.dto;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.example.payment_gateway.domain.Amount;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+/**
+ * Checks that a request's currency is a known ISO 4217 code and that its amount is positive and has
+ * no more decimals than that currency, reporting on the amount and currency fields. Missing values
+ * are left to @NotNull and @NotBlank.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Constraint(validatedBy = ValidAmountValidator.class)
+public @interface ValidAmount {
+
+    String message() default "invalid amount";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+
+    // Implemented by requests carrying an amount in a currency.
+    interface Subject {
+
+        Amount amount();
+
+        String currency();
+    }
+}
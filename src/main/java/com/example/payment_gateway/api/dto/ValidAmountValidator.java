@@ -0,0 +1,39 @@
+package com.example.payment_gateway.api.dto;
+
+import com.example.payment_gateway.domain.CurrencyUnit;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+// Validates @ValidAmount against the currency registry, without converting the amount.
+public class ValidAmountValidator implements ConstraintValidator<ValidAmount, ValidAmount.Subject> {
+
+    @Override
+    public boolean isValid(ValidAmount.Subject request, ConstraintValidatorContext context) {
+        if (request == null) {
+            return true;
+        }
+        boolean valid = true;
+        if (request.amount() != null && request.amount().signum() <= 0) {
+            valid = violation(context, "amount", "must be greater than 0");
+        }
+        if (request.currency() == null || request.currency().isBlank()) {
+            return valid;
+        }
+        CurrencyUnit currency = CurrencyUnit.lookup(request.currency());
+        if (currency == null) {
+            return violation(context, "currency", "must be an ISO 4217 currency code");
+        }
+        if (valid && request.amount() != null && !request.amount().fitsIn(currency)) {
+            valid = violation(context, "amount", "must have at most " + currency.exponent()
+                    + " decimal places for " + currency.code());
+        }
+        return valid;
+    }
+
+    private static boolean violation(ConstraintValidatorContext context, String field, String message) {
+        context.disableDefaultConstraintViolation();
+        context.buildConstraintViolationWithTemplate(message).addPropertyNode(field).addConstraintViolation();
+        return false;
+    }
+}
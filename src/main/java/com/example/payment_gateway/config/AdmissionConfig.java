@@ -0,0 +1,59 @@
+package com.example.payment_gateway.config;
+
+import java.sql.SQLException;
+import java.util.function.IntSupplier;
+
+import javax.sql.DataSource;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.payment_gateway.service.AdmissionControl;
+import com.example.payment_gateway.service.ConcurrencyLimiter;
+import com.example.payment_gateway.service.CustomerRateLimiter;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Wires admission control for POST /payments and /payments/batch, sizing the global limit from the Hikari pool.
+@Configuration
+public class AdmissionConfig {
+
+    // Hikari's own default, assumed when the DataSource is not a Hikari pool.
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    @Bean
+    public AdmissionControl admissionControl(AdmissionProperties properties, DataSource dataSource,
+                                             MeterRegistry meterRegistry) throws SQLException {
+        HikariDataSource pool = dataSource.isWrapperFor(HikariDataSource.class)
+                ? dataSource.unwrap(HikariDataSource.class)
+                : null;
+
+        // Without an explicit limit, allows a few requests per pooled connection: enough to keep every
+        // connection busy while others are between statements, not enough to build a queue on the pool.
+        int limit = properties.maxConcurrent() > 0
+                ? properties.maxConcurrent()
+                : (pool != null ? pool.getMaximumPoolSize() : DEFAULT_POOL_SIZE) * properties.concurrentPerConnection();
+
+        return new AdmissionControl(
+                properties.enabled(),
+                new CustomerRateLimiter(properties.customerRate(), properties.customerBurst(),
+                        properties.customerIdleTimeout(), properties.stripes(), System::nanoTime),
+                new ConcurrencyLimiter(limit, pendingConnections(pool), properties.maxPendingConnections()),
+                properties.overloadRetryAfter(),
+                meterRegistry
+        );
+    }
+
+    // The pool MXBean only exists once the pool has started; until then nobody can be waiting on it.
+    private static IntSupplier pendingConnections(HikariDataSource pool) {
+        if (pool == null) {
+            return () -> 0;
+        }
+        return () -> {
+            HikariPoolMXBean mxBean = pool.getHikariPoolMXBean();
+            return mxBean == null ? 0 : mxBean.getThreadsAwaitingConnection();
+        };
+    }
+}
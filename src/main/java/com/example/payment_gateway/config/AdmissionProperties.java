@@ -0,0 +1,39 @@
+package com.example.payment_gateway.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// Per-customer rate limits and the global concurrency limit applied to POST /payments and /payments/batch.
+@ConfigurationProperties(prefix = "payments.admission")
+public record AdmissionProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("100") double customerRate,
+        @DefaultValue("200") int customerBurst,
+        @DefaultValue("5m") Duration customerIdleTimeout,
+        @DefaultValue("64") int stripes,
+        @DefaultValue("1m") Duration evictionInterval,
+        @DefaultValue("0") int maxConcurrent,
+        @DefaultValue("2") int concurrentPerConnection,
+        @DefaultValue("8") int maxPendingConnections,
+        @DefaultValue("1s") Duration overloadRetryAfter
+) {
+
+    public AdmissionProperties {
+        if (customerRate <= 0) {
+            throw new IllegalArgumentException("payments.admission.customer-rate must be positive");
+        }
+        if (customerBurst < 1) {
+            throw new IllegalArgumentException("payments.admission.customer-burst must be at least 1");
+        }
+        if (stripes < 1 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("payments.admission.stripes must be a power of two");
+        }
+        if (maxConcurrent < 0 || concurrentPerConnection < 1 || maxPendingConnections < 1) {
+            throw new IllegalArgumentException(
+                    "payments.admission.max-concurrent must not be negative, concurrent-per-connection"
+                    + " and max-pending-connections must be at least 1");
+        }
+    }
+}
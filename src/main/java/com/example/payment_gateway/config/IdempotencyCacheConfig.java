@@ -0,0 +1,43 @@
+package com.example.payment_gateway.config;
+
+import java.time.Clock;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import com.example.payment_gateway.repository.CachingIdempotencyKeyRepository;
+import com.example.payment_gateway.repository.IdempotencyKeyJdbcRepository;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+// Wires the idempotency cache in front of the JDBC repository when enabled.
+@Configuration
+public class IdempotencyCacheConfig {
+
+    // Takes precedence over the plain JDBC repository; disable it to measure the uncached DB load.
+    @Bean
+    @Primary
+    @ConditionalOnBooleanProperty(name = "payments.idempotency.cache.enabled", matchIfMissing = true)
+    public CachingIdempotencyKeyRepository cachingIdempotencyKeyRepository(IdempotencyKeyJdbcRepository jdbcRepository,
+                                                                           IdempotencyCacheProperties properties,
+                                                                           IdempotencyRetentionProperties retentionProperties,
+                                                                           MeterRegistry meterRegistry) {
+        CachingIdempotencyKeyRepository repository = new CachingIdempotencyKeyRepository(
+                jdbcRepository,
+                properties.maximumSize().toBytes(),
+                properties.ttl(),
+                properties.negativeTtl(),
+                retentionProperties.window(),
+                Ticker.systemTicker(),
+                Clock.systemUTC()
+        );
+
+        // Publishes hit, miss and eviction counters under cache.* metrics.
+        CaffeineCacheMetrics.monitor(meterRegistry, repository.cache(), "idempotency-keys");
+        return repository;
+    }
+}
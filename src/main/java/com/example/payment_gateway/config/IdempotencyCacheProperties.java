@@ -0,0 +1,23 @@
+package com.example.payment_gateway.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+// Tuning knobs for the in-process idempotency key cache; maximumSize bounds the stored responses it holds, in bytes.
+@ConfigurationProperties(prefix = "payments.idempotency.cache")
+public record IdempotencyCacheProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("64MB") DataSize maximumSize,
+        @DefaultValue("10m") Duration ttl,
+        @DefaultValue("2s") Duration negativeTtl
+) {
+
+    public IdempotencyCacheProperties {
+        if (maximumSize.isNegative()) {
+            throw new IllegalArgumentException("payments.idempotency.cache.maximum-size must not be negative");
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.payment_gateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import com.example.payment_gateway.service.IdempotencyWriteMode;
+
+// Controls how concurrent requests sharing an Idempotency-Key are resolved.
+@ConfigurationProperties(prefix = "payments.idempotency")
+public record IdempotencyProperties(
+        @DefaultValue("RESERVE_FIRST") IdempotencyWriteMode writeMode,
+        @DefaultValue("true") boolean singleFlight
+) {}
@@ -0,0 +1,29 @@
+package com.example.payment_gateway.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// How long idempotency keys stay valid and how their time partitions are laid out.
+@ConfigurationProperties(prefix = "payments.idempotency.retention")
+public record IdempotencyRetentionProperties(
+        @DefaultValue("24h") Duration window,
+        @DefaultValue("1h") Duration partitionInterval,
+        @DefaultValue("6") int partitionsAhead,
+        @DefaultValue("10m") Duration maintenanceInterval
+) {
+
+    public IdempotencyRetentionProperties {
+        if (window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("payments.idempotency.retention.window must be positive");
+        }
+        // Partition names carry the start second, so shorter partitions could collide.
+        if (partitionInterval.compareTo(Duration.ofMinutes(1)) < 0) {
+            throw new IllegalArgumentException("payments.idempotency.retention.partition-interval must be at least 1m");
+        }
+        if (partitionsAhead < 1) {
+            throw new IllegalArgumentException("payments.idempotency.retention.partitions-ahead must be at least 1");
+        }
+    }
+}
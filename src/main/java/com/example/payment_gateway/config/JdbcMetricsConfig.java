@@ -0,0 +1,30 @@
+package com.example.payment_gateway.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Publishes per-statement JDBC timings; the Hikari pool meters (hikaricp.*) are bound by Spring Boot itself.
+@Configuration
+public class JdbcMetricsConfig {
+
+    // Static so that wrapping the DataSource does not force this configuration to be created early.
+    @Bean
+    @ConditionalOnBooleanProperty(name = "payments.metrics.jdbc-statements", matchIfMissing = true)
+    static BeanPostProcessor statementTimingDataSource(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource && !(bean instanceof StatementTimingDataSource)
+                        ? new StatementTimingDataSource(dataSource, meterRegistry.getObject())
+                        : bean;
+            }
+        };
+    }
+}
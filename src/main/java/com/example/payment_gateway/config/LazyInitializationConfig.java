@@ -0,0 +1,23 @@
+package com.example.payment_gateway.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.payment_gateway.api.PaymentController;
+import com.example.payment_gateway.service.PaymentCallbackListener;
+
+// Beans created at startup even with spring.main.lazy-initialization (the fast-startup profile); the rest,
+// e.g. the ledger endpoints and most actuator endpoints, are created on first use.
+@Configuration
+public class LazyInitializationConfig {
+
+    // Static so that the filter is known before the bean definitions it applies to are processed.
+    @Bean
+    static LazyInitializationExcludeFilter eagerPaymentPath() {
+        // The payment endpoints pull in the whole create and lookup path, so the first request does not pay
+        // for it. A @KafkaListener is only registered when its bean is created, so a lazy one never consumes.
+        // Scheduled jobs and lifecycle beans are started regardless.
+        return LazyInitializationExcludeFilter.forBeanTypes(PaymentController.class, PaymentCallbackListener.class);
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.payment_gateway.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// Accounts posted by payment creation and how often balances are snapshotted.
+@ConfigurationProperties(prefix = "payments.ledger")
+public record LedgerProperties(
+        @DefaultValue("merchant:default") String merchantAccount,
+        @DefaultValue("customer:") String customerAccountPrefix,
+        @DefaultValue("true") boolean snapshotsEnabled,
+        @DefaultValue("5s") Duration snapshotInterval
+) {
+
+    public LedgerProperties {
+        if (merchantAccount.isBlank() || merchantAccount.length() > 96) {
+            throw new IllegalArgumentException("payments.ledger.merchant-account must be 1 to 96 characters");
+        }
+        if (customerAccountPrefix.length() + 64 > 96) {
+            throw new IllegalArgumentException("payments.ledger.customer-account-prefix leaves no room for a customerId");
+        }
+        if (snapshotInterval.isNegative() || snapshotInterval.isZero()) {
+            throw new IllegalArgumentException("payments.ledger.snapshot-interval must be positive");
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.payment_gateway.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// Controls how the outbox is drained to Kafka; a relay run ends after maxBatchesPerRun batches and resumes at the next poll.
+@ConfigurationProperties(prefix = "payments.outbox.relay")
+public record OutboxRelayProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("payments.events") String topic,
+        @DefaultValue("100ms") Duration pollInterval,
+        @DefaultValue("500") int batchSize,
+        @DefaultValue("30s") Duration sendTimeout,
+        @DefaultValue("20") int maxBatchesPerRun
+) {
+
+    public OutboxRelayProperties {
+        if (batchSize < 1 || maxBatchesPerRun < 1) {
+            throw new IllegalArgumentException("payments.outbox.relay batch-size and max-batches-per-run must be positive");
+        }
+        if (sendTimeout.isNegative() || sendTimeout.isZero()) {
+            throw new IllegalArgumentException("payments.outbox.relay.send-timeout must be positive");
+        }
+    }
+
+    // A claim outlives the wait for acknowledgements, leaving the deletion of the acknowledged events as long again to commit.
+    public Duration lease() {
+        return sendTimeout.multipliedBy(2);
+    }
+}
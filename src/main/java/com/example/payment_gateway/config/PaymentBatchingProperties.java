@@ -0,0 +1,16 @@
+package com.example.payment_gateway.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// Tuning knobs for group-committing concurrent POST /payments requests.
+@ConfigurationProperties(prefix = "payments.create.batching")
+public record PaymentBatchingProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("64") int maxBatchSize,
+        @DefaultValue("5ms") Duration maxWait,
+        @DefaultValue("10000") int queueCapacity,
+        @DefaultValue("2") int writerThreads
+) {}
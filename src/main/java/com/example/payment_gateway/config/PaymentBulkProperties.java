@@ -0,0 +1,17 @@
+package com.example.payment_gateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// Tuning knobs for POST /payments/batch.
+@ConfigurationProperties(prefix = "payments.create.bulk")
+public record PaymentBulkProperties(
+        @DefaultValue("500") int chunkSize
+) {
+
+    public PaymentBulkProperties {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("payments.create.bulk.chunk-size must be at least 1");
+        }
+    }
+}
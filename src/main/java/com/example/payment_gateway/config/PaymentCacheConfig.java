@@ -0,0 +1,34 @@
+package com.example.payment_gateway.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.payment_gateway.service.ClusterPaymentCache;
+import com.example.payment_gateway.service.PaymentResponseCache;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+// Wires the payment response cache, backed by a cluster-wide level when a ClusterPaymentCache bean exists.
+@Configuration
+public class PaymentCacheConfig {
+
+    // A maximum size of 0 evicts every entry as soon as it is stored, which disables caching.
+    @Bean
+    public PaymentResponseCache paymentResponseCache(PaymentCacheProperties properties,
+                                                     ObjectProvider<ClusterPaymentCache> cluster,
+                                                     MeterRegistry meterRegistry) {
+        PaymentResponseCache cache = new PaymentResponseCache(
+                properties.maximumSize().toBytes(),
+                properties.ttl(),
+                cluster.getIfAvailable(),
+                Ticker.systemTicker()
+        );
+
+        // Publishes hit, miss and eviction counters under cache.* metrics.
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.cache(), "payments");
+        return cache;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.payment_gateway.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+// Tuning knobs for the cache of GET /payments/{id} responses.
+@ConfigurationProperties(prefix = "payments.cache")
+public record PaymentCacheProperties(
+        @DefaultValue("64MB") DataSize maximumSize,
+        @DefaultValue("10m") Duration ttl
+) {
+
+    public PaymentCacheProperties {
+        if (maximumSize.isNegative()) {
+            throw new IllegalArgumentException("payments.cache.maximum-size must not be negative");
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("payments.cache.ttl must be positive");
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.payment_gateway.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.boot.kafka.autoconfigure.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.listener.ContainerProperties.AckMode;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.ExponentialBackOff;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Listener container for provider status callbacks: batches of up to max-poll-records, offsets committed
+ * only when the listener acknowledges a batch after its database transaction has committed. A batch that
+ * fails is redelivered with exponential backoff, without end, rather than skipped, so a database outage
+ * stalls consumption (visible as lag) instead of losing callbacks.
+ */
+@Configuration
+@ConditionalOnBooleanProperty(name = "payments.callbacks.enabled", matchIfMissing = true)
+public class PaymentCallbackConsumerConfig {
+
+    @Bean
+    ConcurrentKafkaListenerContainerFactory<String, byte[]> paymentCallbackContainerFactory(
+            KafkaProperties kafkaProperties, PaymentCallbackProperties properties, MeterRegistry meterRegistry) {
+        Map<String, Object> config = new HashMap<>(kafkaProperties.buildConsumerProperties());
+        config.put(ConsumerConfig.GROUP_ID_CONFIG, properties.groupId());
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, properties.maxPollRecords());
+        config.putIfAbsent(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+
+        DefaultKafkaConsumerFactory<String, byte[]> consumerFactory =
+                new DefaultKafkaConsumerFactory<>(config, new StringDeserializer(), new ByteArrayDeserializer());
+        // Publishes the client's own metrics, records-lag-max among them, under kafka.consumer.*.
+        consumerFactory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+
+        ExponentialBackOff backOff = new ExponentialBackOff(properties.retryBackoff().toMillis(), 2.0);
+        backOff.setMaxInterval(properties.maxRetryBackoff().toMillis());
+
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
+        factory.setConcurrency(properties.concurrency());
+        factory.getContainerProperties().setAckMode(AckMode.MANUAL);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(backOff));
+        return factory;
+    }
+}
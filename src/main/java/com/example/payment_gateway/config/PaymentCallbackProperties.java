@@ -0,0 +1,29 @@
+package com.example.payment_gateway.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// Controls how provider status callbacks are consumed from Kafka.
+@ConfigurationProperties(prefix = "payments.callbacks")
+public record PaymentCallbackProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("payments.status-callbacks") String topic,
+        @DefaultValue("payment-gateway-status-callbacks") String groupId,
+        @DefaultValue("1") int concurrency,
+        @DefaultValue("500") int maxPollRecords,
+        @DefaultValue("1s") Duration retryBackoff,
+        @DefaultValue("1m") Duration maxRetryBackoff
+) {
+
+    public PaymentCallbackProperties {
+        if (concurrency < 1 || maxPollRecords < 1) {
+            throw new IllegalArgumentException("payments.callbacks concurrency and max-poll-records must be positive");
+        }
+        if (retryBackoff.isNegative() || retryBackoff.isZero() || maxRetryBackoff.compareTo(retryBackoff) < 0) {
+            throw new IllegalArgumentException(
+                    "payments.callbacks.retry-backoff must be positive and max-retry-backoff at least retry-backoff");
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.payment_gateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// Tuning knobs for reading a customer's payment history.
+@ConfigurationProperties(prefix = "payments.history")
+public record PaymentHistoryProperties(
+        @DefaultValue("1000") int exportFetchSize
+) {}
@@ -0,0 +1,36 @@
+package com.example.payment_gateway.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+// Where settlement files are picked up and how they are split for reconciliation.
+@ConfigurationProperties(prefix = "payments.reconciliation")
+public record ReconciliationProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("settlements/inbox") String inboxDir,
+        @DefaultValue("settlements/reports") String reportsDir,
+        @DefaultValue("1m") Duration pollInterval,
+        @DefaultValue("64MB") DataSize chunkSize,
+        @DefaultValue("250000") int partitionSize,
+        @DefaultValue("4") int parallelism,
+        @DefaultValue("10000") int fetchSize
+) {
+
+    public ReconciliationProperties {
+        if (chunkSize.toBytes() < 1 || chunkSize.toBytes() > DataSize.ofGigabytes(1).toBytes()) {
+            throw new IllegalArgumentException("payments.reconciliation.chunk-size must be between 1B and 1GB");
+        }
+        if (partitionSize < 1) {
+            throw new IllegalArgumentException("payments.reconciliation.partition-size must be positive");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("payments.reconciliation.parallelism must be positive");
+        }
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException("payments.reconciliation.fetch-size must be positive");
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.payment_gateway.config;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Drives payment sagas: which provider new payments go to, how often and how many due steps are
+ * claimed, and how long a provider call may take before it is retried with exponential backoff.
+ * maxConcurrency bounds the calls in flight per provider on each node, unless listed in providerConcurrency.
+ * Without a defaultProvider no sagas are started; running them (enabled) requires one.
+ */
+@ConfigurationProperties(prefix = "payments.saga")
+public record SagaProperties(
+        @DefaultValue("false") boolean enabled,
+        String defaultProvider,
+        @DefaultValue("200ms") Duration pollInterval,
+        @DefaultValue("100") int batchSize,
+        @DefaultValue("32") int maxConcurrency,
+        Map<String, Integer> providerConcurrency,
+        @DefaultValue("10s") Duration stepTimeout,
+        @DefaultValue("5") int maxAttempts,
+        @DefaultValue("1s") Duration retryBackoff,
+        @DefaultValue("5m") Duration maxBackoff,
+        @DefaultValue("4") int completionThreads
+) {
+
+    public SagaProperties {
+        providerConcurrency = providerConcurrency == null ? Map.of() : Map.copyOf(providerConcurrency);
+        if (defaultProvider != null && (defaultProvider.isBlank() || defaultProvider.length() > 32)) {
+            throw new IllegalArgumentException("payments.saga.default-provider must be 1 to 32 characters");
+        }
+        if (enabled && defaultProvider == null) {
+            throw new IllegalArgumentException("payments.saga.default-provider is required when payments.saga.enabled is true");
+        }
+        if (batchSize < 1 || maxConcurrency < 1 || maxAttempts < 1 || completionThreads < 1) {
+            throw new IllegalArgumentException(
+                    "payments.saga batch-size, max-concurrency, max-attempts and completion-threads must be positive");
+        }
+        if (providerConcurrency.values().stream().anyMatch(limit -> limit < 1)) {
+            throw new IllegalArgumentException("payments.saga.provider-concurrency limits must be positive");
+        }
+        if (stepTimeout.isNegative() || stepTimeout.isZero() || retryBackoff.isNegative() || maxBackoff.compareTo(retryBackoff) < 0) {
+            throw new IllegalArgumentException(
+                    "payments.saga.step-timeout must be positive and max-backoff at least retry-backoff");
+        }
+    }
+
+    public int maxConcurrency(String provider) {
+        return providerConcurrency.getOrDefault(provider, maxConcurrency);
+    }
+
+    // A claim outlives the call's timeout, leaving a completion that is still being written as long again to commit.
+    public Duration lease() {
+        return stepTimeout.multipliedBy(2);
+    }
+
+    // Delay before the given attempt of a step is retried: retryBackoff doubled per attempt, up to maxBackoff.
+    public Duration backoff(int attempts) {
+        Duration delay = retryBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.payment_gateway.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Enables @Scheduled background jobs such as the outbox relay.
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,26 @@
+package com.example.payment_gateway.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// Behaviour of the in-process provider: response time, transient failures and declines.
+@ConfigurationProperties(prefix = "payments.saga.simulated-provider")
+public record SimulatedProviderProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("50ms") Duration latency,
+        @DefaultValue("50ms") Duration jitter,
+        @DefaultValue("0.02") double failureRate,
+        @DefaultValue("0.01") double declineRate
+) {
+
+    public SimulatedProviderProperties {
+        if (latency.isNegative() || jitter.isNegative()) {
+            throw new IllegalArgumentException("payments.saga.simulated-provider latency and jitter must not be negative");
+        }
+        if (failureRate < 0 || failureRate > 1 || declineRate < 0 || declineRate > 1) {
+            throw new IllegalArgumentException("payments.saga.simulated-provider rates must be between 0 and 1");
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.payment_gateway.domain;
+
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.DeserializationContext;
+import tools.jackson.databind.SerializationContext;
+import tools.jackson.databind.ValueDeserializer;
+import tools.jackson.databind.ValueSerializer;
+import tools.jackson.databind.annotation.JsonDeserialize;
+import tools.jackson.databind.annotation.JsonSerialize;
+import tools.jackson.databind.exc.InvalidFormatException;
+
+/**
+ * A decimal amount as written in JSON, held as an unscaled long and a scale (12.50 is 1250 and 2), so
+ * request and response bodies carry amounts without BigDecimal. Payments keep their amount in minor
+ * units of their currency: toMinorUnits and ofMinorUnits convert, and fitsIn tells whether the
+ * decimals written are ones the currency can hold.
+ */
+@JsonSerialize(using = Amount.Writer.class)
+@JsonDeserialize(using = Amount.Reader.class)
+public record Amount(long unscaled, int scale) {
+
+    // Digits accepted when parsing; 18 always fit in a long.
+    private static final int MAX_DIGITS = 18;
+
+    // Sign, 19 digits and the decimal point, or "0." and 18 decimals.
+    private static final int MAX_CHARS = 22;
+
+    // Returned by minorUnits for an amount the currency cannot hold; never a valid result, as it is not a multiple of 10.
+    private static final long UNREPRESENTABLE = Long.MIN_VALUE;
+
+    public Amount {
+        if (scale < 0 || scale > MAX_DIGITS) {
+            throw new IllegalArgumentException("scale must be between 0 and " + MAX_DIGITS);
+        }
+    }
+
+    public static Amount ofMinorUnits(long minorUnits, CurrencyUnit currency) {
+        return new Amount(minorUnits, currency.exponent());
+    }
+
+    // Parses [-]digits[.digits] with at most 18 digits in all; null if the text is anything else.
+    public static Amount parse(char[] chars, int offset, int length) {
+        int i = offset;
+        int end = offset + length;
+        boolean negative = i < end && chars[i] == '-';
+        if (negative) {
+            i++;
+        }
+        long value = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < end; i++) {
+            char c = chars[i];
+            if (c >= '0' && c <= '9') {
+                if (++digits > MAX_DIGITS) {
+                    return null;
+                }
+                value = value * 10 + (c - '0');
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if (c == '.' && scale < 0 && digits > 0) {
+                scale = 0;
+            } else {
+                return null;
+            }
+        }
+        if (digits == 0 || scale == 0) {
+            return null;
+        }
+        return new Amount(negative ? -value : value, Math.max(scale, 0));
+    }
+
+    public static Amount parse(String text) {
+        return parse(text.toCharArray(), 0, text.length());
+    }
+
+    public int signum() {
+        return Long.signum(unscaled);
+    }
+
+    // Whether the amount has no more significant decimals than the currency has, and fits the amount columns in it.
+    public boolean fitsIn(CurrencyUnit currency) {
+        long minorUnits = minorUnits(currency);
+        return minorUnits != UNREPRESENTABLE && Math.abs(minorUnits) <= currency.maxMinorUnits();
+    }
+
+    // The amount in minor units of the currency; fitsIn must hold.
+    public long toMinorUnits(CurrencyUnit currency) {
+        long minorUnits = minorUnits(currency);
+        if (minorUnits == UNREPRESENTABLE) {
+            throw new ArithmeticException(this + " cannot be held in minor units of " + currency);
+        }
+        return minorUnits;
+    }
+
+    @Override
+    public String toString() {
+        char[] buffer = new char[MAX_CHARS];
+        int start = format(buffer);
+        return new String(buffer, start, MAX_CHARS - start);
+    }
+
+    private long minorUnits(CurrencyUnit currency) {
+        long value = unscaled;
+        int exponent = currency.exponent();
+        for (int s = scale; s > exponent; s--) {
+            if (value % 10 != 0) {
+                return UNREPRESENTABLE;
+            }
+            value /= 10;
+        }
+        for (int s = scale; s < exponent; s++) {
+            if (Math.abs(value) > Long.MAX_VALUE / 10) {
+                return UNREPRESENTABLE;
+            }
+            value *= 10;
+        }
+        return value;
+    }
+
+    // Writes the plain decimal right-aligned into a MAX_CHARS buffer and returns where it starts.
+    private int format(char[] buffer) {
+        int position = buffer.length;
+        long value = unscaled;
+        int digits = 0;
+        do {
+            if (digits == scale && scale > 0) {
+                buffer[--position] = '.';
+            }
+            buffer[--position] = (char) ('0' + Math.abs(value % 10));
+            value /= 10;
+            digits++;
+        } while (value != 0 || digits <= scale);
+        if (unscaled < 0) {
+            buffer[--position] = '-';
+        }
+        return position;
+    }
+
+    // Writes the amount as a JSON number with its scale kept, 12.50 as 12.50.
+    static final class Writer extends ValueSerializer<Amount> {
+
+        @Override
+        public void serialize(Amount value, JsonGenerator gen, SerializationContext ctxt) {
+            char[] buffer = new char[MAX_CHARS];
+            int start = value.format(buffer);
+            gen.writeNumber(buffer, start, MAX_CHARS - start);
+        }
+    }
+
+    // Reads a JSON number, or a string holding one, straight from the parser's text buffer.
+    static final class Reader extends ValueDeserializer<Amount> {
+
+        @Override
+        public Amount deserialize(JsonParser p, DeserializationContext ctxt) {
+            if (!p.hasToken(JsonToken.VALUE_NUMBER_INT) && !p.hasToken(JsonToken.VALUE_NUMBER_FLOAT)
+                    && !p.hasToken(JsonToken.VALUE_STRING)) {
+                return (Amount) ctxt.handleUnexpectedToken(Amount.class, p);
+            }
+            Amount amount = parse(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+            if (amount == null) {
+                throw InvalidFormatException.from(p, "Amount must be a plain decimal of at most "
+                        + MAX_DIGITS + " digits", p.getString(), Amount.class);
+            }
+            return amount;
+        }
+    }
+}
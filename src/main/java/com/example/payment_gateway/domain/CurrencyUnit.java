@@ -0,0 +1,108 @@
+package com.example.payment_gateway.domain;
+
+import java.util.Currency;
+
+/**
+ * An ISO 4217 currency and the exponent of its minor unit: 2 for EUR, 0 for JPY, 3 for BHD. There is one
+ * instance per code, built from the JDK's currency data when the class loads, so currencies compare by
+ * identity and looking one up from request text neither upper-cases nor allocates a String.
+ */
+public final class CurrencyUnit {
+
+    // Scale of the numeric(19, 4) amount columns; no ISO 4217 currency has more decimals.
+    public static final int STORAGE_SCALE = 4;
+
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000};
+
+    // Indexed by the code's three letters read as a base-26 number.
+    private static final CurrencyUnit[] REGISTRY = new CurrencyUnit[26 * 26 * 26];
+
+    static {
+        for (Currency currency : Currency.getAvailableCurrencies()) {
+            String code = currency.getCurrencyCode();
+            int exponent = currency.getDefaultFractionDigits();
+            int index = index(code);
+            // Metals and funds without a minor unit (XAU, XDR, ...) report -1 and are not registered.
+            if (index >= 0 && exponent >= 0 && exponent <= STORAGE_SCALE) {
+                REGISTRY[index] = new CurrencyUnit(code, exponent);
+            }
+        }
+    }
+
+    private final String code;
+
+    private final int exponent;
+
+    // Stored units (10^-STORAGE_SCALE) per minor unit.
+    private final long storageFactor;
+
+    private CurrencyUnit(String code, int exponent) {
+        this.code = code;
+        this.exponent = exponent;
+        this.storageFactor = POWERS_OF_TEN[STORAGE_SCALE - exponent];
+    }
+
+    // The registered currency for a code in any letter case, or null if there is none.
+    public static CurrencyUnit lookup(CharSequence code) {
+        int index = code == null ? -1 : index(code);
+        return index < 0 ? null : REGISTRY[index];
+    }
+
+    public static CurrencyUnit of(CharSequence code) {
+        CurrencyUnit currency = lookup(code);
+        if (currency == null) {
+            throw new IllegalArgumentException("Unknown currency: " + code);
+        }
+        return currency;
+    }
+
+    public String code() {
+        return code;
+    }
+
+    public int exponent() {
+        return exponent;
+    }
+
+    // Largest amount in minor units whose stored form still fits a long.
+    public long maxMinorUnits() {
+        return Long.MAX_VALUE / storageFactor;
+    }
+
+    // An amount in minor units as the amount columns hold it, in multiples of 10^-STORAGE_SCALE.
+    public long toStorageUnits(long minorUnits) {
+        return Math.multiplyExact(minorUnits, storageFactor);
+    }
+
+    /**
+     * An amount read from an amount column in minor units. Rows written before amounts were checked
+     * against their currency may hold more decimals; those are rounded half up to the minor unit.
+     */
+    public long fromStorageUnits(long storageUnits) {
+        long half = storageFactor / 2;
+        return storageUnits >= 0
+                ? (storageUnits + half) / storageFactor
+                : -((-storageUnits + half) / storageFactor);
+    }
+
+    @Override
+    public String toString() {
+        return code;
+    }
+
+    // Base-26 value of three ASCII letters in either case, or -1 for anything else.
+    private static int index(CharSequence code) {
+        if (code.length() != 3) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = 0; i < 3; i++) {
+            int letter = (code.charAt(i) | 0x20) - 'a';
+            if (letter < 0 || letter >= 26) {
+                return -1;
+            }
+            index = index * 26 + letter;
+        }
+        return index;
+    }
+}
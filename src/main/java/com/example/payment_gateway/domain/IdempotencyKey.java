@@ -3,18 +3,13 @@ package com.example.payment_gateway.domain;
 import java.time.Instant;
 import java.util.UUID;
 
-import jakarta.persistence.Column;
-import jakarta.persistence.Entity;
-import jakarta.persistence.Id;
-import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
-@Entity
-@Table(name = "idempotency_keys")
+// A row of idempotency_keys, partitioned by created_at with primary key (idempotency_key, created_at); see db/migration.
 @Getter
 @Setter
 @Builder
@@ -22,16 +17,25 @@ import lombok.Setter;
 @AllArgsConstructor
 public class IdempotencyKey {
 
-    @Id
-    @Column(name = "idempotency_key", length = 100, nullable = false, updatable = false)
+    // Hex SHA-256 of the Jackson JSON of the request, converted to bytes by the bytea migration.
+    public static final short LEGACY_HASH_VERSION = 0;
+
+    // SHA-256 of the canonical binary encoding written by RequestHasher.
+    public static final short CURRENT_HASH_VERSION = 1;
+
     private String idempotencyKey;
 
-    @Column(name = "request_hash", length = 64, nullable = false)
-    private String requestHash;
+    // 32-byte SHA-256 fingerprint of the request, compared as bytes.
+    private byte[] requestHash;
+
+    // Tells which encoding produced requestHash, so rows written before a change can still be checked.
+    @Builder.Default
+    private short hashVersion = CURRENT_HASH_VERSION;
 
-    @Column(name = "payment_id")
     private UUID paymentId;
 
-    @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
+
+    // Response of the first request; null for records written before responses were stored.
+    private StoredResponse response;
 }
@@ -0,0 +1,39 @@
+package com.example.payment_gateway.domain;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One side of a double-entry posting, a row of ledger_entries. Entries are only ever inserted: the entries of a payment sum to
+ * zero, debits positive and credits negative, and an account's balance is the sum of its entries.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerEntry {
+
+    private UUID id;
+
+    private UUID paymentId;
+
+    private String accountId;
+
+    private String currency;
+
+    // In minor units of the currency, positive for a debit, negative for a credit. The column holds major
+    // units at scale 4, converted by LedgerJdbcRepository.
+    private long amount;
+
+    // Id of the writing transaction, set by the database; snapshots cover every transaction below a horizon.
+    private long txId;
+
+    private Instant createdAt;
+}
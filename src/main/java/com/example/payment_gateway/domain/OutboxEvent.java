@@ -0,0 +1,32 @@
+package com.example.payment_gateway.domain;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// A row of outbox_events: an event written in the same transaction as the change it describes, waiting to be relayed to Kafka.
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+
+    // Time-ordered, so the relay drains the outbox in creation order straight off the primary key.
+    private UUID id;
+
+    // Entity the event belongs to; used as the record key so its events stay on one partition.
+    private UUID aggregateId;
+
+    private String eventType;
+
+    // Serialized JSON body, published as-is.
+    private byte[] payload;
+
+    private Instant createdAt;
+}
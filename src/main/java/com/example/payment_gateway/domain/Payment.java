@@ -1,29 +1,17 @@
 package com.example.payment_gateway.domain;
 
-import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.UUID;
 
 import com.example.payment_gateway.api.dto.CreatePaymentRequest;
 
-import jakarta.persistence.Column;
-import jakarta.persistence.Entity;
-import jakarta.persistence.EnumType;
-import jakarta.persistence.Enumerated;
-import jakarta.persistence.Id;
-import jakarta.persistence.Index;
-import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
-@Entity
-@Table(name = "payments",
-       indexes = {
-         @Index(name = "ix_payments_customer_id", columnList = "customer_id")
-       })
+// A row of payments (see db/migration), read and written by PaymentJdbcRepository.
 @Getter
 @Setter
 @Builder
@@ -31,31 +19,30 @@ import lombok.Setter;
 @AllArgsConstructor
 public class Payment {
 
-    @Id
-    @Column(nullable = false, updatable = false)
     private UUID id;
 
-    @Column(nullable = false, precision = 19, scale = 4)
-    private BigDecimal amount;
+    // In minor units of the currency. The column holds major units at scale 4, converted by PaymentJdbcRepository.
+    private long amount;
 
-    @Column(nullable = false, length = 3)
+    // The registered ISO 4217 code, shared with every other payment in the currency.
     private String currency;
 
-    @Column(name = "customer_id", nullable = false, length = 64)
     private String customerId;
 
-    @Enumerated(EnumType.STRING)
-    @Column(nullable = false, length = 16)
     private PaymentStatus status;
 
-    @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
 
+    // Incremented by every change to the payment; drives optimistic checks and the ETag of GET /payments/{id}.
+    private long version;
+
+    // Builds a new payment from a validated request (see ValidAmount).
     public static Payment create(CreatePaymentRequest request) {
+        CurrencyUnit currency = CurrencyUnit.of(request.currency());
         return Payment.builder()
-                .id(UUID.randomUUID())
-                .amount(request.amount())
-                .currency(request.currency().toUpperCase())
+                .id(UuidV7.generate())
+                .amount(request.amount().toMinorUnits(currency))
+                .currency(currency.code())
                 .customerId(request.customerId())
                 .status(PaymentStatus.CREATED)
                 .createdAt(Instant.now())
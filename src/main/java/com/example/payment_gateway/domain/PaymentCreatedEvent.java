@@ -0,0 +1,34 @@
+package com.example.payment_gateway.domain;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// Published once a payment has been committed. eventId is stable across redeliveries for consumer-side dedup.
+public record PaymentCreatedEvent(
+        UUID eventId,
+        int version,
+        UUID paymentId,
+        Amount amount,
+        String currency,
+        String customerId,
+        PaymentStatus status,
+        Instant createdAt
+) {
+
+    public static final String TYPE = "PaymentCreated";
+
+    public static final int VERSION = 1;
+
+    public static PaymentCreatedEvent of(UUID eventId, Payment payment) {
+        return new PaymentCreatedEvent(
+                eventId,
+                VERSION,
+                payment.getId(),
+                Amount.ofMinorUnits(payment.getAmount(), CurrencyUnit.of(payment.getCurrency())),
+                payment.getCurrency(),
+                payment.getCustomerId(),
+                payment.getStatus(),
+                payment.getCreatedAt()
+        );
+    }
+}
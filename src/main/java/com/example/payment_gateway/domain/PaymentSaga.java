@@ -0,0 +1,48 @@
+package com.example.payment_gateway.domain;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Persisted progress of a payment through its provider, a row of payment_sagas: the step to run next
+ * and when it is due. A claimed step is leased by pushing next_attempt_at past its timeout, so a node that dies mid-call
+ * hands it back to the other nodes once the lease runs out.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentSaga {
+
+    private UUID paymentId;
+
+    // Name of the PaymentProviderClient that runs every step of the saga.
+    private String provider;
+
+    // Step to run next, or the last step run once the saga has ended.
+    private SagaStep step;
+
+    private SagaStatus status;
+
+    // Claims of the current step so far; also fences completions of calls whose lease has run out.
+    private int attempts;
+
+    private Instant nextAttemptAt;
+
+    // Provider's id of the authorization, passed to the steps that follow it.
+    private String providerReference;
+
+    // Latest decline or failure; kept once later steps succeed, so a compensated saga shows what started it.
+    private String lastError;
+
+    private Instant createdAt;
+
+    private Instant updatedAt;
+}
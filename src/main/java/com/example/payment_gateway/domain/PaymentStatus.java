@@ -1,6 +1,39 @@
 package com.example.payment_gateway.domain;
 
+// Lifecycle of a payment; statuses after CREATED are set by the payment's saga (see SagaStep) or by provider callbacks.
 public enum PaymentStatus {
     CREATED,
-    FAILED
+    // Funds reserved by the provider.
+    AUTHORIZED,
+    // Reserved funds taken.
+    CAPTURED,
+    // Captured funds paid out to the merchant; final.
+    SETTLED,
+    // Declined by the provider, or never authorized; final.
+    FAILED,
+    // Authorization released after the capture failed; final.
+    VOIDED,
+    // Captured funds returned after the settlement failed; final.
+    REFUNDED;
+
+    /**
+     * Whether a payment at this status may move to next: to any status reachable from it along authorize,
+     * capture and settle or their failure and compensation, skipping the ones in between, as callbacks
+     * coalesced per batch only carry the latest. Status changes that arrive late or out of order are
+     * refused by this check.
+     */
+    public boolean canMoveTo(PaymentStatus next) {
+        return switch (this) {
+            case CREATED -> next != CREATED;
+            case AUTHORIZED -> next != CREATED && next != AUTHORIZED;
+            case CAPTURED -> next == SETTLED || next == REFUNDED;
+            case SETTLED -> next == REFUNDED;
+            case FAILED, VOIDED, REFUNDED -> false;
+        };
+    }
+
+    // Final statuses reached without keeping the customer's money; the payment's ledger entries are reversed.
+    public boolean reversesLedger() {
+        return this == FAILED || this == VOIDED || this == REFUNDED;
+    }
 }
@@ -0,0 +1,14 @@
+package com.example.payment_gateway.domain;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A provider's notice that a payment reached a status, consumed from Kafka keyed by payment id.
+ * occurredAt is the provider's time of the change and orders notices about the same payment.
+ */
+public record PaymentStatusCallback(
+        UUID paymentId,
+        PaymentStatus status,
+        Instant occurredAt
+) {}
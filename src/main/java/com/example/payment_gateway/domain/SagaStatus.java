@@ -0,0 +1,14 @@
+package com.example.payment_gateway.domain;
+
+// State of a payment saga as a whole.
+public enum SagaStatus {
+    // Has a step waiting to run, or running.
+    ACTIVE,
+    // Every forward step succeeded; the payment is SETTLED.
+    COMPLETED,
+    // A forward step failed and what it left behind was undone, or the payment was moved to a final status
+    // outside the saga; the payment is FAILED, VOIDED or REFUNDED.
+    COMPENSATED,
+    // A compensation failed for good; the payment needs manual attention (see last_error).
+    FAILED
+}
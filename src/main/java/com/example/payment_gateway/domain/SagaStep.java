@@ -0,0 +1,38 @@
+package com.example.payment_gateway.domain;
+
+/**
+ * Steps of a payment saga: authorize, capture and settle forward, each compensated when a later one
+ * fails. The transitions after each outcome are defined here and applied by the orchestrator.
+ */
+public enum SagaStep {
+    AUTHORIZE,
+    CAPTURE,
+    SETTLE,
+    // Compensates an authorization whose capture failed.
+    VOID,
+    // Compensates a capture whose settlement failed.
+    REFUND;
+
+    // What a step's outcome leads to: the next step to run (null when the saga ends) and the new statuses.
+    public record Transition(SagaStep next, SagaStatus sagaStatus, PaymentStatus paymentStatus) {}
+
+    public Transition succeeded() {
+        return switch (this) {
+            case AUTHORIZE -> new Transition(CAPTURE, SagaStatus.ACTIVE, PaymentStatus.AUTHORIZED);
+            case CAPTURE -> new Transition(SETTLE, SagaStatus.ACTIVE, PaymentStatus.CAPTURED);
+            case SETTLE -> new Transition(null, SagaStatus.COMPLETED, PaymentStatus.SETTLED);
+            case VOID -> new Transition(null, SagaStatus.COMPENSATED, PaymentStatus.VOIDED);
+            case REFUND -> new Transition(null, SagaStatus.COMPENSATED, PaymentStatus.REFUNDED);
+        };
+    }
+
+    // A failed compensation leaves the payment's status as it is.
+    public Transition failed() {
+        return switch (this) {
+            case AUTHORIZE -> new Transition(null, SagaStatus.COMPENSATED, PaymentStatus.FAILED);
+            case CAPTURE -> new Transition(VOID, SagaStatus.ACTIVE, null);
+            case SETTLE -> new Transition(REFUND, SagaStatus.ACTIVE, null);
+            case VOID, REFUND -> new Transition(null, SagaStatus.FAILED, null);
+        };
+    }
+}
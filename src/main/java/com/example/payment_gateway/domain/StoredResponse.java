@@ -0,0 +1,8 @@
+package com.example.payment_gateway.domain;
+
+/**
+ * The HTTP response sent for the first request of an idempotency key: status, Location and the JSON
+ * body exactly as written. Kept with the key so that a retry is answered with these bytes, without
+ * loading or serializing the payment again.
+ */
+public record StoredResponse(int status, String location, byte[] body) {}
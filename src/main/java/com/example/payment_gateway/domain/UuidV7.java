@@ -0,0 +1,71 @@
+package com.example.payment_gateway.domain;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates time-ordered UUIDs (RFC 9562, version 7).
+ * New ids land at the right-hand edge of the primary-key B-tree instead of random pages,
+ * and ids issued by this process are strictly increasing, even within one millisecond.
+ */
+public final class UuidV7 {
+
+    // Bits reserved below the timestamp for the sub-millisecond counter (rand_a in RFC 9562).
+    private static final int COUNTER_BITS = 12;
+
+    private static final long VERSION = 0x7L << COUNTER_BITS;
+
+    private static final long VARIANT = 0x8000_0000_0000_0000L;
+
+    private static final long RANDOM_MASK = 0x3FFF_FFFF_FFFF_FFFFL;
+
+    private static final UuidV7 SYSTEM = new UuidV7(Clock.systemUTC());
+
+    private final Clock clock;
+
+    // Last issued (timestamp << 12 | counter); shared by all threads to keep ids monotonic.
+    private final AtomicLong lastIssued = new AtomicLong();
+
+    UuidV7(Clock clock) {
+        this.clock = clock;
+    }
+
+    // Returns the next id from the system clock.
+    public static UUID generate() {
+        return SYSTEM.next();
+    }
+
+    // Smallest UUID that any version 7 id created at or after the given instant sorts after.
+    public static UUID lowerBound(Instant instant) {
+        return new UUID(instant.toEpochMilli() << 16, 0L);
+    }
+
+    // Extracts the creation millisecond embedded in a version 7 id.
+    public static Instant timestampOf(UUID id) {
+        if (id.version() != 7) {
+            throw new IllegalArgumentException("Not a version 7 UUID: " + id);
+        }
+        return Instant.ofEpochMilli(id.getMostSignificantBits() >>> 16);
+    }
+
+    UUID next() {
+        long now = clock.millis() << COUNTER_BITS;
+        long issued;
+        long prev;
+        do {
+            prev = lastIssued.get();
+            // Within the same millisecond (or if the clock stepped back) the counter is bumped;
+            // an exhausted counter carries into the timestamp, borrowing from the next millisecond.
+            issued = Math.max(now, prev + 1);
+        } while (!lastIssued.compareAndSet(prev, issued));
+
+        long timestamp = issued >>> COUNTER_BITS;
+        long counter = issued & ((1L << COUNTER_BITS) - 1);
+        long msb = (timestamp << 16) | VERSION | counter;
+        long lsb = VARIANT | (ThreadLocalRandom.current().nextLong() & RANDOM_MASK);
+        return new UUID(msb, lsb);
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.payment_gateway.repository;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.payment_gateway.domain.IdempotencyKey;
+import com.example.payment_gateway.domain.StoredResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+// Decorates an idempotency repository with a bounded in-process cache to absorb retry storms.
+public class CachingIdempotencyKeyRepository implements IdempotencyKeyRepository {
+
+    // Rough per-entry cost of the entry, the record and the map node, added to the key, hash and response sizes.
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+
+    // Source of truth for idempotency records.
+    private final IdempotencyKeyRepository delegate;
+
+    // Holds positive entries (existing records) and negative entries (known absent keys).
+    private final Cache<String, CachedLookup> cache;
+
+    public CachingIdempotencyKeyRepository(IdempotencyKeyRepository delegate,
+                                           long maximumWeightBytes,
+                                           Duration ttl,
+                                           Duration negativeTtl,
+                                           Duration retention,
+                                           Ticker ticker,
+                                           Clock clock) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeightBytes)
+                .weigher(CachingIdempotencyKeyRepository::weigh)
+                .expireAfter(new LookupExpiry(ttl.toNanos(), negativeTtl.toNanos(), retention, clock))
+                .ticker(ticker)
+                .recordStats()
+                .build();
+    }
+
+    // Serves lookups from memory and only queries the database on a miss.
+    @Override
+    public Optional<IdempotencyKey> findByKey(String idempotencyKey) {
+        CachedLookup cached = cache.getIfPresent(idempotencyKey);
+        if (cached != null) {
+            return Optional.ofNullable(cached.record());
+        }
+
+        Optional<IdempotencyKey> loaded = delegate.findByKey(idempotencyKey);
+
+        // The lookup is not cached through Cache.get(key, loader) on purpose: the loader would run
+        // the database query while holding a map lock, blocking unrelated keys in the same bin.
+        if (loaded.isPresent()) {
+            cache.put(idempotencyKey, new CachedLookup(loaded.get()));
+        } else {
+            // Never overwrites a positive entry published by a concurrent, committed insert.
+            cache.asMap().putIfAbsent(idempotencyKey, CachedLookup.ABSENT);
+        }
+        return loaded;
+    }
+
+    // Delegates the atomic insert and caches the authoritative record once it is durable.
+    @Override
+    public IdempotencyKey insertOrGetExisting(String idempotencyKey, byte[] requestHash, UUID paymentId,
+                                              StoredResponse response) {
+        IdempotencyKey result = delegate.insertOrGetExisting(idempotencyKey, requestHash, paymentId, response);
+        afterCommit(() -> cache.put(idempotencyKey, new CachedLookup(result)));
+        return result;
+    }
+
+    // Answers cached keys from memory and fetches only the misses in one delegate call.
+    @Override
+    public Map<String, IdempotencyKey> findAllByKeys(Collection<String> idempotencyKeys) {
+        Map<String, IdempotencyKey> found = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+
+        for (String key : idempotencyKeys) {
+            CachedLookup cached = cache.getIfPresent(key);
+            if (cached == null) {
+                misses.add(key);
+            } else if (cached.record() != null) {
+                found.put(key, cached.record());
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            Map<String, IdempotencyKey> loaded = delegate.findAllByKeys(misses);
+            for (String key : misses) {
+                IdempotencyKey record = loaded.get(key);
+                if (record != null) {
+                    cache.put(key, new CachedLookup(record));
+                    found.put(key, record);
+                } else {
+                    cache.asMap().putIfAbsent(key, CachedLookup.ABSENT);
+                }
+            }
+        }
+        return found;
+    }
+
+    // Delegates the multi-row insert and caches the authoritative records once they are durable.
+    @Override
+    public Map<String, IdempotencyKey> insertAllOrGetExisting(List<IdempotencyKey> records) {
+        Map<String, IdempotencyKey> resolved = delegate.insertAllOrGetExisting(records);
+        afterCommit(() -> resolved.forEach((key, record) -> cache.put(key, new CachedLookup(record))));
+        return resolved;
+    }
+
+    // Exposes hit, miss and eviction counts for monitoring.
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    // Gives access to the underlying cache so it can be bound to a metrics registry.
+    public Cache<String, CachedLookup> cache() {
+        return cache;
+    }
+
+    // Approximate heap bytes of an entry; positive entries are dominated by the stored 201 body.
+    private static int weigh(String key, CachedLookup value) {
+        int weight = ENTRY_OVERHEAD_BYTES + 2 * key.length();
+        IdempotencyKey record = value.record();
+        if (record == null) {
+            return weight;
+        }
+        if (record.getRequestHash() != null) {
+            weight += record.getRequestHash().length;
+        }
+        StoredResponse response = record.getResponse();
+        if (response != null) {
+            weight += (response.location() == null ? 0 : 2 * response.location().length())
+                    + (response.body() == null ? 0 : response.body().length);
+        }
+        return weight;
+    }
+
+    // Defers cache publication until commit so a rolled-back insert is never served as existing.
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // Cache value wrapper; a null record marks a key that was absent when last checked.
+    public record CachedLookup(IdempotencyKey record) {
+        static final CachedLookup ABSENT = new CachedLookup(null);
+    }
+
+    // Applies the long TTL to positive entries and the short TTL to negative ones.
+    // A positive entry never outlives the retention window of its record, so the cache cannot replay an expired key.
+    private record LookupExpiry(long ttlNanos, long negativeTtlNanos, Duration retention, Clock clock)
+            implements Expiry<String, CachedLookup> {
+
+        @Override
+        public long expireAfterCreate(String key, CachedLookup value, long currentTime) {
+            if (value.record() == null) {
+                return negativeTtlNanos;
+            }
+            Duration remaining = Duration.between(clock.instant(), value.record().getCreatedAt().plus(retention));
+            return Math.max(0, Math.min(ttlNanos, remaining.toNanos()));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedLookup value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedLookup value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
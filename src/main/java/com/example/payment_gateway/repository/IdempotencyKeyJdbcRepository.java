@@ -1,88 +1,293 @@
 package com.example.payment_gateway.repository;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.sql.Types;
 import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
+import com.example.payment_gateway.config.IdempotencyRetentionProperties;
 import com.example.payment_gateway.domain.IdempotencyKey;
+import com.example.payment_gateway.domain.StoredResponse;
 
 import lombok.RequiredArgsConstructor;
 
-// JDBC-based repository responsible for persisting and retrieving idempotency keys.
+/**
+ * JDBC-based repository responsible for persisting and retrieving idempotency keys.
+ * A key is live while its created_at is within the retention window; expired rows are ignored by every
+ * query, even before their partition is dropped, so an expired key behaves exactly like one never seen.
+ * Each call evaluates the window once, against the time the call started.
+ */
 @Repository
 @RequiredArgsConstructor
 public class IdempotencyKeyJdbcRepository implements IdempotencyKeyRepository {
 
+    // Maps a result row to an idempotency record.
+    private static final RowMapper<IdempotencyKey> ROW_MAPPER = (rs, rowNum) -> IdempotencyKey.builder()
+            .idempotencyKey(rs.getString("idempotency_key"))
+            .requestHash(rs.getBytes("request_hash"))
+            .hashVersion(rs.getShort("hash_version"))
+            .paymentId((UUID) rs.getObject("payment_id"))
+            .createdAt(rs.getTimestamp("created_at").toInstant())
+            .response(readResponse(rs))
+            .build();
+
+    // Skips the lock statement's result and maps the records returned by the claim statement.
+    private static final PreparedStatementCallback<Map<String, IdempotencyKey>> READ_CLAIMS = ps -> {
+        ps.execute();
+        if (!ps.getMoreResults()) {
+            throw new IllegalStateException("Claim statement returned no result set");
+        }
+
+        Map<String, IdempotencyKey> claimed = new HashMap<>();
+        try (ResultSet rs = ps.getResultSet()) {
+            while (rs.next()) {
+                IdempotencyKey record = ROW_MAPPER.mapRow(rs, rs.getRow());
+                claimed.put(record.getIdempotencyKey(), record);
+            }
+        }
+        return claimed;
+    };
+
     // Provides low-level access to the database using SQL.
     private final JdbcTemplate jdbcTemplate;
 
-    // Retrieves an idempotency key record if it already exists.
+    // How long a key stays live after it was first used.
+    private final IdempotencyRetentionProperties retentionProperties;
+
+    // Retrieves the live idempotency key record if there is one.
     @Override
     public Optional<IdempotencyKey> findByKey(String idempotencyKey) {
         String sql = """
-            SELECT idempotency_key, request_hash, payment_id, created_at
+            SELECT idempotency_key, request_hash, hash_version, payment_id, created_at,
+                   response_status, response_location, response_body
             FROM idempotency_keys
-            WHERE idempotency_key = ?
+            WHERE idempotency_key = ? AND created_at > ?
         """;
 
         try {
-            return Optional.ofNullable(
-                    jdbcTemplate.queryForObject(sql, (rs, rowNum) ->
-                                    IdempotencyKey.builder()
-                                            .idempotencyKey(rs.getString("idempotency_key"))
-                                            .requestHash(rs.getString("request_hash"))
-                                            .paymentId((UUID) rs.getObject("payment_id"))
-                                            .createdAt(rs.getTimestamp("created_at").toInstant())
-                                            .build(),
-                            idempotencyKey
-                    )
-            );
+            return Optional.ofNullable(jdbcTemplate.queryForObject(sql, ROW_MAPPER, idempotencyKey, liveSince()));
         } catch (EmptyResultDataAccessException e) {
-            // Returns empty when no record is found for the given key.
+            // Returns empty when no live record is found for the given key.
             return Optional.empty();
         }
     }
 
-    // Inserts a new idempotency key or returns the existing one in case of conflict.
+    /**
+     * Inserts a new idempotency key or returns the live one, in one round trip.
+     * The table is partitioned by created_at, so no index can make the key alone unique; instead the key's
+     * advisory lock serializes claims until the claiming transaction ends, exactly as a unique index would
+     * block on an uncommitted duplicate. The lock is taken by a statement of its own because the claim
+     * must read with a snapshot taken after the lock is granted, to see the row of the previous holder.
+     */
     @Override
-    public IdempotencyKey insertOrGetExisting(String idempotencyKey, String requestHash, UUID paymentId) {
-
-        // Uses ON CONFLICT DO NOTHING to ensure atomic idempotency handling at the database level.
-        // If insertion fails, the existing record must be retrieved separately.
-        String insertSql = """
-            INSERT INTO idempotency_keys (idempotency_key, request_hash, payment_id, created_at)
-            VALUES (?, ?, ?, ?)
-            ON CONFLICT (idempotency_key) DO NOTHING
-            RETURNING idempotency_key, request_hash, payment_id, created_at
+    public IdempotencyKey insertOrGetExisting(String idempotencyKey, byte[] requestHash, UUID paymentId,
+                                              StoredResponse response) {
+        String sql = """
+            SELECT pg_advisory_xact_lock(hashtextextended(?, 0));
+            WITH existing AS (
+                SELECT idempotency_key, request_hash, hash_version, payment_id, created_at,
+                       response_status, response_location, response_body
+                FROM idempotency_keys
+                WHERE idempotency_key = ? AND created_at > ?
+            ), inserted AS (
+                INSERT INTO idempotency_keys (idempotency_key, request_hash, hash_version, payment_id, created_at,
+                                              response_status, response_location, response_body)
+                SELECT ?, ?::bytea, ?::smallint, ?::uuid, ?::timestamptz, ?::smallint, ?, ?::bytea
+                WHERE NOT EXISTS (SELECT 1 FROM existing)
+                RETURNING idempotency_key, request_hash, hash_version, payment_id, created_at,
+                          response_status, response_location, response_body
+            )
+            SELECT * FROM inserted
+            UNION ALL
+            SELECT * FROM existing
         """;
 
         Instant now = Instant.now();
 
-        try {
-            return jdbcTemplate.queryForObject(
-                    insertSql,
-                    (rs, rowNum) -> IdempotencyKey.builder()
-                            .idempotencyKey(rs.getString("idempotency_key"))
-                            .requestHash(rs.getString("request_hash"))
-                            .paymentId((UUID) rs.getObject("payment_id"))
-                            .createdAt(rs.getTimestamp("created_at").toInstant())
-                            .build(),
-                    idempotencyKey,
-                    requestHash,
-                    paymentId,
-                    Timestamp.from(now)
-            );
-        } catch (EmptyResultDataAccessException ignored) {
-            // Handles concurrent insert conflicts by loading the already persisted record.
-            return findByKey(idempotencyKey)
-                    .orElseThrow(() -> new IllegalStateException(
-                            "Idempotency key conflict detected but existing record was not found. Key=" + idempotencyKey
-                    ));
+        Map<String, IdempotencyKey> claimed = jdbcTemplate.execute(
+                con -> {
+                    PreparedStatement ps = con.prepareStatement(sql);
+                    ps.setString(1, idempotencyKey);
+                    ps.setString(2, idempotencyKey);
+                    ps.setTimestamp(3, liveSince(now));
+                    ps.setString(4, idempotencyKey);
+                    ps.setBytes(5, requestHash);
+                    ps.setShort(6, IdempotencyKey.CURRENT_HASH_VERSION);
+                    ps.setObject(7, paymentId);
+                    ps.setTimestamp(8, Timestamp.from(now));
+                    ps.setObject(9, response == null ? null : (short) response.status(), Types.SMALLINT);
+                    ps.setString(10, response == null ? null : response.location());
+                    ps.setBytes(11, response == null ? null : response.body());
+                    return ps;
+                },
+                READ_CLAIMS
+        );
+
+        if (claimed == null || claimed.size() != 1) {
+            throw new IncorrectResultSizeDataAccessException(
+                    "Expected exactly one live idempotency record. Key=" + idempotencyKey, 1);
+        }
+        return claimed.get(idempotencyKey);
+    }
+
+    // Looks up many live keys at once with a single indexed = ANY(?) probe.
+    @Override
+    public Map<String, IdempotencyKey> findAllByKeys(Collection<String> idempotencyKeys) {
+        if (idempotencyKeys.isEmpty()) {
+            return Map.of();
         }
+
+        String sql = """
+            SELECT idempotency_key, request_hash, hash_version, payment_id, created_at,
+                   response_status, response_location, response_body
+            FROM idempotency_keys
+            WHERE idempotency_key = ANY(?) AND created_at > ?
+        """;
+
+        Map<String, IdempotencyKey> found = new HashMap<>();
+        jdbcTemplate.query(
+                con -> {
+                    PreparedStatement ps = con.prepareStatement(sql);
+                    ps.setArray(1, con.createArrayOf("varchar", idempotencyKeys.toArray()));
+                    ps.setTimestamp(2, liveSince());
+                    return ps;
+                },
+                rs -> {
+                    IdempotencyKey record = ROW_MAPPER.mapRow(rs, 0);
+                    found.put(record.getIdempotencyKey(), record);
+                }
+        );
+        return found;
+    }
+
+    /**
+     * Inserts all records whose key is not live yet and returns the authoritative record per key,
+     * as one multi-row statement in one round trip. Takes the advisory lock of every key first,
+     * in lock-id order so that concurrent batches sharing keys cannot deadlock.
+     */
+    @Override
+    public Map<String, IdempotencyKey> insertAllOrGetExisting(List<IdempotencyKey> records) {
+        if (records.isEmpty()) {
+            return Map.of();
+        }
+
+        // Binds one array per column so the statement text stays the same whatever the batch size.
+        // The lock ids are sorted before pg_advisory_xact_lock runs: volatile output expressions are
+        // evaluated after ORDER BY.
+        String sql = """
+            SELECT pg_advisory_xact_lock(lock_id)
+            FROM (SELECT DISTINCT hashtextextended(key, 0) AS lock_id FROM unnest(?::varchar[]) AS key) AS keys
+            ORDER BY lock_id;
+            WITH existing AS (
+                SELECT idempotency_key, request_hash, hash_version, payment_id, created_at,
+                       response_status, response_location, response_body
+                FROM idempotency_keys
+                WHERE idempotency_key = ANY(?::varchar[]) AND created_at > ?
+            ), inserted AS (
+                INSERT INTO idempotency_keys (idempotency_key, request_hash, hash_version, payment_id, created_at,
+                                              response_status, response_location, response_body)
+                SELECT * FROM unnest(?::varchar[], ?::bytea[], ?::smallint[], ?::uuid[], ?::timestamptz[],
+                                     ?::smallint[], ?::varchar[], ?::bytea[])
+                    AS claim (idempotency_key, request_hash, hash_version, payment_id, created_at,
+                              response_status, response_location, response_body)
+                WHERE claim.idempotency_key NOT IN (SELECT idempotency_key FROM existing)
+                RETURNING idempotency_key, request_hash, hash_version, payment_id, created_at,
+                          response_status, response_location, response_body
+            )
+            SELECT * FROM inserted
+            UNION ALL
+            SELECT * FROM existing
+        """;
+
+        // Nothing makes a key unique within one statement but the lock, so repeated keys keep their first record.
+        Map<String, IdempotencyKey> unique = new LinkedHashMap<>();
+        for (IdempotencyKey record : records) {
+            unique.putIfAbsent(record.getIdempotencyKey(), record);
+        }
+
+        int size = unique.size();
+        Object[] keys = new Object[size];
+        byte[][] hashes = new byte[size][];
+        Object[] hashVersions = new Object[size];
+        Object[] paymentIds = new Object[size];
+        Object[] createdAts = new Object[size];
+        Object[] responseStatuses = new Object[size];
+        Object[] responseLocations = new Object[size];
+        byte[][] responseBodies = new byte[size][];
+        int i = 0;
+        for (IdempotencyKey record : unique.values()) {
+            keys[i] = record.getIdempotencyKey();
+            hashes[i] = record.getRequestHash();
+            hashVersions[i] = record.getHashVersion();
+            paymentIds[i] = record.getPaymentId();
+            createdAts[i] = record.getCreatedAt().atOffset(ZoneOffset.UTC);
+            StoredResponse response = record.getResponse();
+            if (response != null) {
+                responseStatuses[i] = (short) response.status();
+                responseLocations[i] = response.location();
+                responseBodies[i] = response.body();
+            }
+            i++;
+        }
+
+        Map<String, IdempotencyKey> resolved = jdbcTemplate.execute(
+                con -> {
+                    PreparedStatement ps = con.prepareStatement(sql);
+                    ps.setArray(1, con.createArrayOf("varchar", keys));
+                    ps.setArray(2, con.createArrayOf("varchar", keys));
+                    ps.setTimestamp(3, liveSince());
+                    ps.setArray(4, con.createArrayOf("varchar", keys));
+                    ps.setArray(5, con.createArrayOf("bytea", hashes));
+                    ps.setArray(6, con.createArrayOf("int2", hashVersions));
+                    ps.setArray(7, con.createArrayOf("uuid", paymentIds));
+                    ps.setArray(8, con.createArrayOf("timestamptz", createdAts));
+                    ps.setArray(9, con.createArrayOf("int2", responseStatuses));
+                    ps.setArray(10, con.createArrayOf("varchar", responseLocations));
+                    ps.setArray(11, con.createArrayOf("bytea", responseBodies));
+                    return ps;
+                },
+                READ_CLAIMS
+        );
+
+        if (resolved == null || resolved.size() != size) {
+            throw new IncorrectResultSizeDataAccessException(
+                    "Expected one live idempotency record per key", size, resolved == null ? 0 : resolved.size());
+        }
+        return resolved;
+    }
+
+    // The stored response columns are all null for records written before responses were stored.
+    private static StoredResponse readResponse(ResultSet rs) throws SQLException {
+        byte[] body = rs.getBytes("response_body");
+        if (body == null) {
+            return null;
+        }
+        return new StoredResponse(rs.getShort("response_status"), rs.getString("response_location"), body);
+    }
+
+    // Oldest created_at that is still live for a call starting now.
+    private Timestamp liveSince() {
+        return liveSince(Instant.now());
+    }
+
+    private Timestamp liveSince(Instant now) {
+        return Timestamp.from(now.minus(retentionProperties.window()));
     }
 }
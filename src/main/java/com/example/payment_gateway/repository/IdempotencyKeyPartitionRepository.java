@@ -0,0 +1,81 @@
+package com.example.payment_gateway.repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import lombok.RequiredArgsConstructor;
+
+// DDL for the time partitions of idempotency_keys; none of it blocks concurrent reads and writes of the table.
+@Repository
+@RequiredArgsConstructor
+public class IdempotencyKeyPartitionRepository {
+
+    // Maps a catalog row to a partition; a null bound stands for MINVALUE.
+    private static final RowMapper<Partition> ROW_MAPPER = (rs, rowNum) -> new Partition(
+            rs.getString("name"),
+            toInstant(rs.getTimestamp("lower_bound")),
+            toInstant(rs.getTimestamp("upper_bound")),
+            rs.getBoolean("detach_pending")
+    );
+
+    // Provides low-level access to the database using SQL.
+    private final JdbcTemplate jdbcTemplate;
+
+    // Lists the attached partitions in range order.
+    public List<Partition> findAll() {
+        // The bound expression prints its timestamps in the session time zone, which the casts read back.
+        String sql = """
+            SELECT c.relname AS name,
+                   (regexp_match(pg_get_expr(c.relpartbound, c.oid), 'FROM [(]''([^'']+)''[)]'))[1]::timestamptz AS lower_bound,
+                   (regexp_match(pg_get_expr(c.relpartbound, c.oid), 'TO [(]''([^'']+)''[)]'))[1]::timestamptz AS upper_bound,
+                   i.inhdetachpending AS detach_pending
+            FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = 'idempotency_keys'::regclass
+            ORDER BY lower_bound NULLS FIRST
+        """;
+
+        return jdbcTemplate.query(sql, ROW_MAPPER);
+    }
+
+    /**
+     * Creates a partition for [from, to). The table is created standalone and then attached, because
+     * ATTACH PARTITION only takes a SHARE UPDATE EXCLUSIVE lock on the parent, whereas
+     * CREATE TABLE ... PARTITION OF would block every request until it completes. A table left behind
+     * by an attach that failed is still empty, and is attached by the next call.
+     */
+    public void create(String name, Instant from, Instant to) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " (LIKE idempotency_keys INCLUDING DEFAULTS)");
+        jdbcTemplate.execute("ALTER TABLE idempotency_keys ATTACH PARTITION " + name
+                + " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+    }
+
+    /**
+     * Detaches and drops a partition. DETACH ... CONCURRENTLY waits for queries still using it
+     * instead of locking out new ones, and must run outside a transaction; a detach interrupted
+     * halfway leaves the partition pending, which FINALIZE completes.
+     */
+    public void drop(Partition partition) {
+        String mode = partition.detachPending() ? "FINALIZE" : "CONCURRENTLY";
+        jdbcTemplate.execute("ALTER TABLE idempotency_keys DETACH PARTITION " + partition.name() + " " + mode);
+        jdbcTemplate.execute("DROP TABLE " + partition.name());
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toInstant();
+    }
+
+    // One partition and its range [from, to); from is null for the legacy partition starting at MINVALUE.
+    public record Partition(String name, Instant from, Instant to, boolean detachPending) {
+
+        // Whether the given instant falls into this partition's range.
+        public boolean contains(Instant instant) {
+            return (from == null || !instant.isBefore(from)) && instant.isBefore(to);
+        }
+    }
+}
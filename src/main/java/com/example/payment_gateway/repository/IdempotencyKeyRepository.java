@@ -1,19 +1,40 @@
 package com.example.payment_gateway.repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 import com.example.payment_gateway.domain.IdempotencyKey;
+import com.example.payment_gateway.domain.StoredResponse;
 
-// Defines persistence operations for managing idempotency keys.
+// Defines persistence operations for managing idempotency keys; keys past the retention window count as absent.
 public interface IdempotencyKeyRepository {
 
-    // Retrieves an idempotency key if it already exists.
+    // Retrieves an idempotency key if it already exists and has not expired.
     Optional<IdempotencyKey> findByKey(String idempotencyKey);
 
     /**
-     * Attempts to insert a new idempotency record or returns the existing one.
-     * Ensures consistent behavior for repeated requests with the same key.
+     * Attempts to insert a new idempotency record, together with the response to replay for it,
+     * or returns the existing live one.
+     * Ensures consistent behavior for repeated requests with the same key; an expired key is claimed anew.
      */
-    IdempotencyKey insertOrGetExisting(String idempotencyKey, String requestHash, UUID paymentId);
+    IdempotencyKey insertOrGetExisting(String idempotencyKey, byte[] requestHash, UUID paymentId,
+                                       StoredResponse response);
+
+    // Claims a key without a stored response; replays of it load the payment instead.
+    default IdempotencyKey insertOrGetExisting(String idempotencyKey, byte[] requestHash, UUID paymentId) {
+        return insertOrGetExisting(idempotencyKey, requestHash, paymentId, null);
+    }
+
+    // Retrieves all existing records for the given keys in a single round trip, indexed by key.
+    Map<String, IdempotencyKey> findAllByKeys(Collection<String> idempotencyKeys);
+
+    /**
+     * Inserts all records that do not exist yet in a single statement.
+     * Returns the authoritative record per key: the given one if it was inserted,
+     * otherwise the record committed by the transaction that took the key first.
+     */
+    Map<String, IdempotencyKey> insertAllOrGetExisting(List<IdempotencyKey> records);
 }
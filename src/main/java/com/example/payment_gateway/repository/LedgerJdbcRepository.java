@@ -0,0 +1,129 @@
+package com.example.payment_gateway.repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.example.payment_gateway.domain.CurrencyUnit;
+import com.example.payment_gateway.domain.LedgerEntry;
+
+import lombok.RequiredArgsConstructor;
+
+// JDBC access to the append-only ledger and its balance snapshots.
+@Repository
+@RequiredArgsConstructor
+public class LedgerJdbcRepository {
+
+    // Provides low-level access to the database using SQL.
+    private final JdbcTemplate jdbcTemplate;
+
+    // Appends all entries with a single multi-row statement; must run in the transaction that posts them.
+    // Amounts are sent as longs in stored units (CurrencyUnit.toStorageUnits) and scaled to major units in SQL.
+    public void insertAll(List<LedgerEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        String sql = """
+            INSERT INTO ledger_entries (id, payment_id, account_id, currency, amount, created_at)
+            SELECT id, payment_id, account_id, currency, amount * 0.0001, created_at
+            FROM unnest(?::uuid[], ?::uuid[], ?::varchar[], ?::varchar[], ?::int8[], ?::timestamptz[])
+                AS u (id, payment_id, account_id, currency, amount, created_at)
+        """;
+
+        int size = entries.size();
+        Object[] ids = new Object[size];
+        Object[] paymentIds = new Object[size];
+        Object[] accountIds = new Object[size];
+        Object[] currencies = new Object[size];
+        Object[] amounts = new Object[size];
+        Object[] createdAts = new Object[size];
+        for (int i = 0; i < size; i++) {
+            LedgerEntry entry = entries.get(i);
+            ids[i] = entry.getId();
+            paymentIds[i] = entry.getPaymentId();
+            accountIds[i] = entry.getAccountId();
+            currencies[i] = entry.getCurrency();
+            amounts[i] = CurrencyUnit.of(entry.getCurrency()).toStorageUnits(entry.getAmount());
+            createdAts[i] = entry.getCreatedAt().atOffset(ZoneOffset.UTC);
+        }
+
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("uuid", ids));
+            ps.setArray(2, con.createArrayOf("uuid", paymentIds));
+            ps.setArray(3, con.createArrayOf("varchar", accountIds));
+            ps.setArray(4, con.createArrayOf("varchar", currencies));
+            ps.setArray(5, con.createArrayOf("int8", amounts));
+            ps.setArray(6, con.createArrayOf("timestamptz", createdAts));
+            return ps;
+        });
+    }
+
+    /**
+     * Current balance of an account: its snapshot plus the tail of entries written since the snapshot's
+     * horizon, read through the (account_id, currency, tx_id) index. Entries of transactions still in
+     * flight are not visible yet and count once they commit, either in the tail or in a later snapshot.
+     */
+    public Balance balance(String accountId, String currency) {
+        String sql = """
+            SELECT COALESCE(s.balance, 0) + COALESCE(t.amount, 0) AS balance,
+                   s.taken_at AS snapshot_taken_at,
+                   t.entries AS tail_entries
+            FROM (SELECT 1) AS one
+            LEFT JOIN ledger_balance_snapshots s ON s.account_id = ? AND s.currency = ?
+            CROSS JOIN LATERAL (
+                SELECT sum(e.amount) AS amount, count(*) AS entries
+                FROM ledger_entries e
+                WHERE e.account_id = ? AND e.currency = ? AND e.tx_id >= COALESCE(s.tx_horizon, 0)
+            ) AS t
+        """;
+
+        return jdbcTemplate.queryForObject(sql, (rs, rowNum) -> {
+            Timestamp takenAt = rs.getTimestamp("snapshot_taken_at");
+            return new Balance(rs.getBigDecimal("balance"), takenAt == null ? null : takenAt.toInstant(),
+                    rs.getLong("tail_entries"));
+        }, accountId, currency, accountId, currency);
+    }
+
+    /**
+     * Folds every entry written since each account's snapshot into a new snapshot, up to the oldest
+     * transaction still running: everything below that horizon has committed or rolled back, so no entry
+     * can appear below it later. Each run folds every account with entries in [previous horizon, horizon),
+     * so only that range of the tx_id index is read, however many accounts stay idle. Concurrent runs
+     * are harmless, since a snapshot only moves forward. Returns the number of accounts advanced.
+     */
+    public int advanceSnapshots() {
+        String sql = """
+            WITH horizon AS (
+                SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint AS tx_id
+            ), previous AS (
+                SELECT COALESCE(max(tx_horizon), 0) AS tx_id FROM ledger_balance_snapshots
+            )
+            INSERT INTO ledger_balance_snapshots (account_id, currency, balance, tx_horizon, taken_at)
+            SELECT e.account_id, e.currency, COALESCE(s.balance, 0) + sum(e.amount), h.tx_id, now()
+            FROM ledger_entries e
+            CROSS JOIN horizon h
+            CROSS JOIN previous p
+            LEFT JOIN ledger_balance_snapshots s ON s.account_id = e.account_id AND s.currency = e.currency
+            WHERE e.tx_id >= p.tx_id
+              AND e.tx_id >= COALESCE(s.tx_horizon, 0)
+              AND e.tx_id < h.tx_id
+            GROUP BY e.account_id, e.currency, s.balance, h.tx_id
+            ON CONFLICT (account_id, currency) DO UPDATE
+                SET balance = EXCLUDED.balance, tx_horizon = EXCLUDED.tx_horizon, taken_at = EXCLUDED.taken_at
+                WHERE ledger_balance_snapshots.tx_horizon < EXCLUDED.tx_horizon
+        """;
+
+        return jdbcTemplate.update(sql);
+    }
+
+    // Balance with where it came from: the snapshot time (null before the first one) and the tail length.
+    public record Balance(BigDecimal amount, Instant snapshotTakenAt, long tailEntries) {}
+}
@@ -0,0 +1,152 @@
+package com.example.payment_gateway.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import com.example.payment_gateway.domain.OutboxEvent;
+
+import lombok.RequiredArgsConstructor;
+
+// JDBC access to the transactional outbox: appended by the write paths, drained by the relay.
+@Repository
+@RequiredArgsConstructor
+public class OutboxJdbcRepository {
+
+    // Maps a result row to an outbox event.
+    private static final RowMapper<OutboxEvent> ROW_MAPPER = (rs, rowNum) -> OutboxEvent.builder()
+            .id((UUID) rs.getObject("id"))
+            .aggregateId((UUID) rs.getObject("aggregate_id"))
+            .eventType(rs.getString("event_type"))
+            .payload(rs.getBytes("payload"))
+            .createdAt(rs.getTimestamp("created_at").toInstant())
+            .build();
+
+    // Provides low-level access to the database using SQL.
+    private final JdbcTemplate jdbcTemplate;
+
+    // Appends one event; must run inside the transaction that made the change it describes.
+    public void insert(OutboxEvent event) {
+        String sql = """
+            INSERT INTO outbox_events (id, aggregate_id, event_type, payload, created_at)
+            VALUES (?, ?, ?, ?, ?)
+        """;
+
+        jdbcTemplate.update(
+                sql,
+                event.getId(),
+                event.getAggregateId(),
+                event.getEventType(),
+                event.getPayload(),
+                Timestamp.from(event.getCreatedAt())
+        );
+    }
+
+    // Appends all events with a single multi-row statement.
+    public void insertAll(List<OutboxEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        String sql = """
+            INSERT INTO outbox_events (id, aggregate_id, event_type, payload, created_at)
+            SELECT * FROM unnest(?::uuid[], ?::uuid[], ?::varchar[], ?::bytea[], ?::timestamptz[])
+        """;
+
+        int size = events.size();
+        Object[] ids = new Object[size];
+        Object[] aggregateIds = new Object[size];
+        Object[] eventTypes = new Object[size];
+        byte[][] payloads = new byte[size][];
+        Object[] createdAts = new Object[size];
+        for (int i = 0; i < size; i++) {
+            OutboxEvent event = events.get(i);
+            ids[i] = event.getId();
+            aggregateIds[i] = event.getAggregateId();
+            eventTypes[i] = event.getEventType();
+            payloads[i] = event.getPayload();
+            createdAts[i] = event.getCreatedAt().atOffset(ZoneOffset.UTC);
+        }
+
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("uuid", ids));
+            ps.setArray(2, con.createArrayOf("uuid", aggregateIds));
+            ps.setArray(3, con.createArrayOf("varchar", eventTypes));
+            ps.setArray(4, con.createArrayOf("bytea", payloads));
+            ps.setArray(5, con.createArrayOf("timestamptz", createdAts));
+            return ps;
+        });
+    }
+
+    /**
+     * Claims up to {@code limit} of the oldest events that are not leased and leases them, returning them
+     * oldest first. Rows locked by a concurrent claim are skipped rather than waited for, so several relays
+     * claim disjoint batches; the statement commits on its own, so the lease, not a held lock, keeps other
+     * relays away while the batch is published. An event that is not deleted is claimed again once its
+     * lease runs out.
+     */
+    public List<OutboxEvent> claim(int limit, Duration lease) {
+        String sql = """
+            WITH due AS (
+                SELECT id
+                FROM outbox_events
+                WHERE claimed_until IS NULL OR claimed_until <= now()
+                ORDER BY id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            ), claimed AS (
+                UPDATE outbox_events e
+                SET claimed_until = now() + make_interval(secs => ?)
+                FROM due
+                WHERE e.id = due.id
+                RETURNING e.id, e.aggregate_id, e.event_type, e.payload, e.created_at
+            )
+            SELECT * FROM claimed ORDER BY id
+        """;
+
+        return jdbcTemplate.query(sql, ROW_MAPPER, limit, seconds(lease));
+    }
+
+    // Removes relayed events with a single statement.
+    public void deleteAll(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement("DELETE FROM outbox_events WHERE id = ANY(?)");
+            ps.setArray(1, con.createArrayOf("uuid", ids.toArray()));
+            return ps;
+        });
+    }
+
+    // Number of events waiting to be relayed and the creation time of the oldest one.
+    public Backlog backlog() {
+        String sql = """
+            SELECT count(*) AS size, min(created_at) AS oldest
+            FROM outbox_events
+        """;
+
+        return jdbcTemplate.queryForObject(sql, (rs, rowNum) -> {
+            Timestamp oldest = rs.getTimestamp("oldest");
+            return new Backlog(rs.getLong("size"), oldest == null ? null : oldest.toInstant());
+        });
+    }
+
+    private static double seconds(Duration duration) {
+        return duration.toNanos() / 1e9;
+    }
+
+    // Snapshot of the unrelayed events; oldest is null when the outbox is empty.
+    public record Backlog(long size, Instant oldest) {}
+}
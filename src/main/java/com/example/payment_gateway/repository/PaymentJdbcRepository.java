@@ -0,0 +1,319 @@
+package com.example.payment_gateway.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import com.example.payment_gateway.domain.CurrencyUnit;
+import com.example.payment_gateway.domain.Payment;
+import com.example.payment_gateway.domain.PaymentStatus;
+import com.example.payment_gateway.domain.UuidV7;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Reads and writes payments with plain JDBC. Amounts travel as longs
+ * in stored units of 0.0001 (CurrencyUnit.toStorageUnits) and are scaled to and from the numeric(19, 4)
+ * column in SQL, so neither reads nor writes create a BigDecimal.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PaymentJdbcRepository {
+
+    // Maps a result row to a payment.
+    private static final RowMapper<Payment> ROW_MAPPER = (rs, rowNum) -> {
+        CurrencyUnit currency = CurrencyUnit.of(rs.getString("currency"));
+        return Payment.builder()
+                .id((UUID) rs.getObject("id"))
+                .amount(currency.fromStorageUnits(rs.getLong("amount")))
+                .currency(currency.code())
+                .customerId(rs.getString("customer_id"))
+                .status(PaymentStatus.valueOf(rs.getString("status")))
+                .createdAt(rs.getTimestamp("created_at").toInstant())
+                .version(rs.getLong("version"))
+                .build();
+    };
+
+    // Provides low-level access to the database using SQL.
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts a new payment with exactly one statement. Unlike JpaRepository.save, which merges
+     * entities with an assigned id and therefore selects by primary key first, this never reads.
+     */
+    public void insert(Payment payment) {
+        String sql = """
+            INSERT INTO payments (id, amount, currency, customer_id, status, created_at, version)
+            VALUES (?, ?::int8 * 0.0001, ?, ?, ?, ?, ?)
+        """;
+
+        jdbcTemplate.update(
+                sql,
+                payment.getId(),
+                CurrencyUnit.of(payment.getCurrency()).toStorageUnits(payment.getAmount()),
+                payment.getCurrency(),
+                payment.getCustomerId(),
+                payment.getStatus().name(),
+                Timestamp.from(payment.getCreatedAt()),
+                payment.getVersion()
+        );
+    }
+
+    // Inserts all payments with a single multi-row statement.
+    public void insertAll(List<Payment> payments) {
+        if (payments.isEmpty()) {
+            return;
+        }
+
+        // Binds one array per column so the statement text stays the same whatever the batch size.
+        String sql = """
+            INSERT INTO payments (id, amount, currency, customer_id, status, created_at, version)
+            SELECT id, amount * 0.0001, currency, customer_id, status, created_at, version
+            FROM unnest(?::uuid[], ?::int8[], ?::varchar[], ?::varchar[], ?::varchar[], ?::timestamptz[], ?::bigint[])
+                AS u (id, amount, currency, customer_id, status, created_at, version)
+        """;
+
+        int size = payments.size();
+        Object[] ids = new Object[size];
+        Object[] amounts = new Object[size];
+        Object[] currencies = new Object[size];
+        Object[] customerIds = new Object[size];
+        Object[] statuses = new Object[size];
+        Object[] createdAts = new Object[size];
+        Object[] versions = new Object[size];
+        for (int i = 0; i < size; i++) {
+            Payment payment = payments.get(i);
+            ids[i] = payment.getId();
+            amounts[i] = CurrencyUnit.of(payment.getCurrency()).toStorageUnits(payment.getAmount());
+            currencies[i] = payment.getCurrency();
+            customerIds[i] = payment.getCustomerId();
+            statuses[i] = payment.getStatus().name();
+            createdAts[i] = payment.getCreatedAt().atOffset(ZoneOffset.UTC);
+            versions[i] = payment.getVersion();
+        }
+
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("uuid", ids));
+            ps.setArray(2, con.createArrayOf("int8", amounts));
+            ps.setArray(3, con.createArrayOf("varchar", currencies));
+            ps.setArray(4, con.createArrayOf("varchar", customerIds));
+            ps.setArray(5, con.createArrayOf("varchar", statuses));
+            ps.setArray(6, con.createArrayOf("timestamptz", createdAts));
+            ps.setArray(7, con.createArrayOf("int8", versions));
+            return ps;
+        });
+    }
+
+    // Reads one payment by primary key.
+    public Optional<Payment> findById(UUID id) {
+        String sql = """
+            SELECT id, (amount * 10000)::int8 AS amount, currency, customer_id, status, created_at, version
+            FROM payments
+            WHERE id = ?
+        """;
+
+        return jdbcTemplate.query(sql, ROW_MAPPER, id).stream().findFirst();
+    }
+
+    /**
+     * Moves a payment to a new status if it is still at the expected version, and bumps the version.
+     * Returns the updated payment, or empty when the payment is missing or was changed concurrently.
+     */
+    public Optional<Payment> updateStatus(UUID id, PaymentStatus status, long expectedVersion) {
+        String sql = """
+            UPDATE payments
+            SET status = ?, version = version + 1
+            WHERE id = ? AND version = ?
+            RETURNING id, (amount * 10000)::int8 AS amount, currency, customer_id, status, created_at, version
+        """;
+
+        return jdbcTemplate.query(sql, ROW_MAPPER, status.name(), id, expectedVersion).stream().findFirst();
+    }
+
+    // Reads the given payments with one statement; ids without a payment are left out.
+    public List<Payment> findAllById(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        String sql = """
+            SELECT id, (amount * 10000)::int8 AS amount, currency, customer_id, status, created_at, version
+            FROM payments
+            WHERE id = ANY(?)
+        """;
+
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("uuid", ids.toArray()));
+            return ps;
+        }, ROW_MAPPER);
+    }
+
+    /**
+     * Applies many status changes with one statement, each only if its payment is still at the expected
+     * version, and bumps their versions. Returns the new version of each updated payment; the others
+     * were changed concurrently.
+     */
+    public Map<UUID, Long> updateStatuses(Collection<StatusUpdate> updates) {
+        if (updates.isEmpty()) {
+            return Map.of();
+        }
+
+        String sql = """
+            UPDATE payments p
+            SET status = u.status, version = p.version + 1
+            FROM unnest(?::uuid[], ?::varchar[], ?::int8[]) AS u (id, status, expected_version)
+            WHERE p.id = u.id AND p.version = u.expected_version
+            RETURNING p.id, p.version
+        """;
+
+        int size = updates.size();
+        Object[] ids = new Object[size];
+        Object[] statuses = new Object[size];
+        Object[] versions = new Object[size];
+        int i = 0;
+        for (StatusUpdate update : updates) {
+            ids[i] = update.id();
+            statuses[i] = update.status().name();
+            versions[i] = update.expectedVersion();
+            i++;
+        }
+
+        Map<UUID, Long> updated = new HashMap<>(size * 2);
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("uuid", ids));
+            ps.setArray(2, con.createArrayOf("varchar", statuses));
+            ps.setArray(3, con.createArrayOf("int8", versions));
+            return ps;
+        }, rs -> {
+            updated.put((UUID) rs.getObject("id"), rs.getLong("version"));
+        });
+        return updated;
+    }
+
+    /**
+     * Scans payments created in [from, to) in id order, resuming after the given id when present.
+     * Relies on time-ordered (version 7) ids, so the range is a contiguous slice of the primary-key
+     * index and the window is taken from the creation millisecond in the id. Random version 4 ids that
+     * sort into the slice are filtered out by their version nibble; payments that still carry them are
+     * not listed by this scan. created_at is not compared, as it is read from the clock separately from
+     * the id and could place a payment next to a window boundary in neither window.
+     */
+    public List<Payment> findCreatedBetween(Instant from, Instant to, UUID after, int limit) {
+        String sql = """
+            SELECT id, (amount * 10000)::int8 AS amount, currency, customer_id, status, created_at, version
+            FROM payments
+            WHERE id > ? AND id < ? AND get_byte(uuid_send(id), 6) >> 4 = 7
+            ORDER BY id
+            LIMIT ?
+        """;
+
+        UUID lower = UuidV7.lowerBound(from);
+        if (after != null && after.compareTo(lower) > 0) {
+            lower = after;
+        }
+        return jdbcTemplate.query(sql, ROW_MAPPER, lower, UuidV7.lowerBound(to), limit);
+    }
+
+    /**
+     * Returns one page of a customer's payments, newest first, continuing after the given
+     * (createdAt, id) position when present. The row comparison is served by the
+     * (customer_id, created_at, id) index, so every page costs the same however deep it is.
+     */
+    public List<Payment> findByCustomer(String customerId, Instant beforeCreatedAt, UUID beforeId, int limit) {
+        if (beforeCreatedAt == null) {
+            String sql = """
+                SELECT id, (amount * 10000)::int8 AS amount, currency, customer_id, status, created_at, version
+                FROM payments
+                WHERE customer_id = ?
+                ORDER BY created_at DESC, id DESC
+                LIMIT ?
+            """;
+
+            return jdbcTemplate.query(sql, ROW_MAPPER, customerId, limit);
+        }
+
+        String sql = """
+            SELECT id, (amount * 10000)::int8 AS amount, currency, customer_id, status, created_at, version
+            FROM payments
+            WHERE customer_id = ? AND (created_at, id) < (?, ?)
+            ORDER BY created_at DESC, id DESC
+            LIMIT ?
+        """;
+
+        return jdbcTemplate.query(sql, ROW_MAPPER, customerId, Timestamp.from(beforeCreatedAt), beforeId, limit);
+    }
+
+    /**
+     * Streams all of a customer's payments, newest first, to the consumer while the rows are read.
+     * Must run in a transaction: only then does the driver read through a server-side cursor,
+     * holding at most fetchSize rows in memory instead of the whole result.
+     */
+    public void streamByCustomer(String customerId, int fetchSize, Consumer<Payment> consumer) {
+        String sql = """
+            SELECT id, (amount * 10000)::int8 AS amount, currency, customer_id, status, created_at, version
+            FROM payments
+            WHERE customer_id = ?
+            ORDER BY created_at DESC, id DESC
+        """;
+
+        jdbcTemplate.query(
+                con -> {
+                    PreparedStatement ps = con.prepareStatement(sql);
+                    ps.setFetchSize(fetchSize);
+                    ps.setString(1, customerId);
+                    return ps;
+                },
+                rs -> {
+                    consumer.accept(ROW_MAPPER.mapRow(rs, rs.getRow()));
+                }
+        );
+    }
+
+    /**
+     * Streams the id, amount and currency of every payment with an id in [from, to), in id order, through
+     * a server-side cursor; a null to means no upper bound. Payments that ended without taking the money
+     * (failed, voided, refunded) are left out. Must run in a transaction for the driver to fetch fetchSize
+     * rows at a time instead of the whole range.
+     */
+    public void streamAmountsByIdRange(UUID from, UUID to, int fetchSize, Consumer<PaymentAmount> consumer) {
+        String sql = "SELECT id, (amount * 10000)::int8, currency FROM payments WHERE id >= ?"
+                + (to == null ? "" : " AND id < ?")
+                + " AND status NOT IN ('FAILED', 'VOIDED', 'REFUNDED') ORDER BY id";
+
+        jdbcTemplate.query(
+                con -> {
+                    PreparedStatement ps = con.prepareStatement(sql);
+                    ps.setFetchSize(fetchSize);
+                    ps.setObject(1, from);
+                    if (to != null) {
+                        ps.setObject(2, to);
+                    }
+                    return ps;
+                },
+                rs -> {
+                    consumer.accept(new PaymentAmount(rs.getObject(1, UUID.class), rs.getLong(2), rs.getString(3)));
+                }
+        );
+    }
+
+    // The columns reconciliation compares against a settlement file; the amount in stored units of 0.0001.
+    public record PaymentAmount(UUID id, long amount, String currency) {}
+
+    // A status change to apply if the payment is still at expectedVersion.
+    public record StatusUpdate(UUID id, PaymentStatus status, long expectedVersion) {}
+}
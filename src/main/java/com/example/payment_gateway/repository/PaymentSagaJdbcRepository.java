@@ -0,0 +1,200 @@
+package com.example.payment_gateway.repository;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import com.example.payment_gateway.domain.CurrencyUnit;
+import com.example.payment_gateway.domain.PaymentSaga;
+import com.example.payment_gateway.domain.SagaStatus;
+import com.example.payment_gateway.domain.SagaStep;
+
+import lombok.RequiredArgsConstructor;
+
+// JDBC access to payment sagas: started by the write paths, claimed and advanced by the orchestrator.
+@Repository
+@RequiredArgsConstructor
+public class PaymentSagaJdbcRepository {
+
+    // Maps a result row to a saga.
+    private static final RowMapper<PaymentSaga> ROW_MAPPER = (rs, rowNum) -> PaymentSaga.builder()
+            .paymentId((UUID) rs.getObject("payment_id"))
+            .provider(rs.getString("provider"))
+            .step(SagaStep.valueOf(rs.getString("step")))
+            .status(SagaStatus.valueOf(rs.getString("status")))
+            .attempts(rs.getInt("attempts"))
+            .nextAttemptAt(rs.getTimestamp("next_attempt_at").toInstant())
+            .providerReference(rs.getString("provider_reference"))
+            .lastError(rs.getString("last_error"))
+            .createdAt(rs.getTimestamp("created_at").toInstant())
+            .updatedAt(rs.getTimestamp("updated_at").toInstant())
+            .build();
+
+    // Maps a claimed row to the step to run.
+    private static final RowMapper<DueStep> DUE_STEP_MAPPER = (rs, rowNum) -> {
+        CurrencyUnit currency = CurrencyUnit.of(rs.getString("currency"));
+        return new DueStep(
+                (UUID) rs.getObject("payment_id"),
+                SagaStep.valueOf(rs.getString("step")),
+                rs.getInt("attempts"),
+                rs.getString("provider_reference"),
+                currency.fromStorageUnits(rs.getLong("amount")),
+                currency.code());
+    };
+
+    // Provides low-level access to the database using SQL.
+    private final JdbcTemplate jdbcTemplate;
+
+    // Starts all sagas with a single multi-row statement; must run in the transaction creating their payments.
+    public void insertAll(List<PaymentSaga> sagas) {
+        if (sagas.isEmpty()) {
+            return;
+        }
+
+        String sql = """
+            INSERT INTO payment_sagas (payment_id, provider, step, status, attempts, next_attempt_at, created_at, updated_at)
+            SELECT id, provider, step, status, 0, created_at, created_at, created_at
+            FROM unnest(?::uuid[], ?::varchar[], ?::varchar[], ?::varchar[], ?::timestamptz[])
+                AS s (id, provider, step, status, created_at)
+        """;
+
+        int size = sagas.size();
+        Object[] paymentIds = new Object[size];
+        Object[] providers = new Object[size];
+        Object[] steps = new Object[size];
+        Object[] statuses = new Object[size];
+        Object[] createdAts = new Object[size];
+        for (int i = 0; i < size; i++) {
+            PaymentSaga saga = sagas.get(i);
+            paymentIds[i] = saga.getPaymentId();
+            providers[i] = saga.getProvider();
+            steps[i] = saga.getStep().name();
+            statuses[i] = saga.getStatus().name();
+            createdAts[i] = saga.getCreatedAt().atOffset(ZoneOffset.UTC);
+        }
+
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("uuid", paymentIds));
+            ps.setArray(2, con.createArrayOf("varchar", providers));
+            ps.setArray(3, con.createArrayOf("varchar", steps));
+            ps.setArray(4, con.createArrayOf("varchar", statuses));
+            ps.setArray(5, con.createArrayOf("timestamptz", createdAts));
+            return ps;
+        });
+    }
+
+    public Optional<PaymentSaga> findById(UUID paymentId) {
+        String sql = """
+            SELECT payment_id, provider, step, status, attempts, next_attempt_at, provider_reference,
+                   last_error, created_at, updated_at
+            FROM payment_sagas
+            WHERE payment_id = ?
+        """;
+
+        return jdbcTemplate.query(sql, ROW_MAPPER, paymentId).stream().findFirst();
+    }
+
+    /**
+     * Claims up to {@code limit} due steps of a provider, oldest first, and leases them: each claimed
+     * step counts an attempt and is not due again until the lease has run out. Rows locked by a
+     * concurrent claim are skipped rather than waited for, so several nodes claim disjoint batches;
+     * the statement commits on its own, so the lease, not a held lock, keeps other nodes away.
+     */
+    public List<DueStep> claim(String provider, int limit, Duration lease) {
+        String sql = """
+            WITH due AS (
+                SELECT payment_id
+                FROM payment_sagas
+                WHERE provider = ? AND status = 'ACTIVE' AND next_attempt_at <= now()
+                ORDER BY next_attempt_at
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            )
+            UPDATE payment_sagas s
+            SET attempts = s.attempts + 1,
+                next_attempt_at = now() + make_interval(secs => ?),
+                updated_at = now()
+            FROM due, payments p
+            WHERE s.payment_id = due.payment_id AND p.id = s.payment_id
+            RETURNING s.payment_id, s.step, s.attempts, s.provider_reference,
+                      (p.amount * 10000)::int8 AS amount, p.currency
+        """;
+
+        return jdbcTemplate.query(sql, DUE_STEP_MAPPER, provider, limit, seconds(lease));
+    }
+
+    /**
+     * Records the outcome of a claimed step: moves the saga to the next step, due now, or ends it when
+     * next is null; a null reference or error keeps the stored one. Returns false, changing nothing, when
+     * the claim is stale: the step's lease ran out and it was claimed again, or another node already
+     * recorded its outcome.
+     */
+    public boolean advance(DueStep claimed, SagaStep next, SagaStatus status, String providerReference, String error) {
+        String sql = """
+            UPDATE payment_sagas
+            SET step = ?, status = ?, attempts = 0, next_attempt_at = now(),
+                provider_reference = COALESCE(?, provider_reference), last_error = COALESCE(?, last_error),
+                updated_at = now()
+            WHERE payment_id = ? AND step = ? AND attempts = ? AND status = 'ACTIVE'
+        """;
+
+        SagaStep step = next == null ? claimed.step() : next;
+        return jdbcTemplate.update(sql, step.name(), status.name(), providerReference, error,
+                claimed.paymentId(), claimed.step().name(), claimed.attempts()) == 1;
+    }
+
+    // Makes a claimed step due again after the delay instead of when its lease runs out; false if the claim is stale.
+    public boolean retry(DueStep claimed, Duration delay, String error) {
+        String sql = """
+            UPDATE payment_sagas
+            SET next_attempt_at = now() + make_interval(secs => ?), last_error = ?, updated_at = now()
+            WHERE payment_id = ? AND step = ? AND attempts = ? AND status = 'ACTIVE'
+        """;
+
+        return jdbcTemplate.update(sql, seconds(delay), error,
+                claimed.paymentId(), claimed.step().name(), claimed.attempts()) == 1;
+    }
+
+    /**
+     * Ends the active sagas of payments that were moved to a final status outside them, such as by a provider
+     * callback, so no further step is claimed; a call in flight has its outcome discarded as stale. Must run in
+     * the transaction changing the payments' status, whose new status it records as the saga's last error.
+     */
+    public int endAll(Collection<UUID> paymentIds) {
+        if (paymentIds.isEmpty()) {
+            return 0;
+        }
+
+        String sql = """
+            UPDATE payment_sagas s
+            SET status = 'COMPENSATED', last_error = 'Payment moved to ' || p.status || ' outside the saga',
+                updated_at = now()
+            FROM payments p
+            WHERE s.payment_id = ANY(?) AND s.status = 'ACTIVE' AND p.id = s.payment_id
+        """;
+
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("uuid", paymentIds.toArray()));
+            return ps;
+        });
+    }
+
+    private static double seconds(Duration duration) {
+        return duration.toNanos() / 1e9;
+    }
+
+    // A claimed step with what the provider call needs from its payment (amount in minor units); attempts
+    // includes this claim.
+    public record DueStep(UUID paymentId, SagaStep step, int attempts, String providerReference,
+                          long amount, String currency) {}
+}
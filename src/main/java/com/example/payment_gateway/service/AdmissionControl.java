@@ -0,0 +1,120 @@
+package com.example.payment_gateway.service;
+
+import java.time.Duration;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.example.payment_gateway.service.AdmissionRejectedException.Reason;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Decides whether a payment request may enter the service: first against the global concurrency
+ * limit, so an overloaded instance does not charge the customer for a request it will not serve,
+ * then against the customer's token bucket. Rejections are immediate and say when to retry.
+ */
+public class AdmissionControl {
+
+    // Returned when admission control is disabled.
+    private static final Permit UNLIMITED = () -> { };
+
+    private final boolean enabled;
+
+    private final CustomerRateLimiter customerLimiter;
+
+    private final ConcurrencyLimiter concurrencyLimiter;
+
+    // Retry-After sent when the instance is saturated; there is no exact time to give.
+    private final Duration overloadRetryAfter;
+
+    private final Counter rateLimited;
+
+    private final Counter overloaded;
+
+    public AdmissionControl(boolean enabled,
+                            CustomerRateLimiter customerLimiter,
+                            ConcurrencyLimiter concurrencyLimiter,
+                            Duration overloadRetryAfter,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.customerLimiter = customerLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.overloadRetryAfter = overloadRetryAfter;
+        this.rateLimited = rejections("rate_limited", meterRegistry);
+        this.overloaded = rejections("overloaded", meterRegistry);
+        Gauge.builder("payments.admission.in_flight", concurrencyLimiter, ConcurrencyLimiter::inFlight)
+                .description("Payment requests currently holding a concurrency slot")
+                .register(meterRegistry);
+        Gauge.builder("payments.admission.customers", customerLimiter, CustomerRateLimiter::trackedCustomers)
+                .description("Customers with a rate limiter bucket in memory")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Admits a request of the given customer or throws AdmissionRejectedException. The returned
+     * permit holds a concurrency slot and must be closed when the request is done.
+     */
+    public Permit admit(String customerId) {
+        Permit permit = admitStream();
+        long waitNanos = admitItem(customerId);
+        if (waitNanos > 0) {
+            permit.close();
+            throw new AdmissionRejectedException(Reason.RATE_LIMITED, Duration.ofNanos(waitNanos));
+        }
+        return permit;
+    }
+
+    /**
+     * Admits a request carrying many items, checking only the global limit, or throws
+     * AdmissionRejectedException. The returned permit holds one concurrency slot for the whole request;
+     * each item is then charged to its customer with admitItem.
+     */
+    public Permit admitStream() {
+        if (!enabled) {
+            return UNLIMITED;
+        }
+        if (!concurrencyLimiter.tryAcquire()) {
+            overloaded.increment();
+            throw new AdmissionRejectedException(Reason.OVERLOADED, overloadRetryAfter);
+        }
+        return concurrencyLimiter::release;
+    }
+
+    /**
+     * Takes one token from the customer's bucket. Returns 0 when admitted, otherwise how many
+     * nanoseconds to wait before a token will be available.
+     */
+    public long admitItem(String customerId) {
+        if (!enabled) {
+            return 0;
+        }
+        long waitNanos = customerLimiter.tryAcquire(customerId);
+        if (waitNanos > 0) {
+            rateLimited.increment();
+        }
+        return waitNanos;
+    }
+
+    @Scheduled(fixedDelayString = "${payments.admission.eviction-interval:1m}",
+               initialDelayString = "${payments.admission.eviction-interval:1m}")
+    public void evictIdleCustomers() {
+        customerLimiter.evictIdle();
+    }
+
+    private static Counter rejections(String reason, MeterRegistry meterRegistry) {
+        return Counter.builder("payments.admission.rejections")
+                .description("Payment requests refused before reaching the service, by reason")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    // A concurrency slot held for the duration of one request.
+    @FunctionalInterface
+    public interface Permit extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.payment_gateway.service;
+
+import java.time.Duration;
+
+// Thrown when a request is shed before reaching the service; carries when the caller may retry.
+public class AdmissionRejectedException extends RuntimeException {
+
+    // Why the request was refused; maps to 429 or 503 at the API layer.
+    public enum Reason {
+        // The customer exceeded its own rate.
+        RATE_LIMITED,
+        // The instance or its connection pool is saturated.
+        OVERLOADED
+    }
+
+    private final Reason reason;
+
+    private final Duration retryAfter;
+
+    public AdmissionRejectedException(Reason reason, Duration retryAfter) {
+        super(reason == Reason.RATE_LIMITED ? "Too many requests for this customer" : "Service is at capacity");
+        this.reason = reason;
+        this.retryAfter = retryAfter;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.payment_gateway.service;
+
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+import com.example.payment_gateway.service.PaymentResponseCache.Entry;
+
+/**
+ * Optional second cache level shared by all instances, such as a Redis or Hazelcast map, consulted on
+ * a local miss before the database. Besides storing entries it carries invalidations between instances,
+ * so that a payment changed on one node stops being served from the local caches of the others.
+ */
+public interface ClusterPaymentCache {
+
+    // Returns the shared entry, or null when there is none.
+    Entry get(UUID paymentId);
+
+    // Stores the entry unless the shared cache already holds the same or a newer version.
+    void put(UUID paymentId, Entry entry);
+
+    // Drops entries older than the given version and tells every subscribed instance about it.
+    void invalidate(UUID paymentId, long version);
+
+    // Registers this instance for invalidations published by any instance, including itself.
+    void subscribe(BiConsumer<UUID, Long> listener);
+}
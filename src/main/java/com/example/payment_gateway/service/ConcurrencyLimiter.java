@@ -0,0 +1,48 @@
+package com.example.payment_gateway.service;
+
+import java.util.concurrent.Semaphore;
+import java.util.function.IntSupplier;
+
+/**
+ * Caps the number of requests inside the service at once, and refuses new ones while the connection
+ * pool already has a queue of threads waiting for a connection. Both checks fail fast: nothing ever
+ * blocks here, so an overloaded instance answers immediately instead of parking requests on the pool.
+ */
+public class ConcurrencyLimiter {
+
+    private final int limit;
+
+    private final Semaphore permits;
+
+    // Threads currently waiting for a pooled connection.
+    private final IntSupplier pendingConnections;
+
+    private final int maxPendingConnections;
+
+    public ConcurrencyLimiter(int limit, IntSupplier pendingConnections, int maxPendingConnections) {
+        this.limit = limit;
+        this.permits = new Semaphore(limit);
+        this.pendingConnections = pendingConnections;
+        this.maxPendingConnections = maxPendingConnections;
+    }
+
+    // Takes a slot unless the limit is reached or the pool is saturated; the caller must release it.
+    public boolean tryAcquire() {
+        if (pendingConnections.getAsInt() >= maxPendingConnections) {
+            return false;
+        }
+        return permits.tryAcquire();
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public int inFlight() {
+        return limit - permits.availablePermits();
+    }
+}
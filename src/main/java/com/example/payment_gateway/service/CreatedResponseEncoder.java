@@ -0,0 +1,28 @@
+package com.example.payment_gateway.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import com.example.payment_gateway.api.dto.PaymentResponse;
+import com.example.payment_gateway.domain.Payment;
+import com.example.payment_gateway.domain.StoredResponse;
+
+import lombok.RequiredArgsConstructor;
+import tools.jackson.databind.ObjectMapper;
+
+// Serializes the 201 response of a payment creation once, so it can be stored with the idempotency key.
+@Component
+@RequiredArgsConstructor
+public class CreatedResponseEncoder {
+
+    // Same mapper as the MVC message converters, so stored and live bodies are identical.
+    private final ObjectMapper objectMapper;
+
+    public StoredResponse encode(Payment payment) {
+        return new StoredResponse(
+                HttpStatus.CREATED.value(),
+                "/payments/" + payment.getId(),
+                objectMapper.writeValueAsBytes(PaymentResponse.from(payment))
+        );
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.payment_gateway.service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket per customer, kept as a single timestamp in the GCRA form: each bucket stores the
+ * theoretical arrival time (TAT) of its next request, and admitting a request is one CAS that pushes
+ * it forward by the emission interval, as long as it stays within burst intervals of now. There is no
+ * lock and no background refill; a bucket whose TAT is in the past is simply full.
+ * <p>
+ * Buckets live in power-of-two stripes of concurrent maps, so eviction sweeps and resizes of one stripe
+ * never stall lookups of customers in the others. A full bucket and a missing one behave the same,
+ * so evicting idle customers loses nothing.
+ */
+public class CustomerRateLimiter {
+
+    // Time between two admissions at the sustained rate.
+    private final long emissionIntervalNanos;
+
+    // How far ahead of now the TAT may run: burst admissions back to back.
+    private final long burstNanos;
+
+    // A bucket is dropped once its TAT is this far in the past.
+    private final long idleNanos;
+
+    private final LongSupplier nanoClock;
+
+    private final Map<String, AtomicLong>[] stripes;
+
+    private final int stripeMask;
+
+    @SuppressWarnings("unchecked")
+    public CustomerRateLimiter(double ratePerSecond, int burst, Duration idleTimeout, int stripes, LongSupplier nanoClock) {
+        this.emissionIntervalNanos = Math.max(1, (long) (1_000_000_000L / ratePerSecond));
+        this.burstNanos = emissionIntervalNanos * burst;
+        this.idleNanos = idleTimeout.toNanos();
+        this.nanoClock = nanoClock;
+        this.stripes = new Map[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new ConcurrentHashMap<>();
+        }
+        this.stripeMask = stripes - 1;
+    }
+
+    /**
+     * Takes one token from the customer's bucket. Returns 0 when admitted, otherwise how many
+     * nanoseconds to wait before a token will be available; a rejected call takes nothing.
+     */
+    public long tryAcquire(String customerId) {
+        long now = nanoClock.getAsLong();
+        AtomicLong bucket = bucket(customerId, now);
+        while (true) {
+            long tat = bucket.get();
+            if (tat > now) {
+                // Another thread may have moved the TAT past a clock value read before this one was preempted.
+                now = nanoClock.getAsLong();
+            }
+            long next = Math.max(tat, now) + emissionIntervalNanos;
+            long debt = next - now;
+            if (debt > burstNanos) {
+                return debt - burstNanos;
+            }
+            if (bucket.compareAndSet(tat, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Drops the buckets of customers idle for longer than the idle timeout; they are full by then.
+     * A request racing the removal may be admitted by the dropped bucket and the next one by a new,
+     * full bucket: at most one extra admission, for a customer that had sent nothing for that long.
+     */
+    public void evictIdle() {
+        long now = nanoClock.getAsLong();
+        for (Map<String, AtomicLong> stripe : stripes) {
+            stripe.values().removeIf(bucket -> now - bucket.get() > idleNanos);
+        }
+    }
+
+    // Number of customers currently holding a bucket.
+    public int trackedCustomers() {
+        int size = 0;
+        for (Map<String, AtomicLong> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private AtomicLong bucket(String customerId, long now) {
+        Map<String, AtomicLong> stripe = stripes[spread(customerId.hashCode()) & stripeMask];
+        AtomicLong bucket = stripe.get(customerId);
+        if (bucket == null) {
+            // A new bucket starts full: its next request is due now.
+            AtomicLong created = new AtomicLong(now);
+            bucket = stripe.putIfAbsent(customerId, created);
+            if (bucket == null) {
+                bucket = created;
+            }
+        }
+        return bucket;
+    }
+
+    // Mixes the high bits in, since the map inside the stripe uses the low ones again.
+    private static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.payment_gateway.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.payment_gateway.config.IdempotencyRetentionProperties;
+import com.example.payment_gateway.repository.IdempotencyKeyPartitionRepository;
+import com.example.payment_gateway.repository.IdempotencyKeyPartitionRepository.Partition;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps idempotency_keys partitioned ahead of time and purges expired keys by dropping whole partitions.
+ * Partitions are aligned to multiples of the partition interval since the epoch and span the retention
+ * window plus a few intervals ahead, so inserts never miss a partition between two runs. A partition is
+ * dropped once its newest possible key has expired; queries already ignore expired keys before that.
+ * There is no DEFAULT partition, since it would rule out DETACH ... CONCURRENTLY: a key created past the
+ * last partition cannot be inserted. How far ahead partitions reach is published as
+ * payments.idempotency.partitions.horizon, to alert on well before maintenance falls that far behind.
+ */
+@Slf4j
+@Component
+public class IdempotencyKeyPartitionMaintenance implements SmartInitializingSingleton {
+
+    private static final DateTimeFormatter PARTITION_SUFFIX =
+            DateTimeFormatter.ofPattern("yyyyMMdd'_'HHmmss").withZone(ZoneOffset.UTC);
+
+    // Lists, creates and drops the partitions.
+    private final IdempotencyKeyPartitionRepository partitionRepository;
+
+    // Retention window and partition layout.
+    private final IdempotencyRetentionProperties properties;
+
+    // End of the partitions covering the present without a gap, as of the last run; null before the first.
+    private volatile Instant coveredUntil;
+
+    public IdempotencyKeyPartitionMaintenance(IdempotencyKeyPartitionRepository partitionRepository,
+                                              IdempotencyRetentionProperties properties,
+                                              MeterRegistry meterRegistry) {
+        this.partitionRepository = partitionRepository;
+        this.properties = properties;
+        // Measured against the clock on each scrape, so it keeps falling while maintenance fails.
+        Gauge.builder("payments.idempotency.partitions.horizon", this, maintenance -> maintenance.horizonSeconds(Instant.now()))
+                .description("Time until idempotency key inserts fail for lack of a partition")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    // Runs once before the application serves requests, so the current partition always exists.
+    @Override
+    public void afterSingletonsInstantiated() {
+        maintain(Instant.now());
+    }
+
+    @Scheduled(fixedDelayString = "${payments.idempotency.retention.maintenance-interval:10m}",
+               initialDelayString = "${payments.idempotency.retention.maintenance-interval:10m}")
+    public void maintain() {
+        try {
+            maintain(Instant.now());
+        } catch (RuntimeException e) {
+            log.warn("Idempotency key partition maintenance failed; retrying on the next run", e);
+        }
+    }
+
+    // Drops the expired partitions, then creates the missing ones from the start of the window to the horizon.
+    void maintain(Instant now) {
+        Instant expiredBefore = now.minus(properties.window());
+        List<Partition> partitions = partitionRepository.findAll();
+
+        for (Partition partition : partitions) {
+            if (!partition.to().isAfter(expiredBefore)) {
+                drop(partition);
+            }
+        }
+        List<Partition> live = partitions.stream()
+                .filter(partition -> partition.to().isAfter(expiredBefore))
+                .toList();
+
+        Instant horizon = now.plus(properties.partitionInterval().multipliedBy(properties.partitionsAhead()));
+        Instant start = alignDown(expiredBefore);
+        while (start.isBefore(horizon)) {
+            Partition covering = covering(live, start);
+            if (covering != null) {
+                start = covering.to();
+                continue;
+            }
+            // Stops at the next boundary, or earlier where an existing partition (such as the legacy one) begins.
+            Instant end = nextStart(live, start, alignDown(start).plus(properties.partitionInterval()));
+            create(start, end);
+            start = end;
+        }
+
+        // Read back, so partitions created by other instances count as well.
+        coveredUntil = coveredUntil(partitionRepository.findAll(), now);
+        if (coveredUntil.isBefore(now.plus(properties.partitionInterval()))) {
+            log.error("Idempotency key partitions end at {}; key inserts fail after that", coveredUntil);
+        }
+    }
+
+    // Time left until the last partition ends; NaN until the first run.
+    double horizonSeconds(Instant now) {
+        Instant until = coveredUntil;
+        return until == null ? Double.NaN : Duration.between(now, until).toMillis() / 1000.0;
+    }
+
+    private void create(Instant from, Instant to) {
+        String name = "idempotency_keys_p" + PARTITION_SUFFIX.format(from);
+        try {
+            partitionRepository.create(name, from, to);
+            log.info("Created idempotency key partition {} for [{}, {})", name, from, to);
+        } catch (DataAccessException e) {
+            // Typically another instance created it first; the next run sees it as covered.
+            log.warn("Could not create idempotency key partition {}", name, e);
+        }
+    }
+
+    private void drop(Partition partition) {
+        try {
+            partitionRepository.drop(partition);
+            log.info("Dropped expired idempotency key partition {}", partition.name());
+        } catch (DataAccessException e) {
+            log.warn("Could not drop idempotency key partition {}", partition.name(), e);
+        }
+    }
+
+    // Start of the aligned interval containing the given instant.
+    private Instant alignDown(Instant instant) {
+        long intervalMillis = properties.partitionInterval().toMillis();
+        return Instant.ofEpochMilli(Math.floorDiv(instant.toEpochMilli(), intervalMillis) * intervalMillis);
+    }
+
+    private static Partition covering(List<Partition> partitions, Instant instant) {
+        for (Partition partition : partitions) {
+            if (partition.contains(instant)) {
+                return partition;
+            }
+        }
+        return null;
+    }
+
+    private static Instant coveredUntil(List<Partition> partitions, Instant now) {
+        Instant until = now;
+        for (Partition partition = covering(partitions, until); partition != null; partition = covering(partitions, until)) {
+            until = partition.to();
+        }
+        return until;
+    }
+
+    private static Instant nextStart(List<Partition> partitions, Instant after, Instant limit) {
+        Instant next = limit;
+        for (Partition partition : partitions) {
+            if (partition.from() != null && partition.from().isAfter(after) && partition.from().isBefore(next)) {
+                next = partition.from();
+            }
+        }
+        return next;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.payment_gateway.service;
+
+// Defines the order in which a new payment and its idempotency key are written.
+public enum IdempotencyWriteMode {
+
+    // Inserts the payment first and resolves key races afterwards; the losing payment is rolled back.
+    PAYMENT_FIRST,
+
+    // Claims the idempotency key first so a losing request never touches the payments table.
+    RESERVE_FIRST
+}
@@ -0,0 +1,22 @@
+package com.example.payment_gateway.service;
+
+import org.springframework.stereotype.Service;
+
+import com.example.payment_gateway.repository.LedgerJdbcRepository;
+import com.example.payment_gateway.repository.LedgerJdbcRepository.Balance;
+
+import lombok.RequiredArgsConstructor;
+
+// Reads account balances from the ledger.
+@Service
+@RequiredArgsConstructor
+public class LedgerService {
+
+    // Reads snapshots and their tails.
+    private final LedgerJdbcRepository ledgerRepository;
+
+    // Balance of the account in the currency; zero for an account with no entries.
+    public Balance balance(String accountId, String currency) {
+        return ledgerRepository.balance(accountId, currency.toUpperCase());
+    }
+}
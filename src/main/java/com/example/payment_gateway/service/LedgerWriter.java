@@ -0,0 +1,88 @@
+package com.example.payment_gateway.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import com.example.payment_gateway.config.LedgerProperties;
+import com.example.payment_gateway.domain.LedgerEntry;
+import com.example.payment_gateway.domain.Payment;
+import com.example.payment_gateway.domain.UuidV7;
+import com.example.payment_gateway.repository.LedgerJdbcRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Posts the double-entry side of payment creation in the caller's transaction: the customer's account
+ * is debited and the merchant account credited with the amount. Entries are appended, never updated,
+ * so concurrent payments to the same merchant account never wait on each other's row lock.
+ */
+@Component
+@RequiredArgsConstructor
+public class LedgerWriter {
+
+    // Appends the entries.
+    private final LedgerJdbcRepository ledgerRepository;
+
+    // Names of the posted accounts.
+    private final LedgerProperties properties;
+
+    // Posts the entries of a single payment.
+    public void paymentCreated(Payment payment) {
+        List<LedgerEntry> entries = new ArrayList<>(2);
+        post(payment, entries);
+        ledgerRepository.insertAll(entries);
+    }
+
+    // Posts the entries of several payments with one statement.
+    public void paymentsCreated(Collection<Payment> payments) {
+        List<LedgerEntry> entries = new ArrayList<>(payments.size() * 2);
+        for (Payment payment : payments) {
+            post(payment, entries);
+        }
+        ledgerRepository.insertAll(entries);
+    }
+
+    /**
+     * Reverses the entries posted at creation once payments have ended without taking the customer's
+     * money (FAILED, VOIDED or REFUNDED): the merchant account is debited and the customer's credited,
+     * for all of them with one statement.
+     */
+    public void paymentsReversed(Collection<Payment> payments) {
+        Instant now = Instant.now();
+        List<LedgerEntry> entries = new ArrayList<>(payments.size() * 2);
+        for (Payment payment : payments) {
+            entries.add(entry(payment, properties.merchantAccount(), payment.getAmount(), now));
+            entries.add(entry(payment, customerAccount(payment.getCustomerId()), -payment.getAmount(), now));
+        }
+        ledgerRepository.insertAll(entries);
+    }
+
+    // Account holding what a customer has paid through the gateway.
+    public String customerAccount(String customerId) {
+        return properties.customerAccountPrefix() + customerId;
+    }
+
+    private void post(Payment payment, List<LedgerEntry> entries) {
+        long amount = payment.getAmount();
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Payment " + payment.getId() + " has a non-positive amount");
+        }
+        entries.add(entry(payment, customerAccount(payment.getCustomerId()), amount, payment.getCreatedAt()));
+        entries.add(entry(payment, properties.merchantAccount(), -amount, payment.getCreatedAt()));
+    }
+
+    private static LedgerEntry entry(Payment payment, String accountId, long amount, Instant createdAt) {
+        return LedgerEntry.builder()
+                .id(UuidV7.generate())
+                .paymentId(payment.getId())
+                .accountId(accountId)
+                .currency(payment.getCurrency())
+                .amount(amount)
+                .createdAt(createdAt)
+                .build();
+    }
+}
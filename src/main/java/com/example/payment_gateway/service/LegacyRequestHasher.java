@@ -0,0 +1,32 @@
+package com.example.payment_gateway.service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.example.payment_gateway.api.dto.CreatePaymentRequest;
+
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * The original fingerprint: SHA-256 over the Jackson JSON of the request. Only used to verify
+ * replays against idempotency records written before the canonical encoding (hash version 0);
+ * it can be deleted once those records have aged out of the retention window.
+ */
+final class LegacyRequestHasher {
+
+    // Serializes the request exactly as the original hasher did.
+    private final ObjectMapper objectMapper;
+
+    LegacyRequestHasher(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    // Returns the 32 digest bytes; the stored hex string was converted to the same bytes by the migration.
+    byte[] hash(CreatePaymentRequest request) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
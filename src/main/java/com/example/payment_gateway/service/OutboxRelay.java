@@ -0,0 +1,221 @@
+package com.example.payment_gateway.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.example.payment_gateway.config.OutboxRelayProperties;
+import com.example.payment_gateway.domain.OutboxEvent;
+import com.example.payment_gateway.repository.OutboxJdbcRepository;
+import com.example.payment_gateway.repository.OutboxJdbcRepository.Backlog;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Drains the outbox to Kafka in the background, keeping broker latency out of the request path.
+ * Each batch is leased by a claim that commits at once, published with no transaction or pooled
+ * connection held while the broker acknowledges it, and its acknowledged events are then deleted
+ * in a statement of their own. Events are deleted only once the broker has acknowledged them, so
+ * a crash in between, or a failed send, re-publishes them once their lease runs out rather than
+ * losing them (delivery is at least once; consumers dedup on the event id header). Relay runs have a
+ * thread of their own, relay at most maxBatchesPerRun batches and end at the first failed send: waiting
+ * on a broker that is down must not hold up the scheduler thread that the other jobs share.
+ */
+@Slf4j
+@Component
+@ConditionalOnBooleanProperty(name = "payments.outbox.relay.enabled", matchIfMissing = true)
+public class OutboxRelay implements AutoCloseable {
+
+    static final String EVENT_ID_HEADER = "event-id";
+
+    static final String EVENT_TYPE_HEADER = "event-type";
+
+    // Claims and deletes outbox rows.
+    private final OutboxJdbcRepository outboxRepository;
+
+    // Idempotent, compressed producer configured under spring.kafka.producer.
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    // Topic, batch size and timeouts.
+    private final OutboxRelayProperties properties;
+
+    // Runs one relay run at a time.
+    private final ExecutorService worker;
+
+    // Set while a run is queued or running; polls in the meantime are skipped.
+    private final AtomicBoolean busy = new AtomicBoolean();
+
+    // Events acknowledged by the broker.
+    private final Counter published;
+
+    // Events the broker rejected or did not acknowledge in time; they stay in the outbox until their lease runs out.
+    private final Counter failed;
+
+    // Time from the payment's commit to the broker's acknowledgement of its event.
+    private final Timer publishLag;
+
+    // Events waiting in the outbox, sampled after each relay run.
+    private final AtomicLong backlogSize = new AtomicLong();
+
+    // Age of the oldest waiting event in milliseconds, sampled after each relay run.
+    private final AtomicLong oldestAgeMillis = new AtomicLong();
+
+    public OutboxRelay(OutboxJdbcRepository outboxRepository,
+                       KafkaTemplate<String, byte[]> kafkaTemplate,
+                       OutboxRelayProperties properties,
+                       MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.properties = properties;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("outbox-relay-");
+        threadFactory.setDaemon(true);
+        this.worker = Executors.newSingleThreadExecutor(threadFactory);
+        this.published = Counter.builder("payments.outbox.published")
+                .description("Outbox events acknowledged by Kafka")
+                .register(meterRegistry);
+        this.failed = Counter.builder("payments.outbox.failed")
+                .description("Outbox events that could not be published and will be retried")
+                .register(meterRegistry);
+        this.publishLag = Timer.builder("payments.outbox.publish.lag")
+                .description("Time from event creation to broker acknowledgement")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("payments.outbox.backlog", backlogSize, AtomicLong::get)
+                .description("Events waiting in the outbox")
+                .register(meterRegistry);
+        Gauge.builder("payments.outbox.oldest.age", oldestAgeMillis, AtomicLong::get)
+                .description("Age of the oldest event waiting in the outbox")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    // Hands a relay run to the worker and returns; returns false if the previous run is still going.
+    @Scheduled(fixedDelayString = "${payments.outbox.relay.poll-interval:100ms}")
+    public boolean relay() {
+        if (!busy.compareAndSet(false, true)) {
+            return false;
+        }
+        worker.execute(() -> {
+            try {
+                relayRun();
+            } catch (RuntimeException e) {
+                log.warn("Outbox relay run failed; unpublished events stay in the outbox", e);
+            } finally {
+                busy.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Relays full batches until the outbox is drained, a batch is not fully acknowledged or
+     * maxBatchesPerRun batches were claimed, then samples the backlog; returns the batches claimed.
+     */
+    int relayRun() {
+        int batches = 0;
+        int relayed;
+        do {
+            relayed = relayBatch();
+            batches++;
+        } while (relayed == properties.batchSize() && batches < properties.maxBatchesPerRun());
+        sampleBacklog();
+        return batches;
+    }
+
+    // Publishes one claimed batch and deletes the acknowledged events; returns how many were relayed.
+    int relayBatch() {
+        List<OutboxEvent> events = outboxRepository.claim(properties.batchSize(), properties.lease());
+        if (events.isEmpty()) {
+            return 0;
+        }
+        List<UUID> acknowledged = publish(events);
+        outboxRepository.deleteAll(acknowledged);
+        return acknowledged.size();
+    }
+
+    /**
+     * Sends the whole batch before waiting, so the producer can pack it into few compressed requests.
+     * Stops at the first failure, as the rest would fail the same way, each after its own timeout: a send
+     * that failed after blocking for max.block.ms ends the sending, and a send that failed or was not
+     * acknowledged in time ends the waiting, keeping only the acknowledgements already received.
+     */
+    private List<UUID> publish(List<OutboxEvent> events) {
+        List<CompletableFuture<SendResult<String, byte[]>>> sends = new ArrayList<>(events.size());
+        try {
+            for (OutboxEvent event : events) {
+                ProducerRecord<String, byte[]> record = new ProducerRecord<>(
+                        properties.topic(), event.getAggregateId().toString(), event.getPayload());
+                record.headers()
+                        .add(EVENT_ID_HEADER, event.getId().toString().getBytes(StandardCharsets.UTF_8))
+                        .add(EVENT_TYPE_HEADER, event.getEventType().getBytes(StandardCharsets.UTF_8));
+                sends.add(kafkaTemplate.send(record));
+            }
+        } catch (KafkaException e) {
+            log.warn("Failed to publish outbox event {}; the rest of the batch was not sent",
+                    events.get(sends.size()).getId(), e);
+        }
+
+        // Sends what linger.ms would otherwise hold back; the batch is complete.
+        kafkaTemplate.flush();
+
+        long deadline = System.nanoTime() + properties.sendTimeout().toNanos();
+        boolean failing = false;
+        List<UUID> acknowledged = new ArrayList<>(events.size());
+        for (int i = 0; i < sends.size(); i++) {
+            OutboxEvent event = events.get(i);
+            try {
+                sends.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                acknowledged.add(event.getId());
+                publishLag.record(Duration.between(event.getCreatedAt(), Instant.now()));
+            } catch (ExecutionException | TimeoutException e) {
+                if (!failing) {
+                    log.warn("Failed to publish outbox event {}; not waiting for the rest of the batch", event.getId(), e);
+                    failing = true;
+                    deadline = System.nanoTime();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        published.increment(acknowledged.size());
+        failed.increment(events.size() - acknowledged.size());
+        return acknowledged;
+    }
+
+    @Override
+    public void close() {
+        worker.shutdownNow();
+    }
+
+    private void sampleBacklog() {
+        Backlog backlog = outboxRepository.backlog();
+        backlogSize.set(backlog.size());
+        oldestAgeMillis.set(backlog.oldest() == null ? 0
+                : Math.max(0, Duration.between(backlog.oldest(), Instant.now()).toMillis()));
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.payment_gateway.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import com.example.payment_gateway.domain.OutboxEvent;
+import com.example.payment_gateway.domain.Payment;
+import com.example.payment_gateway.domain.PaymentCreatedEvent;
+import com.example.payment_gateway.domain.UuidV7;
+import com.example.payment_gateway.repository.OutboxJdbcRepository;
+
+import lombok.RequiredArgsConstructor;
+import tools.jackson.databind.ObjectMapper;
+
+// Records domain events in the outbox as part of the caller's transaction; nothing here talks to Kafka.
+@Component
+@RequiredArgsConstructor
+public class OutboxWriter {
+
+    // Persists the serialized events.
+    private final OutboxJdbcRepository outboxRepository;
+
+    // Serializes event payloads.
+    private final ObjectMapper objectMapper;
+
+    // Records the creation of a single payment.
+    public void paymentCreated(Payment payment) {
+        outboxRepository.insert(toEvent(payment));
+    }
+
+    // Records the creation of several payments with one statement.
+    public void paymentsCreated(Collection<Payment> payments) {
+        List<OutboxEvent> events = new ArrayList<>(payments.size());
+        for (Payment payment : payments) {
+            events.add(toEvent(payment));
+        }
+        outboxRepository.insertAll(events);
+    }
+
+    private OutboxEvent toEvent(Payment payment) {
+        PaymentCreatedEvent event = PaymentCreatedEvent.of(UuidV7.generate(), payment);
+        return OutboxEvent.builder()
+                .id(event.eventId())
+                .aggregateId(payment.getId())
+                .eventType(PaymentCreatedEvent.TYPE)
+                .payload(objectMapper.writeValueAsBytes(event))
+                .createdAt(payment.getCreatedAt())
+                .build();
+    }
+}
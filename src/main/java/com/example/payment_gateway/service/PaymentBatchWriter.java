@@ -0,0 +1,164 @@
+package com.example.payment_gateway.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.payment_gateway.api.dto.CreatePaymentRequest;
+import com.example.payment_gateway.domain.IdempotencyKey;
+import com.example.payment_gateway.domain.Payment;
+import com.example.payment_gateway.domain.StoredResponse;
+import com.example.payment_gateway.repository.IdempotencyKeyRepository;
+import com.example.payment_gateway.repository.PaymentJdbcRepository;
+
+import lombok.RequiredArgsConstructor;
+
+// Creates a group of payments in one transaction using multi-row statements.
+@Component
+@RequiredArgsConstructor
+public class PaymentBatchWriter {
+
+    // Inserts the new payments of a batch in a single statement, and loads those of keys that already existed.
+    private final PaymentJdbcRepository paymentJdbcRepository;
+
+    // Resolves and claims the idempotency keys of a batch in bulk.
+    private final IdempotencyKeyRepository idempotencyRepository;
+
+    // Records the PaymentCreated events of the batch with one statement.
+    private final OutboxWriter outboxWriter;
+
+    // Posts the ledger entries of the batch with one statement.
+    private final LedgerWriter ledgerWriter;
+
+    // Starts the sagas of the batch with one statement.
+    private final PaymentSagaWriter sagaWriter;
+
+    // Checks replayed items against the fingerprint stored with their key.
+    private final RequestHasher requestHasher;
+
+    // Serializes the response stored with each new key.
+    private final CreatedResponseEncoder responseEncoder;
+
+    // Wraps the whole batch in one transaction so it costs a single commit.
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Writes all items in one transaction and returns one result per item, in input order.
+     * Idempotency conflicts are reported per item and never fail the rest of the batch;
+     * an exception thrown from this method means the whole transaction was rolled back.
+     */
+    public List<BatchResult> write(List<BatchItem> items) {
+        return transactionTemplate.execute(status -> writeInTransaction(items));
+    }
+
+    private List<BatchResult> writeInTransaction(List<BatchItem> items) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (BatchItem item : items) {
+            keys.add(item.idempotencyKey());
+        }
+
+        // Resolves every key of the batch with one lookup.
+        Map<String, IdempotencyKey> claims = new HashMap<>(idempotencyRepository.findAllByKeys(keys));
+
+        // Prepares a payment for each key seen for the first time; repeated keys share it.
+        Map<UUID, Payment> created = new LinkedHashMap<>();
+        List<IdempotencyKey> newClaims = new ArrayList<>();
+        for (BatchItem item : items) {
+            if (claims.containsKey(item.idempotencyKey())) {
+                continue;
+            }
+            Payment payment = Payment.create(item.request());
+            IdempotencyKey claim = IdempotencyKey.builder()
+                    .idempotencyKey(item.idempotencyKey())
+                    .requestHash(item.requestHash())
+                    .paymentId(payment.getId())
+                    .createdAt(payment.getCreatedAt())
+                    .response(responseEncoder.encode(payment))
+                    .build();
+            claims.put(item.idempotencyKey(), claim);
+            created.put(payment.getId(), payment);
+            newClaims.add(claim);
+        }
+
+        // Claims the keys before inserting payments, so keys lost to a concurrent transaction cost no payment write.
+        Map<String, IdempotencyKey> resolved = idempotencyRepository.insertAllOrGetExisting(newClaims);
+        for (IdempotencyKey claim : newClaims) {
+            IdempotencyKey winner = resolved.get(claim.getIdempotencyKey());
+            if (!winner.getPaymentId().equals(claim.getPaymentId())) {
+                created.remove(claim.getPaymentId());
+                claims.put(claim.getIdempotencyKey(), winner);
+            }
+        }
+
+        paymentJdbcRepository.insertAll(new ArrayList<>(created.values()));
+        outboxWriter.paymentsCreated(created.values());
+        ledgerWriter.paymentsCreated(created.values());
+        sagaWriter.paymentsCreated(created.values());
+
+        // Loads the payments owned by keys that existed before this batch.
+        Set<UUID> existingIds = new LinkedHashSet<>();
+        for (IdempotencyKey claim : claims.values()) {
+            if (!created.containsKey(claim.getPaymentId())) {
+                existingIds.add(claim.getPaymentId());
+            }
+        }
+        Map<UUID, Payment> existing = new HashMap<>();
+        paymentJdbcRepository.findAllById(existingIds).forEach(p -> existing.put(p.getId(), p));
+
+        // Only the first item of a key created here reports a creation; later items with that key are replays.
+        Set<UUID> reported = new HashSet<>();
+        List<BatchResult> results = new ArrayList<>(items.size());
+        for (BatchItem item : items) {
+            results.add(resolve(item, claims.get(item.idempotencyKey()), created, existing, reported));
+        }
+        return results;
+    }
+
+    // Maps one item to its payment, or to the error that only affects this item.
+    private BatchResult resolve(BatchItem item, IdempotencyKey claim,
+                                Map<UUID, Payment> created, Map<UUID, Payment> existing, Set<UUID> reported) {
+        if (!requestHasher.matches(claim, item.request(), item.requestHash())) {
+            return BatchResult.failed(new IdempotencyConflictException(item.idempotencyKey()));
+        }
+
+        Payment payment = created.get(claim.getPaymentId());
+        if (payment != null) {
+            return BatchResult.succeeded(payment, reported.add(payment.getId()), claim.getResponse());
+        }
+        payment = existing.get(claim.getPaymentId());
+        if (payment == null) {
+            return BatchResult.failed(new IllegalStateException(
+                    "Idempotency record exists but payment not found. paymentId=" + claim.getPaymentId()));
+        }
+        // Keys claimed before responses were stored get theirs rebuilt from the payment.
+        StoredResponse response = claim.getResponse() != null ? claim.getResponse() : responseEncoder.encode(payment);
+        return BatchResult.succeeded(payment, false, response);
+    }
+
+    // One payment creation within a batch.
+    public record BatchItem(String idempotencyKey, CreatePaymentRequest request, byte[] requestHash) {}
+
+    /**
+     * Outcome of one batch item: either its payment, whether this item created it and the response
+     * stored with its key, or the error isolated to it.
+     */
+    public record BatchResult(Payment payment, boolean created, StoredResponse response, RuntimeException error) {
+
+        static BatchResult succeeded(Payment payment, boolean created, StoredResponse response) {
+            return new BatchResult(payment, created, response, null);
+        }
+
+        static BatchResult failed(RuntimeException error) {
+            return new BatchResult(null, false, null, error);
+        }
+    }
+}
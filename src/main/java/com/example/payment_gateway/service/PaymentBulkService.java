@@ -0,0 +1,207 @@
+package com.example.payment_gateway.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Service;
+
+import com.example.payment_gateway.api.dto.BatchPaymentRequest;
+import com.example.payment_gateway.api.dto.CreatePaymentRequest;
+import com.example.payment_gateway.config.PaymentBulkProperties;
+import com.example.payment_gateway.domain.Payment;
+import com.example.payment_gateway.service.PaymentBatchWriter.BatchItem;
+import com.example.payment_gateway.service.PaymentBatchWriter.BatchResult;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Creates an unbounded sequence of payments, each with its own idempotency key, in fixed-size chunks.
+ * Items are pulled from the iterator only as chunks are written, and each chunk's results are handed
+ * on before the next chunk is read, so memory stays bounded by the chunk size whatever the input length.
+ * Every chunk is one transaction: one bulk key lookup, multi-row inserts for the new keys and payments.
+ * A run holds one admission control concurrency slot throughout, and every valid item takes a token from
+ * its customer's bucket before its chunk is written, so a batch is held to the same limits as single creates.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PaymentBulkService {
+
+    // Writes each chunk in one transaction with multi-row statements.
+    private final PaymentBatchWriter batchWriter;
+
+    // Fingerprints each item for its idempotency record.
+    private final RequestHasher requestHasher;
+
+    // Validates items one by one, since an invalid item must not reject the whole request.
+    private final Validator validator;
+
+    // Chunk size.
+    private final PaymentBulkProperties properties;
+
+    // Applies the global concurrency limit to the run and per-customer rate limits to its items.
+    private final AdmissionControl admissionControl;
+
+    /**
+     * Creates the payments read from the iterator and passes the results of each chunk, in input order,
+     * to the consumer. Unreadable input or a chunk that fails to commit ends the run with an ABORTED
+     * result at the index of the first item that was not processed; earlier chunks stay committed.
+     * Throws AdmissionRejectedException, before reading anything, when the instance is saturated.
+     */
+    public void createAll(Iterator<BatchPaymentRequest> items, Consumer<List<ItemResult>> chunkResults) {
+        try (AdmissionControl.Permit permit = admissionControl.admitStream()) {
+            createChunks(items, chunkResults);
+        }
+    }
+
+    private void createChunks(Iterator<BatchPaymentRequest> items, Consumer<List<ItemResult>> chunkResults) {
+        int index = 0;
+        while (true) {
+            List<Pending> chunk = new ArrayList<>(properties.chunkSize());
+            String readError = null;
+            try {
+                while (chunk.size() < properties.chunkSize() && items.hasNext()) {
+                    chunk.add(prepare(index + chunk.size(), items.next()));
+                }
+            } catch (RuntimeException e) {
+                // The rest of the input cannot be parsed reliably, but the items read so far are still written.
+                readError = "Unreadable item: " + e.getMessage();
+            }
+            if (chunk.isEmpty() && readError == null) {
+                return;
+            }
+
+            List<ItemResult> results;
+            try {
+                results = write(chunk);
+            } catch (RuntimeException e) {
+                log.warn("Bulk payment chunk starting at item {} failed; aborting the request", index, e);
+                chunkResults.accept(aborted(index, "Chunk could not be written; retry it with the same idempotency keys"));
+                return;
+            }
+            index += chunk.size();
+            if (readError != null) {
+                results.add(ItemResult.of(index, null, Outcome.ABORTED, readError));
+                chunkResults.accept(results);
+                return;
+            }
+            chunkResults.accept(results);
+        }
+    }
+
+    // Validates and hashes one item; invalid items are resolved right away and never reach the database.
+    private Pending prepare(int index, BatchPaymentRequest item) {
+        if (item == null) {
+            return Pending.rejected(index, null, Outcome.INVALID, "Item must be a JSON object");
+        }
+        Set<ConstraintViolation<BatchPaymentRequest>> violations = validator.validate(item);
+        if (!violations.isEmpty()) {
+            String error = violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted(Comparator.naturalOrder())
+                    .collect(Collectors.joining(", "));
+            return Pending.rejected(index, item.idempotencyKey(), Outcome.INVALID, error);
+        }
+        CreatePaymentRequest request = item.toCreatePaymentRequest();
+        return new Pending(index, item.idempotencyKey(),
+                new BatchItem(item.idempotencyKey(), request, requestHasher.hash(request)), null, null);
+    }
+
+    // Charges each item to its customer's bucket; items over the customer's rate are not written.
+    private List<Pending> admit(List<Pending> chunk) {
+        List<Pending> admitted = new ArrayList<>(chunk.size());
+        for (Pending pending : chunk) {
+            long waitNanos = pending.item() == null ? 0 : admissionControl.admitItem(pending.item().request().customerId());
+            if (waitNanos > 0) {
+                long retryAfterMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+                pending = Pending.rejected(pending.index(), pending.idempotencyKey(), Outcome.RATE_LIMITED,
+                        "Too many requests for this customer; retry after " + retryAfterMillis + " ms");
+            }
+            admitted.add(pending);
+        }
+        return admitted;
+    }
+
+    private List<ItemResult> write(List<Pending> chunk) {
+        chunk = admit(chunk);
+        List<BatchItem> batch = new ArrayList<>(chunk.size());
+        for (Pending pending : chunk) {
+            if (pending.item() != null) {
+                batch.add(pending.item());
+            }
+        }
+        List<BatchResult> written = batch.isEmpty() ? List.of() : batchWriter.write(batch);
+
+        List<ItemResult> results = new ArrayList<>(chunk.size() + 1);
+        Iterator<BatchResult> writtenResults = written.iterator();
+        for (Pending pending : chunk) {
+            if (pending.item() == null) {
+                results.add(ItemResult.of(pending.index(), pending.idempotencyKey(), pending.outcome(), pending.error()));
+            } else {
+                results.add(toResult(pending, writtenResults.next()));
+            }
+        }
+        return results;
+    }
+
+    private static ItemResult toResult(Pending pending, BatchResult result) {
+        if (result.error() instanceof IdempotencyConflictException conflict) {
+            return ItemResult.of(pending.index(), pending.idempotencyKey(), Outcome.CONFLICT, conflict.getMessage());
+        }
+        if (result.error() != null) {
+            log.warn("Bulk payment item {} failed", pending.index(), result.error());
+            return ItemResult.of(pending.index(), pending.idempotencyKey(), Outcome.FAILED, result.error().getMessage());
+        }
+        Outcome outcome = result.created() ? Outcome.CREATED : Outcome.REPLAYED;
+        return new ItemResult(pending.index(), pending.idempotencyKey(), outcome, result.payment(), null);
+    }
+
+    private static List<ItemResult> aborted(int index, String error) {
+        List<ItemResult> results = new ArrayList<>(1);
+        results.add(ItemResult.of(index, null, Outcome.ABORTED, error));
+        return results;
+    }
+
+    // What happened to one item.
+    public enum Outcome {
+        // A new payment was created for the item.
+        CREATED,
+        // The key already belonged to an identical request; its payment is returned.
+        REPLAYED,
+        // The key already belongs to a different request.
+        CONFLICT,
+        // The item failed validation and was not written.
+        INVALID,
+        // The item's customer is over its rate; the item was not written and may be resent with the same key.
+        RATE_LIMITED,
+        // The item could not be written for another reason.
+        FAILED,
+        // Processing stopped; this and every later item were not processed.
+        ABORTED
+    }
+
+    // Result of one item; payment is set for CREATED and REPLAYED, error otherwise.
+    public record ItemResult(int index, String idempotencyKey, Outcome outcome, Payment payment, String error) {
+
+        static ItemResult of(int index, String idempotencyKey, Outcome outcome, String error) {
+            return new ItemResult(index, idempotencyKey, outcome, null, error);
+        }
+    }
+
+    // An item read from the input: either ready to write, or already rejected with an outcome and error.
+    private record Pending(int index, String idempotencyKey, BatchItem item, Outcome outcome, String error) {
+
+        static Pending rejected(int index, String idempotencyKey, Outcome outcome, String error) {
+            return new Pending(index, idempotencyKey, null, outcome, error);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.payment_gateway.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import com.example.payment_gateway.domain.PaymentStatus;
+import com.example.payment_gateway.domain.PaymentStatusCallback;
+import com.example.payment_gateway.service.PaymentStatusService.BulkStatusResult;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Applies provider status callbacks in batches. Each polled batch is reduced to the latest callback per
+ * payment and applied through PaymentStatusService.updateStatuses, one read and one bulk update in one
+ * transaction. Offsets are acknowledged only after that transaction has committed, so a crash in between
+ * redelivers the batch; reapplying it is harmless because a payment never moves back to an earlier status.
+ */
+@Slf4j
+@Component
+@ConditionalOnBooleanProperty(name = "payments.callbacks.enabled", matchIfMissing = true)
+public class PaymentCallbackListener {
+
+    static final String LISTENER_ID = "payment-status-callbacks";
+
+    // Applies the batch's status changes.
+    private final PaymentStatusService statusService;
+
+    // Parses callback payloads.
+    private final ObjectMapper objectMapper;
+
+    // Callbacks by outcome.
+    private final Counter applied;
+    private final Counter stale;
+    private final Counter unknown;
+    private final Counter duplicate;
+    private final Counter malformed;
+
+    // Records per polled batch.
+    private final DistributionSummary batchSize;
+
+    // Time to parse, deduplicate and commit one batch.
+    private final Timer batchLatency;
+
+    // Time from the provider's change to the commit of the batch that applied it.
+    private final Timer callbackDelay;
+
+    // Records not yet consumed in the partitions of each consumer thread, sampled after each of its batches.
+    private final Map<Consumer<?, ?>, Long> lag = new ConcurrentHashMap<>();
+
+    public PaymentCallbackListener(PaymentStatusService statusService,
+                                   ObjectMapper objectMapper,
+                                   MeterRegistry meterRegistry) {
+        this.statusService = statusService;
+        this.objectMapper = objectMapper;
+        this.applied = outcome("applied", meterRegistry);
+        this.stale = outcome("stale", meterRegistry);
+        this.unknown = outcome("unknown_payment", meterRegistry);
+        this.duplicate = outcome("duplicate", meterRegistry);
+        this.malformed = outcome("malformed", meterRegistry);
+        this.batchSize = DistributionSummary.builder("payments.callbacks.batch.size")
+                .description("Status callbacks received in one batch")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchLatency = Timer.builder("payments.callbacks.batch")
+                .description("Time to apply one batch of status callbacks, up to its commit")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.callbackDelay = Timer.builder("payments.callbacks.delay")
+                .description("Time from a provider's status change to its commit")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("payments.callbacks.lag", lag, map -> map.values().stream().mapToLong(Long::longValue).sum())
+                .description("Status callbacks waiting to be consumed")
+                .register(meterRegistry);
+    }
+
+    @KafkaListener(id = LISTENER_ID, idIsGroup = false, containerFactory = "paymentCallbackContainerFactory",
+                   topics = "${payments.callbacks.topic:payments.status-callbacks}")
+    public void onBatch(List<ConsumerRecord<String, byte[]>> records, Acknowledgment acknowledgment,
+                        Consumer<?, ?> consumer) {
+        long start = System.nanoTime();
+        batchSize.record(records.size());
+
+        // Later callbacks supersede earlier ones; at equal times the one read last wins.
+        Map<UUID, PaymentStatusCallback> latest = new HashMap<>(records.size() * 2);
+        int valid = 0;
+        for (ConsumerRecord<String, byte[]> record : records) {
+            PaymentStatusCallback callback = parse(record);
+            if (callback == null) {
+                continue;
+            }
+            valid++;
+            latest.merge(callback.paymentId(), callback,
+                    (kept, next) -> next.occurredAt().isBefore(kept.occurredAt()) ? kept : next);
+        }
+
+        Map<UUID, PaymentStatus> targets = new HashMap<>(latest.size() * 2);
+        latest.forEach((paymentId, callback) -> targets.put(paymentId, callback.status()));
+        BulkStatusResult result = statusService.updateStatuses(targets);
+
+        // The transaction has committed; only now may the offsets move past the batch.
+        acknowledgment.acknowledge();
+
+        Instant committed = Instant.now();
+        for (PaymentStatusCallback callback : latest.values()) {
+            callbackDelay.record(Duration.between(callback.occurredAt(), committed).toNanos(), TimeUnit.NANOSECONDS);
+        }
+        duplicate.increment(valid - latest.size());
+        applied.increment(result.applied());
+        stale.increment(result.stale());
+        unknown.increment(result.unknown());
+        batchLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        sampleLag(consumer);
+    }
+
+    // Parses a callback, or counts and logs it and returns null when it cannot be applied.
+    private PaymentStatusCallback parse(ConsumerRecord<String, byte[]> record) {
+        try {
+            PaymentStatusCallback callback = record.value() == null ? null
+                    : objectMapper.readValue(record.value(), PaymentStatusCallback.class);
+            if (callback != null && callback.paymentId() != null && callback.status() != null
+                    && callback.occurredAt() != null) {
+                return callback;
+            }
+        } catch (JacksonException e) {
+            log.debug("Unparseable status callback at {}-{}@{}", record.topic(), record.partition(), record.offset(), e);
+        }
+        log.warn("Skipping malformed status callback at {}-{}@{}", record.topic(), record.partition(), record.offset());
+        malformed.increment();
+        return null;
+    }
+
+    // Runs on the consumer thread, which owns the consumer; currentLag answers from the last fetch.
+    private void sampleLag(Consumer<?, ?> consumer) {
+        long total = 0;
+        for (TopicPartition partition : consumer.assignment()) {
+            OptionalLong partitionLag = consumer.currentLag(partition);
+            if (partitionLag.isPresent()) {
+                total += partitionLag.getAsLong();
+            }
+        }
+        lag.put(consumer, total);
+    }
+
+    private static Counter outcome(String result, MeterRegistry meterRegistry) {
+        return Counter.builder("payments.callbacks.events")
+                .description("Status callbacks consumed, by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.payment_gateway.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import com.example.payment_gateway.config.PaymentBatchingProperties;
+import com.example.payment_gateway.service.PaymentBatchWriter.BatchItem;
+import com.example.payment_gateway.service.PaymentBatchWriter.BatchResult;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+// Gathers concurrent payment creations into batches that share one transaction and one commit.
+@Slf4j
+@Component
+public class PaymentCreateBatcher implements SmartLifecycle {
+
+    // Writes each gathered batch in a single transaction.
+    private final PaymentBatchWriter batchWriter;
+
+    // Batch size, time window and writer concurrency.
+    private final PaymentBatchingProperties properties;
+
+    // Holds submitted creations until a writer picks them up.
+    private final BlockingQueue<PendingCreation> queue;
+
+    // Number of requests committed together.
+    private final DistributionSummary batchSize;
+
+    // Time a request spends queued before its batch starts writing.
+    private final Timer queueWait;
+
+    // Duration of each batch transaction.
+    private final Timer batchWrite;
+
+    // Batches whose transaction failed and were handed back for individual processing.
+    private final Counter failedBatches;
+
+    // Runs the writer loops; uses virtual threads when spring.threads.virtual.enabled is set.
+    private final SimpleAsyncTaskExecutor writerExecutor;
+
+    // Counts down as each writer loop exits.
+    private volatile CountDownLatch writersStopped = new CountDownLatch(0);
+
+    private volatile boolean running;
+
+    public PaymentCreateBatcher(PaymentBatchWriter batchWriter,
+                                PaymentBatchingProperties properties,
+                                MeterRegistry meterRegistry,
+                                SimpleAsyncTaskExecutorBuilder executorBuilder) {
+        this.batchWriter = batchWriter;
+        this.properties = properties;
+        this.writerExecutor = executorBuilder.threadNamePrefix("payment-batch-writer-").build();
+        this.writerExecutor.setDaemon(true);
+        this.queue = new ArrayBlockingQueue<>(properties.queueCapacity());
+        this.batchSize = DistributionSummary.builder("payments.create.batch.size")
+                .description("Number of payment creations committed in one batch")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.queueWait = Timer.builder("payments.create.batch.queue.wait")
+                .description("Time a payment creation waits before its batch is written")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchWrite = Timer.builder("payments.create.batch.write")
+                .description("Duration of a batch write transaction")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.failedBatches = Counter.builder("payments.create.batch.failures")
+                .description("Batches rolled back and retried one request at a time")
+                .register(meterRegistry);
+    }
+
+    // Whether creations should be routed through the batcher.
+    public boolean isEnabled() {
+        return running;
+    }
+
+    /**
+     * Enqueues a creation; the returned future completes once its batch has committed.
+     * Returns empty when the queue is full so the caller can process the request directly.
+     */
+    public Optional<CompletableFuture<BatchResult>> trySubmit(BatchItem item) {
+        if (!running) {
+            return Optional.empty();
+        }
+        PendingCreation pending = new PendingCreation(item, System.nanoTime(), new CompletableFuture<>());
+        return queue.offer(pending) ? Optional.of(pending.result()) : Optional.empty();
+    }
+
+    @Override
+    public void start() {
+        if (!properties.enabled() || running) {
+            return;
+        }
+        running = true;
+        CountDownLatch stopped = new CountDownLatch(properties.writerThreads());
+        writersStopped = stopped;
+        for (int i = 0; i < properties.writerThreads(); i++) {
+            writerExecutor.execute(() -> {
+                try {
+                    drainLoop();
+                } finally {
+                    stopped.countDown();
+                }
+            });
+        }
+    }
+
+    // Stops accepting work and lets the writers flush what is already queued.
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            writersStopped.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        // Anything submitted while stopping is handed back to its caller for direct processing.
+        PendingCreation leftover;
+        while ((leftover = queue.poll()) != null) {
+            leftover.result().completeExceptionally(new BatchWriteFailedException(
+                    new IllegalStateException("Payment batcher stopped")));
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Starts before and stops after the web server, so in-flight requests can still be batched on shutdown.
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    // Repeatedly gathers a batch and writes it until stopped and the queue is drained.
+    private void drainLoop() {
+        int maxBatchSize = properties.maxBatchSize();
+        long maxWaitNanos = properties.maxWait().toNanos();
+
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingCreation first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                List<PendingCreation> batch = new ArrayList<>(maxBatchSize);
+                batch.add(first);
+
+                // Waits at most maxWait after the oldest request, or until the batch is full.
+                long deadline = first.enqueuedAtNanos() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingCreation next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Writes one batch and completes every caller's future with its own result.
+    private void flush(List<PendingCreation> batch) {
+        long now = System.nanoTime();
+        List<BatchItem> items = new ArrayList<>(batch.size());
+        for (PendingCreation pending : batch) {
+            queueWait.record(now - pending.enqueuedAtNanos(), TimeUnit.NANOSECONDS);
+            items.add(pending.item());
+        }
+        batchSize.record(batch.size());
+
+        List<BatchResult> results;
+        try {
+            results = batchWrite.recordCallable(() -> batchWriter.write(items));
+        } catch (Exception e) {
+            // Hands every request back so one bad item cannot fail its neighbours.
+            log.warn("Payment batch of {} failed, retrying requests individually", batch.size(), e);
+            failedBatches.increment();
+            for (PendingCreation pending : batch) {
+                pending.result().completeExceptionally(new BatchWriteFailedException(e));
+            }
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            BatchResult result = results.get(i);
+            if (result.error() != null) {
+                batch.get(i).result().completeExceptionally(result.error());
+            } else {
+                batch.get(i).result().complete(result);
+            }
+        }
+    }
+
+    // A queued creation together with the future its caller waits on.
+    private record PendingCreation(BatchItem item, long enqueuedAtNanos, CompletableFuture<BatchResult> result) {}
+
+    // Signals that the batch transaction failed as a whole and the request was not written.
+    static class BatchWriteFailedException extends RuntimeException {
+
+        BatchWriteFailedException(Throwable cause) {
+            super("Payment batch write failed", cause);
+        }
+    }
+}
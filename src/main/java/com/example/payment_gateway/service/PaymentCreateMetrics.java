@@ -0,0 +1,113 @@
+package com.example.payment_gateway.service;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Meters of PaymentService.create, resolved once at construction so the hot path only reads fields.
+ * Stage timers share the name payments.create.stage with a stage tag, and idempotency outcomes share
+ * payments.idempotency.lookups with a result tag, so dashboards can sum or break them down.
+ */
+final class PaymentCreateMetrics {
+
+    // Histogram buckets are limited to this range; the stages are sub-millisecond to a few seconds.
+    private static final Duration MIN_EXPECTED = Duration.ofNanos(10_000);
+    private static final Duration MAX_EXPECTED = Duration.ofSeconds(10);
+
+    // Latency of calls that created a payment.
+    final Timer createdLatency;
+
+    // Latency of calls answered with the response stored for their key.
+    final Timer replayedLatency;
+
+    // Canonical encoding and SHA-256 of the request.
+    final Timer hashing;
+
+    // Fast-path read of the key's record, from the cache or idempotency_keys.
+    final Timer idempotencyLookup;
+
+    // Insert of the payment row.
+    final Timer paymentInsert;
+
+    // Insert of the PaymentCreated outbox event.
+    final Timer outboxInsert;
+
+    // Insert of the payment's ledger entries.
+    final Timer ledgerPost;
+
+    // Insert of the payment's saga row.
+    final Timer sagaStart;
+
+    // Claim of the key, including any wait on a concurrent holder's lock.
+    final Timer idempotencyUpsert;
+
+    // Work done after losing the key to a concurrent request: payload check and replay of the winner.
+    final Timer raceLossFallback;
+
+    // The key already had a record when the request arrived.
+    final Counter hits;
+
+    // The key had no record when the request arrived.
+    final Counter misses;
+
+    // The key was reused with a different payload.
+    final Counter conflicts;
+
+    // The key was claimed by a concurrent request between the lookup and the claim.
+    final Counter raceLosses;
+
+    PaymentCreateMetrics(MeterRegistry meterRegistry) {
+        this.createdLatency = latency("created", meterRegistry);
+        this.replayedLatency = latency("replayed", meterRegistry);
+        this.hashing = stage("hash", meterRegistry);
+        this.idempotencyLookup = stage("idempotency_lookup", meterRegistry);
+        this.paymentInsert = stage("payment_insert", meterRegistry);
+        this.outboxInsert = stage("outbox_insert", meterRegistry);
+        this.ledgerPost = stage("ledger_post", meterRegistry);
+        this.sagaStart = stage("saga_start", meterRegistry);
+        this.idempotencyUpsert = stage("idempotency_upsert", meterRegistry);
+        this.raceLossFallback = stage("race_loss_fallback", meterRegistry);
+        this.hits = lookups("hit", meterRegistry);
+        this.misses = lookups("miss", meterRegistry);
+        this.conflicts = lookups("conflict", meterRegistry);
+        this.raceLosses = lookups("race_lost", meterRegistry);
+    }
+
+    // Records the time elapsed since startNanos and returns the end, so the next stage can start from it.
+    long record(Timer timer, long startNanos) {
+        long now = System.nanoTime();
+        timer.record(now - startNanos, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    private static Timer latency(String outcome, MeterRegistry meterRegistry) {
+        return Timer.builder("payments.create.latency")
+                .description("Duration of POST /payments handling in the service, by whether the key was new")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED)
+                .maximumExpectedValue(MAX_EXPECTED)
+                .register(meterRegistry);
+    }
+
+    private static Timer stage(String stage, MeterRegistry meterRegistry) {
+        return Timer.builder("payments.create.stage")
+                .description("Duration of one step of payment creation")
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED)
+                .maximumExpectedValue(MAX_EXPECTED)
+                .register(meterRegistry);
+    }
+
+    private static Counter lookups(String result, MeterRegistry meterRegistry) {
+        return Counter.builder("payments.idempotency.lookups")
+                .description("Idempotency key resolutions of POST /payments, by result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.payment_gateway.service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.payment_gateway.config.PaymentHistoryProperties;
+import com.example.payment_gateway.domain.Payment;
+import com.example.payment_gateway.repository.PaymentJdbcRepository;
+
+import lombok.RequiredArgsConstructor;
+
+// Reads a customer's payments, newest first, either page by page or as one stream.
+@Service
+@RequiredArgsConstructor
+public class PaymentHistoryService {
+
+    // Runs the keyset and cursor queries.
+    private final PaymentJdbcRepository paymentJdbcRepository;
+
+    // Rows fetched per round trip while exporting.
+    private final PaymentHistoryProperties properties;
+
+    // Returns the page after the given (createdAt, id) position, or the first page when it is null.
+    public List<Payment> findByCustomer(String customerId, Instant beforeCreatedAt, UUID beforeId, int limit) {
+        return paymentJdbcRepository.findByCustomer(customerId, beforeCreatedAt, beforeId, limit);
+    }
+
+    // The read-only transaction lets the driver use a server-side cursor, so only one fetch is held in memory.
+    @Transactional(readOnly = true)
+    public void exportByCustomer(String customerId, Consumer<Payment> consumer) {
+        paymentJdbcRepository.streamByCustomer(customerId, properties.exportFetchSize(), consumer);
+    }
+}
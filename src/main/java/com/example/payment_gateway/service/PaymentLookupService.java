@@ -0,0 +1,42 @@
+package com.example.payment_gateway.service;
+
+import java.util.UUID;
+
+import org.springframework.stereotype.Service;
+
+import com.example.payment_gateway.api.dto.PaymentResponse;
+import com.example.payment_gateway.domain.Payment;
+import com.example.payment_gateway.repository.PaymentJdbcRepository;
+import com.example.payment_gateway.service.PaymentResponseCache.Entry;
+
+import lombok.RequiredArgsConstructor;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Serves single payments by id through the response cache. A hit returns the serialized body and its
+ * version without touching the database or Jackson; a miss reads the row once and caches its JSON.
+ */
+@Service
+@RequiredArgsConstructor
+public class PaymentLookupService {
+
+    // Cached payment bodies, invalidated by PaymentStatusService.
+    private final PaymentResponseCache cache;
+
+    // Reads the payment row on a cache miss.
+    private final PaymentJdbcRepository paymentJdbcRepository;
+
+    // Serializes the response once per version.
+    private final ObjectMapper objectMapper;
+
+    // Returns the payment's current version and JSON body, or throws if it does not exist.
+    public Entry get(UUID id) {
+        return cache.get(id, this::load);
+    }
+
+    private Entry load(UUID id) {
+        Payment payment = paymentJdbcRepository.findById(id)
+                .orElseThrow(() -> new PaymentNotFoundException(id));
+        return new Entry(payment.getVersion(), objectMapper.writeValueAsBytes(PaymentResponse.from(payment)));
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.payment_gateway.service;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import com.example.payment_gateway.domain.SagaStep;
+
+/**
+ * A downstream payment provider, called by the saga orchestrator for every step of the sagas assigned
+ * to it. Implementations must not block the caller: the result arrives on the returned future. A step
+ * may be sent more than once (after a timeout or a lost response), always with the same idempotency key,
+ * and must then have the same effect as once.
+ */
+public interface PaymentProviderClient {
+
+    // Name stored with each saga; at most 32 characters.
+    String name();
+
+    /**
+     * Runs the step. Completes with the provider's answer, or exceptionally when the call failed in a
+     * way that is worth retrying (unreachable, overloaded, timed out).
+     */
+    CompletableFuture<ProviderResult> execute(ProviderRequest request);
+
+    /**
+     * One step of one payment, its amount in minor units of the currency. reference is the provider's id
+     * of the authorization, null for AUTHORIZE. idempotencyKey is the same for every attempt of the step.
+     */
+    record ProviderRequest(UUID paymentId, SagaStep step, String idempotencyKey, long amount,
+                           String currency, String reference) {}
+
+    // A definitive answer; a declined step is not retried. reference is set by an approved AUTHORIZE.
+    record ProviderResult(boolean approved, String reference, String declineReason) {
+
+        public static ProviderResult approved(String reference) {
+            return new ProviderResult(true, reference, null);
+        }
+
+        public static ProviderResult declined(String reason) {
+            return new ProviderResult(false, null, reason);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.payment_gateway.service;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Function;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+/**
+ * Read-through cache of serialized payment responses keyed by payment id, bounded by the bytes it holds.
+ * A local Caffeine cache is backed by an optional cluster-wide level. Changing a payment does not just
+ * remove its entry: it leaves a marker carrying the new version, so a read that started before the change
+ * and finishes after it cannot put the old version back. Entries only ever move to a newer version.
+ */
+public class PaymentResponseCache {
+
+    // Rough per-entry cost of the key, the entry and the map node, added to the body length.
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    // Entries and invalidation markers held by this instance.
+    private final Cache<UUID, Entry> local;
+
+    // Shared level, or null when running without one.
+    private final ClusterPaymentCache cluster;
+
+    public PaymentResponseCache(long maximumWeightBytes, Duration ttl, ClusterPaymentCache cluster, Ticker ticker) {
+        this.local = Caffeine.newBuilder()
+                .maximumWeight(maximumWeightBytes)
+                .weigher((UUID id, Entry entry) -> ENTRY_OVERHEAD_BYTES + (entry.body() == null ? 0 : entry.body().length))
+                .expireAfterWrite(ttl)
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        this.cluster = cluster;
+        if (cluster != null) {
+            cluster.subscribe((id, version) -> publish(id, Entry.invalidated(version)));
+        }
+    }
+
+    /**
+     * Returns the cached entry, otherwise the shared one, otherwise loads it. The loader runs outside any
+     * cache lock, unlike Cache.get(key, loader), so a slow query never blocks lookups of other payments.
+     */
+    public Entry get(UUID paymentId, Function<UUID, Entry> loader) {
+        Entry cached = local.getIfPresent(paymentId);
+        if (cached != null && !cached.isInvalidated()) {
+            return cached;
+        }
+
+        if (cluster != null) {
+            Entry shared = cluster.get(paymentId);
+            if (shared != null && !shared.isInvalidated() && (cached == null || shared.version() >= cached.version())) {
+                publish(paymentId, shared);
+                return shared;
+            }
+        }
+
+        Entry loaded = loader.apply(paymentId);
+        publish(paymentId, loaded);
+        if (cluster != null) {
+            cluster.put(paymentId, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Invalidates every cached version older than the given one once the current transaction commits,
+     * on this instance and, through the cluster level, on all others.
+     */
+    public void invalidateAfterCommit(UUID paymentId, long version) {
+        afterCommit(() -> {
+            publish(paymentId, Entry.invalidated(version));
+            if (cluster != null) {
+                cluster.invalidate(paymentId, version);
+            }
+        });
+    }
+
+    // Gives access to the local cache so it can be bound to a metrics registry.
+    public Cache<UUID, Entry> cache() {
+        return local;
+    }
+
+    // Keeps whichever of the two entries is newer.
+    private void publish(UUID paymentId, Entry entry) {
+        local.asMap().merge(paymentId, entry, (existing, candidate) -> candidate.supersedes(existing) ? candidate : existing);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * One cached version of a payment: its JSON body, or no body for the marker left by an invalidation,
+     * which only says that anything older than its version is stale.
+     */
+    public record Entry(long version, byte[] body) {
+
+        public static Entry invalidated(long version) {
+            return new Entry(version, null);
+        }
+
+        public boolean isInvalidated() {
+            return body == null;
+        }
+
+        // Newer versions win; at the same version, a real entry replaces the marker asking for it.
+        public boolean supersedes(Entry other) {
+            return version > other.version || (version == other.version && other.isInvalidated() && !isInvalidated());
+        }
+    }
+}
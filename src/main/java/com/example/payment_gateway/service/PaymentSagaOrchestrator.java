@@ -0,0 +1,240 @@
+package com.example.payment_gateway.service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.payment_gateway.config.SagaProperties;
+import com.example.payment_gateway.domain.PaymentStatus;
+import com.example.payment_gateway.domain.SagaStep.Transition;
+import com.example.payment_gateway.repository.PaymentSagaJdbcRepository;
+import com.example.payment_gateway.repository.PaymentSagaJdbcRepository.DueStep;
+import com.example.payment_gateway.service.PaymentProviderClient.ProviderRequest;
+import com.example.payment_gateway.service.PaymentProviderClient.ProviderResult;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs payment sagas. Each poll claims the due steps of every provider, as many as the provider has free
+ * call slots on this node, and calls the provider without waiting for it. Outcomes are written on a small
+ * completion pool: the saga moves to its next step or compensation and the payment to its new status in
+ * one transaction. Timeouts and retries are deadlines, not sleeping threads: a call times out through its
+ * future, and a step to retry is given a later next_attempt_at and claimed again by whichever node polls.
+ */
+@Slf4j
+@Component
+@ConditionalOnBooleanProperty(name = "payments.saga.enabled")
+public class PaymentSagaOrchestrator implements SmartLifecycle {
+
+    // Claims and advances saga steps.
+    private final PaymentSagaJdbcRepository sagaRepository;
+
+    // Moves payments to the status a step leads to, invalidating their cached responses and reversing their ledger entries.
+    private final PaymentStatusService statusService;
+
+    // Records an outcome and the status change it causes atomically.
+    private final TransactionTemplate transactionTemplate;
+
+    // Batch size, concurrency, timeouts and backoff.
+    private final SagaProperties properties;
+
+    // Registered clients by name, each with its slots for calls in flight.
+    private final Map<String, Provider> providers = new LinkedHashMap<>();
+
+    private final MeterRegistry meterRegistry;
+
+    // Writes outcomes; created on start, shut down on stop.
+    private volatile ExecutorService completionExecutor;
+
+    private volatile boolean running;
+
+    public PaymentSagaOrchestrator(PaymentSagaJdbcRepository sagaRepository,
+                                   PaymentStatusService statusService,
+                                   TransactionTemplate transactionTemplate,
+                                   SagaProperties properties,
+                                   List<PaymentProviderClient> clients,
+                                   MeterRegistry meterRegistry) {
+        this.sagaRepository = sagaRepository;
+        this.statusService = statusService;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        for (PaymentProviderClient client : clients) {
+            int limit = properties.maxConcurrency(client.name());
+            Provider provider = new Provider(client, new Semaphore(limit), limit);
+            if (providers.putIfAbsent(client.name(), provider) != null) {
+                throw new IllegalStateException("Two payment providers are named " + client.name());
+            }
+            Gauge.builder("payments.saga.in_flight", provider, p -> p.limit() - p.permits().availablePermits())
+                    .description("Provider calls in flight on this node")
+                    .tag("provider", client.name())
+                    .register(meterRegistry);
+        }
+        if (!providers.containsKey(properties.defaultProvider())) {
+            throw new IllegalStateException("No payment provider named " + properties.defaultProvider()
+                    + " (payments.saga.default-provider); registered: " + providers.keySet());
+        }
+    }
+
+    // Claims and dispatches due steps for each provider until it runs out of due steps or free slots.
+    @Scheduled(fixedDelayString = "${payments.saga.poll-interval:200ms}")
+    public void poll() {
+        for (Provider provider : providers.values()) {
+            try {
+                while (running && dispatchDue(provider) == properties.batchSize()) {
+                    // A full batch was claimed; there may be more due.
+                }
+            } catch (RuntimeException e) {
+                log.warn("Saga poll for provider {} failed; due steps stay due", provider.client().name(), e);
+            }
+        }
+    }
+
+    // Claims up to one batch of the provider's due steps, no more than it has free slots for; returns how many.
+    int dispatchDue(Provider provider) {
+        // Only this method acquires slots, and poll runs on one thread, so the free slots cannot shrink.
+        int slots = Math.min(provider.permits().availablePermits(), properties.batchSize());
+        if (!running || slots == 0 || !provider.permits().tryAcquire(slots)) {
+            return 0;
+        }
+        List<DueStep> claimed;
+        try {
+            claimed = sagaRepository.claim(provider.client().name(), slots, properties.lease());
+        } catch (RuntimeException e) {
+            provider.permits().release(slots);
+            throw e;
+        }
+        provider.permits().release(slots - claimed.size());
+        for (DueStep step : claimed) {
+            dispatch(provider, step);
+        }
+        return claimed.size();
+    }
+
+    // Starts the provider call; its outcome is recorded on the completion pool once it arrives or times out.
+    private void dispatch(Provider provider, DueStep step) {
+        long started = System.nanoTime();
+        ProviderRequest request = new ProviderRequest(step.paymentId(), step.step(),
+                step.paymentId() + ":" + step.step(), step.amount(), step.currency(), step.providerReference());
+        CompletableFuture<ProviderResult> call;
+        try {
+            call = provider.client().execute(request);
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        call.orTimeout(properties.stepTimeout().toNanos(), TimeUnit.NANOSECONDS)
+                .whenCompleteAsync((result, error) -> complete(provider, step, result, unwrap(error), started),
+                        completionExecutor);
+    }
+
+    private void complete(Provider provider, DueStep step, ProviderResult result, Throwable error, long started) {
+        try {
+            String outcome = error == null ? (result.approved() ? "approved" : "declined")
+                    : error instanceof TimeoutException ? "timeout" : "error";
+            Timer.builder("payments.saga.step")
+                    .description("Duration of a provider call made by a saga step, by outcome")
+                    .tag("provider", provider.client().name())
+                    .tag("step", step.step().name())
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            transactionTemplate.executeWithoutResult(status -> record(step, result, error));
+        } catch (RuntimeException e) {
+            // The step is claimed again once its lease runs out, with the same idempotency key.
+            log.warn("Failed to record the outcome of {} for payment {}", step.step(), step.paymentId(), e);
+        } finally {
+            provider.permits().release();
+        }
+    }
+
+    // Retries a transient failure until maxAttempts; otherwise applies the step's transition.
+    private void record(DueStep step, ProviderResult result, Throwable error) {
+        if (error != null && step.attempts() < properties.maxAttempts()) {
+            sagaRepository.retry(step, properties.backoff(step.attempts()), truncate(describe(error)));
+            return;
+        }
+
+        boolean approved = error == null && result.approved();
+        Transition transition = approved ? step.step().succeeded() : step.step().failed();
+        String reason = approved ? null
+                : error == null ? result.declineReason()
+                : "Gave up after " + step.attempts() + " attempts: " + describe(error);
+        boolean advanced = sagaRepository.advance(step, transition.next(), transition.sagaStatus(),
+                approved ? result.reference() : null, truncate(reason));
+        if (!advanced) {
+            log.debug("Discarded a stale outcome of {} for payment {}", step.step(), step.paymentId());
+            return;
+        }
+
+        // A provider callback may already have moved the payment as far, or further; the move is then skipped.
+        PaymentStatus paymentStatus = transition.paymentStatus();
+        if (paymentStatus != null && !statusService.moveStatus(step.paymentId(), paymentStatus)) {
+            log.debug("Payment {} had already moved past {}", step.paymentId(), paymentStatus);
+        }
+    }
+
+    @Override
+    public void start() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("payment-saga-");
+        threadFactory.setDaemon(true);
+        completionExecutor = Executors.newFixedThreadPool(properties.completionThreads(), threadFactory);
+        running = true;
+    }
+
+    // Stops claiming and waits, up to the lease, for the calls in flight to be recorded.
+    @Override
+    public void stop() {
+        running = false;
+        long deadline = System.nanoTime() + properties.lease().toNanos();
+        try {
+            for (Provider provider : providers.values()) {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                if (provider.permits().tryAcquire(provider.limit(), remaining, TimeUnit.NANOSECONDS)) {
+                    provider.permits().release(provider.limit());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Outcomes not recorded by now are retried by other nodes when their lease runs out.
+        completionExecutor.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private static String describe(Throwable error) {
+        return error instanceof TimeoutException ? "Provider call timed out"
+                : error.getClass().getSimpleName() + ": " + error.getMessage();
+    }
+
+    private static String truncate(String message) {
+        return message == null || message.length() <= 255 ? message : message.substring(0, 255);
+    }
+
+    // A provider client with the semaphore bounding its calls in flight on this node.
+    record Provider(PaymentProviderClient client, Semaphore permits, int limit) {}
+}
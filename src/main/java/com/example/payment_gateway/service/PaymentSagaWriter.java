@@ -0,0 +1,64 @@
+package com.example.payment_gateway.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import com.example.payment_gateway.config.SagaProperties;
+import com.example.payment_gateway.domain.Payment;
+import com.example.payment_gateway.domain.PaymentSaga;
+import com.example.payment_gateway.domain.SagaStatus;
+import com.example.payment_gateway.domain.SagaStep;
+import com.example.payment_gateway.repository.PaymentSagaJdbcRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Starts the saga of each new payment in the caller's transaction, with its authorization due at once
+ * on the default provider. The saga row commits with the payment, so no payment is left without one.
+ * Without a default provider (payments.saga.default-provider) payments are created without sagas.
+ */
+@Component
+@RequiredArgsConstructor
+public class PaymentSagaWriter {
+
+    // Inserts the saga rows.
+    private final PaymentSagaJdbcRepository sagaRepository;
+
+    // Provider that new payments are sent to.
+    private final SagaProperties properties;
+
+    // Starts the saga of a single payment.
+    public void paymentCreated(Payment payment) {
+        if (properties.defaultProvider() == null) {
+            return;
+        }
+        sagaRepository.insertAll(List.of(saga(payment)));
+    }
+
+    // Starts the sagas of several payments with one statement.
+    public void paymentsCreated(Collection<Payment> payments) {
+        if (properties.defaultProvider() == null) {
+            return;
+        }
+        List<PaymentSaga> sagas = new ArrayList<>(payments.size());
+        for (Payment payment : payments) {
+            sagas.add(saga(payment));
+        }
+        sagaRepository.insertAll(sagas);
+    }
+
+    private PaymentSaga saga(Payment payment) {
+        return PaymentSaga.builder()
+                .paymentId(payment.getId())
+                .provider(properties.defaultProvider())
+                .step(SagaStep.AUTHORIZE)
+                .status(SagaStatus.ACTIVE)
+                .nextAttemptAt(payment.getCreatedAt())
+                .createdAt(payment.getCreatedAt())
+                .updatedAt(payment.getCreatedAt())
+                .build();
+    }
+}
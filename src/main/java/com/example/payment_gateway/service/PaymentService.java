@@ -1,27 +1,45 @@
 package com.example.payment_gateway.service;
 
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
-import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.server.ResponseStatusException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.example.payment_gateway.api.dto.CreatePaymentRequest;
+import com.example.payment_gateway.config.IdempotencyProperties;
 import com.example.payment_gateway.domain.IdempotencyKey;
 import com.example.payment_gateway.domain.Payment;
+import com.example.payment_gateway.domain.StoredResponse;
 import com.example.payment_gateway.repository.IdempotencyKeyRepository;
-import com.example.payment_gateway.repository.PaymentRepository;
+import com.example.payment_gateway.repository.PaymentJdbcRepository;
+import com.example.payment_gateway.service.PaymentBatchWriter.BatchItem;
+import com.example.payment_gateway.service.PaymentBatchWriter.BatchResult;
+import com.example.payment_gateway.service.PaymentCreateBatcher.BatchWriteFailedException;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
 
 // Coordinates payment creation while enforcing idempotency and transactional consistency.
 @Service
-@RequiredArgsConstructor
 public class PaymentService {
 
-    // Handles persistence of payment entities.
-    private final PaymentRepository paymentRepository;
+    // Inserts new payments with a single statement and reads them back for replays.
+    private final PaymentJdbcRepository paymentJdbcRepository;
+
+    // Records the PaymentCreated event in the creation transaction.
+    private final OutboxWriter outboxWriter;
+
+    // Posts the payment's double-entry ledger entries in the creation transaction.
+    private final LedgerWriter ledgerWriter;
+
+    // Starts the payment's saga in the creation transaction.
+    private final PaymentSagaWriter sagaWriter;
 
     // Manages idempotency keys to prevent duplicated processing.
     private final IdempotencyKeyRepository idempotencyRepository;
@@ -29,64 +47,223 @@ public class PaymentService {
     // Generates a deterministic hash to detect payload differences.
     private final RequestHasher requestHasher;
 
-    // Executes the full payment creation flow atomically.
-    @Transactional
-    public Payment create(String idempotencyKey, CreatePaymentRequest request) {
+    // Serializes the 201 response once, to be stored with the key and replayed as is.
+    private final CreatedResponseEncoder responseEncoder;
+
+    // Demarcates the creation transaction explicitly so single-flight callers wait for its commit.
+    private final TransactionTemplate transactionTemplate;
+
+    // Selects the write ordering and whether in-node coalescing is used.
+    private final IdempotencyProperties idempotencyProperties;
+
+    // Optionally group-commits creations from many threads.
+    private final PaymentCreateBatcher batcher;
+
+    // End-to-end and per-stage timers, idempotency outcome counters.
+    private final PaymentCreateMetrics metrics;
+
+    // Shares one in-progress creation among concurrent callers using the same idempotency key.
+    private final SingleFlight<String, Creation> inFlightCreations = new SingleFlight<>();
+
+    public PaymentService(PaymentJdbcRepository paymentJdbcRepository,
+                          OutboxWriter outboxWriter,
+                          LedgerWriter ledgerWriter,
+                          PaymentSagaWriter sagaWriter,
+                          IdempotencyKeyRepository idempotencyRepository,
+                          RequestHasher requestHasher,
+                          CreatedResponseEncoder responseEncoder,
+                          TransactionTemplate transactionTemplate,
+                          IdempotencyProperties idempotencyProperties,
+                          PaymentCreateBatcher batcher,
+                          MeterRegistry meterRegistry) {
+        this.paymentJdbcRepository = paymentJdbcRepository;
+        this.outboxWriter = outboxWriter;
+        this.ledgerWriter = ledgerWriter;
+        this.sagaWriter = sagaWriter;
+        this.idempotencyRepository = idempotencyRepository;
+        this.requestHasher = requestHasher;
+        this.responseEncoder = responseEncoder;
+        this.transactionTemplate = transactionTemplate;
+        this.idempotencyProperties = idempotencyProperties;
+        this.batcher = batcher;
+        this.metrics = new PaymentCreateMetrics(meterRegistry);
+    }
+
+    /**
+     * Executes the full payment creation flow atomically and returns the response to send.
+     * A retry of a key that already succeeded gets the response stored with the key by the first call.
+     */
+    public CreateResult create(String idempotencyKey, CreatePaymentRequest request) {
+        long start = System.nanoTime();
 
         // Hashes the request to validate idempotency payload consistency.
-        String requestHash = requestHasher.hash(request);
+        byte[] requestHash = requestHasher.hash(request);
+        long hashed = metrics.record(metrics.hashing, start);
 
-        // Fast path: validates payload if the idempotency key already exists.
-        idempotencyRepository.findByKey(idempotencyKey).ifPresent(existing -> {
-            validateSamePayload(existing, requestHash);
-            // If hashes match, the existing payment will be returned later.
-        });
+        Creation creation;
+        if (!idempotencyProperties.singleFlight()) {
+            creation = createPayment(idempotencyKey, request, requestHash, hashed);
+        } else {
+            // Waits for a concurrent creation with the same key instead of racing it to the database.
+            creation = inFlightCreations.execute(idempotencyKey,
+                    () -> createPayment(idempotencyKey, request, requestHash, hashed));
 
-        // Loads existing idempotency record to return the associated payment.
+            // A caller that joined another request's creation must still have sent the same payload.
+            if (!Arrays.equals(creation.requestHash(), requestHash)) {
+                metrics.conflicts.increment();
+                throw new IdempotencyConflictException(idempotencyKey);
+            }
+        }
+
+        metrics.record(creation.result().replayed() ? metrics.replayedLatency : metrics.createdLatency, start);
+        return creation.result();
+    }
+
+    // Lists payments created in [from, to) in creation order, resuming after the given id.
+    public List<Payment> findCreatedBetween(Instant from, Instant to, UUID after, int limit) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+        return paymentJdbcRepository.findCreatedBetween(from, to, after, limit);
+    }
+
+    // Answers replays from the key's record, otherwise routes the creation through the batcher or its own transaction.
+    private Creation createPayment(String idempotencyKey, CreatePaymentRequest request, byte[] requestHash,
+                                   long lookupStart) {
+
+        // Fast path: one indexed read outside any transaction answers a retry with its stored response.
         IdempotencyKey existing = idempotencyRepository.findByKey(idempotencyKey).orElse(null);
+        metrics.record(metrics.idempotencyLookup, lookupStart);
         if (existing != null) {
-            validateSamePayload(existing, requestHash);
-            return paymentRepository.findById(existing.getPaymentId())
-                    .orElseThrow(() -> new IllegalStateException(
-                            "Idempotency record exists but payment not found. paymentId=" + existing.getPaymentId()
-                    ));
+            metrics.hits.increment();
+            validateSamePayload(existing, request, requestHash);
+            return new Creation(replay(existing), requestHash);
         }
+        metrics.misses.increment();
+
+        if (batcher.isEnabled()) {
+            Optional<CompletableFuture<BatchResult>> batched =
+                    batcher.trySubmit(new BatchItem(idempotencyKey, request, requestHash));
+            if (batched.isPresent()) {
+                try {
+                    BatchResult result = batched.get().join();
+                    return new Creation(
+                            new CreateResult(result.payment().getId(), result.response(), !result.created()),
+                            requestHash);
+                } catch (CompletionException e) {
+                    // A failed batch transaction falls through to the individual path below.
+                    if (!(e.getCause() instanceof BatchWriteFailedException)) {
+                        throw e.getCause() instanceof RuntimeException cause ? cause : e;
+                    }
+                }
+            }
+        }
+        return createInTransaction(idempotencyKey, request, requestHash);
+    }
+
+    // Runs the write steps inside a single committed transaction.
+    private Creation createInTransaction(String idempotencyKey, CreatePaymentRequest request, byte[] requestHash) {
+        CreateResult result = transactionTemplate.execute(status -> switch (idempotencyProperties.writeMode()) {
+            case RESERVE_FIRST -> reserveKeyThenCreate(idempotencyKey, request, requestHash);
+            case PAYMENT_FIRST -> createThenClaimKey(idempotencyKey, request, requestHash, status);
+        });
+        return new Creation(result, requestHash);
+    }
+
+    // Claims the key before touching the payments table, so a losing request only reads.
+    private CreateResult reserveKeyThenCreate(String idempotencyKey, CreatePaymentRequest request, byte[] requestHash) {
+        Payment payment = Payment.create(request);
+        StoredResponse response = responseEncoder.encode(payment);
+
+        // Blocks on the key's lock while a concurrent holder of the key is still in flight.
+        long upsertStart = System.nanoTime();
+        IdempotencyKey reservation = idempotencyRepository
+                .insertOrGetExisting(idempotencyKey, requestHash, payment.getId(), response);
+        metrics.record(metrics.idempotencyUpsert, upsertStart);
+
+        if (!reservation.getPaymentId().equals(payment.getId())) {
+            return replayRaceWinner(reservation, request, requestHash);
+        }
+
+        insertPaymentAndEvent(payment);
+        return new CreateResult(payment.getId(), response, false);
+    }
+
+    // Inserts the payment first and resolves key races afterwards.
+    private CreateResult createThenClaimKey(String idempotencyKey, CreatePaymentRequest request, byte[] requestHash,
+                                            TransactionStatus status) {
 
         // Creates a new payment when no idempotency key is present.
-        Payment payment = paymentRepository.save(Payment.create(request));
+        Payment payment = Payment.create(request);
+        insertPaymentAndEvent(payment);
+        StoredResponse response = responseEncoder.encode(payment);
 
         // Attempts to persist the idempotency key, handling concurrent insert races.
+        long upsertStart = System.nanoTime();
         IdempotencyKey savedOrExisting = idempotencyRepository
-                .insertOrGetExisting(idempotencyKey, requestHash, payment.getId());
+                .insertOrGetExisting(idempotencyKey, requestHash, payment.getId(), response);
+        metrics.record(metrics.idempotencyUpsert, upsertStart);
 
-        // If another transaction won the race, returns the existing payment safely.
+        // If another transaction won the race, discards this payment and returns the existing one.
         if (!savedOrExisting.getPaymentId().equals(payment.getId())) {
-            validateSamePayload(savedOrExisting, requestHash);
-
-            return paymentRepository.findById(savedOrExisting.getPaymentId())
-                    .orElseThrow(() -> new IllegalStateException(
-                            "Idempotency record exists but payment not found. paymentId=" + savedOrExisting.getPaymentId()
-                    ));
+            status.setRollbackOnly();
+            return replayRaceWinner(savedOrExisting, request, requestHash);
         }
 
         // Successful creation path: returns the newly created payment.
-        return payment;
+        return new CreateResult(payment.getId(), response, false);
     }
 
-    // Retrieves a payment by id with read-only transactional guarantees.
-    @Transactional(readOnly = true)
-    public Payment get(UUID id) {
-        return paymentRepository.findById(id)
-                .orElseThrow(() -> new PaymentNotFoundException(id));
+    private void insertPaymentAndEvent(Payment payment) {
+        long insertStart = System.nanoTime();
+        paymentJdbcRepository.insert(payment);
+        long inserted = metrics.record(metrics.paymentInsert, insertStart);
+
+        outboxWriter.paymentCreated(payment);
+        long evented = metrics.record(metrics.outboxInsert, inserted);
+
+        ledgerWriter.paymentCreated(payment);
+        long posted = metrics.record(metrics.ledgerPost, evented);
+
+        sagaWriter.paymentCreated(payment);
+        metrics.record(metrics.sagaStart, posted);
+    }
+
+    // Answers with the response of the concurrent request that claimed the key first.
+    private CreateResult replayRaceWinner(IdempotencyKey winner, CreatePaymentRequest request, byte[] requestHash) {
+        metrics.raceLosses.increment();
+        long fallbackStart = System.nanoTime();
+        try {
+            validateSamePayload(winner, request, requestHash);
+            return replay(winner);
+        } finally {
+            metrics.record(metrics.raceLossFallback, fallbackStart);
+        }
+    }
+
+    // Answers with the stored response; records claimed before responses were stored rebuild it from the payment.
+    private CreateResult replay(IdempotencyKey record) {
+        if (record.getResponse() != null) {
+            return new CreateResult(record.getPaymentId(), record.getResponse(), true);
+        }
+        Payment payment = paymentJdbcRepository.findById(record.getPaymentId())
+                .orElseThrow(() -> new IllegalStateException(
+                        "Idempotency record exists but payment not found. paymentId=" + record.getPaymentId()
+                ));
+        return new CreateResult(payment.getId(), responseEncoder.encode(payment), true);
     }
 
     // Ensures the same idempotency key is not reused with a different request payload.
-    private void validateSamePayload(IdempotencyKey existing, String requestHash) {
-        if (!existing.getRequestHash().equals(requestHash)) {
-            throw new ResponseStatusException(
-                    HttpStatus.CONFLICT,
-                    "Idempotency-Key reuse with different payload"
-            );
+    private void validateSamePayload(IdempotencyKey existing, CreatePaymentRequest request, byte[] requestHash) {
+        if (!requestHasher.matches(existing, request, requestHash)) {
+            metrics.conflicts.increment();
+            throw new IdempotencyConflictException(existing.getIdempotencyKey());
         }
     }
+
+    // Outcome of a create call: the payment id, the response to send and whether it was replayed.
+    public record CreateResult(UUID paymentId, StoredResponse response, boolean replayed) {}
+
+    // Result shared with callers that joined an in-progress creation.
+    private record Creation(CreateResult result, byte[] requestHash) {}
 }
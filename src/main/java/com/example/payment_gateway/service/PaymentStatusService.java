@@ -0,0 +1,141 @@
+package com.example.payment_gateway.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.payment_gateway.domain.Payment;
+import com.example.payment_gateway.domain.PaymentStatus;
+import com.example.payment_gateway.repository.PaymentJdbcRepository;
+import com.example.payment_gateway.repository.PaymentJdbcRepository.StatusUpdate;
+import com.example.payment_gateway.repository.PaymentSagaJdbcRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Changes payment status with an optimistic version check. Every change goes through here so that the
+ * cached responses of GET /payments/{id} are invalidated, locally and across instances, once it commits.
+ */
+@Service
+@RequiredArgsConstructor
+public class PaymentStatusService {
+
+    // Rounds of a bulk change in which payments changed concurrently are read again and retried.
+    private static final int BULK_ATTEMPTS = 3;
+
+    private final PaymentJdbcRepository paymentJdbcRepository;
+
+    // Invalidated after each committed change.
+    private final PaymentResponseCache cache;
+
+    // Reverses the entries of payments moved to a status that returns the money.
+    private final LedgerWriter ledgerWriter;
+
+    // Ends the sagas of payments moved to such a status, so they make no further provider calls.
+    private final PaymentSagaJdbcRepository sagaRepository;
+
+    /**
+     * Moves the payment to the given status if it is still at the expected version and returns its new
+     * version; a status that returns the money also reverses the payment's ledger entries and ends its
+     * saga. Fails with OptimisticLockingFailureException when it was changed in the meantime.
+     */
+    @Transactional
+    public long updateStatus(UUID id, long expectedVersion, PaymentStatus status) {
+        Optional<Payment> updated = paymentJdbcRepository.updateStatus(id, status, expectedVersion);
+        if (updated.isEmpty()) {
+            if (paymentJdbcRepository.findById(id).isEmpty()) {
+                throw new PaymentNotFoundException(id);
+            }
+            throw new OptimisticLockingFailureException(
+                    "Payment " + id + " is no longer at version " + expectedVersion);
+        }
+
+        Payment payment = updated.get();
+        cache.invalidateAfterCommit(id, payment.getVersion());
+        if (status.reversesLedger()) {
+            ledgerWriter.paymentsReversed(List.of(payment));
+            sagaRepository.endAll(List.of(id));
+        }
+        return payment.getVersion();
+    }
+
+    /**
+     * Moves the payment to the given status if its current status may move there, reading it again
+     * rather than relying on a version read earlier: a change made in the meantime, such as a provider
+     * callback, is built on instead of failing this one. Returns false when the move was skipped as late
+     * or repeated; see updateStatuses.
+     */
+    @Transactional
+    public boolean moveStatus(UUID id, PaymentStatus status) {
+        return updateStatuses(Map.of(id, status)).applied() == 1;
+    }
+
+    /**
+     * Moves many payments to new statuses with one read and one update per round. A change is applied
+     * only if the payment's current status may move to the new one (see PaymentStatus.canMoveTo), so late
+     * or repeated changes are skipped. Payments changed between the read and the update are read again
+     * and retried; if some still conflict after a few rounds, fails with OptimisticLockingFailureException
+     * and nothing is applied. Payments moved to a status that returns the money have their ledger entries
+     * reversed and their sagas ended in the same transaction.
+     */
+    @Transactional
+    public BulkStatusResult updateStatuses(Map<UUID, PaymentStatus> targets) {
+        Map<UUID, PaymentStatus> pending = new HashMap<>(targets);
+        List<Payment> reversed = new ArrayList<>();
+        int applied = 0;
+        int stale = 0;
+        int unknown = targets.size();
+        for (int attempt = 1; !pending.isEmpty(); attempt++) {
+            if (attempt > BULK_ATTEMPTS) {
+                throw new OptimisticLockingFailureException(
+                        pending.size() + " payments kept changing concurrently during a bulk status update");
+            }
+
+            List<Payment> current = paymentJdbcRepository.findAllById(pending.keySet());
+            if (attempt == 1) {
+                unknown -= current.size();
+            }
+            Map<UUID, Payment> byId = new HashMap<>(current.size() * 2);
+            List<StatusUpdate> updates = new ArrayList<>(current.size());
+            for (Payment payment : current) {
+                PaymentStatus target = pending.get(payment.getId());
+                if (payment.getStatus().canMoveTo(target)) {
+                    byId.put(payment.getId(), payment);
+                    updates.add(new StatusUpdate(payment.getId(), target, payment.getVersion()));
+                } else {
+                    stale++;
+                }
+            }
+
+            Map<UUID, Long> updated = paymentJdbcRepository.updateStatuses(updates);
+            Map<UUID, PaymentStatus> conflicts = new HashMap<>();
+            for (StatusUpdate update : updates) {
+                Long version = updated.get(update.id());
+                if (version == null) {
+                    conflicts.put(update.id(), update.status());
+                    continue;
+                }
+                applied++;
+                cache.invalidateAfterCommit(update.id(), version);
+                if (update.status().reversesLedger()) {
+                    reversed.add(byId.get(update.id()));
+                }
+            }
+            pending = conflicts;
+        }
+
+        ledgerWriter.paymentsReversed(reversed);
+        sagaRepository.endAll(reversed.stream().map(Payment::getId).toList());
+        return new BulkStatusResult(applied, stale, unknown);
+    }
+
+    // Outcome of a bulk change: applied, skipped as not a valid move from the current status, and no such payment.
+    public record BulkStatusResult(int applied, int stale, int unknown) {}
+}
@@ -0,0 +1,24 @@
+package com.example.payment_gateway.service;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Outcome of reconciling one settlement file. Lines are classified as matched, mismatched (same id,
+ * different amount or currency), extra (not a known payment, or a repeated id) or rejected (unparseable);
+ * missing counts payments inside the file's id range that the file does not mention. Partitions counts the
+ * id ranges joined, including those split off oversized ones; largestPartition is the most lines that were
+ * held in memory and sorted at once.
+ */
+public record ReconciliationSummary(
+        Path reportDir,
+        long lines,
+        long matched,
+        long mismatched,
+        long extra,
+        long missing,
+        long rejected,
+        int partitions,
+        long largestPartition,
+        Duration elapsed
+) {}
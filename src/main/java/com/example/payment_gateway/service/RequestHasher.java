@@ -1,43 +1,228 @@
 package com.example.payment_gateway.service;
 
+import java.security.DigestException;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.springframework.stereotype.Component;
 
 import com.example.payment_gateway.api.dto.CreatePaymentRequest;
+import com.example.payment_gateway.domain.Amount;
+import com.example.payment_gateway.domain.IdempotencyKey;
 
-import lombok.RequiredArgsConstructor;
 import tools.jackson.databind.ObjectMapper;
 
-// Generates a deterministic hash of the request to support idempotency validation.
+/**
+ * Generates a deterministic hash of the request to support idempotency validation.
+ * The request is fed to SHA-256 in a canonical binary form, field by field, so the result depends
+ * only on its values: not on JSON field order, not on the scale of the amount (10.5 and 10.50 hash
+ * alike) and not on the case of the currency code, which Payment.create upper-cases anyway.
+ */
 @Component
-@RequiredArgsConstructor
 public class RequestHasher {
 
-    // Serializes the request into a stable JSON representation.
-    private final ObjectMapper objectMapper;
+    // Length of a SHA-256 digest.
+    public static final int HASH_LENGTH = 32;
 
-    // Produces a SHA-256 hash to detect payload differences across repeated requests.
-    public String hash(CreatePaymentRequest request) {
+    // Leading byte of the encoding; bump it together with IdempotencyKey.CURRENT_HASH_VERSION.
+    private static final byte ENCODING_VERSION = 1;
+
+    // Field tags keep adjacent fields from running into each other.
+    private static final byte AMOUNT = 1;
+    private static final byte CURRENCY = 2;
+    private static final byte CUSTOMER_ID = 3;
+
+    // Reusable digests and encode buffers, shared by all request threads.
+    private final EncoderPool encoders = new EncoderPool(Math.max(4, 2 * Runtime.getRuntime().availableProcessors()));
+
+    // Verifies records written before the canonical encoding.
+    private final LegacyRequestHasher legacyHasher;
+
+    public RequestHasher(ObjectMapper objectMapper) {
+        this.legacyHasher = new LegacyRequestHasher(objectMapper);
+    }
+
+    // Produces the 32-byte SHA-256 fingerprint stored with the idempotency key.
+    public byte[] hash(CreatePaymentRequest request) {
+        Encoder encoder = encoders.borrow();
         try {
-            byte[] json = objectMapper.writeValueAsBytes(request);
+            encoder.writeByte(ENCODING_VERSION);
+            encoder.writeAmount(request.amount());
+            encoder.writeString(CURRENCY, request.currency(), true);
+            encoder.writeString(CUSTOMER_ID, request.customerId(), false);
+            return encoder.finish();
+        } finally {
+            encoders.release(encoder);
+        }
+    }
+
+    /**
+     * Whether a stored idempotency record was created for the same payload as this request,
+     * whose current fingerprint is {@code requestHash}. Records from an older encoding are
+     * checked by recomputing that encoding for the request.
+     */
+    public boolean matches(IdempotencyKey record, CreatePaymentRequest request, byte[] requestHash) {
+        byte[] expected = record.getHashVersion() == IdempotencyKey.CURRENT_HASH_VERSION
+                ? requestHash
+                : legacyHasher.hash(request);
+        return MessageDigest.isEqual(record.getRequestHash(), expected);
+    }
+
+    // One SHA-256 instance plus a scratch buffer that strings are encoded into before digesting.
+    private static final class Encoder {
+
+        private final MessageDigest digest;
 
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(json);
+        private final byte[] buffer = new byte[256];
 
-            return bytesToHex(hash);
-        } catch (Exception e) {
-            // Fails fast to avoid inconsistent idempotency behavior.
-            throw new IllegalStateException("Failed to hash request", e);
+        private int position;
+
+        Encoder() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+
+        void writeByte(int value) {
+            if (position == buffer.length) {
+                flush();
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            writeByte(value >>> 24);
+            writeByte(value >>> 16);
+            writeByte(value >>> 8);
+            writeByte(value);
+        }
+
+        void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        /**
+         * Encodes the numeric value only: trailing zeros are stripped, so the scale does not matter. The
+         * bytes are those BigDecimal.stripTrailingZeros gave before amounts were parsed into longs, scale
+         * going negative for whole tens (100 is 1 at scale -2), so stored hashes still match.
+         */
+        void writeAmount(Amount amount) {
+            writeByte(AMOUNT);
+            if (amount == null) {
+                writeByte(0);
+                return;
+            }
+            long unscaled = amount.unscaled();
+            int scale = 0;
+            if (unscaled != 0) {
+                scale = amount.scale();
+                while (unscaled % 10 == 0) {
+                    unscaled /= 10;
+                    scale--;
+                }
+            }
+            writeByte(1);
+            writeInt(scale);
+            writeLong(unscaled);
+        }
+
+        /**
+         * Writes the UTF-16 length followed by each char as 1 to 3 bytes (UTF-8 style, surrogates
+         * encoded one by one), which is injective for any string and needs no intermediate array.
+         */
+        void writeString(byte tag, String value, boolean upperCaseAscii) {
+            writeByte(tag);
+            if (value == null) {
+                writeInt(-1);
+                return;
+            }
+            int length = value.length();
+            writeInt(length);
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (upperCaseAscii && c >= 'a' && c <= 'z') {
+                    c -= 'a' - 'A';
+                }
+                if (c < 0x80) {
+                    writeByte(c);
+                } else if (c < 0x800) {
+                    writeByte(0xC0 | (c >> 6));
+                    writeByte(0x80 | (c & 0x3F));
+                } else {
+                    writeByte(0xE0 | (c >> 12));
+                    writeByte(0x80 | ((c >> 6) & 0x3F));
+                    writeByte(0x80 | (c & 0x3F));
+                }
+            }
+        }
+
+        byte[] finish() {
+            flush();
+            byte[] hash = new byte[HASH_LENGTH];
+            try {
+                digest.digest(hash, 0, HASH_LENGTH);
+            } catch (DigestException e) {
+                throw new IllegalStateException("Failed to hash request", e);
+            }
+            return hash;
+        }
+
+        void reset() {
+            position = 0;
+            digest.reset();
+        }
+
+        private void flush() {
+            digest.update(buffer, 0, position);
+            position = 0;
         }
     }
 
-    // Converts raw hash bytes into a hexadecimal string for storage and comparison.
-    private String bytesToHex(byte[] bytes) {
-        StringBuilder sb = new StringBuilder(bytes.length * 2);
-        for (byte b : bytes) {
-            sb.append(String.format("%02x", b));
+    /**
+     * Lock-free pool of encoders: borrowing takes one out of a slot and releasing puts it back
+     * into an empty one, neither of which allocates. When every slot is empty a new encoder is
+     * created, and when every slot is full a released encoder is dropped, so bursts beyond the
+     * pool size cost an allocation rather than a wait.
+     */
+    private static final class EncoderPool {
+
+        private final AtomicReferenceArray<Encoder> slots;
+
+        EncoderPool(int size) {
+            slots = new AtomicReferenceArray<>(size);
+            for (int i = 0; i < size; i++) {
+                slots.set(i, new Encoder());
+            }
+        }
+
+        Encoder borrow() {
+            int size = slots.length();
+            int start = ThreadLocalRandom.current().nextInt(size);
+            for (int i = 0; i < size; i++) {
+                int index = (start + i) % size;
+                Encoder encoder = slots.get(index);
+                if (encoder != null && slots.compareAndSet(index, encoder, null)) {
+                    return encoder;
+                }
+            }
+            return new Encoder();
+        }
+
+        void release(Encoder encoder) {
+            encoder.reset();
+            int size = slots.length();
+            int start = ThreadLocalRandom.current().nextInt(size);
+            for (int i = 0; i < size; i++) {
+                int index = (start + i) % size;
+                if (slots.get(index) == null && slots.compareAndSet(index, null, encoder)) {
+                    return;
+                }
+            }
         }
-        return sb.toString();
     }
 }
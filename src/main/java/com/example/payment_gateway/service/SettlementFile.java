@@ -0,0 +1,220 @@
+package com.example.payment_gateway.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.payment_gateway.domain.Amount;
+import com.example.payment_gateway.domain.CurrencyUnit;
+
+/**
+ * Reads a settlement CSV ({@code payment_id,amount,currency[,...]}, optional header) straight from a
+ * memory-mapped region, one chunk at a time, without decoding lines into Strings. Chunks end on line
+ * boundaries so they can be parsed independently; amounts are parsed to ten-thousandths in a long and
+ * currencies packed into an int, matching numeric(19, 4) and varchar(3) in payments.
+ */
+final class SettlementFile {
+
+    // Scale of the amount column: amounts are handled as multiples of 0.0001.
+    static final int AMOUNT_SCALE = CurrencyUnit.STORAGE_SCALE;
+
+    // numeric(19, 4) leaves 15 digits before the decimal point.
+    private static final int MAX_INTEGER_DIGITS = 15;
+
+    private static final int UUID_LENGTH = 36;
+
+    private SettlementFile() {
+    }
+
+    // Receives the lines of a chunk in file order.
+    interface LineHandler {
+
+        void line(long lineNumber, long msb, long lsb, long amount, int currency);
+
+        void rejected(long lineNumber, String reason);
+    }
+
+    // A byte range of the file holding whole lines.
+    record Chunk(int index, long start, long length) {}
+
+    // Splits the file into chunks of about chunkSize bytes, each extended to the end of its last line.
+    static List<Chunk> split(FileChannel channel, long chunkSize) throws IOException {
+        long size = channel.size();
+        List<Chunk> chunks = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(8192);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(start + chunkSize, size);
+            while (end < size && !endsLine(channel, end - 1, probe)) {
+                end = nextLineEnd(channel, end, size, probe);
+            }
+            chunks.add(new Chunk(chunks.size(), start, end - start));
+            start = end;
+        }
+        return chunks;
+    }
+
+    static MappedByteBuffer map(FileChannel channel, Chunk chunk) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, chunk.start(), chunk.length());
+    }
+
+    /**
+     * Parses every line of a mapped chunk and returns how many lines it holds. Blank lines and, in the
+     * chunk starting the file, a header ("payment_id,...") are counted but not reported.
+     */
+    static long parse(ByteBuffer chunk, boolean fileStart, long firstLineNumber, LineHandler handler) {
+        int limit = chunk.limit();
+        long lineNumber = firstLineNumber;
+        int start = 0;
+        while (start < limit) {
+            int end = start;
+            while (end < limit && chunk.get(end) != '\n') {
+                end++;
+            }
+            int contentEnd = end > start && chunk.get(end - 1) == '\r' ? end - 1 : end;
+            boolean header = fileStart && start == 0 && chunk.get(start) == 'p';
+            if (contentEnd > start && !header) {
+                parseLine(chunk, start, contentEnd, lineNumber, handler);
+            }
+            lineNumber++;
+            start = end + 1;
+        }
+        return lineNumber - firstLineNumber;
+    }
+
+    // Formats an amount in ten-thousandths as a plain decimal.
+    static String formatAmount(long amount) {
+        return new Amount(amount, AMOUNT_SCALE).toString();
+    }
+
+    static int packCurrency(String currency) {
+        return (currency.charAt(0) << 16) | (currency.charAt(1) << 8) | currency.charAt(2);
+    }
+
+    static String unpackCurrency(int currency) {
+        return new String(new char[] {(char) (currency >>> 16), (char) ((currency >>> 8) & 0xFF), (char) (currency & 0xFF)});
+    }
+
+    private static void parseLine(ByteBuffer chunk, int start, int end, long lineNumber, LineHandler handler) {
+        if (end - start < UUID_LENGTH + 1 || chunk.get(start + UUID_LENGTH) != ',') {
+            handler.rejected(lineNumber, "malformed payment_id");
+            return;
+        }
+        long timeLow = hex(chunk, start, 8);
+        long timeMid = hex(chunk, start + 9, 4);
+        long timeHigh = hex(chunk, start + 14, 4);
+        long clockSeq = hex(chunk, start + 19, 4);
+        long node = hex(chunk, start + 24, 12);
+        if ((timeLow | timeMid | timeHigh | clockSeq | node) < 0 || chunk.get(start + 8) != '-'
+                || chunk.get(start + 13) != '-' || chunk.get(start + 18) != '-' || chunk.get(start + 23) != '-') {
+            handler.rejected(lineNumber, "malformed payment_id");
+            return;
+        }
+        long msb = timeLow << 32 | timeMid << 16 | timeHigh;
+        long lsb = clockSeq << 48 | node;
+        int amountStart = start + UUID_LENGTH + 1;
+        int amountEnd = amountStart;
+        while (amountEnd < end && chunk.get(amountEnd) != ',') {
+            amountEnd++;
+        }
+        long amount = parseAmount(chunk, amountStart, amountEnd);
+        if (amount == Long.MIN_VALUE) {
+            handler.rejected(lineNumber, "malformed amount");
+            return;
+        }
+        int currencyStart = amountEnd + 1;
+        if (currencyStart + 3 > end || (currencyStart + 3 < end && chunk.get(currencyStart + 3) != ',')) {
+            handler.rejected(lineNumber, "malformed currency");
+            return;
+        }
+        int currency = 0;
+        for (int i = currencyStart; i < currencyStart + 3; i++) {
+            int c = chunk.get(i) & ~0x20;
+            if (c < 'A' || c > 'Z') {
+                handler.rejected(lineNumber, "malformed currency");
+                return;
+            }
+            currency = currency << 8 | c;
+        }
+        handler.line(lineNumber, msb, lsb, amount, currency);
+    }
+
+    // Value of digits hex digits (at most 15), or -1 if any of them is not a hex digit.
+    private static long hex(ByteBuffer chunk, int start, int digits) {
+        long value = 0;
+        for (int i = start; i < start + digits; i++) {
+            int c = chunk.get(i);
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if ((c | 0x20) >= 'a' && (c | 0x20) <= 'f') {
+                digit = (c | 0x20) - 'a' + 10;
+            } else {
+                return -1;
+            }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+
+    // Parses [-]digits[.digits] with up to four decimals into ten-thousandths; Long.MIN_VALUE if malformed.
+    private static long parseAmount(ByteBuffer chunk, int start, int end) {
+        int i = start;
+        boolean negative = i < end && chunk.get(i) == '-';
+        if (negative) {
+            i++;
+        }
+        long value = 0;
+        int integerDigits = 0;
+        while (i < end && chunk.get(i) >= '0' && chunk.get(i) <= '9') {
+            value = value * 10 + (chunk.get(i++) - '0');
+            integerDigits++;
+        }
+        if (integerDigits == 0 || integerDigits > MAX_INTEGER_DIGITS) {
+            return Long.MIN_VALUE;
+        }
+        int decimals = 0;
+        if (i < end && chunk.get(i) == '.') {
+            i++;
+            while (i < end && chunk.get(i) >= '0' && chunk.get(i) <= '9' && decimals < AMOUNT_SCALE) {
+                value = value * 10 + (chunk.get(i++) - '0');
+                decimals++;
+            }
+            if (decimals == 0) {
+                return Long.MIN_VALUE;
+            }
+        }
+        if (i != end) {
+            return Long.MIN_VALUE;
+        }
+        for (; decimals < AMOUNT_SCALE; decimals++) {
+            value *= 10;
+        }
+        return negative ? -value : value;
+    }
+
+    private static boolean endsLine(FileChannel channel, long position, ByteBuffer probe) throws IOException {
+        probe.clear().limit(1);
+        channel.read(probe, position);
+        return probe.get(0) == '\n';
+    }
+
+    // Position just after the first newline at or after from, or the file size if there is none.
+    private static long nextLineEnd(FileChannel channel, long from, long size, ByteBuffer probe) throws IOException {
+        long position = from;
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,622 @@
+package com.example.payment_gateway.service;
+
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.payment_gateway.config.ReconciliationProperties;
+import com.example.payment_gateway.repository.PaymentJdbcRepository;
+import com.example.payment_gateway.repository.PaymentJdbcRepository.PaymentAmount;
+import com.example.payment_gateway.service.SettlementFile.Chunk;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reconciles a settlement file against the payments table with memory bounded by the partition size,
+ * whatever the file length. The file is memory-mapped and parsed in chunks on parallel workers, twice:
+ * the first pass finds the id range and line count, the second spills each line as a fixed-size binary
+ * record into one of several id-range partitions. Each partition is then sorted in memory and merge-joined
+ * with one ordered, cursor-streamed scan of the same id range of payments, so the database sees one range
+ * scan per partition instead of a lookup per line. Payment ids are time-ordered, so the file's id range
+ * is its settlement period and the partitions are equal slices of it. Lines bunch up in busy hours, so a
+ * partition that received more than partitionSize lines is split again by id range before it is sorted;
+ * only lines sharing the most significant half of their id (the same millisecond and counter) cannot be
+ * split further.
+ */
+@Slf4j
+@Service
+public class SettlementReconciler {
+
+    static final String MATCHED = "matched";
+    static final String MISMATCHED = "mismatched";
+    static final String EXTRA = "extra";
+    static final String MISSING = "missing";
+    static final String REJECTED = "rejected";
+
+    // msb, lsb, amount, currency, line number.
+    private static final int RECORD_BYTES = 8 + 8 + 8 + 4 + 8;
+
+    // Per-partition spill buffer of each parsing worker.
+    private static final int SPILL_BUFFER_BYTES = RECORD_BYTES * 1024;
+
+    private static final int WRITER_BUFFER_CHARS = 1 << 16;
+
+    // Sorts lines by id as Postgres orders uuids (unsigned, byte by byte), then by position in the file.
+    private static final Comparator<SettlementLine> ID_ORDER = (a, b) -> {
+        int byMsb = Long.compareUnsigned(a.msb(), b.msb());
+        if (byMsb != 0) {
+            return byMsb;
+        }
+        int byLsb = Long.compareUnsigned(a.lsb(), b.lsb());
+        return byLsb != 0 ? byLsb : Long.compare(a.lineNumber(), b.lineNumber());
+    };
+
+    // Streams each partition's id range of payments.
+    private final PaymentJdbcRepository paymentJdbcRepository;
+
+    // Read-only transactions let the driver stream a range through a cursor.
+    private final TransactionTemplate readOnlyTransaction;
+
+    // Chunk and partition sizes, parallelism and fetch size.
+    private final ReconciliationProperties properties;
+
+    // Duration of each file's reconciliation.
+    private final Timer runs;
+
+    // Lines and payments by result, summed over all files.
+    private final Counter matchedLines;
+    private final Counter mismatchedLines;
+    private final Counter extraLines;
+    private final Counter missingPayments;
+    private final Counter rejectedLines;
+
+    public SettlementReconciler(PaymentJdbcRepository paymentJdbcRepository,
+                                PlatformTransactionManager transactionManager,
+                                ReconciliationProperties properties,
+                                MeterRegistry meterRegistry) {
+        this.paymentJdbcRepository = paymentJdbcRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.properties = properties;
+        this.runs = Timer.builder("payments.reconciliation.duration")
+                .description("Duration of the reconciliation of one settlement file")
+                .register(meterRegistry);
+        this.matchedLines = results(MATCHED, meterRegistry);
+        this.mismatchedLines = results(MISMATCHED, meterRegistry);
+        this.extraLines = results(EXTRA, meterRegistry);
+        this.missingPayments = results(MISSING, meterRegistry);
+        this.rejectedLines = results(REJECTED, meterRegistry);
+    }
+
+    /**
+     * Reconciles the file and writes matched.csv, mismatched.csv, extra.csv, missing.csv and rejected.csv
+     * to reportDir, each ordered by payment id (rejected by line number).
+     */
+    public ReconciliationSummary reconcile(Path file, Path reportDir) {
+        long start = System.nanoTime();
+        ExecutorService workers = Executors.newFixedThreadPool(properties.parallelism());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Path work = Files.createDirectories(reportDir.resolve(".work"));
+            List<Chunk> chunks = SettlementFile.split(channel, properties.chunkSize().toBytes());
+
+            // First pass: line counts give each chunk its first line number; the id range gives the partitions.
+            List<Span> spans = runAll(workers, chunks.stream().<Callable<Span>>map(chunk -> () -> span(channel, chunk)).toList());
+            long[] firstLines = new long[chunks.size()];
+            long lines = 0;
+            Span total = Span.EMPTY;
+            for (int i = 0; i < spans.size(); i++) {
+                firstLines[i] = lines + 1;
+                lines += spans.get(i).lines();
+                total = total.merge(spans.get(i));
+            }
+            Partitioning partitioning = Partitioning.of(total, properties.partitionSize());
+
+            // Second pass: every parsed line is spilled to its partition, every unparseable one reported.
+            FileChannel[] spills = new FileChannel[partitioning.count()];
+            long rejected;
+            try {
+                for (int k = 0; k < spills.length; k++) {
+                    spills[k] = FileChannel.open(spillFile(work, k), StandardOpenOption.CREATE,
+                            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                }
+                rejected = runAll(workers, chunks.stream().<Callable<Long>>map(chunk ->
+                        () -> spill(channel, chunk, firstLines[chunk.index()], partitioning, spills, work)).toList())
+                        .stream().mapToLong(Long::longValue).sum();
+            } finally {
+                for (FileChannel spill : spills) {
+                    if (spill != null) {
+                        spill.close();
+                    }
+                }
+            }
+
+            // Third pass: each partition is joined with its range of payments, split again if oversized.
+            List<Counts> counts = runAll(workers, IntStream.range(0, partitioning.count())
+                    .<Callable<Counts>>mapToObj(k -> () -> reconcilePartition(work, partitioning, k)).toList());
+            Counts sum = counts.stream().reduce(new Counts(), Counts::add);
+
+            for (String report : List.of(MATCHED, MISMATCHED, EXTRA, MISSING)) {
+                concatenate(work, report, partitioning.count(), reportDir);
+            }
+            concatenate(work, REJECTED, chunks.size(), reportDir);
+            deleteDirectory(work);
+
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+            runs.record(elapsed);
+            matchedLines.increment(sum.matched);
+            mismatchedLines.increment(sum.mismatched);
+            extraLines.increment(sum.extra);
+            missingPayments.increment(sum.missing);
+            rejectedLines.increment(rejected);
+            ReconciliationSummary summary = new ReconciliationSummary(reportDir, lines, sum.matched, sum.mismatched,
+                    sum.extra, sum.missing, rejected, sum.partitions, sum.largestPartition, elapsed);
+            log.info("Reconciled {}: {}", file, summary);
+            return summary;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not reconcile " + file, e);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private static Span span(FileChannel channel, Chunk chunk) throws IOException {
+        Span[] span = {Span.EMPTY};
+        // Line numbers are not known yet and not needed for the span.
+        long lines = SettlementFile.parse(SettlementFile.map(channel, chunk), chunk.start() == 0, 0,
+                new SettlementFile.LineHandler() {
+                    @Override
+                    public void line(long lineNumber, long msb, long lsb, long amount, int currency) {
+                        span[0] = span[0].include(msb);
+                    }
+
+                    @Override
+                    public void rejected(long lineNumber, String reason) {
+                    }
+                });
+        return new Span(lines, span[0].records(), span[0].minMsb(), span[0].maxMsb());
+    }
+
+    // Spills the chunk's lines to their partitions and writes its rejected lines; returns how many were rejected.
+    private static long spill(FileChannel channel, Chunk chunk, long firstLine, Partitioning partitioning,
+                              FileChannel[] spills, Path work) throws IOException {
+        ByteBuffer[] buffers = new ByteBuffer[spills.length];
+        long[] rejected = {0};
+        try (Writer rejections = writer(partFile(work, REJECTED, chunk.index()))) {
+            SettlementFile.parse(SettlementFile.map(channel, chunk), chunk.start() == 0, firstLine,
+                    new SettlementFile.LineHandler() {
+                @Override
+                public void line(long lineNumber, long msb, long lsb, long amount, int currency) {
+                    int k = partitioning.of(msb);
+                    ByteBuffer buffer = buffers[k];
+                    if (buffer == null) {
+                        buffer = buffers[k] = ByteBuffer.allocate(SPILL_BUFFER_BYTES);
+                    } else if (!buffer.hasRemaining()) {
+                        flush(buffer, spills[k]);
+                    }
+                    buffer.putLong(msb).putLong(lsb).putLong(amount).putInt(currency).putLong(lineNumber);
+                }
+
+                @Override
+                public void rejected(long lineNumber, String reason) {
+                    rejected[0]++;
+                    write(rejections, lineNumber + "," + reason);
+                }
+            });
+        }
+        for (int k = 0; k < buffers.length; k++) {
+            if (buffers[k] != null) {
+                flush(buffers[k], spills[k]);
+            }
+        }
+        return rejected[0];
+    }
+
+    // Appends the buffered records; workers share the partition's file, so each write is done in one go.
+    private static void flush(ByteBuffer buffer, FileChannel spill) {
+        buffer.flip();
+        try {
+            synchronized (spill) {
+                while (buffer.hasRemaining()) {
+                    spill.write(buffer);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    private Counts reconcilePartition(Path work, Partitioning partitioning, int k) throws IOException {
+        Counts counts = new Counts();
+        try (Writer matched = writer(partFile(work, MATCHED, k));
+             Writer mismatched = writer(partFile(work, MISMATCHED, k));
+             Writer extra = writer(partFile(work, EXTRA, k));
+             Writer missing = writer(partFile(work, MISSING, k))) {
+            reconcileRange(spillFile(work, k), partitioning.lowerBound(k), partitioning.upperBound(k),
+                    new Reports(matched, mismatched, extra, missing), counts);
+        }
+        return counts;
+    }
+
+    // Joins the lines of a spill file with the payments in [lower, upper), or, when it holds more than
+    // partitionSize lines, splits it by id range and joins the slices in order into the same reports.
+    private void reconcileRange(Path spill, UUID lower, UUID upper, Reports reports, Counts counts) throws IOException {
+        if (Files.size(spill) / RECORD_BYTES > properties.partitionSize()) {
+            Span span = spanOf(spill);
+            if (span.minMsb() != span.maxMsb()) {
+                Partitioning slices = Partitioning.of(span, properties.partitionSize());
+                Path[] parts = split(spill, slices);
+                Files.delete(spill);
+                for (int j = 0; j < slices.count(); j++) {
+                    // The outer slices stretch to the range's own bounds, which payments may lie at.
+                    reconcileRange(parts[j], j == 0 ? lower : slices.lowerBound(j),
+                            j == slices.count() - 1 ? upper : slices.upperBound(j), reports, counts);
+                }
+                return;
+            }
+        }
+
+        SettlementLine[] lines = readSpill(spill);
+        Arrays.sort(lines, ID_ORDER);
+        Files.delete(spill);
+        counts.partitions++;
+        counts.largestPartition = Math.max(counts.largestPartition, lines.length);
+
+        MergeJoin join = new MergeJoin(lines, reports, counts);
+        readOnlyTransaction.executeWithoutResult(status -> paymentJdbcRepository.streamAmountsByIdRange(
+                lower, upper, properties.fetchSize(), join::payment));
+        join.finish();
+    }
+
+    private static SettlementLine[] readSpill(Path spill) throws IOException {
+        SettlementLine[] lines = new SettlementLine[Math.toIntExact(Files.size(spill) / RECORD_BYTES)];
+        int[] count = {0};
+        forEachRecord(spill, record -> lines[count[0]++] = new SettlementLine(record.getLong(), record.getLong(),
+                record.getLong(), record.getInt(), record.getLong()));
+        return lines;
+    }
+
+    private static Span spanOf(Path spill) throws IOException {
+        Span[] span = {Span.EMPTY};
+        forEachRecord(spill, record -> span[0] = span[0].include(record.getLong(record.position())));
+        return span[0];
+    }
+
+    // Moves the records of a spill file into one file per slice, as the second pass does with the chunks.
+    private static Path[] split(Path spill, Partitioning slices) throws IOException {
+        String name = spill.getFileName().toString();
+        Path[] parts = new Path[slices.count()];
+        FileChannel[] channels = new FileChannel[slices.count()];
+        ByteBuffer[] buffers = new ByteBuffer[slices.count()];
+        try {
+            for (int j = 0; j < parts.length; j++) {
+                parts[j] = spill.resolveSibling(name.substring(0, name.length() - ".bin".length()) + "-" + j + ".bin");
+                channels[j] = FileChannel.open(parts[j], StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            }
+            forEachRecord(spill, record -> {
+                int j = slices.of(record.getLong(record.position()));
+                ByteBuffer buffer = buffers[j];
+                if (buffer == null) {
+                    buffer = buffers[j] = ByteBuffer.allocate(SPILL_BUFFER_BYTES);
+                } else if (!buffer.hasRemaining()) {
+                    flush(buffer, channels[j]);
+                }
+                buffer.put(record.slice(record.position(), RECORD_BYTES));
+            });
+            for (int j = 0; j < buffers.length; j++) {
+                if (buffers[j] != null) {
+                    flush(buffers[j], channels[j]);
+                }
+            }
+        } finally {
+            for (FileChannel channel : channels) {
+                if (channel != null) {
+                    channel.close();
+                }
+            }
+        }
+        return parts;
+    }
+
+    // Hands each record of a spill file to the handler, with the buffer positioned at its first byte.
+    private static void forEachRecord(Path spill, Consumer<ByteBuffer> handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(spill, StandardOpenOption.READ)) {
+            long remaining = channel.size() / RECORD_BYTES;
+            ByteBuffer buffer = ByteBuffer.allocate(SPILL_BUFFER_BYTES * 4);
+            while (remaining > 0) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Partition file " + spill + " ended early");
+                }
+                buffer.flip();
+                while (remaining > 0 && buffer.remaining() >= RECORD_BYTES) {
+                    int next = buffer.position() + RECORD_BYTES;
+                    handler.accept(buffer);
+                    buffer.position(next);
+                    remaining--;
+                }
+                buffer.compact();
+            }
+        }
+    }
+
+    // Writes the header, then every partition's part in order, with channel-to-channel transfers.
+    private static void concatenate(Path work, String report, int parts, Path reportDir) throws IOException {
+        Path target = reportDir.resolve(report + ".csv");
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            out.write(ByteBuffer.wrap((header(report) + "\n").getBytes(StandardCharsets.US_ASCII)));
+            for (int k = 0; k < parts; k++) {
+                Path part = partFile(work, report, k);
+                try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                    long size = in.size();
+                    long position = 0;
+                    while (position < size) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                }
+                Files.delete(part);
+            }
+        }
+    }
+
+    private static String header(String report) {
+        return switch (report) {
+            case MATCHED -> "payment_id,amount,currency,line";
+            case MISMATCHED -> "payment_id,settled_amount,settled_currency,amount,currency,line";
+            case EXTRA -> "payment_id,amount,currency,line,reason";
+            case MISSING -> "payment_id,amount,currency";
+            default -> "line,reason";
+        };
+    }
+
+    private static <T> List<T> runAll(ExecutorService workers, List<Callable<T>> tasks) throws IOException {
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            futures.add(workers.submit(task));
+        }
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reconciliation interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return results;
+    }
+
+    private static Path spillFile(Path work, int partition) {
+        return work.resolve("partition-" + partition + ".bin");
+    }
+
+    private static Path partFile(Path work, String report, int part) {
+        return work.resolve(report + "-" + part + ".csv");
+    }
+
+    private static Writer writer(Path path) throws IOException {
+        return new BufferedWriter(Files.newBufferedWriter(path, StandardCharsets.US_ASCII), WRITER_BUFFER_CHARS);
+    }
+
+    private static void write(Writer writer, String line) {
+        try {
+            writer.write(line);
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private static Counter results(String result, MeterRegistry meterRegistry) {
+        return Counter.builder("payments.reconciliation.lines")
+                .description("Settlement lines by reconciliation result; missing counts payments absent from the file")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    // A parsed settlement line, as spilled to its partition.
+    record SettlementLine(long msb, long lsb, long amount, int currency, long lineNumber) {}
+
+    // Line count and id range of a chunk, or of the whole file once merged.
+    private record Span(long lines, long records, long minMsb, long maxMsb) {
+
+        static final Span EMPTY = new Span(0, 0, -1L, 0L);
+
+        Span include(long msb) {
+            return new Span(lines, records + 1,
+                    Long.compareUnsigned(msb, minMsb) < 0 ? msb : minMsb,
+                    Long.compareUnsigned(msb, maxMsb) > 0 ? msb : maxMsb);
+        }
+
+        Span merge(Span other) {
+            return new Span(lines + other.lines, records + other.records,
+                    Long.compareUnsigned(other.minMsb, minMsb) < 0 ? other.minMsb : minMsb,
+                    Long.compareUnsigned(other.maxMsb, maxMsb) > 0 ? other.maxMsb : maxMsb);
+        }
+    }
+
+    /**
+     * Splits [minMsb, maxMsb] into equal slices sized for about partitionSize lines each, if the lines are
+     * spread evenly over the range. Only the most significant half of the id is used, which for version 7
+     * ids is the creation millisecond and a counter.
+     */
+    private record Partitioning(long minMsb, long maxMsb, long width, int count) {
+
+        static Partitioning of(Span span, int partitionSize) {
+            if (span.records() == 0) {
+                return new Partitioning(0, 0, 1, 0);
+            }
+            int count = Math.toIntExact(Math.max(1, (span.records() + partitionSize - 1) / partitionSize));
+            long width = Long.divideUnsigned(span.maxMsb() - span.minMsb(), count) + 1;
+            return new Partitioning(span.minMsb(), span.maxMsb(), width, count);
+        }
+
+        int of(long msb) {
+            return (int) Long.divideUnsigned(msb - minMsb, width);
+        }
+
+        UUID lowerBound(int k) {
+            return new UUID(minMsb + k * width, 0L);
+        }
+
+        // Exclusive; null when the last slice runs to the largest possible id.
+        UUID upperBound(int k) {
+            if (k < count - 1) {
+                return new UUID(minMsb + (k + 1) * width, 0L);
+            }
+            return maxMsb == -1L ? null : new UUID(maxMsb + 1, 0L);
+        }
+    }
+
+    private static final class Counts {
+
+        long matched;
+        long mismatched;
+        long extra;
+        long missing;
+        int partitions;
+        long largestPartition;
+
+        Counts add(Counts other) {
+            Counts sum = new Counts();
+            sum.matched = matched + other.matched;
+            sum.mismatched = mismatched + other.mismatched;
+            sum.extra = extra + other.extra;
+            sum.missing = missing + other.missing;
+            sum.partitions = partitions + other.partitions;
+            sum.largestPartition = Math.max(largestPartition, other.largestPartition);
+            return sum;
+        }
+    }
+
+    // The report parts of one partition, shared by the slices it is split into.
+    private record Reports(Writer matched, Writer mismatched, Writer extra, Writer missing) {}
+
+    // Walks the sorted lines of a partition alongside the id-ordered payments of the same range.
+    private static final class MergeJoin {
+
+        private final SettlementLine[] lines;
+        private final Writer matched;
+        private final Writer mismatched;
+        private final Writer extra;
+        private final Writer missing;
+        private final Counts counts;
+        private final StringBuilder row = new StringBuilder(128);
+        private int next;
+
+        MergeJoin(SettlementLine[] lines, Reports reports, Counts counts) {
+            this.lines = lines;
+            this.matched = reports.matched();
+            this.mismatched = reports.mismatched();
+            this.extra = reports.extra();
+            this.missing = reports.missing();
+            this.counts = counts;
+        }
+
+        void payment(PaymentAmount payment) {
+            long msb = payment.id().getMostSignificantBits();
+            long lsb = payment.id().getLeastSignificantBits();
+            // Lines sorting before this payment name ids the table does not have.
+            while (next < lines.length && compare(lines[next], msb, lsb) < 0) {
+                unmatched(lines[next++]);
+            }
+            long amount = payment.amount();
+            int currency = SettlementFile.packCurrency(payment.currency());
+            if (next < lines.length && compare(lines[next], msb, lsb) == 0) {
+                SettlementLine line = lines[next++];
+                if (line.amount() == amount && line.currency() == currency) {
+                    counts.matched++;
+                    emit(matched, line(line).append(',').append(line.lineNumber()));
+                } else {
+                    counts.mismatched++;
+                    emit(mismatched, line(line).append(',').append(SettlementFile.formatAmount(amount))
+                            .append(',').append(payment.currency()).append(',').append(line.lineNumber()));
+                }
+            } else {
+                counts.missing++;
+                row.setLength(0);
+                emit(missing, row.append(payment.id()).append(',').append(SettlementFile.formatAmount(amount))
+                        .append(',').append(payment.currency()));
+            }
+        }
+
+        void finish() {
+            while (next < lines.length) {
+                unmatched(lines[next++]);
+            }
+        }
+
+        // A line whose id matched no payment, or repeats the id of the line before it.
+        private void unmatched(SettlementLine line) {
+            boolean duplicate = next > 1 && lines[next - 2].msb() == line.msb() && lines[next - 2].lsb() == line.lsb();
+            counts.extra++;
+            emit(extra, line(line).append(',').append(line.lineNumber()).append(',')
+                    .append(duplicate ? "duplicate" : "unknown_payment"));
+        }
+
+        private StringBuilder line(SettlementLine line) {
+            row.setLength(0);
+            return row.append(new UUID(line.msb(), line.lsb())).append(',')
+                    .append(SettlementFile.formatAmount(line.amount())).append(',')
+                    .append(SettlementFile.unpackCurrency(line.currency()));
+        }
+
+        private void emit(Writer writer, StringBuilder text) {
+            write(writer, text.toString());
+        }
+
+        private static int compare(SettlementLine line, long msb, long lsb) {
+            int byMsb = Long.compareUnsigned(line.msb(), msb);
+            return byMsb != 0 ? byMsb : Long.compareUnsigned(line.lsb(), lsb);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.payment_gateway.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.example.payment_gateway.config.ReconciliationProperties;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Picks up settlement files dropped into the inbox directory and reconciles them one at a time, oldest
+ * name first. Reports go to reportsDir/&lt;file name&gt;/, where the file is moved once reconciled; a file
+ * that cannot be reconciled is moved to inboxDir/failed/ so it is not retried forever. Reconciliations run
+ * on a thread of their own: a large file takes minutes, and the scheduler thread is shared with the saga,
+ * outbox and maintenance jobs.
+ */
+@Slf4j
+@Component
+@ConditionalOnBooleanProperty(name = "payments.reconciliation.enabled")
+public class SettlementReconciliationJob implements AutoCloseable {
+
+    // Does the reconciliation.
+    private final SettlementReconciler reconciler;
+
+    // Inbox and reports directories.
+    private final ReconciliationProperties properties;
+
+    // Runs one inbox pass at a time.
+    private final ExecutorService worker;
+
+    // Set while a pass is queued or running; polls in the meantime are skipped.
+    private final AtomicBoolean busy = new AtomicBoolean();
+
+    public SettlementReconciliationJob(SettlementReconciler reconciler, ReconciliationProperties properties) {
+        this.reconciler = reconciler;
+        this.properties = properties;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("settlement-reconciliation-");
+        threadFactory.setDaemon(true);
+        this.worker = Executors.newSingleThreadExecutor(threadFactory);
+    }
+
+    // Hands the inbox to the worker and returns; returns false if the previous pass is still running.
+    @Scheduled(fixedDelayString = "${payments.reconciliation.poll-interval:1m}")
+    public boolean pollInbox() {
+        if (!busy.compareAndSet(false, true)) {
+            return false;
+        }
+        worker.execute(() -> {
+            try {
+                reconcileInbox();
+            } catch (IOException | RuntimeException e) {
+                log.error("Reconciliation of {} failed", properties.inboxDir(), e);
+            } finally {
+                busy.set(false);
+            }
+        });
+        return true;
+    }
+
+    private void reconcileInbox() throws IOException {
+        Path inbox = Files.createDirectories(Path.of(properties.inboxDir()));
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(inbox)) {
+            files = listing.filter(file -> Files.isRegularFile(file) && file.getFileName().toString().endsWith(".csv"))
+                    .sorted()
+                    .toList();
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            Path reportDir = Path.of(properties.reportsDir(), name.substring(0, name.length() - ".csv".length()));
+            try {
+                reconciler.reconcile(file, reportDir);
+                Files.move(file, reportDir.resolve(name), StandardCopyOption.REPLACE_EXISTING);
+            } catch (RuntimeException e) {
+                if (worker.isShutdown()) {
+                    // Stopped by close(), not a bad file.
+                    throw e;
+                }
+                log.error("Reconciliation of {} failed; moving it aside", file, e);
+                Path failed = Files.createDirectories(inbox.resolve("failed"));
+                Files.move(file, failed.resolve(name), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    // Interrupts a running reconciliation; its file stays in the inbox and is picked up again on restart.
+    @Override
+    public void close() {
+        worker.shutdownNow();
+    }
+}
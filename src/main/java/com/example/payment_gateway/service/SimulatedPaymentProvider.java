@@ -0,0 +1,95 @@
+package com.example.payment_gateway.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.example.payment_gateway.config.SimulatedProviderProperties;
+import com.example.payment_gateway.domain.SagaStep;
+
+/**
+ * In-process stand-in for a payment provider. Each call is answered after the configured latency by a
+ * single scheduler thread, so any number of calls can be in flight without a thread waiting on each.
+ * A fraction of calls fail transiently; a fraction of forward steps are declined, decided by the
+ * idempotency key so that retries of a declined step are declined again. Compensations always succeed
+ * unless they fail transiently.
+ */
+@Component
+@ConditionalOnBooleanProperty(name = "payments.saga.simulated-provider.enabled")
+public class SimulatedPaymentProvider implements PaymentProviderClient, AutoCloseable {
+
+    static final String NAME = "simulated";
+
+    private final SimulatedProviderProperties properties;
+
+    // Completes the calls once their latency has passed.
+    private final ScheduledExecutorService scheduler;
+
+    public SimulatedPaymentProvider(SimulatedProviderProperties properties) {
+        this.properties = properties;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("simulated-provider-");
+        threadFactory.setDaemon(true);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public CompletableFuture<ProviderResult> execute(ProviderRequest request) {
+        CompletableFuture<ProviderResult> result = new CompletableFuture<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delayNanos = properties.latency().toNanos()
+                + (properties.jitter().isZero() ? 0 : random.nextLong(properties.jitter().toNanos()));
+        boolean transientFailure = random.nextDouble() < properties.failureRate();
+        scheduler.schedule(() -> {
+            if (transientFailure) {
+                result.completeExceptionally(new ProviderUnavailableException("Simulated provider unavailable"));
+            } else {
+                result.complete(answer(request));
+            }
+        }, delayNanos, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private ProviderResult answer(ProviderRequest request) {
+        boolean forward = request.step() != SagaStep.VOID && request.step() != SagaStep.REFUND;
+        if (forward && unitInterval(request.idempotencyKey()) < properties.declineRate()) {
+            return ProviderResult.declined("Simulated decline of " + request.step());
+        }
+        // The authorization id is derived from the key, as a provider would return the same one on a retry.
+        String reference = request.step() == SagaStep.AUTHORIZE
+                ? "sim-" + UUID.nameUUIDFromBytes(request.idempotencyKey().getBytes(StandardCharsets.UTF_8))
+                : request.reference();
+        return ProviderResult.approved(reference);
+    }
+
+    // Maps the key to a stable value in [0, 1).
+    private static double unitInterval(String key) {
+        long hash = UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).getLeastSignificantBits();
+        return (hash >>> 11) * 0x1.0p-53;
+    }
+
+    // A transient failure of the simulated provider.
+    static class ProviderUnavailableException extends RuntimeException {
+
+        ProviderUnavailableException(String message) {
+            super(message);
+        }
+    }
+}
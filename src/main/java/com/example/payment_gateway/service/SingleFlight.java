@@ -0,0 +1,55 @@
+package com.example.payment_gateway.service;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Coalesces concurrent calls for the same key so only one of them performs the work.
+public class SingleFlight<K, V> {
+
+    // Tracks the in-progress computation for each key.
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Runs {@code work} unless a call for the same key is already in progress, in which case
+     * the caller waits for and shares that result. If the leading call fails, waiting callers
+     * do not inherit its exception; one of them takes over and runs the work itself.
+     */
+    public V execute(K key, Supplier<V> work) {
+        while (true) {
+            CompletableFuture<V> mine = new CompletableFuture<>();
+            CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+
+            if (existing == null) {
+                return lead(key, mine, work);
+            }
+
+            try {
+                return existing.join();
+            } catch (CompletionException | CancellationException e) {
+                // The leader failed; competes to lead the next attempt.
+            }
+        }
+    }
+
+    // Number of keys currently being computed.
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    // Executes the work on behalf of every caller waiting on the same key.
+    private V lead(K key, CompletableFuture<V> future, Supplier<V> work) {
+        try {
+            V result = work.get();
+            future.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+-- Tables as the last release created them through ddl-auto, plus the partitioned idempotency_keys of the
+-- former schema-upgrades.sql. Each statement is skipped where the object exists, so a database created by
+-- ddl-auto (baselined at version 0, see spring.flyway in application.yaml) is brought to the same schema
+-- by this and the next migration.
+
+CREATE TABLE IF NOT EXISTS payments (
+    id uuid NOT NULL,
+    amount numeric(19, 4) NOT NULL,
+    created_at timestamptz(6) NOT NULL,
+    currency varchar(3) NOT NULL,
+    customer_id varchar(64) NOT NULL,
+    status varchar(16) NOT NULL,
+    version bigint DEFAULT 0 NOT NULL,
+    CONSTRAINT payments_pkey PRIMARY KEY (id),
+    CONSTRAINT payments_status_check
+        CHECK (status IN ('CREATED', 'AUTHORIZED', 'CAPTURED', 'SETTLED', 'FAILED', 'VOIDED', 'REFUNDED'))
+);
+
+-- Serves the customer history: equality on customer_id, then keyset order on (created_at, id).
+CREATE INDEX IF NOT EXISTS ix_payments_customer_created_id ON payments (customer_id, created_at, id);
+
+-- Range-partitioned by created_at, so expired keys are purged by dropping whole partitions (see
+-- IdempotencyKeyPartitionMaintenance, which also creates them). Partitioned tables cannot have a unique
+-- index without the partition column, so uniqueness of a live key is enforced by
+-- IdempotencyKeyJdbcRepository under an advisory lock.
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    idempotency_key varchar(100) NOT NULL,
+    request_hash bytea NOT NULL,
+    hash_version smallint NOT NULL,
+    payment_id uuid,
+    created_at timestamptz(6) NOT NULL,
+    response_status smallint,
+    response_location varchar(255),
+    response_body bytea,
+    PRIMARY KEY (idempotency_key, created_at)
+) PARTITION BY RANGE (created_at);
+
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id uuid NOT NULL,
+    aggregate_id uuid NOT NULL,
+    created_at timestamptz(6) NOT NULL,
+    event_type varchar(64) NOT NULL,
+    payload bytea NOT NULL,
+    CONSTRAINT outbox_events_pkey PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS payment_sagas (
+    payment_id uuid NOT NULL,
+    attempts integer DEFAULT 0 NOT NULL,
+    created_at timestamptz(6) NOT NULL,
+    last_error varchar(255),
+    next_attempt_at timestamptz(6) NOT NULL,
+    provider varchar(32) NOT NULL,
+    provider_reference varchar(64),
+    status varchar(16) NOT NULL,
+    step varchar(16) NOT NULL,
+    updated_at timestamptz(6) NOT NULL,
+    CONSTRAINT payment_sagas_pkey PRIMARY KEY (payment_id),
+    CONSTRAINT payment_sagas_status_check CHECK (status IN ('ACTIVE', 'COMPLETED', 'COMPENSATED', 'FAILED')),
+    CONSTRAINT payment_sagas_step_check CHECK (step IN ('AUTHORIZE', 'CAPTURE', 'SETTLE', 'VOID', 'REFUND'))
+);
+
+-- Serves the claim: due active steps of one provider, oldest first.
+CREATE INDEX IF NOT EXISTS ix_payment_sagas_due ON payment_sagas (provider, status, next_attempt_at);
+
+-- tx_id is the id of the writing transaction; snapshots cover every transaction below a horizon.
+CREATE TABLE IF NOT EXISTS ledger_entries (
+    id uuid NOT NULL,
+    account_id varchar(96) NOT NULL,
+    amount numeric(19, 4) NOT NULL,
+    created_at timestamptz(6) NOT NULL,
+    currency varchar(3) NOT NULL,
+    payment_id uuid NOT NULL,
+    tx_id bigint DEFAULT (pg_current_xact_id()::text::bigint) NOT NULL,
+    CONSTRAINT ledger_entries_pkey PRIMARY KEY (id)
+);
+
+-- Serves the balance tail: the entries of one account written since its last snapshot.
+CREATE INDEX IF NOT EXISTS ix_ledger_entries_account_tx ON ledger_entries (account_id, currency, tx_id);
+
+-- Serves the snapshot job: every entry written since the oldest snapshot horizon.
+CREATE INDEX IF NOT EXISTS ix_ledger_entries_tx ON ledger_entries (tx_id);
+
+-- Balance of an account over every entry written by a transaction below tx_horizon.
+CREATE TABLE IF NOT EXISTS ledger_balance_snapshots (
+    account_id varchar(96) NOT NULL,
+    currency varchar(3) NOT NULL,
+    balance numeric(19, 4) NOT NULL,
+    taken_at timestamptz(6) NOT NULL,
+    tx_horizon bigint NOT NULL,
+    CONSTRAINT ledger_balance_snapshots_pkey PRIMARY KEY (account_id, currency)
+);
@@ -0,0 +1,101 @@
+-- In-place upgrades of tables created by earlier releases through ddl-auto, formerly db/schema-upgrades.sql
+-- run on every start. Each block checks whether its change is needed, so on a database created by V1 this
+-- migration changes nothing.
+
+-- idempotency_keys.request_hash: 64-char hex varchar -> 32-byte bytea.
+-- Existing fingerprints are kept byte for byte and marked hash_version 0 (JSON-based), so replays of
+-- requests accepted before the upgrade are still verified. Rewrites the table under an exclusive lock;
+-- the table only holds keys within the idempotency retention window.
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema()
+                 AND table_name = 'idempotency_keys'
+                 AND column_name = 'request_hash'
+                 AND data_type = 'character varying') THEN
+        ALTER TABLE idempotency_keys ADD COLUMN IF NOT EXISTS hash_version smallint NOT NULL DEFAULT 0;
+        ALTER TABLE idempotency_keys ALTER COLUMN hash_version DROP DEFAULT;
+        ALTER TABLE idempotency_keys ALTER COLUMN request_hash TYPE bytea USING decode(request_hash, 'hex');
+    END IF;
+END
+$$;
+
+-- idempotency_keys: plain table -> range-partitioned by created_at. The primary key becomes
+-- (idempotency_key, created_at), and the existing table is attached as-is as the first partition,
+-- covering everything up to now; it is dropped once all of its keys have expired.
+DO $$
+DECLARE
+    legacy_upper timestamptz;
+BEGIN
+    IF (SELECT relkind FROM pg_class WHERE oid = to_regclass('idempotency_keys')) = 'r' THEN
+        LOCK TABLE idempotency_keys IN ACCESS EXCLUSIVE MODE;
+        SELECT greatest(now(), max(created_at) + interval '1 microsecond') INTO legacy_upper FROM idempotency_keys;
+
+        ALTER TABLE idempotency_keys RENAME TO idempotency_keys_legacy;
+        ALTER TABLE idempotency_keys_legacy DROP CONSTRAINT idempotency_keys_pkey;
+        ALTER TABLE idempotency_keys_legacy ADD PRIMARY KEY (idempotency_key, created_at);
+
+        CREATE TABLE idempotency_keys (LIKE idempotency_keys_legacy INCLUDING DEFAULTS, PRIMARY KEY (idempotency_key, created_at))
+            PARTITION BY RANGE (created_at);
+        EXECUTE format('ALTER TABLE idempotency_keys ATTACH PARTITION idempotency_keys_legacy FOR VALUES FROM (MINVALUE) TO (%L)',
+                       legacy_upper);
+    END IF;
+END
+$$;
+
+-- idempotency_keys: the first response of each key (status, Location, JSON body), replayed as stored.
+-- Nullable columns without a default are added to the parent and every partition as a catalog-only
+-- change; keys claimed before the upgrade keep nulls and their replays load the payment instead.
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM information_schema.columns
+                   WHERE table_schema = current_schema()
+                     AND table_name = 'idempotency_keys'
+                     AND column_name = 'response_body') THEN
+        ALTER TABLE idempotency_keys
+            ADD COLUMN IF NOT EXISTS response_status smallint,
+            ADD COLUMN IF NOT EXISTS response_location varchar(255),
+            ADD COLUMN IF NOT EXISTS response_body bytea;
+    END IF;
+END
+$$;
+
+-- payments: ix_payments_customer_id is superseded by ix_payments_customer_created_id, created by V1 where
+-- it was missing. On a large table, create the new index beforehand with CREATE INDEX CONCURRENTLY to
+-- avoid blocking writes while it builds.
+DO $$
+BEGIN
+    IF to_regclass('ix_payments_customer_id') IS NOT NULL THEN
+        DROP INDEX ix_payments_customer_id;
+    END IF;
+END
+$$;
+
+-- payments: version counter behind optimistic status changes and the ETag of GET /payments/{id}.
+-- A constant default is stored in the catalog, so existing rows get version 0 without a table rewrite.
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM information_schema.columns
+                   WHERE table_schema = current_schema()
+                     AND table_name = 'payments'
+                     AND column_name = 'version') THEN
+        ALTER TABLE payments ADD COLUMN version bigint NOT NULL DEFAULT 0;
+    END IF;
+END
+$$;
+
+-- payments.status: ddl-auto created the column with a CHECK listing the PaymentStatus values known at the
+-- time, and never updated it. Replaces a check that predates the saga statuses; NOT VALID skips the scan
+-- of existing rows, which only hold statuses the new check allows.
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_constraint
+               WHERE conrelid = to_regclass('payments')
+                 AND conname = 'payments_status_check'
+                 AND pg_get_constraintdef(oid) NOT LIKE '%SETTLED%') THEN
+        ALTER TABLE payments DROP CONSTRAINT payments_status_check;
+        ALTER TABLE payments ADD CONSTRAINT payments_status_check
+            CHECK (status IN ('CREATED', 'AUTHORIZED', 'CAPTURED', 'SETTLED', 'FAILED', 'VOIDED', 'REFUNDED')) NOT VALID;
+    END IF;
+END
+$$;
@@ -0,0 +1,4 @@
+-- outbox_events.claimed_until: the relay leases a claimed batch instead of holding its row locks while it
+-- waits for Kafka acknowledgements; rows whose lease has run out, or that were never claimed, are due.
+-- A nullable column without a default, so adding it does not rewrite the table.
+ALTER TABLE outbox_events ADD COLUMN IF NOT EXISTS claimed_until timestamptz(6);
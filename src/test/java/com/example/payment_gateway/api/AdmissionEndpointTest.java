@@ -0,0 +1,50 @@
+package com.example.payment_gateway.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+// Checks that a customer over its rate gets 429 with Retry-After while other customers are still served.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+                properties = {"payments.admission.customer-rate=0.1", "payments.admission.customer-burst=3"})
+class AdmissionEndpointTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void customerOverItsRateIsRejectedWithRetryAfter() throws Exception {
+        String customerId = "flood-" + UUID.randomUUID();
+        for (int i = 0; i < 3; i++) {
+            assertThat(post(customerId).statusCode()).isEqualTo(201);
+        }
+
+        HttpResponse<String> rejected = post(customerId);
+
+        assertThat(rejected.statusCode()).isEqualTo(429);
+        assertThat(rejected.headers().firstValue("Retry-After")).hasValue("10");
+        assertThat(rejected.body()).contains("Rate limit exceeded");
+        assertThat(post("calm-" + UUID.randomUUID()).statusCode()).isEqualTo(201);
+    }
+
+    private HttpResponse<String> post(String customerId) throws Exception {
+        String body = """
+            {"amount": 1.00, "currency": "EUR", "customerId": "%s"}""".formatted(customerId);
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/payments"))
+                .header("Content-Type", "application/json")
+                .header("Idempotency-Key", UUID.randomUUID().toString())
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.payment_gateway.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.example.payment_gateway.service.AdmissionControl;
+import com.example.payment_gateway.service.AdmissionRejectedException;
+import com.example.payment_gateway.service.AdmissionRejectedException.Reason;
+
+// A batch refused by the global limit is answered like a single create, before any result line is streamed.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class PaymentBatchAdmissionTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    @MockitoBean
+    private AdmissionControl admissionControl;
+
+    @Test
+    void overloadedInstanceAnswers503WithRetryAfter() throws Exception {
+        when(admissionControl.admitStream())
+                .thenThrow(new AdmissionRejectedException(Reason.OVERLOADED, Duration.ofSeconds(2)));
+        String item = """
+            {"idempotencyKey": "%s", "amount": 1.00, "currency": "EUR", "customerId": "bulk-admission"}"""
+                .formatted(UUID.randomUUID());
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/payments/batch"))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(item + "\n"))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(503);
+        assertThat(response.headers().firstValue("Retry-After")).hasValue("2");
+        assertThat(response.headers().firstValue("Content-Type")).hasValue("application/problem+json");
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.payment_gateway.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+// Posts batches over HTTP and reads the streamed NDJSON results.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class PaymentBatchEndpointTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private final String customerId = "bulk-http-" + UUID.randomUUID();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void acceptsJsonArray() throws Exception {
+        String key = UUID.randomUUID().toString();
+        String body = "[" + item(key, "5.00") + "," + item(key, "5.00") + "," + item(UUID.randomUUID().toString(), "0") + "]";
+
+        HttpResponse<String> response = post("application/json", body);
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Type")).hasValue("application/x-ndjson");
+        List<JsonNode> lines = lines(response);
+        assertThat(lines).extracting(line -> line.get("outcome").asString()).containsExactly("CREATED", "REPLAYED", "INVALID");
+        assertThat(lines.get(1).get("payment").get("id")).isEqualTo(lines.get(0).get("payment").get("id"));
+        assertThat(lines.get(0).get("payment").get("customerId").asString()).isEqualTo(customerId);
+        assertThat(lines.get(0).has("error")).isFalse();
+    }
+
+    @Test
+    void acceptsNdjsonAndAbortsAtMalformedLine() throws Exception {
+        String body = item(UUID.randomUUID().toString(), "1.00") + "\n"
+                + item(UUID.randomUUID().toString(), "2.00") + "\n"
+                + "{\"idempotencyKey\": \n"
+                + item(UUID.randomUUID().toString(), "3.00") + "\n";
+
+        HttpResponse<String> response = post("application/x-ndjson", body);
+
+        List<JsonNode> lines = lines(response);
+        assertThat(lines).extracting(line -> line.get("outcome").asString()).containsExactly("CREATED", "CREATED", "ABORTED");
+        assertThat(lines.get(2).get("index").asInt()).isEqualTo(2);
+        assertThat(lines.get(2).get("error").asString()).startsWith("Unreadable item");
+    }
+
+    private HttpResponse<String> post(String contentType, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/payments/batch"))
+                .header("Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private List<JsonNode> lines(HttpResponse<String> response) {
+        return response.body().lines().map(objectMapper::readTree).toList();
+    }
+
+    private String item(String key, String amount) {
+        return """
+            {"idempotencyKey": "%s", "amount": %s, "currency": "EUR", "customerId": "%s"}""".formatted(key, amount, customerId);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.payment_gateway.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+// Checks over HTTP that a retry gets the stored first response back byte for byte, and how amounts are validated.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class PaymentCreateEndpointTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void retryReplaysStoredResponse() throws Exception {
+        String idempotencyKey = "http-" + UUID.randomUUID();
+        String body = """
+            {"amount": 12.50, "currency": "EUR", "customerId": "http-customer"}""";
+        long replaysBefore = replays();
+
+        HttpResponse<byte[]> first = post(idempotencyKey, body);
+        HttpResponse<byte[]> retry = post(idempotencyKey, body);
+
+        assertThat(first.statusCode()).isEqualTo(201);
+        assertThat(first.headers().firstValue("Content-Type")).hasValue("application/json");
+        JsonNode payment = objectMapper.readTree(first.body());
+        assertThat(first.headers().firstValue("Location")).hasValue("/payments/" + payment.get("id").asString());
+        assertThat(payment.get("customerId").asString()).isEqualTo("http-customer");
+
+        assertThat(retry.statusCode()).isEqualTo(201);
+        assertThat(retry.headers().firstValue("Location")).isEqualTo(first.headers().firstValue("Location"));
+        assertThat(retry.body()).isEqualTo(first.body());
+        assertThat(replays()).isEqualTo(replaysBefore + 1);
+    }
+
+    @Test
+    void amountsAreCheckedAgainstTheCurrency() throws Exception {
+        HttpResponse<byte[]> tooPrecise = post("http-" + UUID.randomUUID(), """
+            {"amount": 10.505, "currency": "EUR", "customerId": "http-customer"}""");
+        HttpResponse<byte[]> unknownCurrency = post("http-" + UUID.randomUUID(), """
+            {"amount": 10.50, "currency": "EURO", "customerId": "http-customer"}""");
+        HttpResponse<byte[]> wholeYen = post("http-" + UUID.randomUUID(), """
+            {"amount": 1050, "currency": "jpy", "customerId": "http-customer"}""");
+
+        assertThat(tooPrecise.statusCode()).isEqualTo(400);
+        assertThat(objectMapper.readTree(tooPrecise.body()).at("/errors/amount").asString())
+                .isEqualTo("must have at most 2 decimal places for EUR");
+        assertThat(unknownCurrency.statusCode()).isEqualTo(400);
+        assertThat(objectMapper.readTree(unknownCurrency.body()).at("/errors/currency").asString())
+                .isEqualTo("must be an ISO 4217 currency code");
+        assertThat(wholeYen.statusCode()).isEqualTo(201);
+        JsonNode payment = objectMapper.readTree(wholeYen.body());
+        assertThat(payment.get("amount").toString()).isEqualTo("1050");
+        assertThat(payment.get("currency").asString()).isEqualTo("JPY");
+    }
+
+    private HttpResponse<byte[]> post(String idempotencyKey, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/payments"))
+                .header("Content-Type", "application/json")
+                .header("Idempotency-Key", idempotencyKey)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private long replays() {
+        return meterRegistry.get("payments.create.latency").tag("outcome", "replayed").timer().count();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.payment_gateway.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import com.example.payment_gateway.api.dto.CreatePaymentRequest;
+import com.example.payment_gateway.domain.Amount;
+import com.example.payment_gateway.domain.PaymentStatus;
+import com.example.payment_gateway.service.PaymentService;
+import com.example.payment_gateway.service.PaymentStatusService;
+
+import tools.jackson.databind.ObjectMapper;
+
+// Checks the ETag of GET /payments/{id}, conditional requests and invalidation on status changes.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class PaymentGetEndpointTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentStatusService statusService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void conditionalGetAnswersNotModifiedUntilStatusChanges() throws Exception {
+        UUID id = createPayment();
+
+        HttpResponse<byte[]> first = get(id, null);
+        assertThat(first.statusCode()).isEqualTo(200);
+        assertThat(first.headers().firstValue("ETag")).hasValue("\"0\"");
+        assertThat(objectMapper.readTree(first.body()).get("status").asString()).isEqualTo("CREATED");
+
+        HttpResponse<byte[]> unchanged = get(id, "\"0\"");
+        assertThat(unchanged.statusCode()).isEqualTo(304);
+        assertThat(unchanged.body()).isEmpty();
+        assertThat(unchanged.headers().firstValue("ETag")).hasValue("\"0\"");
+
+        statusService.updateStatus(id, 0, PaymentStatus.FAILED);
+
+        HttpResponse<byte[]> changed = get(id, "\"0\"");
+        assertThat(changed.statusCode()).isEqualTo(200);
+        assertThat(changed.headers().firstValue("ETag")).hasValue("\"1\"");
+        assertThat(objectMapper.readTree(changed.body()).get("status").asString()).isEqualTo("FAILED");
+    }
+
+    @Test
+    void unknownPaymentIsNotFound() throws Exception {
+        assertThat(get(UUID.randomUUID(), null).statusCode()).isEqualTo(404);
+    }
+
+    private UUID createPayment() {
+        CreatePaymentRequest request = new CreatePaymentRequest(Amount.parse("9.99"), "EUR", "etag-" + UUID.randomUUID());
+        return paymentService.create("etag-" + UUID.randomUUID(), request).paymentId();
+    }
+
+    private HttpResponse<byte[]> get(UUID id, String ifNoneMatch) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/payments/" + id)).GET();
+        if (ifNoneMatch != null) {
+            request.header("If-None-Match", ifNoneMatch);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
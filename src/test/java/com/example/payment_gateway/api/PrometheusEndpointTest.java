@@ -0,0 +1,64 @@
+package com.example.payment_gateway.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.micrometer.metrics.test.autoconfigure.AutoConfigureMetrics;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+// Drives a creation, a replay and a conflict over HTTP, then checks the meters on the Prometheus scrape.
+// Tests export no metrics by default; AutoConfigureMetrics turns the Prometheus registry back on.
+@AutoConfigureMetrics
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class PrometheusEndpointTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void scrapeExposesCreateStagesIdempotencyOutcomesAndJdbcMeters() throws Exception {
+        String idempotencyKey = "prometheus-" + UUID.randomUUID();
+        assertThat(post(idempotencyKey, "10.00").statusCode()).isEqualTo(201);
+        assertThat(post(idempotencyKey, "10.00").statusCode()).isEqualTo(201);
+        assertThat(post(idempotencyKey, "11.00").statusCode()).isEqualTo(409);
+
+        HttpResponse<String> scrape = client.send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/prometheus")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertThat(scrape.statusCode()).isEqualTo(200);
+        assertThat(scrape.body())
+                .contains("payments_create_stage_seconds_bucket{stage=\"hash\"")
+                .contains("payments_create_stage_seconds_bucket{stage=\"idempotency_lookup\"")
+                .contains("payments_create_stage_seconds_bucket{stage=\"payment_insert\"")
+                .contains("payments_create_stage_seconds_bucket{stage=\"idempotency_upsert\"")
+                .contains("payments_create_stage_seconds_bucket{stage=\"race_loss_fallback\"")
+                .contains("payments_idempotency_lookups_total{result=\"hit\"}")
+                .contains("payments_idempotency_lookups_total{result=\"miss\"}")
+                .contains("payments_idempotency_lookups_total{result=\"conflict\"}")
+                .contains("payments_idempotency_lookups_total{result=\"race_lost\"}")
+                .contains("jdbc_statement_seconds_bucket{operation=\"insert\"")
+                .contains("hikaricp_connections_acquire_seconds_bucket")
+                .contains("http_server_requests_seconds_bucket");
+    }
+
+    private HttpResponse<String> post(String idempotencyKey, String amount) throws Exception {
+        String body = """
+            {"amount": %s, "currency": "EUR", "customerId": "prometheus-customer"}""".formatted(amount);
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/payments"))
+                .header("Content-Type", "application/json")
+                .header("Idempotency-Key", idempotencyKey)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
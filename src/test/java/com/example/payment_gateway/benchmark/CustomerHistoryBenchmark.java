@@ -0,0 +1,181 @@
+package com.example.payment_gateway.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Pages through one large customer history with OFFSET and with a (created_at, id) keyset, first with
+ * only the old customer_id index and then with the (customer_id, created_at, id) index, and compares
+ * streaming the whole history through a cursor with reading it as one result. The table holds
+ * {@code benchmark.rows} payments spread over many customers plus {@code benchmark.hotRows} for one.
+ * Queries mirror PaymentJdbcRepository against a copy of the payments table.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class CustomerHistoryBenchmark {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 2_000_000);
+    private static final int HOT_ROWS = Integer.getInteger("benchmark.hotRows", 100_000);
+    private static final int PAGES = Integer.getInteger("benchmark.pages", 200);
+    private static final int PAGE_SIZE = 100;
+    private static final int FETCH_SIZE = 1000;
+    private static final String HOT_CUSTOMER = "hot-customer";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeAll
+    void createTable() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS bench_history");
+        jdbcTemplate.execute("""
+            CREATE TABLE bench_history (
+                id uuid PRIMARY KEY,
+                amount numeric(19, 4) NOT NULL,
+                currency varchar(3) NOT NULL,
+                customer_id varchar(64) NOT NULL,
+                status varchar(16) NOT NULL,
+                created_at timestamptz NOT NULL)
+        """);
+        jdbcTemplate.update("""
+            INSERT INTO bench_history
+            SELECT gen_random_uuid(), 10, 'EUR', 'customer-' || (g % 20000), 'CREATED', now() - g * interval '1 second'
+            FROM generate_series(1, ?) AS g
+        """, ROWS);
+        jdbcTemplate.update("""
+            INSERT INTO bench_history
+            SELECT gen_random_uuid(), 10, 'EUR', ?, 'CREATED', now() - g * interval '10 seconds'
+            FROM generate_series(1, ?) AS g
+        """, HOT_CUSTOMER, HOT_ROWS);
+        jdbcTemplate.execute("CREATE INDEX bench_history_customer ON bench_history (customer_id)");
+        jdbcTemplate.execute("VACUUM ANALYZE bench_history");
+    }
+
+    @AfterAll
+    void dropTable() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS bench_history");
+    }
+
+    @Test
+    void offsetVersusKeysetAndStreaming() {
+        System.out.printf("%nCustomer history benchmark (%,d rows, %,d for one customer, %d pages of %d)%n",
+                ROWS, HOT_ROWS, PAGES, PAGE_SIZE);
+        System.out.printf("%-34s %14s %16s%n", "strategy", "avg ms/page", "last page ms");
+
+        print("offset, customer_id index", offsetPages());
+        print("keyset, customer_id index", keysetPages());
+
+        jdbcTemplate.execute("CREATE INDEX bench_history_customer_created_id ON bench_history (customer_id, created_at, id)");
+        jdbcTemplate.execute("ANALYZE bench_history");
+        print("offset, composite index", offsetPages());
+        print("keyset, composite index", keysetPages());
+
+        List<String> plan = jdbcTemplate.queryForList("""
+            EXPLAIN SELECT id, amount, currency, customer_id, status, created_at FROM bench_history
+            WHERE customer_id = 'hot-customer' AND (created_at, id) < (now(), gen_random_uuid())
+            ORDER BY created_at DESC, id DESC LIMIT 100
+        """, String.class);
+        System.out.println("keyset plan: " + plan.get(1).strip());
+
+        System.out.printf("%n%-34s %14s %16s%n", "export of the whole history", "ms", "retained heap MB");
+        printExport("cursor, fetch size " + FETCH_SIZE, export(FETCH_SIZE));
+        printExport("single result", export(0));
+    }
+
+    private double[] offsetPages() {
+        String sql = """
+            SELECT id, amount, currency, customer_id, status, created_at FROM bench_history
+            WHERE customer_id = ? ORDER BY created_at DESC, id DESC LIMIT ? OFFSET ?
+        """;
+        // Walks the deepest pages, where OFFSET has to read and discard everything before them.
+        int firstPage = Math.max(0, HOT_ROWS / PAGE_SIZE - PAGES);
+        double total = 0;
+        double last = 0;
+        for (int page = firstPage; page < firstPage + PAGES; page++) {
+            long start = System.nanoTime();
+            jdbcTemplate.queryForList(sql, HOT_CUSTOMER, PAGE_SIZE, page * PAGE_SIZE);
+            last = (System.nanoTime() - start) / 1e6;
+            total += last;
+        }
+        return new double[] {total / PAGES, last};
+    }
+
+    private double[] keysetPages() {
+        String first = """
+            SELECT id, amount, currency, customer_id, status, created_at FROM bench_history
+            WHERE customer_id = ? ORDER BY created_at DESC, id DESC LIMIT ?
+        """;
+        String next = """
+            SELECT id, amount, currency, customer_id, status, created_at FROM bench_history
+            WHERE customer_id = ? AND (created_at, id) < (?, ?) ORDER BY created_at DESC, id DESC LIMIT ?
+        """;
+        double total = 0;
+        double last = 0;
+        List<Map<String, Object>> page = null;
+        for (int i = 0; i < PAGES; i++) {
+            long start = System.nanoTime();
+            if (page == null) {
+                page = jdbcTemplate.queryForList(first, HOT_CUSTOMER, PAGE_SIZE);
+            } else {
+                Map<String, Object> tail = page.get(page.size() - 1);
+                page = jdbcTemplate.queryForList(next, HOT_CUSTOMER, tail.get("created_at"), tail.get("id"), PAGE_SIZE);
+            }
+            last = (System.nanoTime() - start) / 1e6;
+            total += last;
+        }
+        return new double[] {total / PAGES, last};
+    }
+
+    // Reads the whole hot history in a transaction; a fetch size of 0 makes the driver buffer every row.
+    private double[] export(int fetchSize) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long baseline = memory.getHeapMemoryUsage().getUsed();
+        long[] retained = {0};
+        long[] rows = {0};
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(
+                con -> {
+                    PreparedStatement ps = con.prepareStatement("""
+                        SELECT id, amount, currency, customer_id, status, created_at FROM bench_history
+                        WHERE customer_id = ? ORDER BY created_at DESC, id DESC
+                    """);
+                    ps.setFetchSize(fetchSize);
+                    ps.setString(1, HOT_CUSTOMER);
+                    return ps;
+                },
+                rs -> {
+                    // Halfway through, whatever the driver still buffers is reachable and survives a full GC.
+                    if (++rows[0] == HOT_ROWS / 2) {
+                        System.gc();
+                        retained[0] = memory.getHeapMemoryUsage().getUsed() - baseline;
+                    }
+                }));
+        double millis = (System.nanoTime() - start) / 1e6;
+        return new double[] {millis, retained[0] / (1024.0 * 1024.0)};
+    }
+
+    private static void print(String label, double[] result) {
+        System.out.printf("%-34s %14.2f %16.2f%n", label, result[0], result[1]);
+    }
+
+    private static void printExport(String label, double[] result) {
+        System.out.printf("%-34s %14.0f %16.1f%n", label, result[0], result[1]);
+    }
+}
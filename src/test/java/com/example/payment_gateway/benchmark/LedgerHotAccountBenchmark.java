@@ -0,0 +1,184 @@
+package com.example.payment_gateway.benchmark;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.payment_gateway.domain.LedgerEntry;
+import com.example.payment_gateway.domain.UuidV7;
+import com.example.payment_gateway.repository.LedgerJdbcRepository;
+
+/**
+ * Posts {@code benchmark.postings} payments from {@code benchmark.threads} threads, every one crediting
+ * the same merchant account, and compares appending ledger entries only with also maintaining the
+ * balance in one row, or in {@code benchmark.stripes} rows picked at random. Then reads the balance of an
+ * account holding {@code benchmark.entries} entries with a full SUM and with snapshot plus tail.
+ * Runs against the real ledger tables under bench-* accounts, removed afterwards.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "payments.ledger.snapshots-enabled=false")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class LedgerHotAccountBenchmark {
+
+    private static final int THREADS = Integer.getInteger("benchmark.threads", 8);
+    private static final int POSTINGS = Integer.getInteger("benchmark.postings", 20_000);
+    private static final int STRIPES = Integer.getInteger("benchmark.stripes", 16);
+    private static final int ENTRIES = Integer.getInteger("benchmark.entries", 500_000);
+    private static final int TAIL = 1000;
+    private static final int READS = 50;
+    private static final String MERCHANT = "bench-merchant";
+
+    @Autowired
+    private LedgerJdbcRepository ledgerRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeAll
+    void createTable() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS bench_ledger_balances");
+        jdbcTemplate.execute("""
+            CREATE TABLE bench_ledger_balances (
+                account_id varchar(96) NOT NULL,
+                stripe int NOT NULL,
+                balance numeric(19, 4) NOT NULL,
+                PRIMARY KEY (account_id, stripe))
+        """);
+    }
+
+    @AfterAll
+    void cleanUp() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS bench_ledger_balances");
+        jdbcTemplate.update("DELETE FROM ledger_entries WHERE account_id LIKE 'bench-%'");
+        jdbcTemplate.update("DELETE FROM ledger_balance_snapshots WHERE account_id LIKE 'bench-%'");
+    }
+
+    @Test
+    void hotAccountPostingAndBalanceReads() throws Exception {
+        System.out.printf("%nLedger hot-account benchmark (%,d postings to one merchant account, %d threads)%n",
+                POSTINGS, THREADS);
+        System.out.printf("%-34s %12s %10s %10s%n", "posting strategy", "payments/s", "p50 ms", "p99 ms");
+        print("entries + one balance row", post(1));
+        print("entries + " + STRIPES + " striped balance rows", post(STRIPES));
+        print("append-only entries", post(0));
+
+        String account = "bench-read-" + UUID.randomUUID();
+        jdbcTemplate.update("""
+            INSERT INTO ledger_entries (id, payment_id, account_id, currency, amount, created_at)
+            SELECT gen_random_uuid(), gen_random_uuid(), ?, 'EUR', -1, now() FROM generate_series(1, ?)
+        """, account, ENTRIES);
+        ledgerRepository.advanceSnapshots();
+        jdbcTemplate.update("""
+            INSERT INTO ledger_entries (id, payment_id, account_id, currency, amount, created_at)
+            SELECT gen_random_uuid(), gen_random_uuid(), ?, 'EUR', -1, now() FROM generate_series(1, ?)
+        """, account, TAIL);
+        jdbcTemplate.execute("ANALYZE ledger_entries");
+
+        System.out.printf("%n%-34s %12s%n", "balance read (" + (ENTRIES + TAIL) + " entries)", "avg ms");
+        BigDecimal[] sum = new BigDecimal[1];
+        double sumMillis = time(() -> sum[0] = jdbcTemplate.queryForObject(
+                "SELECT sum(amount) FROM ledger_entries WHERE account_id = ? AND currency = 'EUR'",
+                BigDecimal.class, account));
+        BigDecimal[] snapshot = new BigDecimal[1];
+        double snapshotMillis = time(() -> snapshot[0] = ledgerRepository.balance(account, "EUR").amount());
+        System.out.printf("%-34s %12.3f%n", "SUM over every entry", sumMillis);
+        System.out.printf("%-34s %12.3f%n", "snapshot + " + TAIL + "-entry tail", snapshotMillis);
+        if (sum[0].compareTo(snapshot[0]) != 0) {
+            throw new IllegalStateException("Balances differ: " + sum[0] + " vs " + snapshot[0]);
+        }
+    }
+
+    // Posts every payment in its own transaction; stripes = 0 appends entries only.
+    private Result post(int stripes) throws Exception {
+        if (stripes > 0) {
+            jdbcTemplate.update("DELETE FROM bench_ledger_balances");
+            jdbcTemplate.update("""
+                INSERT INTO bench_ledger_balances SELECT ?, s, 0 FROM generate_series(0, ? - 1) AS s
+            """, MERCHANT, stripes);
+        }
+        AtomicInteger remaining = new AtomicInteger(POSTINGS);
+        long[] latencies = new long[POSTINGS];
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                workers.add(pool.submit(() -> {
+                    int slot;
+                    while ((slot = remaining.decrementAndGet()) >= 0) {
+                        long posted = System.nanoTime();
+                        transactionTemplate.executeWithoutResult(status -> postPayment(stripes));
+                        latencies[slot] = System.nanoTime() - posted;
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Arrays.sort(latencies);
+        return new Result(POSTINGS / seconds, latencies[POSTINGS / 2] / 1e6, latencies[POSTINGS * 99 / 100] / 1e6);
+    }
+
+    private void postPayment(int stripes) {
+        UUID paymentId = UuidV7.generate();
+        long amount = ThreadLocalRandom.current().nextInt(1, 10_000);
+        String customer = "bench-customer-" + ThreadLocalRandom.current().nextInt(10_000);
+        ledgerRepository.insertAll(List.of(entry(paymentId, customer, amount), entry(paymentId, MERCHANT, -amount)));
+        if (stripes > 0) {
+            // The row lock is held until commit, so postings to the same row queue behind each other's commit.
+            jdbcTemplate.update("UPDATE bench_ledger_balances SET balance = balance - ? * 0.01 WHERE account_id = ? AND stripe = ?",
+                    amount, MERCHANT, ThreadLocalRandom.current().nextInt(stripes));
+        }
+    }
+
+    private static LedgerEntry entry(UUID paymentId, String accountId, long amount) {
+        return LedgerEntry.builder()
+                .id(UuidV7.generate())
+                .paymentId(paymentId)
+                .accountId(accountId)
+                .currency("EUR")
+                .amount(amount)
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    private static double time(Runnable read) {
+        read.run();
+        long start = System.nanoTime();
+        for (int i = 0; i < READS; i++) {
+            read.run();
+        }
+        return (System.nanoTime() - start) / 1e6 / READS;
+    }
+
+    private static void print(String label, Result result) {
+        System.out.printf("%-34s %12.0f %10.2f %10.2f%n", label, result.perSecond(), result.p50(), result.p99());
+    }
+
+    private record Result(double perSecond, double p50, double p99) {}
+}
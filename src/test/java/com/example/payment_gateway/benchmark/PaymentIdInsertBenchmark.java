@@ -0,0 +1,122 @@
+package com.example.payment_gateway.benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.payment_gateway.domain.UuidV7;
+
+/**
+ * Compares insert throughput of random (version 4) and time-ordered (version 7) primary keys
+ * on a large table. Each table is prefilled with {@code benchmark.rows} rows, then
+ * {@code benchmark.inserts} more rows are inserted in small committed batches.
+ * The gap only shows once the primary-key index no longer fits in shared_buffers,
+ * so size {@code benchmark.rows} accordingly.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PaymentIdInsertBenchmark {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 2_000_000);
+    private static final int INSERTS = Integer.getInteger("benchmark.inserts", 200_000);
+    private static final int BATCH = 100;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void createTables() throws Exception {
+        for (String table : new String[] {"bench_ids_v4", "bench_ids_v7"}) {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + table);
+            jdbcTemplate.execute("CREATE TABLE " + table + " (id uuid PRIMARY KEY, customer_id varchar(64), created_at timestamptz)");
+        }
+        insert("bench_ids_v4", ROWS, UUID::randomUUID);
+        insert("bench_ids_v7", ROWS, UuidV7::generate);
+        jdbcTemplate.execute("VACUUM ANALYZE bench_ids_v4");
+        jdbcTemplate.execute("VACUUM ANALYZE bench_ids_v7");
+    }
+
+    @AfterAll
+    void dropTables() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS bench_ids_v4");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS bench_ids_v7");
+    }
+
+    @Test
+    void randomVersusTimeOrderedIds() throws Exception {
+        Result v4 = measure("bench_ids_v4", UUID::randomUUID);
+        Result v7 = measure("bench_ids_v7", UuidV7::generate);
+
+        System.out.printf("%nPrimary-key insert benchmark (%,d prefilled rows, %,d inserts, batches of %d)%n",
+                ROWS, INSERTS, BATCH);
+        System.out.printf("%-8s %14s %16s %18s%n", "ids", "rows/s", "index size (MB)", "index blocks read");
+        print("v4", v4);
+        print("v7", v7);
+        System.out.printf("v7 speed-up: %.2fx%n", v7.rowsPerSecond() / v4.rowsPerSecond());
+    }
+
+    private Result measure(String table, Supplier<UUID> ids) throws Exception {
+        long readsBefore = indexBlocksRead(table);
+        long start = System.nanoTime();
+        insert(table, INSERTS, ids);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long readsAfter = indexBlocksRead(table);
+
+        Long indexBytes = jdbcTemplate.queryForObject(
+                "SELECT pg_relation_size(?::regclass)", Long.class, table + "_pkey");
+        return new Result(INSERTS / seconds, indexBytes / (1024.0 * 1024.0), readsAfter - readsBefore);
+    }
+
+    // Inserts rows in committed batches, as concurrent single-payment requests would.
+    private void insert(String table, int rows, Supplier<UUID> ids) throws Exception {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "INSERT INTO " + table + " (id, customer_id, created_at) VALUES (?, ?, ?)")) {
+            connection.setAutoCommit(false);
+            Timestamp now = Timestamp.from(Instant.now());
+            for (int i = 1; i <= rows; i++) {
+                ps.setObject(1, ids.get());
+                ps.setString(2, "bench-customer");
+                ps.setTimestamp(3, now);
+                ps.addBatch();
+                if (i % BATCH == 0 || i == rows) {
+                    ps.executeBatch();
+                    connection.commit();
+                }
+            }
+        }
+    }
+
+    // Index blocks that had to be fetched from outside shared_buffers.
+    private long indexBlocksRead(String table) {
+        jdbcTemplate.execute("SELECT pg_stat_force_next_flush()");
+        Long reads = jdbcTemplate.queryForObject(
+                "SELECT coalesce(idx_blks_read, 0) FROM pg_statio_user_tables WHERE relname = ?", Long.class, table);
+        return reads == null ? 0 : reads;
+    }
+
+    private static void print(String label, Result result) {
+        System.out.printf("%-8s %,14.0f %16.1f %,18d%n",
+                label, result.rowsPerSecond(), result.indexMegabytes(), result.indexBlocksRead());
+    }
+
+    private record Result(double rowsPerSecond, double indexMegabytes, long indexBlocksRead) {}
+}
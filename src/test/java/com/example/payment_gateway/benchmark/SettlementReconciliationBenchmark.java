@@ -0,0 +1,156 @@
+package com.example.payment_gateway.benchmark;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.payment_gateway.config.ReconciliationProperties;
+import com.example.payment_gateway.repository.PaymentJdbcRepository;
+import com.example.payment_gateway.service.ReconciliationSummary;
+import com.example.payment_gateway.service.SettlementFileGenerator;
+import com.example.payment_gateway.service.SettlementFileGenerator.Expected;
+import com.example.payment_gateway.service.SettlementReconciler;
+
+/**
+ * Reconciles a generated settlement file of {@code benchmark.lines} payments (10 million by default)
+ * against the same payments inserted in a private far-future id range, and reports elapsed time and the
+ * peak heap used while reconciling. Chunk size, partition size and parallelism come from the
+ * payments.reconciliation properties, so they can be varied with -D overrides.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SettlementReconciliationBenchmark {
+
+    private static final int LINES = Integer.getInteger("benchmark.lines", 10_000_000);
+
+    // Four payments per millisecond.
+    private static final long FIRST_MILLIS = Instant.parse("2200-01-01T00:00:00Z").toEpochMilli()
+            + ThreadLocalRandom.current().nextLong(1_000_000_000L);
+
+    @Autowired
+    private SettlementReconciler reconciler;
+
+    @Autowired
+    private ReconciliationProperties properties;
+
+    @Autowired
+    private PaymentJdbcRepository paymentJdbcRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Path dir;
+
+    @BeforeAll
+    void insertPayments() throws IOException {
+        dir = Files.createTempDirectory("settlement-benchmark");
+        // Builds version 7 ids as text: 48-bit millisecond, version 7, 12-bit counter, variant, random bits.
+        jdbcTemplate.update("""
+            INSERT INTO payments (id, amount, currency, customer_id, status, created_at, version)
+            SELECT (lpad(to_hex(? + g / 4), 12, '0') || '7' || lpad(to_hex(g % 4), 3, '0')
+                    || '8' || substr(md5(g::text), 1, 15))::uuid,
+                   (g % 100000 + 1) / 100.0, 'EUR', 'settlement-benchmark', 'CREATED', now(), 0
+            FROM generate_series(0, ? - 1) AS g
+        """, FIRST_MILLIS, LINES);
+        jdbcTemplate.execute("VACUUM ANALYZE payments");
+    }
+
+    @AfterAll
+    void cleanUp() throws IOException {
+        jdbcTemplate.update("DELETE FROM payments WHERE id >= ? AND id < ?", lowerBound(), upperBound());
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void reconcileLargeFile() throws Exception {
+        Path file = dir.resolve("settlement.csv");
+        long generateStart = System.nanoTime();
+        Expected expected;
+        try (SettlementFileGenerator.Session session = new SettlementFileGenerator(7)
+                .missingEvery(10_007)
+                .mismatchEvery(1_009)
+                .extraEvery(10_009)
+                .duplicateEvery(100_003)
+                .malformedEvery(1_000_003)
+                .shuffleBlock(10_000)
+                .open(file)) {
+            transactionTemplate.executeWithoutResult(status -> paymentJdbcRepository.streamAmountsByIdRange(
+                    lowerBound(), upperBound(), 10_000, session));
+            expected = session.finish();
+        }
+        double generateSeconds = (System.nanoTime() - generateStart) / 1e9;
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long baseline = memory.getHeapMemoryUsage().getUsed();
+        AtomicLong peak = new AtomicLong();
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread sampler = new Thread(() -> {
+            while (running.get()) {
+                peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        sampler.setDaemon(true);
+        sampler.start();
+        ReconciliationSummary summary;
+        try {
+            summary = reconciler.reconcile(file, dir.resolve("report"));
+        } finally {
+            running.set(false);
+            sampler.join();
+        }
+
+        System.out.printf("%nSettlement reconciliation benchmark (%,d lines, %.0f MB, chunks of %s, partitions of %,d, %d workers)%n",
+                summary.lines(), Files.size(file) / 1e6, properties.chunkSize(), properties.partitionSize(),
+                properties.parallelism());
+        System.out.printf("file generated in %.1f s%n", generateSeconds);
+        System.out.printf("reconciled in %.1f s (%,.0f lines/s), %d partitions of at most %,d lines%n",
+                summary.elapsed().toMillis() / 1e3, summary.lines() / (summary.elapsed().toNanos() / 1e9),
+                summary.partitions(), summary.largestPartition());
+        System.out.printf("heap: %.0f MB before, %.0f MB peak during the run%n", baseline / 1e6, peak.get() / 1e6);
+        System.out.printf("matched %,d  mismatched %,d  extra %,d  missing %,d  rejected %,d%n",
+                summary.matched(), summary.mismatched(), summary.extra(), summary.missing(), summary.rejected());
+        if (summary.matched() != expected.matched() || summary.mismatched() != expected.mismatched()
+                || summary.extra() != expected.extra() || summary.missing() != expected.missing()
+                || summary.rejected() != expected.rejected()) {
+            throw new IllegalStateException("Expected " + expected + " but got " + summary);
+        }
+    }
+
+    private static UUID lowerBound() {
+        return new UUID(FIRST_MILLIS << 16, 0L);
+    }
+
+    private static UUID upperBound() {
+        return new UUID((FIRST_MILLIS + LINES / 4 + 1) << 16, 0L);
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.payment_gateway.benchmark;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Starts the packaged jar in a fresh JVM per run and measures the time from process start until the first
+ * POST /payments is answered with 201, in three modes: the default one, the fast-startup profile, and the
+ * fast-startup profile on the AOT build with a CDS archive from a training run. Prints the median and best
+ * of {@code benchmark.runs} runs per mode. Package first, with the AOT output for the third mode:
+ * {@code ./mvnw package -Paot -DskipTests}. {@code benchmark.jar} overrides the jar found in target, and
+ * {@code benchmark.args} adds application arguments to every run, e.g.
+ * {@code --payments.outbox.relay.enabled=false} without a Kafka broker.
+ */
+@Tag("benchmark")
+class StartupTimeBenchmark {
+
+    private static final int RUNS = Integer.getInteger("benchmark.runs", 5);
+    private static final Duration TIMEOUT = Duration.ofSeconds(Long.getLong("benchmark.timeout", 120));
+    private static final List<String> ARGS = Arrays.stream(System.getProperty("benchmark.args", "").split("\\s+"))
+            .filter(arg -> !arg.isEmpty())
+            .toList();
+
+    private static final Path WORK_DIR = Path.of("target", "startup-benchmark");
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+
+    @Test
+    void defaultVersusFastStartup() throws Exception {
+        Path jar = jar();
+        Files.createDirectories(WORK_DIR);
+
+        List<Result> results = new ArrayList<>();
+        results.add(run("default", List.of("-jar", jar.toString()), List.of()));
+        results.add(run("fast-startup", List.of("-jar", jar.toString()), List.of("--spring.profiles.active=fast-startup")));
+        String aotSkipped = hasAotOutput(jar) ? null : "skipped: the jar has no AOT output, package it with -Paot";
+        if (aotSkipped == null) {
+            results.add(aotWithCds(jar));
+        }
+
+        System.out.printf("%nStartup time benchmark (%s, %d runs, time to the first 201 from POST /payments)%n",
+                jar.getFileName(), RUNS);
+        System.out.printf("%-16s %12s %12s%n", "mode", "median ms", "best ms");
+        for (Result result : results) {
+            System.out.printf("%-16s %,12d %,12d%n", result.label(), result.medianMillis(), result.bestMillis());
+        }
+        if (aotSkipped != null) {
+            System.out.printf("%-16s %s%n", "aot+cds", aotSkipped);
+        }
+    }
+
+    // Extracts the jar, records the classes loaded up to the refreshed context in a CDS archive, then runs on it.
+    private Result aotWithCds(Path jar) throws Exception {
+        Path extracted = WORK_DIR.resolve("extracted");
+        exec(List.of("-Djarmode=tools", "-jar", jar.toString(), "extract", "--force", "--destination", extracted.toString()),
+                WORK_DIR.resolve("extract.log"));
+        Path app = extracted.resolve(jar.getFileName());
+        Path archive = extracted.resolve("app.jsa");
+
+        List<String> training = new ArrayList<>(List.of("-XX:ArchiveClassesAtExit=" + archive,
+                "-Dspring.context.exit=onRefresh", "-Dspring.aot.enabled=true", "-jar", app.toString(),
+                "--spring.profiles.active=fast-startup", "--server.port=0"));
+        training.addAll(ARGS);
+        exec(training, WORK_DIR.resolve("training.log"));
+
+        return run("aot+cds", List.of("-XX:SharedArchiveFile=" + archive, "-Dspring.aot.enabled=true", "-jar", app.toString()),
+                List.of("--spring.profiles.active=fast-startup"));
+    }
+
+    private Result run(String label, List<String> jvmArgs, List<String> appArgs) throws Exception {
+        long[] millis = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            millis[i] = timeToFirstRequest(label, jvmArgs, appArgs, WORK_DIR.resolve(label + "-" + i + ".log"));
+        }
+        Arrays.sort(millis);
+        return new Result(label, millis);
+    }
+
+    private long timeToFirstRequest(String label, List<String> jvmArgs, List<String> appArgs, Path log) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>(jvmArgs);
+        command.add("--server.port=" + port);
+        command.addAll(appArgs);
+        command.addAll(ARGS);
+
+        long start = System.nanoTime();
+        Process process = start(command, log);
+        try {
+            URI uri = URI.create("http://localhost:" + port + "/payments");
+            while (!created(uri)) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(label + " exited with " + process.exitValue() + ", see " + log);
+                }
+                if (System.nanoTime() - start > TIMEOUT.toNanos()) {
+                    throw new IllegalStateException(label + " did not answer within " + TIMEOUT + ", see " + log);
+                }
+                Thread.sleep(10);
+            }
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    // True once a payment is created; refused connections and errors of a starting server are retried.
+    private boolean created(URI uri) throws InterruptedException {
+        String key = "startup-" + UUID.randomUUID();
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .header("Idempotency-Key", key)
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"amount\":10.00,\"currency\":\"EUR\",\"customerId\":\"" + key + "\"}"))
+                .timeout(Duration.ofSeconds(30))
+                .build();
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 201;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void exec(List<String> args, Path log) throws Exception {
+        Process process = start(args, log);
+        if (!process.waitFor(TIMEOUT.toSeconds(), TimeUnit.SECONDS) || process.exitValue() != 0) {
+            process.destroyForcibly();
+            throw new IllegalStateException(String.join(" ", args) + " failed, see " + log);
+        }
+    }
+
+    private static Process start(List<String> args, Path log) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(args);
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+    }
+
+    private static Path jar() throws IOException {
+        String configured = System.getProperty("benchmark.jar");
+        if (configured != null) {
+            return Path.of(configured);
+        }
+        try (DirectoryStream<Path> jars = Files.newDirectoryStream(Path.of("target"), "payment-gateway-*.jar")) {
+            for (Path jar : jars) {
+                return jar;
+            }
+        }
+        throw new IllegalStateException("No jar in target, run ./mvnw package -Paot -DskipTests first");
+    }
+
+    // The AOT build adds the generated context initializer next to the application class.
+    private static boolean hasAotOutput(Path jar) throws IOException {
+        try (JarFile file = new JarFile(jar.toFile())) {
+            return file.stream().anyMatch(entry -> entry.getName().endsWith("__ApplicationContextInitializer.class"));
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private record Result(String label, long[] sortedMillis) {
+
+        long medianMillis() {
+            return sortedMillis[sortedMillis.length / 2];
+        }
+
+        long bestMillis() {
+            return sortedMillis[0];
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.payment_gateway.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.payment_gateway.PaymentGatewayServiceApplication;
+
+/**
+ * Drives the same closed-loop POST /payments load against the application started with platform
+ * threads and then with virtual threads, and prints throughput, latency and error counts side by side.
+ * {@code benchmark.concurrency} clients each keep one request in flight for {@code benchmark.seconds}.
+ */
+@Tag("benchmark")
+class ThreadModelLoadBenchmark {
+
+    private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", 1000);
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("benchmark.seconds", 20));
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("benchmark.warmup", 5));
+
+    @Test
+    void platformVersusVirtualThreads() throws Exception {
+        Result platform = run("platform", false);
+        Result virtual = run("virtual", true);
+
+        System.out.printf("%nThread model load benchmark (%d concurrent clients, %ds)%n",
+                CONCURRENCY, DURATION.toSeconds());
+        System.out.printf("%-10s %12s %10s %10s %10s %10s%n", "threads", "requests/s", "p50 ms", "p99 ms", "max ms", "errors");
+        print(platform);
+        print(virtual);
+    }
+
+    private Result run(String label, boolean virtualThreads) throws Exception {
+        try (ConfigurableApplicationContext app = new SpringApplicationBuilder(PaymentGatewayServiceApplication.class)
+                .profiles(virtualThreads ? new String[] {"virtual-threads"} : new String[0])
+                // Admission control would shed most of the closed-loop load; this compares the thread models alone.
+                // Passed as arguments: default properties would lose to application.yaml.
+                .run("--server.port=0", "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--payments.admission.enabled=false")) {
+            URI uri = URI.create("http://localhost:" + app.getEnvironment().getProperty("local.server.port") + "/payments");
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            load(label, client, uri, WARMUP);
+            return load(label, client, uri, DURATION);
+        }
+    }
+
+    // Keeps CONCURRENCY requests in flight until the duration elapses.
+    private Result load(String label, HttpClient client, URI uri, Duration duration) throws InterruptedException {
+        AtomicBoolean stopped = new AtomicBoolean();
+        CountDownLatch drained = new CountDownLatch(CONCURRENCY);
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        LongAdder errors = new LongAdder();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < CONCURRENCY; i++) {
+            send(client, uri, stopped, drained, latencies, errors);
+        }
+        Thread.sleep(duration.toMillis());
+        stopped.set(true);
+        long elapsed = System.nanoTime() - start;
+        drained.await(60, TimeUnit.SECONDS);
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        return new Result(label, sorted.length / (elapsed / 1e9), sorted, errors.sum());
+    }
+
+    // Sends one request and, once it completes, the next one from the same client.
+    private void send(HttpClient client, URI uri, AtomicBoolean stopped, CountDownLatch drained,
+                      ConcurrentLinkedQueue<Long> latencies, LongAdder errors) {
+        if (stopped.get()) {
+            drained.countDown();
+            return;
+        }
+        String key = "load-" + UUID.randomUUID();
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .header("Idempotency-Key", key)
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"amount\":10.00,\"currency\":\"EUR\",\"customerId\":\"" + key + "\"}"))
+                .timeout(Duration.ofSeconds(30))
+                .build();
+
+        long sent = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+            if (failure != null || response.statusCode() != 201) {
+                errors.increment();
+            } else {
+                latencies.add(System.nanoTime() - sent);
+            }
+            send(client, uri, stopped, drained, latencies, errors);
+        });
+    }
+
+    private static void print(Result result) {
+        System.out.printf("%-10s %,12.0f %10.1f %10.1f %10.1f %,10d%n", result.label(), result.requestsPerSecond(),
+                result.percentileMillis(0.50), result.percentileMillis(0.99), result.percentileMillis(1.0), result.errors());
+    }
+
+    private record Result(String label, double requestsPerSecond, long[] sortedLatencies, long errors) {
+
+        double percentileMillis(double percentile) {
+            if (sortedLatencies.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.min(sortedLatencies.length - 1, Math.ceil(percentile * sortedLatencies.length) - 1);
+            return sortedLatencies[Math.max(0, index)] / 1e6;
+        }
+    }
+}
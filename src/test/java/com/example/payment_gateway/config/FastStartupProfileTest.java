@@ -0,0 +1,50 @@
+package com.example.payment_gateway.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+// With lazy initialization, only the beans kept eager by LazyInitializationConfig and their dependencies
+// are created at startup.
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "payments.callbacks.enabled=true"
+})
+@ActiveProfiles("fast-startup")
+@EmbeddedKafka(partitions = 1, topics = "payments.status-callbacks")
+@DirtiesContext
+class FastStartupProfileTest {
+
+    @Autowired
+    private ConfigurableListableBeanFactory beanFactory;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry listenerRegistry;
+
+    @Test
+    void paymentPathAndCallbackListenerStartEagerly() {
+        assertThat(beanFactory.containsSingleton("paymentController")).isTrue();
+        assertThat(beanFactory.containsSingleton("paymentService")).isTrue();
+
+        // The callback listener is the only @KafkaListener; it is registered when its bean is created.
+        assertThat(beanFactory.containsSingleton("paymentCallbackListener")).isTrue();
+        assertThat(listenerRegistry.getListenerContainers()).isNotEmpty().allMatch(MessageListenerContainer::isRunning);
+    }
+
+    @Test
+    void endpointsOffThePaymentPathAreCreatedOnFirstUse() {
+        assertThat(beanFactory.containsSingleton("ledgerController")).isFalse();
+
+        beanFactory.getBean("ledgerController");
+
+        assertThat(beanFactory.containsSingleton("ledgerController")).isTrue();
+    }
+}
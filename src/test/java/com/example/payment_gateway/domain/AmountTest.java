@@ -0,0 +1,90 @@
+package com.example.payment_gateway.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+import tools.jackson.databind.DatabindException;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+class AmountTest {
+
+    private static final CurrencyUnit EUR = CurrencyUnit.of("EUR");
+    private static final CurrencyUnit JPY = CurrencyUnit.of("JPY");
+    private static final CurrencyUnit BHD = CurrencyUnit.of("BHD");
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+
+    @Test
+    void registryKnowsIso4217Exponents() {
+        assertThat(EUR.exponent()).isEqualTo(2);
+        assertThat(JPY.exponent()).isZero();
+        assertThat(BHD.exponent()).isEqualTo(3);
+        assertThat(CurrencyUnit.lookup("eur")).isSameAs(EUR);
+        assertThat(CurrencyUnit.lookup("eUr")).isSameAs(EUR);
+        assertThat(CurrencyUnit.lookup("XAU")).isNull();
+        assertThat(CurrencyUnit.lookup("EURO")).isNull();
+        assertThat(CurrencyUnit.lookup("E1R")).isNull();
+        assertThatThrownBy(() -> CurrencyUnit.of("ABC")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void convertsBetweenMinorAndStoredUnits() {
+        assertThat(EUR.toStorageUnits(1050)).isEqualTo(105_000);
+        assertThat(JPY.toStorageUnits(7)).isEqualTo(70_000);
+        assertThat(EUR.fromStorageUnits(105_000)).isEqualTo(1050);
+        // Stored rows with more decimals than the currency has are rounded half up.
+        assertThat(EUR.fromStorageUnits(105_050)).isEqualTo(1051);
+        assertThat(EUR.fromStorageUnits(-105_049)).isEqualTo(-1050);
+        assertThatThrownBy(() -> JPY.toStorageUnits(Long.MAX_VALUE / 1000)).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void parsesPlainDecimalsOnly() {
+        assertThat(Amount.parse("12.50")).isEqualTo(new Amount(1250, 2));
+        assertThat(Amount.parse("-0.05")).isEqualTo(new Amount(-5, 2));
+        assertThat(Amount.parse("7")).isEqualTo(new Amount(7, 0));
+        assertThat(Amount.parse("999999999999999999")).isEqualTo(new Amount(999_999_999_999_999_999L, 0));
+        assertThat(Amount.parse("1000000000000000000")).isNull();
+        assertThat(Amount.parse("1e2")).isNull();
+        assertThat(Amount.parse("1.")).isNull();
+        assertThat(Amount.parse(".5")).isNull();
+        assertThat(Amount.parse("")).isNull();
+        assertThat(Amount.parse("1.2.3")).isNull();
+    }
+
+    @Test
+    void checksPrecisionAgainstTheCurrency() {
+        assertThat(Amount.parse("12.5").toMinorUnits(EUR)).isEqualTo(1250);
+        assertThat(Amount.parse("12.500").toMinorUnits(EUR)).isEqualTo(1250);
+        assertThat(Amount.parse("12").toMinorUnits(BHD)).isEqualTo(12_000);
+        assertThat(Amount.parse("12.505").fitsIn(EUR)).isFalse();
+        assertThat(Amount.parse("12.505").fitsIn(BHD)).isTrue();
+        assertThat(Amount.parse("12.5").fitsIn(JPY)).isFalse();
+        assertThat(Amount.parse("12.0").fitsIn(JPY)).isTrue();
+        // Fits a long in minor units, but not once scaled to the stored 0.0001 units.
+        assertThat(Amount.parse("999999999999999").fitsIn(JPY)).isFalse();
+        assertThatThrownBy(() -> Amount.parse("12.505").toMinorUnits(EUR)).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void formatsWithItsScale() {
+        assertThat(Amount.ofMinorUnits(1250, EUR)).hasToString("12.50");
+        assertThat(Amount.ofMinorUnits(5, EUR)).hasToString("0.05");
+        assertThat(Amount.ofMinorUnits(-5, BHD)).hasToString("-0.005");
+        assertThat(Amount.ofMinorUnits(0, JPY)).hasToString("0");
+        assertThat(new Amount(Long.MIN_VALUE, 4)).hasToString("-922337203685477.5808");
+    }
+
+    @Test
+    void readsAndWritesJsonNumbers() {
+        assertThat(objectMapper.writeValueAsString(Amount.ofMinorUnits(1250, EUR))).isEqualTo("12.50");
+        assertThat(objectMapper.readValue("12.50", Amount.class)).isEqualTo(new Amount(1250, 2));
+        assertThat(objectMapper.readValue("\"12.50\"", Amount.class)).isEqualTo(new Amount(1250, 2));
+        assertThat(objectMapper.readValue("[3]", Amount[].class)).containsExactly(new Amount(3, 0));
+        assertThatThrownBy(() -> objectMapper.readValue("1.5e3", Amount.class)).isInstanceOf(DatabindException.class);
+        assertThatThrownBy(() -> objectMapper.readValue("true", Amount.class)).isInstanceOf(DatabindException.class);
+    }
+}
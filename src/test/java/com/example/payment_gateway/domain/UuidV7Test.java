@@ -0,0 +1,122 @@
+package com.example.payment_gateway.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+class UuidV7Test {
+
+    private static final Instant NOW = Instant.parse("2026-01-15T10:00:00.123Z");
+
+    @Test
+    void setsVersionVariantAndTimestamp() {
+        UUID id = new UuidV7(Clock.fixed(NOW, ZoneOffset.UTC)).next();
+
+        assertThat(id.version()).isEqualTo(7);
+        assertThat(id.variant()).isEqualTo(2);
+        assertThat(UuidV7.timestampOf(id)).isEqualTo(NOW);
+    }
+
+    @Test
+    void isStrictlyIncreasingWithinOneMillisecond() {
+        UuidV7 generator = new UuidV7(Clock.fixed(NOW, ZoneOffset.UTC));
+
+        UUID previous = generator.next();
+        for (int i = 0; i < 10_000; i++) {
+            UUID next = generator.next();
+            assertThat(next).isGreaterThan(previous);
+            previous = next;
+        }
+    }
+
+    @Test
+    void staysMonotonicWhenClockStepsBack() {
+        MutableClock clock = new MutableClock(NOW);
+        UuidV7 generator = new UuidV7(clock);
+
+        UUID before = generator.next();
+        clock.instant = NOW.minusSeconds(5);
+
+        assertThat(generator.next()).isGreaterThan(before);
+    }
+
+    @Test
+    void issuesUniqueIncreasingIdsAcrossThreads() throws Exception {
+        UuidV7 generator = new UuidV7(Clock.systemUTC());
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<List<UUID>>> batches = new ArrayList<>();
+        try {
+            for (int t = 0; t < 8; t++) {
+                batches.add(pool.submit(() -> {
+                    List<UUID> ids = new ArrayList<>();
+                    for (int i = 0; i < 20_000; i++) {
+                        ids.add(generator.next());
+                    }
+                    return ids;
+                }));
+            }
+
+            Set<UUID> all = new HashSet<>();
+            for (Future<List<UUID>> batch : batches) {
+                List<UUID> ids = batch.get();
+                assertThat(ids).isSorted();
+                all.addAll(ids);
+            }
+            assertThat(all).hasSize(8 * 20_000);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void lowerBoundSortsBeforeEveryIdOfThatMillisecond() {
+        UUID id = new UuidV7(Clock.fixed(NOW, ZoneOffset.UTC)).next();
+
+        assertThat(UuidV7.lowerBound(NOW)).isLessThan(id);
+        assertThat(UuidV7.lowerBound(NOW.plusMillis(1))).isGreaterThan(id);
+    }
+
+    @Test
+    void rejectsTimestampOfRandomUuid() {
+        assertThatThrownBy(() -> UuidV7.timestampOf(UUID.randomUUID()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.payment_gateway.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import com.example.payment_gateway.domain.IdempotencyKey;
+import com.example.payment_gateway.domain.StoredResponse;
+
+class CachingIdempotencyKeyRepositoryTest {
+
+    private static final byte[] HASH = new byte[32];
+
+    private static final Duration RETENTION = Duration.ofHours(24);
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC);
+
+    private final CountingRepository delegate = new CountingRepository();
+    private final AtomicLong nanos = new AtomicLong();
+    // Room for two keys without a stored response, weighed at about 200 bytes each.
+    private final CachingIdempotencyKeyRepository repository = new CachingIdempotencyKeyRepository(
+            delegate, 400, Duration.ofMinutes(10), Duration.ofSeconds(2), RETENTION, nanos::get, CLOCK);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void servesRepeatedLookupsFromCache() {
+        UUID paymentId = UUID.randomUUID();
+        delegate.insertOrGetExisting("k1", HASH, paymentId);
+        delegate.lookups.set(0);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(repository.findByKey("k1")).get()
+                    .extracting(IdempotencyKey::getPaymentId).isEqualTo(paymentId);
+        }
+
+        assertThat(delegate.lookups).hasValue(1);
+        assertThat(repository.stats().hitCount()).isEqualTo(4);
+        assertThat(repository.stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void negativeEntriesExpireAfterShortTtl() {
+        assertThat(repository.findByKey("k1")).isEmpty();
+        assertThat(repository.findByKey("k1")).isEmpty();
+        assertThat(delegate.lookups).hasValue(1);
+
+        // Another node creates the key; the negative entry hides it until it expires.
+        delegate.insertOrGetExisting("k1", HASH, UUID.randomUUID());
+        nanos.addAndGet(Duration.ofSeconds(3).toNanos());
+
+        assertThat(repository.findByKey("k1")).isPresent();
+        assertThat(delegate.lookups).hasValue(2);
+    }
+
+    @Test
+    void insertReplacesNegativeEntry() {
+        assertThat(repository.findByKey("k1")).isEmpty();
+
+        repository.insertOrGetExisting("k1", HASH, UUID.randomUUID());
+
+        assertThat(repository.findByKey("k1")).isPresent();
+        assertThat(delegate.lookups).hasValue(1);
+    }
+
+    @Test
+    void publishesInsertedRecordOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        repository.insertOrGetExisting("k1", HASH, UUID.randomUUID());
+
+        // Before commit the entry is not visible from the cache, so the lookup reaches the delegate.
+        repository.findByKey("k1");
+        assertThat(delegate.lookups).hasValue(1);
+
+        TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+        TransactionSynchronizationManager.clearSynchronization();
+
+        repository.findByKey("k1");
+        assertThat(delegate.lookups).hasValue(1);
+    }
+
+    @Test
+    void rolledBackInsertIsNeverCached() {
+        TransactionSynchronizationManager.initSynchronization();
+        repository.insertOrGetExisting("k1", HASH, UUID.randomUUID());
+        TransactionSynchronizationManager.clearSynchronization();
+        delegate.records.remove("k1");
+
+        assertThat(repository.findByKey("k1")).isEmpty();
+    }
+
+    @Test
+    void bulkLookupOnlyFetchesMisses() {
+        delegate.insertOrGetExisting("k1", HASH, UUID.randomUUID());
+        repository.findByKey("k1");
+
+        Map<String, IdempotencyKey> found = repository.findAllByKeys(List.of("k1", "k2"));
+
+        assertThat(found).containsOnlyKeys("k1");
+        assertThat(delegate.lookups).hasValue(2);
+
+        // Both the positive and the negative result are now cached.
+        repository.findAllByKeys(List.of("k1", "k2"));
+        assertThat(delegate.lookups).hasValue(2);
+    }
+
+    @Test
+    void positiveEntryExpiresWithItsRecord() {
+        delegate.records.put("k1", IdempotencyKey.builder()
+                .idempotencyKey("k1")
+                .requestHash(HASH)
+                .paymentId(UUID.randomUUID())
+                .createdAt(CLOCK.instant().minus(RETENTION).plus(Duration.ofMinutes(1)))
+                .build());
+        repository.findByKey("k1");
+
+        // One minute before the key expires, well inside the 10 minute TTL; the entry must not outlive the key.
+        nanos.addAndGet(Duration.ofMinutes(2).toNanos());
+        repository.findByKey("k1");
+
+        assertThat(delegate.lookups).hasValue(2);
+    }
+
+    @Test
+    void evictsBeyondMaximumSize() {
+        for (int i = 0; i < 10; i++) {
+            repository.insertOrGetExisting("k" + i, HASH, UUID.randomUUID());
+        }
+        repository.cache().cleanUp();
+
+        assertThat(repository.cache().estimatedSize()).isLessThanOrEqualTo(2);
+        assertThat(repository.stats().evictionCount()).isGreaterThanOrEqualTo(8);
+    }
+
+    @Test
+    void storedResponsesCountTowardsTheMaximumSize() {
+        repository.insertOrGetExisting("k1", HASH, UUID.randomUUID());
+        UUID large = UUID.randomUUID();
+        repository.insertOrGetExisting("k2", HASH, large,
+                new StoredResponse(201, "/payments/" + large, new byte[1024]));
+        repository.cache().cleanUp();
+
+        // The 1 KB body alone exceeds the limit, so that key is not kept while the small one is.
+        assertThat(repository.cache().policy().eviction().orElseThrow().weightedSize().orElseThrow()).isLessThanOrEqualTo(400);
+        repository.findByKey("k1");
+        repository.findByKey("k2");
+        assertThat(delegate.lookups).hasValue(1);
+    }
+
+    // In-memory stand-in for the JDBC repository that counts database lookups.
+    private static final class CountingRepository implements IdempotencyKeyRepository {
+
+        private final Map<String, IdempotencyKey> records = new ConcurrentHashMap<>();
+        private final AtomicInteger lookups = new AtomicInteger();
+
+        @Override
+        public Optional<IdempotencyKey> findByKey(String idempotencyKey) {
+            lookups.incrementAndGet();
+            return Optional.ofNullable(records.get(idempotencyKey));
+        }
+
+        @Override
+        public IdempotencyKey insertOrGetExisting(String idempotencyKey, byte[] requestHash, UUID paymentId,
+                                                  StoredResponse response) {
+            return records.computeIfAbsent(idempotencyKey, key -> IdempotencyKey.builder()
+                    .idempotencyKey(key)
+                    .requestHash(requestHash)
+                    .paymentId(paymentId)
+                    .createdAt(CLOCK.instant())
+                    .response(response)
+                    .build());
+        }
+
+        @Override
+        public Map<String, IdempotencyKey> findAllByKeys(Collection<String> idempotencyKeys) {
+            lookups.incrementAndGet();
+            Map<String, IdempotencyKey> found = new HashMap<>();
+            idempotencyKeys.forEach(key -> Optional.ofNullable(records.get(key)).ifPresent(r -> found.put(key, r)));
+            return found;
+        }
+
+        @Override
+        public Map<String, IdempotencyKey> insertAllOrGetExisting(List<IdempotencyKey> batch) {
+            Map<String, IdempotencyKey> resolved = new HashMap<>();
+            batch.forEach(r -> resolved.put(r.getIdempotencyKey(), records.computeIfAbsent(r.getIdempotencyKey(), k -> r)));
+            return resolved;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.payment_gateway.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.payment_gateway.api.dto.CreatePaymentRequest;
+import com.example.payment_gateway.domain.Amount;
+import com.example.payment_gateway.domain.IdempotencyKey;
+import com.example.payment_gateway.domain.Payment;
+import com.example.payment_gateway.service.IdempotencyConflictException;
+import com.example.payment_gateway.service.PaymentService;
+
+import tools.jackson.databind.ObjectMapper;
+
+// Covers upgrading idempotency_keys from hex varchar hashes to bytea, and replays of upgraded rows.
+@SpringBootTest
+class IdempotencyKeyHashMigrationTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void migrationsConvertHexHashesInPlace() throws Exception {
+        String schema = "hash_upgrade_" + UUID.randomUUID().toString().replace("-", "");
+        String hex = "00ff".repeat(16);
+
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA " + schema);
+            try {
+                statement.execute("SET search_path TO " + schema);
+                statement.execute("""
+                    CREATE TABLE idempotency_keys (
+                        idempotency_key varchar(100) PRIMARY KEY,
+                        request_hash varchar(64) NOT NULL,
+                        payment_id uuid,
+                        created_at timestamptz NOT NULL)
+                """);
+                statement.execute("INSERT INTO idempotency_keys VALUES ('legacy', '" + hex + "', gen_random_uuid(), now())");
+
+                // A schema created by ddl-auto has no migration history; it is baselined and migrated once.
+                assertThat(migrate(schema)).isEqualTo(3);
+                assertThat(migrate(schema)).isZero();
+
+                try (ResultSet rs = statement.executeQuery(
+                        "SELECT request_hash, hash_version FROM idempotency_keys WHERE idempotency_key = 'legacy'")) {
+                    assertThat(rs.next()).isTrue();
+                    assertThat(rs.getBytes("request_hash")).isEqualTo(HexFormat.of().parseHex(hex));
+                    assertThat(rs.getShort("hash_version")).isEqualTo(IdempotencyKey.LEGACY_HASH_VERSION);
+                }
+            } finally {
+                statement.execute("RESET search_path");
+                statement.execute("DROP SCHEMA " + schema + " CASCADE");
+            }
+        }
+    }
+
+    @Test
+    void upgradedRecordStillReplaysAndDetectsConflicts() throws Exception {
+        String idempotencyKey = "legacy-" + UUID.randomUUID();
+        CreatePaymentRequest request = new CreatePaymentRequest(Amount.parse("19.90"), "EUR", idempotencyKey);
+        Payment existing = Payment.create(request);
+        jdbcTemplate.update("INSERT INTO payments (id, amount, currency, customer_id, status, created_at) VALUES (?, ?, ?, ?, ?, ?)",
+                existing.getId(), existing.getAmount(), existing.getCurrency(), existing.getCustomerId(),
+                existing.getStatus().name(), Timestamp.from(existing.getCreatedAt()));
+
+        // What the original hasher stored, after the upgrade decoded it to bytes.
+        byte[] legacyHash = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+        jdbcTemplate.update("INSERT INTO idempotency_keys (idempotency_key, request_hash, hash_version, payment_id, created_at) VALUES (?, ?, ?, ?, ?)",
+                idempotencyKey, legacyHash, IdempotencyKey.LEGACY_HASH_VERSION, existing.getId(), Timestamp.from(Instant.now()));
+
+        assertThat(paymentService.create(idempotencyKey, request).paymentId()).isEqualTo(existing.getId());
+        assertThatThrownBy(() -> paymentService.create(idempotencyKey,
+                new CreatePaymentRequest(Amount.parse("20.00"), "EUR", idempotencyKey)))
+                .isInstanceOf(IdempotencyConflictException.class);
+    }
+
+    // Runs the application's migrations against another schema and returns how many were applied.
+    private int migrate(String schema) {
+        return Flyway.configure().configuration(flyway.getConfiguration())
+                .schemas(schema)
+                .defaultSchema(schema)
+                .load()
+                .migrate()
+                .migrationsExecuted;
+    }
+}
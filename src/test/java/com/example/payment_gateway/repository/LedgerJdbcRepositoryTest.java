@@ -0,0 +1,123 @@
+package com.example.payment_gateway.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.payment_gateway.domain.LedgerEntry;
+import com.example.payment_gateway.domain.UuidV7;
+import com.example.payment_gateway.repository.LedgerJdbcRepository.Balance;
+
+// Checks that snapshot plus tail always equals the sum of every committed entry.
+@SpringBootTest
+class LedgerJdbcRepositoryTest {
+
+    @Autowired
+    private LedgerJdbcRepository repository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final String debitAccount = "test-debit:" + UUID.randomUUID();
+
+    private final String creditAccount = "test-credit:" + UUID.randomUUID();
+
+    @Test
+    void balanceMatchesFullSumBeforeAndAfterSnapshots() {
+        post(5, 1025);
+        assertThat(repository.balance(creditAccount, "EUR").amount()).isEqualByComparingTo("-51.25");
+
+        repository.advanceSnapshots();
+        Balance snapshotted = repository.balance(creditAccount, "EUR");
+        assertThat(snapshotted.amount()).isEqualByComparingTo("-51.25");
+        assertThat(snapshotted.snapshotTakenAt()).isNotNull();
+
+        post(3, 100);
+        Balance withTail = repository.balance(creditAccount, "EUR");
+        assertThat(withTail.amount()).isEqualByComparingTo(fullSum(creditAccount)).isEqualByComparingTo("-54.25");
+        assertThat(repository.balance(debitAccount, "EUR").amount()).isEqualByComparingTo("54.25");
+        assertThat(repository.balance(creditAccount, "USD").amount()).isEqualByComparingTo("0");
+
+        repository.advanceSnapshots();
+        assertThat(repository.balance(creditAccount, "EUR").amount()).isEqualByComparingTo("-54.25");
+    }
+
+    @Test
+    void entriesCommittedAfterASnapshotRunAreNotLost() throws Exception {
+        post(1, 200);
+        CountDownLatch posted = new CountDownLatch(1);
+        CountDownLatch snapshotted = new CountDownLatch(1);
+
+        // Keeps a posting uncommitted while a snapshot run moves past entries written after it.
+        CompletableFuture<Void> slow = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            repository.insertAll(entries(1, 700));
+            posted.countDown();
+            await(snapshotted);
+        }));
+        await(posted);
+        post(1, 300);
+        repository.advanceSnapshots();
+        snapshotted.countDown();
+        slow.get(30, TimeUnit.SECONDS);
+
+        assertThat(repository.balance(creditAccount, "EUR").amount()).isEqualByComparingTo("-12.00");
+        repository.advanceSnapshots();
+        assertThat(repository.balance(creditAccount, "EUR").amount()).isEqualByComparingTo("-12.00");
+    }
+
+    // Posts payments of the given amount in cents.
+    private void post(int payments, long amount) {
+        repository.insertAll(entries(payments, amount));
+    }
+
+    private List<LedgerEntry> entries(int payments, long amount) {
+        List<LedgerEntry> entries = new ArrayList<>();
+        for (int i = 0; i < payments; i++) {
+            UUID paymentId = UUID.randomUUID();
+            entries.add(entry(paymentId, debitAccount, amount));
+            entries.add(entry(paymentId, creditAccount, -amount));
+        }
+        return entries;
+    }
+
+    private static LedgerEntry entry(UUID paymentId, String accountId, long amount) {
+        return LedgerEntry.builder()
+                .id(UuidV7.generate())
+                .paymentId(paymentId)
+                .accountId(accountId)
+                .currency("EUR")
+                .amount(amount)
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    private BigDecimal fullSum(String accountId) {
+        return jdbcTemplate.queryForObject("SELECT sum(amount) FROM ledger_entries WHERE account_id = ?",
+                BigDecimal.class, accountId);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(30, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.payment_gateway.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.payment_gateway.domain.OutboxEvent;
+import com.example.payment_gateway.domain.UuidV7;
+
+@SpringBootTest
+class OutboxJdbcRepositoryTest {
+
+    private static final Duration LEASE = Duration.ofMinutes(1);
+
+    @Autowired
+    private OutboxJdbcRepository repository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void concurrentClaimsSkipRowsLockedByEachOther() throws Exception {
+        List<OutboxEvent> events = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            events.add(event("payload-" + i));
+        }
+        repository.insertAll(events);
+
+        CountDownLatch firstClaimed = new CountDownLatch(1);
+        CountDownLatch secondClaimed = new CountDownLatch(1);
+
+        // Holds the first claim's locks open until the second relay has claimed its batch.
+        CompletableFuture<List<UUID>> first = CompletableFuture.supplyAsync(() ->
+                transactionTemplate.execute(status -> {
+                    List<UUID> ids = ids(repository.claim(5, LEASE));
+                    firstClaimed.countDown();
+                    await(secondClaimed);
+                    return ids;
+                }));
+        await(firstClaimed);
+        List<UUID> second = ids(repository.claim(5, LEASE));
+        secondClaimed.countDown();
+
+        assertThat(second).hasSize(5).doesNotContainAnyElementsOf(first.get(30, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void claimedEventsAreLeasedUntilTheLeaseRunsOut() {
+        OutboxEvent event = event("leased");
+        repository.insertAll(List.of(event));
+
+        // The claim commits on its own; the lease alone keeps the event from the next claim.
+        assertThat(ids(repository.claim(Integer.MAX_VALUE, LEASE))).contains(event.getId());
+        assertThat(claimedUntil(event.getId())).isAfter(Instant.now());
+        assertThat(ids(repository.claim(Integer.MAX_VALUE, LEASE))).doesNotContain(event.getId());
+
+        jdbcTemplate.update("UPDATE outbox_events SET claimed_until = now() WHERE id = ?", event.getId());
+        assertThat(ids(repository.claim(Integer.MAX_VALUE, LEASE))).contains(event.getId());
+    }
+
+    @Test
+    void deletesRelayedEventsInBulk() {
+        OutboxEvent kept = event("kept");
+        OutboxEvent relayedA = event("a");
+        OutboxEvent relayedB = event("b");
+        repository.insertAll(List.of(kept, relayedA, relayedB));
+
+        repository.deleteAll(List.of(relayedA.getId(), relayedB.getId()));
+
+        List<UUID> remaining = jdbcTemplate.queryForList("SELECT id FROM outbox_events", UUID.class);
+        assertThat(remaining).contains(kept.getId()).doesNotContain(relayedA.getId(), relayedB.getId());
+        assertThat(repository.backlog().oldest()).isNotNull();
+    }
+
+    private Instant claimedUntil(UUID id) {
+        return jdbcTemplate.queryForObject(
+                "SELECT claimed_until FROM outbox_events WHERE id = ?", Timestamp.class, id).toInstant();
+    }
+
+    private static OutboxEvent event(String payload) {
+        return OutboxEvent.builder()
+                .id(UuidV7.generate())
+                .aggregateId(UUID.randomUUID())
+                .eventType("Test")
+                .payload(payload.getBytes(StandardCharsets.UTF_8))
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    private static List<UUID> ids(List<OutboxEvent> events) {
+        return events.stream().map(OutboxEvent::getId).toList();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(30, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.payment_gateway.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.payment_gateway.domain.Payment;
+import com.example.payment_gateway.domain.PaymentStatus;
+
+@SpringBootTest
+class PaymentJdbcRepositoryTest {
+
+    @Autowired
+    private PaymentJdbcRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void scansCreationWindowInIdOrderAcrossPages() {
+        // Uses a random second in the past so the window only contains payments written here.
+        Instant base = Instant.ofEpochSecond(ThreadLocalRandom.current().nextLong(1_000_000_000L, 1_500_000_000L));
+        List<Payment> inWindow = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            inWindow.add(payment(base.plusMillis(i * 100L)));
+        }
+        Payment before = payment(base.minusMillis(1));
+        Payment after = payment(base.plusSeconds(1));
+        // A random id that happens to sort into the window, created long before it.
+        UUID v7 = payment(base.plusMillis(150)).getId();
+        Payment randomId = Payment.builder()
+                .id(new UUID((v7.getMostSignificantBits() & ~0xF000L) | 0x4000L, v7.getLeastSignificantBits()))
+                .amount(150)
+                .currency("EUR")
+                .customerId("range-scan")
+                .status(PaymentStatus.CREATED)
+                .createdAt(base.minusSeconds(86_400))
+                .build();
+
+        repository.insertAll(List.of(after, inWindow.get(3), before, inWindow.get(0), inWindow.get(4),
+                inWindow.get(2), randomId, inWindow.get(1)));
+
+        Instant to = base.plusSeconds(1);
+        List<Payment> firstPage = repository.findCreatedBetween(base, to, null, 3);
+        List<Payment> secondPage = repository.findCreatedBetween(base, to, firstPage.get(2).getId(), 3);
+
+        assertThat(firstPage).extracting(Payment::getId)
+                .containsExactly(inWindow.get(0).getId(), inWindow.get(1).getId(), inWindow.get(2).getId());
+        assertThat(secondPage).extracting(Payment::getId)
+                .containsExactly(inWindow.get(3).getId(), inWindow.get(4).getId());
+        assertThat(secondPage.get(0).getAmount()).isEqualTo(150);
+    }
+
+    @Test
+    void pagesCustomerHistoryNewestFirstByKeyset() {
+        String customerId = "history-" + UUID.randomUUID();
+        List<Payment> history = customerHistory(customerId);
+
+        List<Payment> pages = new ArrayList<>();
+        List<Payment> page = repository.findByCustomer(customerId, null, null, 2);
+        while (!page.isEmpty()) {
+            pages.addAll(page);
+            Payment last = page.get(page.size() - 1);
+            page = repository.findByCustomer(customerId, last.getCreatedAt(), last.getId(), 2);
+        }
+
+        assertThat(pages).extracting(Payment::getId).containsExactlyElementsOf(newestFirst(history));
+    }
+
+    @Test
+    void streamsCustomerHistoryThroughServerSideCursor() {
+        String customerId = "history-" + UUID.randomUUID();
+        List<Payment> history = customerHistory(customerId);
+
+        List<UUID> streamed = new ArrayList<>();
+        List<Integer> openCursors = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> repository.streamByCustomer(customerId, 2, payment -> {
+            streamed.add(payment.getId());
+            openCursors.add(jdbcTemplate.queryForObject("SELECT count(*) FROM pg_cursors", Integer.class));
+        }));
+
+        assertThat(streamed).containsExactlyElementsOf(newestFirst(history));
+        // The rows arrive through a portal that stays open between fetches, not as one materialized result.
+        assertThat(openCursors).allMatch(count -> count >= 1);
+    }
+
+    // Inserts five payments for the customer, two of them created in the same microsecond, plus one for someone else.
+    private List<Payment> customerHistory(String customerId) {
+        Instant base = Instant.parse("2026-03-01T10:00:00Z");
+        List<Payment> history = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            history.add(payment(base.plusSeconds(i), customerId));
+        }
+        history.add(payment(base.plusSeconds(2), customerId));
+
+        List<Payment> rows = new ArrayList<>(history);
+        rows.add(payment(base.plusSeconds(5), customerId + "-other"));
+        repository.insertAll(rows);
+        return history;
+    }
+
+    private static List<UUID> newestFirst(List<Payment> payments) {
+        return payments.stream()
+                .sorted(Comparator.comparing(Payment::getCreatedAt).thenComparing(Payment::getId).reversed())
+                .map(Payment::getId)
+                .toList();
+    }
+
+    private static Payment payment(Instant createdAt) {
+        return payment(createdAt, "range-scan");
+    }
+
+    // Builds a payment whose version 7 id carries the given creation time.
+    private static Payment payment(Instant createdAt, String customerId) {
+        long msb = (createdAt.toEpochMilli() << 16) | 0x7000L | ThreadLocalRandom.current().nextLong(0x1000);
+        long lsb = 0x8000_0000_0000_0000L | (ThreadLocalRandom.current().nextLong() & 0x3FFF_FFFF_FFFF_FFFFL);
+        return Payment.builder()
+                .id(new UUID(msb, lsb))
+                .amount(150)
+                .currency("EUR")
+                .customerId(customerId)
+                .status(PaymentStatus.CREATED)
+                .createdAt(createdAt)
+                .build();
+    }
+}
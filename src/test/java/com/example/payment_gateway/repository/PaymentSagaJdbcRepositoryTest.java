@@ -0,0 +1,149 @@
+package com.example.payment_gateway.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.payment_gateway.domain.Payment;
+import com.example.payment_gateway.domain.PaymentSaga;
+import com.example.payment_gateway.domain.PaymentStatus;
+import com.example.payment_gateway.domain.SagaStatus;
+import com.example.payment_gateway.domain.SagaStep;
+import com.example.payment_gateway.domain.UuidV7;
+import com.example.payment_gateway.repository.PaymentSagaJdbcRepository.DueStep;
+
+// Claims sagas of a provider name private to each test, so sagas of other tests are never touched.
+@SpringBootTest
+class PaymentSagaJdbcRepositoryTest {
+
+    @Autowired
+    private PaymentSagaJdbcRepository repository;
+
+    @Autowired
+    private PaymentJdbcRepository paymentJdbcRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final String provider = "test-" + UUID.randomUUID().toString().substring(0, 8);
+
+    @Test
+    void concurrentClaimsNeverHandOutTheSameStep() throws Exception {
+        List<UUID> started = start(200);
+        Set<UUID> claimed = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicates = new AtomicInteger();
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> claimers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                claimers.add(pool.submit(() -> {
+                    go.await();
+                    List<DueStep> batch;
+                    while (!(batch = repository.claim(provider, 7, Duration.ofMinutes(1))).isEmpty()) {
+                        for (DueStep step : batch) {
+                            if (!claimed.add(step.paymentId())) {
+                                duplicates.incrementAndGet();
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            go.countDown();
+            for (Future<?> claimer : claimers) {
+                claimer.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertThat(duplicates).hasValue(0);
+        assertThat(claimed).containsExactlyInAnyOrderElementsOf(started);
+        // Every step is leased, so nothing is due until the leases run out.
+        assertThat(repository.claim(provider, 10, Duration.ofMinutes(1))).isEmpty();
+    }
+
+    @Test
+    void outcomeOfAnExpiredClaimIsDiscarded() {
+        UUID paymentId = start(1).get(0);
+        DueStep first = repository.claim(provider, 10, Duration.ZERO).get(0);
+        assertThat(first.attempts()).isEqualTo(1);
+        assertThat(first.amount()).isEqualTo(1250);
+
+        // The lease has run out, so another node claims the step again.
+        DueStep second = repository.claim(provider, 10, Duration.ofMinutes(1)).get(0);
+        assertThat(second.attempts()).isEqualTo(2);
+
+        assertThat(repository.advance(first, SagaStep.CAPTURE, SagaStatus.ACTIVE, "auth-1", null)).isFalse();
+        assertThat(repository.advance(second, SagaStep.CAPTURE, SagaStatus.ACTIVE, "auth-2", null)).isTrue();
+        assertThat(repository.advance(second, SagaStep.CAPTURE, SagaStatus.ACTIVE, "auth-3", null)).isFalse();
+
+        PaymentSaga saga = repository.findById(paymentId).orElseThrow();
+        assertThat(saga.getStep()).isEqualTo(SagaStep.CAPTURE);
+        assertThat(saga.getAttempts()).isZero();
+        assertThat(saga.getProviderReference()).isEqualTo("auth-2");
+        assertThat(repository.claim(provider, 10, Duration.ofMinutes(1)))
+                .singleElement()
+                .satisfies(step -> assertThat(step.providerReference()).isEqualTo("auth-2"));
+    }
+
+    @Test
+    void retriedStepIsDueAfterItsDelay() {
+        UUID paymentId = start(1).get(0);
+        DueStep claimed = repository.claim(provider, 10, Duration.ofMinutes(1)).get(0);
+
+        assertThat(repository.retry(claimed, Duration.ofMinutes(5), "unavailable")).isTrue();
+        assertThat(repository.claim(provider, 10, Duration.ofMinutes(1))).isEmpty();
+
+        jdbcTemplate.update("UPDATE payment_sagas SET next_attempt_at = now() WHERE payment_id = ?", paymentId);
+        assertThat(repository.claim(provider, 10, Duration.ofMinutes(1)))
+                .singleElement()
+                .satisfies(step -> assertThat(step.attempts()).isEqualTo(2));
+        assertThat(repository.findById(paymentId).orElseThrow().getLastError()).isEqualTo("unavailable");
+    }
+
+    // Inserts payments with their sagas due now on the test's provider.
+    private List<UUID> start(int count) {
+        Instant now = Instant.now().minusSeconds(1);
+        List<Payment> payments = new ArrayList<>(count);
+        List<PaymentSaga> sagas = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Payment payment = Payment.builder()
+                    .id(UuidV7.generate())
+                    .amount(1250)
+                    .currency("EUR")
+                    .customerId("saga-" + provider)
+                    .status(PaymentStatus.CREATED)
+                    .createdAt(now)
+                    .build();
+            payments.add(payment);
+            sagas.add(PaymentSaga.builder()
+                    .paymentId(payment.getId())
+                    .provider(provider)
+                    .step(SagaStep.AUTHORIZE)
+                    .status(SagaStatus.ACTIVE)
+                    .createdAt(now)
+                    .build());
+        }
+        paymentJdbcRepository.insertAll(payments);
+        repository.insertAll(sagas);
+        return payments.stream().map(Payment::getId).toList();
+    }
+}
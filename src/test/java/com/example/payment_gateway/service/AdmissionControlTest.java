@@ -0,0 +1,116 @@
+package com.example.payment_gateway.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.payment_gateway.service.AdmissionControl.Permit;
+import com.example.payment_gateway.service.AdmissionRejectedException.Reason;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AdmissionControlTest {
+
+    private final AtomicInteger pendingConnections = new AtomicInteger();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(2, pendingConnections::get, 4);
+
+    private final AdmissionControl admission = new AdmissionControl(true,
+            new CustomerRateLimiter(1, 2, Duration.ofMinutes(1), 4, () -> 0L),
+            concurrencyLimiter, Duration.ofSeconds(1), meterRegistry);
+
+    @Test
+    void shedsWhenConcurrencyLimitIsReachedAndReadmitsAfterRelease() {
+        Permit first = admission.admit("a");
+        Permit second = admission.admit("b");
+
+        assertThatThrownBy(() -> admission.admit("c"))
+                .isInstanceOfSatisfying(AdmissionRejectedException.class, e -> {
+                    assertThat(e.getReason()).isEqualTo(Reason.OVERLOADED);
+                    assertThat(e.getRetryAfter()).isEqualTo(Duration.ofSeconds(1));
+                });
+
+        first.close();
+        assertThat(concurrencyLimiter.inFlight()).isEqualTo(1);
+        admission.admit("c").close();
+        second.close();
+        assertThat(concurrencyLimiter.inFlight()).isZero();
+    }
+
+    @Test
+    void shedsWhileThreadsQueueForConnections() {
+        pendingConnections.set(4);
+
+        assertThatThrownBy(() -> admission.admit("a"))
+                .isInstanceOfSatisfying(AdmissionRejectedException.class,
+                        e -> assertThat(e.getReason()).isEqualTo(Reason.OVERLOADED));
+
+        pendingConnections.set(3);
+        admission.admit("a").close();
+    }
+
+    @Test
+    void rateLimitedCallerReleasesItsSlotAndOverloadDoesNotChargeCustomer() {
+        Permit held = admission.admit("other");
+        Permit last = admission.admit("a");
+        // The instance is full: "a" is refused without spending its second token.
+        assertThatThrownBy(() -> admission.admit("a"))
+                .isInstanceOfSatisfying(AdmissionRejectedException.class,
+                        e -> assertThat(e.getReason()).isEqualTo(Reason.OVERLOADED));
+        last.close();
+
+        admission.admit("a").close();
+        assertThatThrownBy(() -> admission.admit("a"))
+                .isInstanceOfSatisfying(AdmissionRejectedException.class, e -> {
+                    assertThat(e.getReason()).isEqualTo(Reason.RATE_LIMITED);
+                    assertThat(e.getRetryAfter()).isEqualTo(Duration.ofSeconds(1));
+                });
+        assertThat(concurrencyLimiter.inFlight()).isEqualTo(1);
+        held.close();
+
+        assertThat(meterRegistry.get("payments.admission.rejections").tag("reason", "rate_limited").counter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("payments.admission.rejections").tag("reason", "overloaded").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void streamHoldsOneSlotAndChargesItemsToTheirCustomers() {
+        Permit stream = admission.admitStream();
+        assertThat(concurrencyLimiter.inFlight()).isEqualTo(1);
+
+        assertThat(admission.admitItem("a")).isZero();
+        assertThat(admission.admitItem("a")).isZero();
+        assertThat(admission.admitItem("a")).isEqualTo(Duration.ofSeconds(1).toNanos());
+        assertThat(admission.admitItem("b")).isZero();
+        assertThat(concurrencyLimiter.inFlight()).isEqualTo(1);
+
+        admission.admit("other").close();
+        Permit held = admission.admit("other");
+        assertThatThrownBy(admission::admitStream)
+                .isInstanceOfSatisfying(AdmissionRejectedException.class,
+                        e -> assertThat(e.getReason()).isEqualTo(Reason.OVERLOADED));
+        held.close();
+        stream.close();
+        assertThat(concurrencyLimiter.inFlight()).isZero();
+    }
+
+    @Test
+    void disabledAdmissionAdmitsEverything() {
+        AdmissionControl disabled = new AdmissionControl(false,
+                new CustomerRateLimiter(1, 1, Duration.ofMinutes(1), 1, () -> 0L),
+                new ConcurrencyLimiter(1, () -> 0, 1), Duration.ofSeconds(1), new SimpleMeterRegistry());
+
+        for (int i = 0; i < 10; i++) {
+            disabled.admit("a");
+            disabled.admitStream();
+            assertThat(disabled.admitItem("a")).isZero();
+        }
+    }
+}
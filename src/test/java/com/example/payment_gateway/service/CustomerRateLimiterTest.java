@@ -0,0 +1,146 @@
+package com.example.payment_gateway.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+import org.junit.jupiter.api.Test;
+
+class CustomerRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong nanos = new AtomicLong(123_456_789L);
+
+    // 10 requests per second, bursts of 5.
+    private final CustomerRateLimiter limiter = new CustomerRateLimiter(10, 5, Duration.ofMinutes(1), 4, nanos::get);
+
+    @Test
+    void admitsBurstThenAsksToWaitForNextToken() {
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire("c1")).isZero();
+        }
+
+        assertThat(limiter.tryAcquire("c1")).isEqualTo(SECOND / 10);
+        // Other customers have their own bucket.
+        assertThat(limiter.tryAcquire("c2")).isZero();
+    }
+
+    @Test
+    void refillsAtSustainedRate() {
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire("c1");
+        }
+
+        nanos.addAndGet(SECOND / 10);
+        assertThat(limiter.tryAcquire("c1")).isZero();
+        assertThat(limiter.tryAcquire("c1")).isPositive();
+
+        // Idle time refills the bucket, but never beyond the burst.
+        nanos.addAndGet(10 * SECOND);
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire("c1")).isZero();
+        }
+        assertThat(limiter.tryAcquire("c1")).isPositive();
+    }
+
+    @Test
+    void rejectedCallsTakeNoToken() {
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire("c1");
+        }
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire("c1");
+        }
+
+        nanos.addAndGet(SECOND / 10);
+        assertThat(limiter.tryAcquire("c1")).isZero();
+    }
+
+    @Test
+    void evictsOnlyIdleCustomers() {
+        limiter.tryAcquire("idle");
+        nanos.addAndGet(Duration.ofMinutes(2).toNanos());
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire("busy");
+        }
+
+        limiter.evictIdle();
+
+        assertThat(limiter.trackedCustomers()).isEqualTo(1);
+        // The evicted customer comes back with a full bucket, as it would have had anyway.
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire("idle")).isZero();
+        }
+        assertThat(limiter.tryAcquire("busy")).isPositive();
+    }
+
+    @Test
+    void concurrentCallersNeverOverAdmitAndEveryCustomerGetsItsBurst() throws Exception {
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        int callsPerThread = 200_000;
+        int customers = 1000;
+        int burst = 50;
+        // The clock stands still, so exactly one burst per customer may be admitted however the calls interleave.
+        CustomerRateLimiter frozen = new CustomerRateLimiter(1, burst, Duration.ofMinutes(1), 64, () -> 0L);
+
+        assertThat(run(threads, callsPerThread, i -> "hot", frozen)).containsExactly(entry("hot", (long) burst));
+
+        Map<String, Long> spread = run(threads, callsPerThread, i -> "customer-" + (i % customers), frozen);
+        // No customer is starved or favoured by the others' calls, or by sharing a lock stripe with them.
+        assertThat(spread).hasSize(customers).allSatisfy((customer, count) -> assertThat(count).isEqualTo(burst));
+        assertThat(frozen.trackedCustomers()).isEqualTo(customers + 1);
+    }
+
+    // Returns the calls admitted per customer across all threads.
+    private static Map<String, Long> run(int threads, int callsPerThread, IntFunction<String> customer,
+                                         CustomerRateLimiter target) throws Exception {
+        // Customer ids are built up front so the loop only exercises the limiter.
+        String[] ids = new String[callsPerThread];
+        for (int i = 0; i < callsPerThread; i++) {
+            ids[i] = customer.apply(i);
+        }
+        Map<String, LongAdder> admitted = new ConcurrentHashMap<>();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t * 7919;
+                workers.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < callsPerThread; i++) {
+                        String id = ids[(i + offset) % callsPerThread];
+                        if (target.tryAcquire(id) == 0) {
+                            admitted.computeIfAbsent(id, key -> new LongAdder()).increment();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        Map<String, Long> counts = new HashMap<>();
+        admitted.forEach((id, count) -> counts.put(id, count.sum()));
+        return counts;
+    }
+}
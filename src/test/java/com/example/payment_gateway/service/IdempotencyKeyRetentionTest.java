@@ -0,0 +1,254 @@
+package com.example.payment_gateway.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.payment_gateway.api.dto.CreatePaymentRequest;
+import com.example.payment_gateway.config.IdempotencyRetentionProperties;
+import com.example.payment_gateway.domain.Amount;
+import com.example.payment_gateway.domain.IdempotencyKey;
+import com.example.payment_gateway.repository.IdempotencyKeyJdbcRepository;
+import com.example.payment_gateway.repository.IdempotencyKeyPartitionRepository;
+import com.example.payment_gateway.repository.IdempotencyKeyPartitionRepository.Partition;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// Covers key expiry, cross-partition claims, and the partition lifecycle of idempotency_keys.
+@SpringBootTest
+class IdempotencyKeyRetentionTest {
+
+    private static final byte[] HASH = new byte[32];
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private IdempotencyKeyJdbcRepository idempotencyRepository;
+
+    @Autowired
+    private IdempotencyKeyPartitionMaintenance maintenance;
+
+    @Autowired
+    private IdempotencyRetentionProperties retention;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private Flyway flyway;
+
+    @Test
+    void expiredKeyIsIgnoredAndClaimedAnew() {
+        Instant expiredAt = Instant.now().minus(retention.window()).minus(Duration.ofMinutes(1));
+        // The scheduled run drops these old partitions again.
+        maintenance.maintain(expiredAt);
+
+        String key = "retention-" + UUID.randomUUID();
+        CreatePaymentRequest request = new CreatePaymentRequest(Amount.parse("7.00"), "EUR", key);
+        UUID expiredPaymentId = UUID.randomUUID();
+        idempotencyRepository.insertAllOrGetExisting(List.of(record(key, expiredPaymentId, expiredAt)));
+
+        assertThat(idempotencyRepository.findByKey(key)).isEmpty();
+        assertThat(idempotencyRepository.findAllByKeys(List.of(key))).isEmpty();
+
+        UUID paymentId = paymentService.create(key, request).paymentId();
+
+        assertThat(paymentId).isNotEqualTo(expiredPaymentId);
+        assertThat(idempotencyRepository.findByKey(key)).get()
+                .extracting(IdempotencyKey::getPaymentId).isEqualTo(paymentId);
+        assertThat(paymentService.create(key, request).paymentId()).isEqualTo(paymentId);
+    }
+
+    @Test
+    void claimsOfOneKeyAreSerializedAcrossPartitions() throws Exception {
+        String key = "retention-" + UUID.randomUUID();
+        UUID firstPaymentId = UUID.randomUUID();
+        Instant earlierPartition = Instant.now().minus(retention.partitionInterval());
+        CountDownLatch claimed = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+
+        // Holds a claim in an earlier partition open while a second claim for the key targets the current one.
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            idempotencyRepository.insertAllOrGetExisting(List.of(record(key, firstPaymentId, earlierPartition)));
+            claimed.countDown();
+            await(commit);
+        }));
+        assertThat(claimed.await(10, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<IdempotencyKey> second = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(
+                status -> idempotencyRepository.insertOrGetExisting(key, HASH, UUID.randomUUID())));
+
+        assertThat(second).failsWithin(Duration.ofMillis(300)).withThrowableOfType(TimeoutException.class);
+        commit.countDown();
+        first.get(10, TimeUnit.SECONDS);
+
+        assertThat(second.get(10, TimeUnit.SECONDS).getPaymentId()).isEqualTo(firstPaymentId);
+    }
+
+    @Test
+    void maintenanceKeepsWindowPartitionedAndDropsExpiredPartitions() throws Exception {
+        IdempotencyRetentionProperties properties =
+                new IdempotencyRetentionProperties(Duration.ofHours(24), Duration.ofHours(1), 2, Duration.ofMinutes(10));
+        Instant now = Instant.parse("2026-01-10T10:30:00Z");
+
+        inScratchSchema(jdbcTemplate -> {
+            IdempotencyKeyPartitionRepository partitions = new IdempotencyKeyPartitionRepository(jdbcTemplate);
+            IdempotencyKeyPartitionMaintenance scratchMaintenance =
+                    new IdempotencyKeyPartitionMaintenance(partitions, properties, new SimpleMeterRegistry());
+
+            scratchMaintenance.maintain(now);
+            List<Partition> created = partitions.findAll();
+            assertThat(created).hasSize(27);
+            assertContiguous(created);
+            assertThat(created.get(0).from()).isEqualTo(Instant.parse("2026-01-09T10:00:00Z"));
+            assertThat(created.get(26).to()).isEqualTo(Instant.parse("2026-01-10T13:00:00Z"));
+
+            // Idempotent when nothing has expired yet.
+            scratchMaintenance.maintain(now);
+            assertThat(partitions.findAll()).isEqualTo(created);
+
+            scratchMaintenance.maintain(now.plus(Duration.ofHours(3)));
+            List<Partition> rolled = partitions.findAll();
+            assertThat(rolled).hasSize(27);
+            assertContiguous(rolled);
+            assertThat(rolled.get(0).from()).isEqualTo(Instant.parse("2026-01-09T13:00:00Z"));
+            assertThat(rolled.get(26).to()).isEqualTo(Instant.parse("2026-01-10T16:00:00Z"));
+        });
+    }
+
+    @Test
+    void tableLeftByFailedAttachIsAttachedAndHorizonIsPublished() throws Exception {
+        IdempotencyRetentionProperties properties =
+                new IdempotencyRetentionProperties(Duration.ofHours(24), Duration.ofHours(1), 2, Duration.ofMinutes(10));
+        Instant now = Instant.parse("2026-01-10T10:30:00Z");
+
+        inScratchSchema(jdbcTemplate -> {
+            IdempotencyKeyPartitionRepository partitions = new IdempotencyKeyPartitionRepository(jdbcTemplate);
+            IdempotencyKeyPartitionMaintenance scratchMaintenance =
+                    new IdempotencyKeyPartitionMaintenance(partitions, properties, new SimpleMeterRegistry());
+            assertThat(scratchMaintenance.horizonSeconds(now)).isNaN();
+
+            // What a create whose ATTACH failed leaves behind.
+            jdbcTemplate.execute("CREATE TABLE idempotency_keys_p20260110_100000 (LIKE idempotency_keys INCLUDING DEFAULTS)");
+
+            scratchMaintenance.maintain(now);
+            List<Partition> created = partitions.findAll();
+            assertThat(created).hasSize(27).extracting(Partition::name).contains("idempotency_keys_p20260110_100000");
+            assertContiguous(created);
+
+            // Partitions end at 13:00; without further runs the horizon runs out and goes negative.
+            assertThat(scratchMaintenance.horizonSeconds(now)).isEqualTo(Duration.ofMinutes(150).toSeconds());
+            assertThat(scratchMaintenance.horizonSeconds(now.plus(Duration.ofHours(3)))).isEqualTo(-1800);
+        });
+    }
+
+    @Test
+    void existingTableBecomesFirstPartition() throws Exception {
+        IdempotencyRetentionProperties properties =
+                new IdempotencyRetentionProperties(Duration.ofHours(24), Duration.ofHours(1), 2, Duration.ofMinutes(10));
+
+        inScratchSchema(jdbcTemplate -> {
+            jdbcTemplate.execute("""
+                CREATE TABLE idempotency_keys (
+                    idempotency_key varchar(100) PRIMARY KEY,
+                    request_hash varchar(64) NOT NULL,
+                    payment_id uuid,
+                    created_at timestamptz NOT NULL)
+            """);
+            jdbcTemplate.update("INSERT INTO idempotency_keys VALUES ('legacy', ?, gen_random_uuid(), now())", "00".repeat(32));
+        }, jdbcTemplate -> {
+            IdempotencyKeyPartitionRepository partitions = new IdempotencyKeyPartitionRepository(jdbcTemplate);
+            new IdempotencyKeyPartitionMaintenance(partitions, properties, new SimpleMeterRegistry()).maintain(Instant.now());
+
+            List<Partition> attached = partitions.findAll();
+            assertThat(attached.get(0).name()).isEqualTo("idempotency_keys_legacy");
+            assertThat(attached.get(0).from()).isNull();
+            assertContiguous(attached);
+
+            IdempotencyKeyJdbcRepository repository = new IdempotencyKeyJdbcRepository(jdbcTemplate, properties);
+            assertThat(repository.findByKey("legacy")).isPresent();
+            assertThat(repository.insertOrGetExisting("legacy", HASH, UUID.randomUUID()).getHashVersion())
+                    .isEqualTo(IdempotencyKey.LEGACY_HASH_VERSION);
+            assertThat(repository.insertOrGetExisting("fresh", HASH, UUID.randomUUID()).getHashVersion())
+                    .isEqualTo(IdempotencyKey.CURRENT_HASH_VERSION);
+        });
+    }
+
+    // Runs the migrations in a throwaway schema, which gives a freshly created partitioned table.
+    private void inScratchSchema(ScratchTest test) throws Exception {
+        inScratchSchema(jdbcTemplate -> {}, test);
+    }
+
+    // Same, with tables of an earlier release created by the setup before migrating.
+    private void inScratchSchema(ScratchTest setup, ScratchTest test) throws Exception {
+        String schema = "retention_" + UUID.randomUUID().toString().replace("-", "");
+        try (Connection connection = dataSource.getConnection()) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            jdbcTemplate.execute("CREATE SCHEMA " + schema);
+            try {
+                jdbcTemplate.execute("SET search_path TO " + schema);
+                setup.run(jdbcTemplate);
+                Flyway.configure().configuration(flyway.getConfiguration())
+                        .schemas(schema)
+                        .defaultSchema(schema)
+                        .load()
+                        .migrate();
+                test.run(jdbcTemplate);
+            } finally {
+                jdbcTemplate.execute("RESET search_path");
+                jdbcTemplate.execute("DROP SCHEMA " + schema + " CASCADE");
+            }
+        }
+    }
+
+    private static void assertContiguous(List<Partition> partitions) {
+        for (int i = 1; i < partitions.size(); i++) {
+            assertThat(partitions.get(i).from()).isEqualTo(partitions.get(i - 1).to());
+        }
+    }
+
+    private static IdempotencyKey record(String key, UUID paymentId, Instant createdAt) {
+        return IdempotencyKey.builder()
+                .idempotencyKey(key)
+                .requestHash(HASH)
+                .paymentId(paymentId)
+                .createdAt(createdAt)
+                .build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ScratchTest {
+        void run(JdbcTemplate jdbcTemplate) throws Exception;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.payment_gateway.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+import com.example.payment_gateway.service.PaymentResponseCache.Entry;
+
+// Stands in for a shared cache such as Redis: one instance shared by several PaymentResponseCache "nodes".
+class InMemoryClusterPaymentCache implements ClusterPaymentCache {
+
+    final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+
+    private final List<BiConsumer<UUID, Long>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public Entry get(UUID paymentId) {
+        return entries.get(paymentId);
+    }
+
+    @Override
+    public void put(UUID paymentId, Entry entry) {
+        entries.merge(paymentId, entry, (existing, candidate) -> candidate.supersedes(existing) ? candidate : existing);
+    }
+
+    @Override
+    public void invalidate(UUID paymentId, long version) {
+        put(paymentId, Entry.invalidated(version));
+        listeners.forEach(listener -> listener.accept(paymentId, version));
+    }
+
+    @Override
+    public void subscribe(BiConsumer<UUID, Long> listener) {
+        listeners.add(listener);
+    }
+}
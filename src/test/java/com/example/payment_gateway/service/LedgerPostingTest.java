@@ -0,0 +1,90 @@
+package com.example.payment_gateway.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.payment_gateway.api.dto.CreatePaymentRequest;
+import com.example.payment_gateway.config.LedgerProperties;
+import com.example.payment_gateway.domain.Amount;
+import com.example.payment_gateway.service.PaymentBatchWriter.BatchItem;
+import com.example.payment_gateway.service.PaymentBatchWriter.BatchResult;
+
+// Checks that every creation path posts one balanced pair of ledger entries per new payment.
+@SpringBootTest
+class LedgerPostingTest {
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentBatchWriter batchWriter;
+
+    @Autowired
+    private RequestHasher requestHasher;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private LedgerProperties ledgerProperties;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final String customerId = "ledger-" + UUID.randomUUID();
+
+    @Test
+    void singleCreationDebitsCustomerAndCreditsMerchant() {
+        CreatePaymentRequest request = new CreatePaymentRequest(Amount.parse("42.10"), "eur", customerId);
+        String key = "ledger-" + UUID.randomUUID();
+
+        UUID paymentId = paymentService.create(key, request).paymentId();
+        paymentService.create(key, request);
+
+        List<Map<String, Object>> entries = entriesOf(paymentId);
+        assertThat(entries).hasSize(2);
+        assertThat(entries).extracting(e -> e.get("account_id"))
+                .containsExactlyInAnyOrder("customer:" + customerId, ledgerProperties.merchantAccount());
+        assertThat(entries).extracting(e -> e.get("currency")).containsOnly("EUR");
+        assertThat(sum(entries)).isEqualByComparingTo("0");
+        assertThat(ledgerService.balance("customer:" + customerId, "eur").amount()).isEqualByComparingTo("42.10");
+    }
+
+    @Test
+    void batchPostsBalancedEntriesForNewPaymentsOnly() {
+        String repeated = "ledger-" + UUID.randomUUID();
+        List<BatchResult> results = batchWriter.write(List.of(
+                item(repeated, "5.00"), item("ledger-" + UUID.randomUUID(), "7.50"), item(repeated, "5.00")));
+
+        assertThat(results).extracting(BatchResult::created).containsExactly(true, true, false);
+        for (BatchResult result : results.subList(0, 2)) {
+            List<Map<String, Object>> entries = entriesOf(result.payment().getId());
+            assertThat(entries).hasSize(2);
+            assertThat(sum(entries)).isEqualByComparingTo("0");
+        }
+        assertThat(ledgerService.balance("customer:" + customerId, "EUR").amount()).isEqualByComparingTo("12.50");
+    }
+
+    private BatchItem item(String key, String amount) {
+        CreatePaymentRequest request = new CreatePaymentRequest(Amount.parse(amount), "EUR", customerId);
+        return new BatchItem(key, request, requestHasher.hash(request));
+    }
+
+    private List<Map<String, Object>> entriesOf(UUID paymentId) {
+        return jdbcTemplate.queryForList("SELECT account_id, currency, amount FROM ledger_entries WHERE payment_id = ?",
+                paymentId);
+    }
+
+    private static BigDecimal sum(List<Map<String, Object>> entries) {
+        return entries.stream().map(e -> (BigDecimal) e.get("amount")).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
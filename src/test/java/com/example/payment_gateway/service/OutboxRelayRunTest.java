@@ -0,0 +1,140 @@
+package com.example.payment_gateway.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import com.example.payment_gateway.config.OutboxRelayProperties;
+import com.example.payment_gateway.domain.OutboxEvent;
+import com.example.payment_gateway.domain.UuidV7;
+import com.example.payment_gateway.repository.OutboxJdbcRepository;
+import com.example.payment_gateway.repository.OutboxJdbcRepository.Backlog;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// A relay run must neither hold the shared scheduler thread nor keep waiting on a broker that stopped acknowledging.
+class OutboxRelayRunTest {
+
+    private final OutboxJdbcRepository repository = mock(OutboxJdbcRepository.class);
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+
+    @Test
+    void runEndsAfterMaxBatchesPerRun() {
+        when(repository.claim(anyInt(), any())).thenAnswer(invocation -> events(2));
+        when(repository.backlog()).thenReturn(new Backlog(2, Instant.now()));
+        when(kafkaTemplate.send(anyRecord())).thenReturn(CompletableFuture.completedFuture(null));
+
+        try (OutboxRelay relay = relay(2, 3)) {
+            assertThat(relay.relayRun()).isEqualTo(3);
+        }
+        verify(repository, times(3)).claim(anyInt(), any());
+    }
+
+    @Test
+    void failedSendEndsTheRunWithoutWaitingForTheRestOfTheBatch() {
+        List<OutboxEvent> events = events(3);
+        when(repository.claim(anyInt(), any())).thenReturn(events);
+        when(repository.backlog()).thenReturn(new Backlog(2, Instant.now()));
+        when(kafkaTemplate.send(anyRecord())).thenReturn(
+                CompletableFuture.completedFuture(null),
+                CompletableFuture.failedFuture(new KafkaException("Not enough replicas")),
+                // Never acknowledged: waiting on it would take the whole send-timeout.
+                new CompletableFuture<>());
+
+        long started = System.nanoTime();
+        try (OutboxRelay relay = relay(3, 20)) {
+            assertThat(relay.relayRun()).isEqualTo(1);
+        }
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(10));
+        verify(repository).deleteAll(List.of(events.get(0).getId()));
+    }
+
+    @Test
+    void sendFailingAfterMaxBlockEndsTheBatch() {
+        List<OutboxEvent> events = events(3);
+        when(repository.claim(anyInt(), any())).thenReturn(events);
+        when(repository.backlog()).thenReturn(new Backlog(2, Instant.now()));
+        when(kafkaTemplate.send(anyRecord()))
+                .thenReturn(CompletableFuture.completedFuture(null))
+                .thenThrow(new KafkaException("Topic not present in metadata after 10000 ms"));
+
+        try (OutboxRelay relay = relay(3, 20)) {
+            assertThat(relay.relayRun()).isEqualTo(1);
+        }
+        verify(kafkaTemplate, times(2)).send(anyRecord());
+        verify(repository).deleteAll(List.of(events.get(0).getId()));
+    }
+
+    @Test
+    void pollReturnsWhileTheRunIsGoingAndSkipsUntilItIsDone() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return List.of();
+        }).when(repository).claim(anyInt(), any());
+        when(repository.backlog()).thenReturn(new Backlog(0, null));
+
+        try (OutboxRelay relay = relay(3, 20)) {
+            assertThat(relay.relay()).isTrue();
+            assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+            // Still relaying: the next poll returns at once without queueing a second run.
+            assertThat(relay.relay()).isFalse();
+
+            release.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            boolean polled;
+            while (!(polled = relay.relay()) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(polled).isTrue();
+        }
+    }
+
+    private OutboxRelay relay(int batchSize, int maxBatchesPerRun) {
+        OutboxRelayProperties properties = new OutboxRelayProperties(true, "payments.events", Duration.ofMillis(100),
+                batchSize, Duration.ofSeconds(30), maxBatchesPerRun);
+        return new OutboxRelay(repository, kafkaTemplate, properties, new SimpleMeterRegistry());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ProducerRecord<String, byte[]> anyRecord() {
+        return any(ProducerRecord.class);
+    }
+
+    private static List<OutboxEvent> events(int count) {
+        List<OutboxEvent> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            events.add(OutboxEvent.builder()
+                    .id(UuidV7.generate())
+                    .aggregateId(UuidV7.generate())
+                    .eventType("PaymentCreated")
+                    .payload("{}".getBytes(StandardCharsets.UTF_8))
+                    .createdAt(Instant.now())
+                    .build());
+        }
+        return events;
+    }
+}
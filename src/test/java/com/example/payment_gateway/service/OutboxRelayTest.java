@@ -0,0 +1,171 @@
+package com.example.payment_gateway.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.annotation.DirtiesContext;
+
+import com.example.payment_gateway.api.dto.CreatePaymentRequest;
+import com.example.payment_gateway.domain.Amount;
+import com.example.payment_gateway.service.PaymentBatchWriter.BatchItem;
+import com.example.payment_gateway.service.PaymentBatchWriter.BatchResult;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "payments.outbox.relay.enabled=true",
+        "payments.outbox.relay.poll-interval=50ms"
+})
+@EmbeddedKafka(partitions = 1, topics = "payments.events")
+@DirtiesContext
+class OutboxRelayTest {
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentBatchWriter batchWriter;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Autowired
+    private ProducerFactory<?, ?> producerFactory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Consumer<String, byte[]> consumer;
+
+    @BeforeEach
+    void subscribe() {
+        Map<String, Object> props = KafkaTestUtils.consumerProps(broker, "outbox-test-" + UUID.randomUUID(), false);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        consumer = new KafkaConsumer<>(props, new StringDeserializer(), new ByteArrayDeserializer());
+        consumer.subscribe(List.of("payments.events"));
+    }
+
+    @AfterEach
+    void close() {
+        consumer.close();
+    }
+
+    @Test
+    void createdPaymentIsPublishedAndRemovedFromOutbox() {
+        String customerId = "outbox-" + UUID.randomUUID();
+        UUID paymentId = paymentService.create("outbox-" + UUID.randomUUID(),
+                new CreatePaymentRequest(Amount.parse("25.00"), "EUR", customerId)).paymentId();
+
+        ConsumerRecord<String, byte[]> record = consume(Set.of(paymentId.toString())).get(0);
+
+        JsonNode event = objectMapper.readTree(record.value());
+        assertThat(event.get("paymentId").asString()).isEqualTo(paymentId.toString());
+        assertThat(event.get("customerId").asString()).isEqualTo(customerId);
+        assertThat(event.get("version").asInt()).isEqualTo(1);
+        assertThat(header(record, OutboxRelay.EVENT_TYPE_HEADER)).isEqualTo("PaymentCreated");
+        assertThat(header(record, OutboxRelay.EVENT_ID_HEADER)).isEqualTo(event.get("eventId").asString());
+
+        waitUntil(() -> outboxRows(paymentId) == 0);
+        assertThat(meterRegistry.get("payments.outbox.published").counter().count()).isPositive();
+    }
+
+    @Test
+    void batchWrittenPaymentsArePublished() {
+        String customerId = "outbox-batch-" + UUID.randomUUID();
+        List<BatchItem> items = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            items.add(new BatchItem("outbox-" + UUID.randomUUID(),
+                    new CreatePaymentRequest(Amount.parse("1.00"), "EUR", customerId),
+                    ("h" + i).getBytes(StandardCharsets.UTF_8)));
+        }
+
+        List<String> ids = batchWriter.write(items).stream()
+                .map(BatchResult::payment)
+                .map(p -> p.getId().toString())
+                .toList();
+
+        assertThat(consume(Set.copyOf(ids))).extracting(ConsumerRecord::key).containsExactlyElementsOf(ids);
+    }
+
+    @Test
+    void producerIsIdempotentAndCompressed() {
+        Map<String, Object> config = producerFactory.getConfigurationProperties();
+
+        assertThat(config.get(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG).toString()).isEqualTo("true");
+        assertThat(config.get(ProducerConfig.ACKS_CONFIG)).isEqualTo("all");
+        assertThat(config.get(ProducerConfig.COMPRESSION_TYPE_CONFIG)).isEqualTo("lz4");
+    }
+
+    // Polls until a record has been received for every key, returning those records in arrival order.
+    private List<ConsumerRecord<String, byte[]>> consume(Set<String> keys) {
+        Map<String, ConsumerRecord<String, byte[]>> received = new HashMap<>();
+        List<ConsumerRecord<String, byte[]>> ordered = new ArrayList<>();
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (received.size() < keys.size() && System.nanoTime() < deadline) {
+            for (ConsumerRecord<String, byte[]> record : consumer.poll(Duration.ofMillis(200))) {
+                if (keys.contains(record.key()) && received.putIfAbsent(record.key(), record) == null) {
+                    ordered.add(record);
+                }
+            }
+        }
+        assertThat(received.keySet()).containsExactlyInAnyOrderElementsOf(keys);
+        return ordered;
+    }
+
+    private Integer outboxRows(UUID paymentId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM outbox_events WHERE aggregate_id = ?", Integer.class, paymentId);
+    }
+
+    private static String header(ConsumerRecord<?, ?> record, String name) {
+        return new String(record.headers().lastHeader(name).value(), StandardCharsets.UTF_8);
+    }
+
+    private static void waitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
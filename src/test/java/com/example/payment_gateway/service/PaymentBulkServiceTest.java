@@ -0,0 +1,188 @@
+package com.example.payment_gateway.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.payment_gateway.api.dto.BatchPaymentRequest;
+import com.example.payment_gateway.config.PaymentBulkProperties;
+import com.example.payment_gateway.domain.Amount;
+import com.example.payment_gateway.service.PaymentBulkService.ItemResult;
+import com.example.payment_gateway.service.PaymentBulkService.Outcome;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validator;
+
+@SpringBootTest
+class PaymentBulkServiceTest {
+
+    private static final int CHUNK_SIZE = 4;
+
+    @Autowired
+    private PaymentBatchWriter batchWriter;
+
+    @Autowired
+    private RequestHasher requestHasher;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final String customerId = "bulk-" + UUID.randomUUID();
+
+    @Test
+    void itemsAreResolvedIndividuallyAcrossChunks() {
+        String repeated = key();
+        List<BatchPaymentRequest> items = Arrays.asList(
+                item(repeated, "10.00"),
+                item(key(), "11.00"),
+                item(key(), "-1.00"),
+                item(repeated, "10.00"),
+                item(key(), "12.00"),
+                item(repeated, "10.00"),
+                item(repeated, "99.00"),
+                null
+        );
+
+        List<ItemResult> results = new ArrayList<>();
+        bulkService().createAll(items.iterator(), results::addAll);
+
+        assertThat(results).extracting(ItemResult::index).containsExactly(0, 1, 2, 3, 4, 5, 6, 7);
+        assertThat(results).extracting(ItemResult::outcome).containsExactly(
+                Outcome.CREATED, Outcome.CREATED, Outcome.INVALID, Outcome.REPLAYED,
+                Outcome.CREATED, Outcome.REPLAYED, Outcome.CONFLICT, Outcome.INVALID);
+        assertThat(results.get(2).error()).isEqualTo("amount: must be greater than 0");
+        // The replay in the second chunk finds the payment committed by the first one.
+        assertThat(results.get(5).payment().getId()).isEqualTo(results.get(0).payment().getId());
+        assertThat(paymentRows()).isEqualTo(3);
+    }
+
+    @Test
+    void inputIsReadOneChunkAhead() {
+        AtomicInteger read = new AtomicInteger();
+        List<Integer> readWhenReported = new ArrayList<>();
+        Iterator<BatchPaymentRequest> items = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return read.get() < 10 * CHUNK_SIZE;
+            }
+
+            @Override
+            public BatchPaymentRequest next() {
+                read.incrementAndGet();
+                return item(key(), "1.00");
+            }
+        };
+
+        bulkService().createAll(items, results -> readWhenReported.add(read.get()));
+
+        assertThat(readWhenReported).hasSize(10);
+        for (int i = 0; i < readWhenReported.size(); i++) {
+            assertThat(readWhenReported.get(i)).isEqualTo((i + 1) * CHUNK_SIZE);
+        }
+        assertThat(paymentRows()).isEqualTo(10 * CHUNK_SIZE);
+    }
+
+    @Test
+    void unreadableInputWritesWhatWasReadAndAborts() {
+        Iterator<BatchPaymentRequest> items = new Iterator<>() {
+            private int read;
+
+            @Override
+            public boolean hasNext() {
+                if (read == 6) {
+                    throw new IllegalStateException("Unexpected character at line 7");
+                }
+                return true;
+            }
+
+            @Override
+            public BatchPaymentRequest next() {
+                read++;
+                return item(key(), "1.00");
+            }
+        };
+
+        List<ItemResult> results = new ArrayList<>();
+        bulkService().createAll(items, results::addAll);
+
+        assertThat(results).hasSize(7);
+        assertThat(results.subList(0, 6)).extracting(ItemResult::outcome).containsOnly(Outcome.CREATED);
+        assertThat(results.get(6).index()).isEqualTo(6);
+        assertThat(results.get(6).outcome()).isEqualTo(Outcome.ABORTED);
+        assertThat(results.get(6).error()).isEqualTo("Unreadable item: Unexpected character at line 7");
+        assertThat(paymentRows()).isEqualTo(6);
+    }
+
+    @Test
+    void itemsOverTheirCustomersRateAreNotWrittenAndTheRunHoldsOneSlot() {
+        ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(1, () -> 0, 1);
+        // Bursts of 3, then one token every 100 s: nothing is refilled during the test.
+        AdmissionControl admission = new AdmissionControl(true,
+                new CustomerRateLimiter(0.01, 3, Duration.ofMinutes(1), 1, System::nanoTime),
+                concurrencyLimiter, Duration.ofSeconds(1), new SimpleMeterRegistry());
+        String otherCustomer = "bulk-other-" + UUID.randomUUID();
+        List<BatchPaymentRequest> items = List.of(
+                item(key(), "1.00"),
+                item(key(), "2.00"),
+                new BatchPaymentRequest(key(), Amount.parse("3.00"), "EUR", otherCustomer),
+                item(key(), "-1.00"),
+                item(key(), "4.00"),
+                item(key(), "5.00"));
+
+        List<Integer> inFlight = new ArrayList<>();
+        List<ItemResult> results = new ArrayList<>();
+        bulkService(admission).createAll(items.iterator(), chunk -> {
+            inFlight.add(concurrencyLimiter.inFlight());
+            // A second run is refused while this one holds the only slot.
+            assertThatThrownBy(() -> bulkService(admission).createAll(List.of(item(key(), "1.00")).iterator(), r -> { }))
+                    .isInstanceOfSatisfying(AdmissionRejectedException.class,
+                            e -> assertThat(e.getReason()).isEqualTo(AdmissionRejectedException.Reason.OVERLOADED));
+            results.addAll(chunk);
+        });
+
+        // Invalid items take no token.
+        assertThat(results).extracting(ItemResult::outcome).containsExactly(
+                Outcome.CREATED, Outcome.CREATED, Outcome.CREATED, Outcome.INVALID, Outcome.CREATED, Outcome.RATE_LIMITED);
+        assertThat(results.get(5).error()).startsWith("Too many requests for this customer; retry after ");
+        assertThat(inFlight).containsOnly(1);
+        assertThat(concurrencyLimiter.inFlight()).isZero();
+        assertThat(paymentRows()).isEqualTo(3);
+    }
+
+    private PaymentBulkService bulkService() {
+        return bulkService(new AdmissionControl(false,
+                new CustomerRateLimiter(1, 1, Duration.ofMinutes(1), 1, System::nanoTime),
+                new ConcurrencyLimiter(1, () -> 0, 1), Duration.ofSeconds(1), new SimpleMeterRegistry()));
+    }
+
+    private PaymentBulkService bulkService(AdmissionControl admission) {
+        return new PaymentBulkService(batchWriter, requestHasher, validator, new PaymentBulkProperties(CHUNK_SIZE), admission);
+    }
+
+    private BatchPaymentRequest item(String idempotencyKey, String amount) {
+        return new BatchPaymentRequest(idempotencyKey, Amount.parse(amount), "EUR", customerId);
+    }
+
+    private static String key() {
+        return "bulk-" + UUID.randomUUID();
+    }
+
+    private Integer paymentRows() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM payments WHERE customer_id = ?", Integer.class, customerId);
+    }
+}
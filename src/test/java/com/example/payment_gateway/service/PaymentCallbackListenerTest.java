@@ -0,0 +1,256 @@
+package com.example.payment_gateway.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doAnswer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.payment_gateway.config.PaymentCallbackProperties;
+import com.example.payment_gateway.domain.Payment;
+import com.example.payment_gateway.domain.PaymentStatus;
+import com.example.payment_gateway.domain.PaymentStatusCallback;
+import com.example.payment_gateway.domain.UuidV7;
+import com.example.payment_gateway.repository.PaymentJdbcRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import tools.jackson.databind.ObjectMapper;
+
+// Sends callbacks while the listener is stopped, so that starting it delivers them as one burst.
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "payments.callbacks.enabled=true",
+        "payments.callbacks.retry-backoff=500ms"
+})
+@EmbeddedKafka(partitions = 1, topics = "payments.status-callbacks")
+@DirtiesContext
+class PaymentCallbackListenerTest {
+
+    private static final String TOPIC = "payments.status-callbacks";
+
+    @Autowired
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry listenerRegistry;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Autowired
+    private PaymentCallbackProperties properties;
+
+    @Autowired
+    private PaymentJdbcRepository paymentJdbcRepository;
+
+    @Autowired
+    private LedgerWriter ledgerWriter;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockitoSpyBean
+    private PaymentStatusService statusService;
+
+    private final String customerId = "callbacks-" + UUID.randomUUID();
+
+    private final Instant t0 = Instant.now().minusSeconds(60);
+
+    private MessageListenerContainer container;
+
+    @BeforeEach
+    void stopListener() {
+        container = listenerRegistry.getListenerContainer(PaymentCallbackListener.LISTENER_ID);
+        container.stop();
+    }
+
+    @AfterEach
+    void startListener() {
+        container.start();
+    }
+
+    @Test
+    void burstIsDeduplicatedAppliedInBulkAndCommitted() {
+        List<UUID> settled = insert(20, PaymentStatus.CREATED);
+        List<UUID> voided = insert(5, PaymentStatus.CREATED);
+        List<UUID> alreadySettled = insert(5, PaymentStatus.SETTLED);
+        Map<String, Double> before = counts();
+
+        // Arrive out of order; the latest occurredAt wins.
+        for (UUID id : settled) {
+            send(id, PaymentStatus.AUTHORIZED, t0);
+            send(id, PaymentStatus.SETTLED, t0.plusSeconds(2));
+            send(id, PaymentStatus.CAPTURED, t0.plusSeconds(1));
+        }
+        for (UUID id : voided) {
+            send(id, PaymentStatus.AUTHORIZED, t0);
+            send(id, PaymentStatus.VOIDED, t0.plusSeconds(1));
+        }
+        for (UUID id : alreadySettled) {
+            send(id, PaymentStatus.CAPTURED, t0);
+        }
+        send(UuidV7.generate(), PaymentStatus.CAPTURED, t0);
+        kafkaTemplate.send(TOPIC, "garbage", "{\"paymentId\":".getBytes(StandardCharsets.UTF_8));
+        kafkaTemplate.flush();
+
+        container.start();
+        waitUntil(() -> committedOffset() == endOffset());
+
+        settled.forEach(id -> assertThat(status(id)).isEqualTo(PaymentStatus.SETTLED));
+        voided.forEach(id -> assertThat(status(id)).isEqualTo(PaymentStatus.VOIDED));
+        alreadySettled.forEach(id -> assertThat(status(id)).isEqualTo(PaymentStatus.SETTLED));
+        // The voided payments' entries are reversed; the settled ones still count.
+        assertThat(ledgerService.balance("customer:" + customerId, "EUR").amount()).isEqualByComparingTo("250.00");
+
+        Map<String, Double> after = counts();
+        double applied = after.get("applied") - before.get("applied");
+        double duplicate = after.get("duplicate") - before.get("duplicate");
+        double stale = after.get("stale") - before.get("stale");
+        assertThat(applied + duplicate + stale).isEqualTo(20 * 3 + 5 * 2 + 5);
+        assertThat(duplicate).isPositive();
+        assertThat(stale).isGreaterThanOrEqualTo(5);
+        assertThat(after.get("unknown_payment") - before.get("unknown_payment")).isEqualTo(1);
+        assertThat(after.get("malformed") - before.get("malformed")).isEqualTo(1);
+        assertThat(meterRegistry.get("payments.callbacks.batch").timer().count()).isPositive();
+        assertThat(meterRegistry.get("payments.callbacks.lag").gauge().value()).isZero();
+    }
+
+    @Test
+    void failedBatchIsRedeliveredWithoutCommittingItsOffsets() throws InterruptedException {
+        UUID id = insert(1, PaymentStatus.CREATED).get(0);
+        send(id, PaymentStatus.AUTHORIZED, t0);
+        kafkaTemplate.flush();
+        long committedBefore = committedOffset();
+        CountDownLatch failed = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            failed.countDown();
+            throw new DataAccessResourceFailureException("database unavailable");
+        }).doCallRealMethod().when(statusService).updateStatuses(anyMap());
+
+        container.start();
+        assertThat(failed.await(30, TimeUnit.SECONDS)).isTrue();
+        // The first attempt failed, nothing was committed, and the listener is waiting out the backoff.
+        assertThat(committedOffset()).isEqualTo(committedBefore);
+        assertThat(status(id)).isEqualTo(PaymentStatus.CREATED);
+
+        waitUntil(() -> committedOffset() == endOffset());
+        assertThat(status(id)).isEqualTo(PaymentStatus.AUTHORIZED);
+    }
+
+    // Inserts payments of 10.00 EUR with their ledger entries, as payment creation does.
+    private List<UUID> insert(int count, PaymentStatus status) {
+        List<Payment> payments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            payments.add(Payment.builder()
+                    .id(UuidV7.generate())
+                    .amount(1000)
+                    .currency("EUR")
+                    .customerId(customerId)
+                    .status(status)
+                    .createdAt(Instant.now())
+                    .build());
+        }
+        transactionTemplate.executeWithoutResult(tx -> {
+            paymentJdbcRepository.insertAll(payments);
+            ledgerWriter.paymentsCreated(payments);
+        });
+        return payments.stream().map(Payment::getId).toList();
+    }
+
+    private void send(UUID paymentId, PaymentStatus status, Instant occurredAt) {
+        byte[] payload = objectMapper.writeValueAsBytes(new PaymentStatusCallback(paymentId, status, occurredAt));
+        kafkaTemplate.send(TOPIC, paymentId.toString(), payload);
+    }
+
+    private PaymentStatus status(UUID id) {
+        return paymentJdbcRepository.findById(id).orElseThrow().getStatus();
+    }
+
+    private Map<String, Double> counts() {
+        return Map.of(
+                "applied", count("applied"),
+                "duplicate", count("duplicate"),
+                "stale", count("stale"),
+                "unknown_payment", count("unknown_payment"),
+                "malformed", count("malformed"));
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("payments.callbacks.events").tag("result", result).counter().count();
+    }
+
+    private long committedOffset() {
+        try (Admin admin = admin()) {
+            OffsetAndMetadata offset = admin.listConsumerGroupOffsets(properties.groupId())
+                    .partitionsToOffsetAndMetadata().get()
+                    .get(new TopicPartition(TOPIC, 0));
+            return offset == null ? 0 : offset.offset();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private long endOffset() {
+        TopicPartition partition = new TopicPartition(TOPIC, 0);
+        try (Admin admin = admin()) {
+            return admin.listOffsets(Map.of(partition, OffsetSpec.latest())).partitionResult(partition).get().offset();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Admin admin() {
+        return Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString()));
+    }
+
+    private static void waitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.payment_gateway.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.payment_gateway.api.dto.CreatePaymentRequest;
+import com.example.payment_gateway.config.PaymentBatchingProperties;
+import com.example.payment_gateway.domain.Amount;
+import com.example.payment_gateway.domain.Payment;
+import com.example.payment_gateway.service.PaymentBatchWriter.BatchItem;
+import com.example.payment_gateway.service.PaymentBatchWriter.BatchResult;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@SpringBootTest
+class PaymentCreateBatchingTest {
+
+    @Autowired
+    private PaymentBatchWriter batchWriter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final String customerId = "batch-" + UUID.randomUUID();
+
+    @Test
+    void conflictIsIsolatedToItsItem() {
+        String reusedKey = key();
+        Payment original = single(batchWriter.write(List.of(item(reusedKey, "10.00", "h1"))));
+
+        List<BatchResult> results = batchWriter.write(List.of(
+                item(reusedKey, "99.00", "h2"),
+                item(key(), "11.00", "h3"),
+                item(reusedKey, "10.00", "h1"),
+                item(key(), "12.00", "h4")
+        ));
+
+        assertThat(results.get(0).error()).isInstanceOf(IdempotencyConflictException.class);
+        assertThat(results.get(1).payment()).isNotNull();
+        assertThat(results.get(2).payment().getId()).isEqualTo(original.getId());
+        assertThat(results.get(2).created()).isFalse();
+        assertThat(results.get(3).payment()).isNotNull();
+        assertThat(paymentRows()).isEqualTo(3);
+    }
+
+    @Test
+    void repeatedKeyWithinBatchSharesOnePayment() {
+        String sharedKey = key();
+
+        List<BatchResult> results = batchWriter.write(List.of(
+                item(sharedKey, "10.00", "h1"),
+                item(sharedKey, "10.00", "h1"),
+                item(sharedKey, "20.00", "h2")
+        ));
+
+        assertThat(results.get(1).payment().getId()).isEqualTo(results.get(0).payment().getId());
+        assertThat(results.get(0).created()).isTrue();
+        assertThat(results.get(1).created()).isFalse();
+        assertThat(results.get(2).error()).isInstanceOf(IdempotencyConflictException.class);
+        assertThat(paymentRows()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentSubmissionsAreGroupCommitted() throws Exception {
+        int callers = 64;
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PaymentCreateBatcher batcher = new PaymentCreateBatcher(batchWriter,
+                new PaymentBatchingProperties(true, 16, Duration.ofMillis(20), 1000, 2), registry,
+                new SimpleAsyncTaskExecutorBuilder());
+        batcher.start();
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        List<Future<Payment>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < callers; i++) {
+                String hash = "h" + i;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    CompletableFuture<BatchResult> future = batcher.trySubmit(item(key(), "5.00", hash)).orElseThrow();
+                    return future.get(30, TimeUnit.SECONDS).payment();
+                }));
+            }
+            start.countDown();
+
+            for (Future<Payment> result : results) {
+                assertThat(result.get(30, TimeUnit.SECONDS).getCustomerId()).isEqualTo(customerId);
+            }
+        } finally {
+            pool.shutdownNow();
+            batcher.stop();
+        }
+
+        DistributionSummary batchSize = registry.get("payments.create.batch.size").summary();
+        assertThat(batchSize.totalAmount()).isEqualTo(callers);
+        assertThat(batchSize.count()).isLessThan(callers);
+        assertThat(registry.get("payments.create.batch.queue.wait").timer().count()).isEqualTo(callers);
+        assertThat(paymentRows()).isEqualTo(callers);
+    }
+
+    // Uses the label as a stand-in fingerprint: equal labels mean equal payloads.
+    private BatchItem item(String idempotencyKey, String amount, String hash) {
+        return new BatchItem(idempotencyKey, new CreatePaymentRequest(Amount.parse(amount), "EUR", customerId),
+                hash.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String key() {
+        return "batch-" + UUID.randomUUID();
+    }
+
+    private static Payment single(List<BatchResult> results) {
+        assertThat(results).hasSize(1);
+        return results.get(0).payment();
+    }
+
+    private Integer paymentRows() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM payments WHERE customer_id = ?", Integer.class, customerId);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.payment_gateway.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.payment_gateway.service.PaymentResponseCache.Entry;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+class PaymentResponseCacheTest {
+
+    private static final long MAXIMUM_BYTES = 1024 * 1024;
+
+    private final UUID id = UUID.randomUUID();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void servesRepeatedReadsFromLocalCache() {
+        PaymentResponseCache cache = cache(null);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(cache.get(id, loader(0, "v0")).body()).asString(StandardCharsets.UTF_8).isEqualTo("v0");
+        }
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void invalidationMakesNextReadLoadNewVersion() {
+        PaymentResponseCache cache = cache(null);
+        cache.get(id, loader(0, "v0"));
+
+        cache.invalidateAfterCommit(id, 1);
+
+        assertThat(cache.get(id, loader(1, "v1")).version()).isEqualTo(1);
+        assertThat(cache.get(id, loader(1, "v1")).version()).isEqualTo(1);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void readThatStartedBeforeInvalidationCannotCacheStaleVersion() {
+        PaymentResponseCache cache = cache(null);
+
+        // The row is read at version 0, then the change to version 1 commits before the read publishes.
+        Entry stale = cache.get(id, paymentId -> {
+            cache.invalidateAfterCommit(paymentId, 1);
+            return entry(0, "v0");
+        });
+
+        assertThat(stale.version()).isZero();
+        assertThat(cache.get(id, loader(1, "v1")).version()).isEqualTo(1);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void clusterLevelServesOtherNodesAndCarriesInvalidations() {
+        InMemoryClusterPaymentCache cluster = new InMemoryClusterPaymentCache();
+        PaymentResponseCache nodeA = cache(cluster);
+        PaymentResponseCache nodeB = cache(cluster);
+
+        nodeA.get(id, loader(0, "v0"));
+        assertThat(nodeB.get(id, loader(0, "v0")).version()).isZero();
+        assertThat(loads).hasValue(1);
+
+        // Node A changes the payment; node B must not keep serving version 0 from its local cache.
+        nodeA.invalidateAfterCommit(id, 1);
+
+        assertThat(nodeB.get(id, loader(1, "v1")).version()).isEqualTo(1);
+        assertThat(nodeA.get(id, loader(1, "v1")).version()).isEqualTo(1);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void sizeIsBoundedByBytes() {
+        PaymentResponseCache cache = new PaymentResponseCache(10_000, Duration.ofMinutes(10), null, Ticker.systemTicker());
+
+        for (int i = 0; i < 100; i++) {
+            cache.get(UUID.randomUUID(), paymentId -> new Entry(0, new byte[1000]));
+        }
+        cache.cache().cleanUp();
+
+        assertThat(cache.cache().policy().eviction().orElseThrow().weightedSize().getAsLong()).isLessThanOrEqualTo(10_000);
+    }
+
+    private static PaymentResponseCache cache(ClusterPaymentCache cluster) {
+        return new PaymentResponseCache(MAXIMUM_BYTES, Duration.ofMinutes(10), cluster, Ticker.systemTicker());
+    }
+
+    private Function<UUID, Entry> loader(long version, String body) {
+        return paymentId -> {
+            loads.incrementAndGet();
+            return entry(version, body);
+        };
+    }
+
+    private static Entry entry(long version, String body) {
+        return new Entry(version, body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.payment_gateway.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.payment_gateway.api.dto.CreatePaymentRequest;
+import com.example.payment_gateway.domain.Amount;
+import com.example.payment_gateway.domain.Payment;
+import com.example.payment_gateway.domain.PaymentSaga;
+import com.example.payment_gateway.domain.PaymentStatus;
+import com.example.payment_gateway.domain.SagaStatus;
+import com.example.payment_gateway.domain.SagaStep;
+import com.example.payment_gateway.domain.UuidV7;
+import com.example.payment_gateway.repository.PaymentJdbcRepository;
+import com.example.payment_gateway.repository.PaymentSagaJdbcRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Runs sagas end to end on the simulated provider and on a scripted one registered by the test.
+@SpringBootTest(properties = {
+        "payments.saga.enabled=true",
+        "payments.saga.poll-interval=20ms",
+        "payments.saga.step-timeout=300ms",
+        "payments.saga.retry-backoff=10ms",
+        "payments.saga.max-backoff=50ms",
+        "payments.saga.max-attempts=20",
+        "payments.saga.provider-concurrency.scripted=2",
+        "payments.saga.simulated-provider.enabled=true",
+        "payments.saga.simulated-provider.latency=2ms",
+        "payments.saga.simulated-provider.jitter=5ms",
+        "payments.saga.simulated-provider.failure-rate=0.3",
+        "payments.saga.simulated-provider.decline-rate=0"
+})
+@Import(PaymentSagaOrchestratorTest.ScriptedProviderConfig.class)
+@DirtiesContext
+class PaymentSagaOrchestratorTest {
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentJdbcRepository paymentJdbcRepository;
+
+    @Autowired
+    private PaymentSagaJdbcRepository sagaRepository;
+
+    @Autowired
+    private LedgerWriter ledgerWriter;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private PaymentStatusService statusService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ScriptedProvider scriptedProvider;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final String customerId = "saga-" + UUID.randomUUID();
+
+    @Test
+    void paymentsAreSettledDespiteTransientFailures() {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            CreatePaymentRequest request = new CreatePaymentRequest(Amount.parse("15.00"), "eur", customerId);
+            ids.add(paymentService.create("saga-" + UUID.randomUUID(), request).paymentId());
+        }
+
+        waitUntil(() -> ids.stream().allMatch(id -> sagaStatus(id) == SagaStatus.COMPLETED));
+
+        for (UUID id : ids) {
+            Payment payment = paymentJdbcRepository.findById(id).orElseThrow();
+            assertThat(payment.getStatus()).isEqualTo(PaymentStatus.SETTLED);
+            // One version per step: authorized, captured, settled.
+            assertThat(payment.getVersion()).isEqualTo(3);
+            assertThat(sagaRepository.findById(id).orElseThrow().getProviderReference()).startsWith("sim-");
+        }
+        assertThat(ledgerService.balance("customer:" + customerId, "EUR").amount()).isEqualByComparingTo("300.00");
+    }
+
+    @Test
+    void failedCaptureIsVoidedAndReversedInTheLedger() {
+        List<UUID> ids = startScripted(10);
+
+        waitUntil(() -> ids.stream().allMatch(id -> sagaStatus(id) == SagaStatus.COMPENSATED));
+
+        for (UUID id : ids) {
+            PaymentSaga saga = sagaRepository.findById(id).orElseThrow();
+            assertThat(saga.getStep()).isEqualTo(SagaStep.VOID);
+            assertThat(saga.getLastError()).isEqualTo("Capture declined");
+            assertThat(paymentJdbcRepository.findById(id).orElseThrow().getStatus()).isEqualTo(PaymentStatus.VOIDED);
+        }
+        assertThat(ledgerService.balance("customer:" + customerId, "EUR").amount()).isEqualByComparingTo("0");
+        assertThat(scriptedProvider.maxInFlight()).isBetween(1, 2);
+    }
+
+    @Test
+    void unansweredCallTimesOutAndIsRetried() {
+        UUID id = UuidV7.generate();
+        scriptedProvider.ignoreFirstAuthorization(id);
+        startScripted(List.of(id));
+
+        waitUntil(() -> sagaStatus(id) == SagaStatus.COMPENSATED);
+
+        assertThat(meterRegistry.get("payments.saga.step")
+                .tags("provider", "scripted", "step", "AUTHORIZE", "outcome", "timeout")
+                .timer().count()).isGreaterThanOrEqualTo(1);
+        assertThat(paymentJdbcRepository.findById(id).orElseThrow().getStatus()).isEqualTo(PaymentStatus.VOIDED);
+    }
+
+    @Test
+    void statusChangedDuringTheCallDoesNotFailTheStepOutcome() {
+        UUID id = UuidV7.generate();
+        // A provider callback authorizes the payment while the saga's AUTHORIZE call is in flight.
+        scriptedProvider.duringAuthorization(id, () -> statusService.updateStatus(id, 0, PaymentStatus.AUTHORIZED));
+        startScripted(List.of(id));
+
+        waitUntil(() -> sagaStatus(id) == SagaStatus.COMPENSATED);
+
+        // The outcome was recorded on the first claim instead of failing on the version read at claim time.
+        assertThat(scriptedProvider.authorizations(id)).isEqualTo(1);
+        Payment payment = paymentJdbcRepository.findById(id).orElseThrow();
+        assertThat(payment.getStatus()).isEqualTo(PaymentStatus.VOIDED);
+        // Authorized by the callback, then voided by the saga.
+        assertThat(payment.getVersion()).isEqualTo(2);
+        assertThat(ledgerService.balance("customer:" + customerId, "EUR").amount()).isEqualByComparingTo("0");
+    }
+
+    @Test
+    void failedCallbackDuringTheSagaEndsIt() throws InterruptedException {
+        UUID id = UuidV7.generate();
+        // A provider callback fails the payment, through the listener's bulk path, while AUTHORIZE is in flight.
+        scriptedProvider.duringAuthorization(id, () -> statusService.updateStatuses(Map.of(id, PaymentStatus.FAILED)));
+        startScripted(List.of(id));
+
+        waitUntil(() -> sagaStatus(id) == SagaStatus.COMPENSATED);
+        // Leaves the orchestrator several polls to record the approved authorization and claim a next step.
+        Thread.sleep(300);
+
+        assertThat(scriptedProvider.calls(id)).containsExactly(SagaStep.AUTHORIZE);
+        PaymentSaga saga = sagaRepository.findById(id).orElseThrow();
+        assertThat(saga.getStatus()).isEqualTo(SagaStatus.COMPENSATED);
+        assertThat(saga.getStep()).isEqualTo(SagaStep.AUTHORIZE);
+        assertThat(saga.getLastError()).isEqualTo("Payment moved to FAILED outside the saga");
+        Payment payment = paymentJdbcRepository.findById(id).orElseThrow();
+        assertThat(payment.getStatus()).isEqualTo(PaymentStatus.FAILED);
+        assertThat(payment.getVersion()).isEqualTo(1);
+        assertThat(ledgerService.balance("customer:" + customerId, "EUR").amount()).isEqualByComparingTo("0");
+    }
+
+    private SagaStatus sagaStatus(UUID id) {
+        return sagaRepository.findById(id).map(PaymentSaga::getStatus).orElse(null);
+    }
+
+    private List<UUID> startScripted(int count) {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(UuidV7.generate());
+        }
+        startScripted(ids);
+        return ids;
+    }
+
+    // Creates payments as the write paths do, with their sagas on the scripted provider.
+    private void startScripted(List<UUID> ids) {
+        Instant now = Instant.now();
+        List<Payment> payments = new ArrayList<>();
+        List<PaymentSaga> sagas = new ArrayList<>();
+        for (UUID id : ids) {
+            payments.add(Payment.builder()
+                    .id(id)
+                    .amount(800)
+                    .currency("EUR")
+                    .customerId(customerId)
+                    .status(PaymentStatus.CREATED)
+                    .createdAt(now)
+                    .build());
+            sagas.add(PaymentSaga.builder()
+                    .paymentId(id)
+                    .provider(ScriptedProvider.NAME)
+                    .step(SagaStep.AUTHORIZE)
+                    .status(SagaStatus.ACTIVE)
+                    .createdAt(now)
+                    .build());
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            paymentJdbcRepository.insertAll(payments);
+            ledgerWriter.paymentsCreated(payments);
+            sagaRepository.insertAll(sagas);
+        });
+    }
+
+    private static void waitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    @TestConfiguration
+    static class ScriptedProviderConfig {
+
+        @Bean
+        ScriptedProvider scriptedProvider() {
+            return new ScriptedProvider();
+        }
+    }
+
+    // Approves every step but CAPTURE after 10ms, records the calls made and in flight, can leave a call unanswered
+    // and can run an action before answering an authorization.
+    static class ScriptedProvider implements PaymentProviderClient, AutoCloseable {
+
+        static final String NAME = "scripted";
+
+        private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        private final Set<UUID> ignoreOnce = ConcurrentHashMap.newKeySet();
+
+        private final Map<UUID, Runnable> duringAuthorization = new ConcurrentHashMap<>();
+
+        private final Map<UUID, List<SagaStep>> calls = new ConcurrentHashMap<>();
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+
+        @Override
+        public String name() {
+            return NAME;
+        }
+
+        @Override
+        public CompletableFuture<ProviderResult> execute(ProviderRequest request) {
+            CompletableFuture<ProviderResult> result = new CompletableFuture<>();
+            if (request.step() == SagaStep.AUTHORIZE && ignoreOnce.remove(request.paymentId())) {
+                return result;
+            }
+            calls.computeIfAbsent(request.paymentId(), id -> new CopyOnWriteArrayList<>()).add(request.step());
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            scheduler.schedule(() -> {
+                Runnable action = request.step() == SagaStep.AUTHORIZE ? duringAuthorization.remove(request.paymentId()) : null;
+                if (action != null) {
+                    action.run();
+                }
+                inFlight.decrementAndGet();
+                result.complete(request.step() == SagaStep.CAPTURE
+                        ? ProviderResult.declined("Capture declined")
+                        : ProviderResult.approved(request.step() == SagaStep.AUTHORIZE ? "auth-" + request.paymentId() : request.reference()));
+            }, 10, TimeUnit.MILLISECONDS);
+            return result;
+        }
+
+        void ignoreFirstAuthorization(UUID paymentId) {
+            ignoreOnce.add(paymentId);
+        }
+
+        void duringAuthorization(UUID paymentId, Runnable action) {
+            duringAuthorization.put(paymentId, action);
+        }
+
+        // Steps called for the payment, in order, including an ignored first authorization.
+        List<SagaStep> calls(UUID paymentId) {
+            return calls.getOrDefault(paymentId, List.of());
+        }
+
+        int authorizations(UUID paymentId) {
+            return (int) calls(paymentId).stream().filter(step -> step == SagaStep.AUTHORIZE).count();
+        }
+
+        int maxInFlight() {
+            return maxInFlight.get();
+        }
+
+        @Override
+        public void close() {
+            scheduler.shutdownNow();
+        }
+    }
+}
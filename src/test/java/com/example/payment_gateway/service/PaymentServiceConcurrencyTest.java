@@ -0,0 +1,126 @@
+package com.example.payment_gateway.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.AdditionalAnswers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.payment_gateway.api.dto.CreatePaymentRequest;
+import com.example.payment_gateway.config.IdempotencyProperties;
+import com.example.payment_gateway.domain.Amount;
+import com.example.payment_gateway.domain.Payment;
+import com.example.payment_gateway.repository.IdempotencyKeyJdbcRepository;
+import com.example.payment_gateway.repository.PaymentJdbcRepository;
+import com.example.payment_gateway.service.PaymentService.CreateResult;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// Fires identical requests concurrently and checks that only one payment is ever inserted.
+@SpringBootTest
+class PaymentServiceConcurrencyTest {
+
+    private static final int CALLERS = 16;
+
+    @Autowired
+    private PaymentJdbcRepository paymentJdbcRepository;
+
+    @Autowired
+    private OutboxWriter outboxWriter;
+
+    @Autowired
+    private LedgerWriter ledgerWriter;
+
+    @Autowired
+    private PaymentSagaWriter sagaWriter;
+
+    @Autowired
+    private IdempotencyKeyJdbcRepository idempotencyRepository;
+
+    @Autowired
+    private RequestHasher requestHasher;
+
+    @Autowired
+    private CreatedResponseEncoder responseEncoder;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PaymentCreateBatcher batcher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void singleFlightCoalescesIdenticalRequests() throws Exception {
+        assertSingleInsert(new IdempotencyProperties(IdempotencyWriteMode.RESERVE_FIRST, true));
+    }
+
+    @Test
+    void reserveFirstKeepsLosersOutOfPaymentsTable() throws Exception {
+        assertSingleInsert(new IdempotencyProperties(IdempotencyWriteMode.RESERVE_FIRST, false));
+    }
+
+    @Test
+    void singleFlightAlsoProtectsPaymentFirstMode() throws Exception {
+        assertSingleInsert(new IdempotencyProperties(IdempotencyWriteMode.PAYMENT_FIRST, true));
+    }
+
+    private void assertSingleInsert(IdempotencyProperties properties) throws Exception {
+        // Observes every insert while still writing through the real repository.
+        PaymentJdbcRepository countingRepository = mock(PaymentJdbcRepository.class,
+                AdditionalAnswers.delegatesTo(paymentJdbcRepository));
+        PaymentService service = new PaymentService(countingRepository, outboxWriter, ledgerWriter, sagaWriter,
+                idempotencyRepository, requestHasher, responseEncoder, transactionTemplate, properties, batcher, new SimpleMeterRegistry());
+
+        String idempotencyKey = "concurrency-" + UUID.randomUUID();
+        String customerId = "cust-" + UUID.randomUUID();
+        CreatePaymentRequest request = new CreatePaymentRequest(Amount.parse("10.00"), "eur", customerId);
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+        List<Future<CreateResult>> results = new ArrayList<>();
+        UUID firstId;
+        try {
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return service.create(idempotencyKey, request);
+                }));
+            }
+            start.countDown();
+
+            firstId = results.get(0).get(30, TimeUnit.SECONDS).paymentId();
+            for (Future<CreateResult> result : results) {
+                assertThat(result.get(30, TimeUnit.SECONDS).paymentId()).isEqualTo(firstId);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        verify(countingRepository, times(1)).insert(any(Payment.class));
+        Integer rows = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM payments WHERE customer_id = ?", Integer.class, customerId);
+        assertThat(rows).isEqualTo(1);
+        Integer events = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM outbox_events WHERE aggregate_id = ?", Integer.class, firstId);
+        assertThat(events).isEqualTo(1);
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.payment_gateway.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import com.example.payment_gateway.api.dto.CreatePaymentRequest;
+import com.example.payment_gateway.domain.Amount;
+import com.example.payment_gateway.domain.PaymentStatus;
+import com.example.payment_gateway.repository.CachingIdempotencyKeyRepository;
+import com.example.payment_gateway.service.PaymentService.CreateResult;
+
+// Counts the SQL statements issued per payment creation by wrapping the application's DataSource.
+@SpringBootTest
+@Import(PaymentStatementCountTest.StatementCountingConfig.class)
+class PaymentStatementCountTest {
+
+    // Statements executed through the wrapped DataSource, normalized to lower case.
+    private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private CachingIdempotencyKeyRepository idempotencyCache;
+
+    @Autowired
+    private PaymentLookupService paymentLookupService;
+
+    @Autowired
+    private PaymentStatusService paymentStatusService;
+
+    @BeforeEach
+    void clearStatements() {
+        STATEMENTS.clear();
+    }
+
+    @Test
+    void createInsertsPaymentEventLedgerEntriesAndSagaWithSingleStatementsAndNoSelect() {
+        paymentService.create("count-" + UUID.randomUUID(), request());
+
+        assertThat(statementsOn("payments")).singleElement()
+                .satisfies(sql -> assertThat(sql).startsWith("insert into payments"));
+        assertThat(statementsOn("outbox_events")).singleElement()
+                .satisfies(sql -> assertThat(sql).startsWith("insert into outbox_events"));
+        assertThat(statementsOn("ledger_entries")).singleElement()
+                .satisfies(sql -> assertThat(sql).startsWith("insert into ledger_entries"));
+        assertThat(statementsOn("payment_sagas")).singleElement()
+                .satisfies(sql -> assertThat(sql).startsWith("insert into payment_sagas"));
+        assertThat(statementsOn("idempotency_keys")).hasSize(2);
+        assertThat(STATEMENTS).hasSize(6);
+    }
+
+    @Test
+    void replayReadsOnlyTheIdempotencyRecord() {
+        String idempotencyKey = "count-" + UUID.randomUUID();
+        CreatePaymentRequest request = request();
+        CreateResult created = paymentService.create(idempotencyKey, request);
+        idempotencyCache.cache().invalidate(idempotencyKey);
+        STATEMENTS.clear();
+
+        CreateResult replayed = paymentService.create(idempotencyKey, request);
+
+        assertThat(replayed.replayed()).isTrue();
+        assertThat(replayed.paymentId()).isEqualTo(created.paymentId());
+        assertThat(replayed.response().body()).isEqualTo(created.response().body());
+        assertThat(replayed.response().location()).isEqualTo("/payments/" + created.paymentId());
+        assertThat(STATEMENTS).singleElement()
+                .satisfies(sql -> assertThat(sql).startsWith("select").contains("from idempotency_keys"));
+    }
+
+    @Test
+    void cachedReplayIssuesNoStatement() {
+        String idempotencyKey = "count-" + UUID.randomUUID();
+        CreatePaymentRequest request = request();
+        CreateResult created = paymentService.create(idempotencyKey, request);
+        STATEMENTS.clear();
+
+        CreateResult replayed = paymentService.create(idempotencyKey, request);
+
+        assertThat(replayed.response().body()).isEqualTo(created.response().body());
+        assertThat(STATEMENTS).isEmpty();
+    }
+
+    @Test
+    void cachedGetIssuesNoStatementUntilStatusChanges() {
+        UUID id = paymentService.create("count-" + UUID.randomUUID(), request()).paymentId();
+        paymentLookupService.get(id);
+        STATEMENTS.clear();
+
+        assertThat(paymentLookupService.get(id).version()).isZero();
+        assertThat(STATEMENTS).isEmpty();
+
+        paymentStatusService.updateStatus(id, 0, PaymentStatus.FAILED);
+        STATEMENTS.clear();
+
+        assertThat(paymentLookupService.get(id).version()).isEqualTo(1);
+        assertThat(STATEMENTS).singleElement()
+                .satisfies(sql -> assertThat(sql).startsWith("select").contains("from payments"));
+    }
+
+    private static CreatePaymentRequest request() {
+        return new CreatePaymentRequest(Amount.parse("42.00"), "EUR", "count-" + UUID.randomUUID());
+    }
+
+    private static List<String> statementsOn(String table) {
+        return STATEMENTS.stream().filter(sql -> sql.matches("(?s).*\\b" + table + "\\b.*")).toList();
+    }
+
+    @TestConfiguration
+    static class StatementCountingConfig {
+
+        // Wraps the DataSource so every executed prepared statement is recorded.
+        @Bean
+        static BeanPostProcessor statementCountingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? new CountingDataSource(dataSource) : bean;
+                }
+            };
+        }
+    }
+
+    private static final class CountingDataSource extends DelegatingDataSource {
+
+        CountingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return countingConnection(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return countingConnection(super.getConnection(username, password));
+        }
+
+        private static Connection countingConnection(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class},
+                    (proxy, method, args) -> {
+                        Object result = invoke(connection, method, args);
+                        if (method.getName().equals("prepareStatement") && result instanceof PreparedStatement ps) {
+                            return countingStatement(ps, (String) args[0]);
+                        }
+                        return result;
+                    });
+        }
+
+        private static PreparedStatement countingStatement(PreparedStatement statement, String sql) {
+            String normalized = sql.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] {PreparedStatement.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().startsWith("execute")) {
+                            STATEMENTS.add(normalized);
+                        }
+                        return invoke(statement, method, args);
+                    });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
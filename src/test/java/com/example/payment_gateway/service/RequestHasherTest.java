@@ -0,0 +1,159 @@
+package com.example.payment_gateway.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.payment_gateway.api.dto.CreatePaymentRequest;
+import com.example.payment_gateway.domain.Amount;
+import com.example.payment_gateway.domain.IdempotencyKey;
+
+import tools.jackson.databind.json.JsonMapper;
+
+class RequestHasherTest {
+
+    private final RequestHasher hasher = new RequestHasher(JsonMapper.builder().build());
+
+    @Test
+    void producesThirtyTwoBytes() {
+        assertThat(hasher.hash(request("10.50", "EUR", "c1"))).hasSize(RequestHasher.HASH_LENGTH);
+    }
+
+    @Test
+    void ignoresAmountScaleAndCurrencyCase() {
+        byte[] hash = hasher.hash(request("10.5", "EUR", "c1"));
+
+        assertThat(hasher.hash(request("10.50", "EUR", "c1"))).isEqualTo(hash);
+        assertThat(hasher.hash(request("10.5000", "eur", "c1"))).isEqualTo(hash);
+        assertThat(hasher.hash(request("0.00", "EUR", "c1"))).isEqualTo(hasher.hash(request("0", "EUR", "c1")));
+    }
+
+    @Test
+    void distinguishesEveryField() {
+        byte[] hash = hasher.hash(request("10.50", "EUR", "c1"));
+
+        assertThat(hasher.hash(request("10.51", "EUR", "c1"))).isNotEqualTo(hash);
+        assertThat(hasher.hash(request("105.0", "EUR", "c1"))).isNotEqualTo(hash);
+        assertThat(hasher.hash(request("10.50", "USD", "c1"))).isNotEqualTo(hash);
+        assertThat(hasher.hash(request("10.50", "EUR", "c2"))).isNotEqualTo(hash);
+        assertThat(hasher.hash(request("10.50", "EUR", "c1 "))).isNotEqualTo(hash);
+        assertThat(hasher.hash(request("10.50", "EURc", "1"))).isNotEqualTo(hash);
+    }
+
+    @Test
+    void handlesLargeAmountsAndNonAsciiCustomers() {
+        assertThat(hasher.hash(request("1234567890123456.78", "EUR", "c1")))
+                .isNotEqualTo(hasher.hash(request("1234567890123456.79", "EUR", "c1")));
+        assertThat(hasher.hash(request("100", "EUR", "c1")))
+                .isEqualTo(hasher.hash(request("100.00", "EUR", "c1")))
+                .isNotEqualTo(hasher.hash(request("10", "EUR", "c1")));
+        assertThat(hasher.hash(request("1", "EUR", "kunde-ü-😀")))
+                .isEqualTo(hasher.hash(request("1.0", "EUR", "kunde-ü-😀")))
+                .isNotEqualTo(hasher.hash(request("1", "EUR", "kunde-u-😀")));
+    }
+
+    @Test
+    void isStableAcrossThreadsSharingThePool() throws Exception {
+        List<CreatePaymentRequest> requests = new ArrayList<>();
+        List<byte[]> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            CreatePaymentRequest request = request(i + ".25", "EUR", "customer-" + i);
+            requests.add(request);
+            expected.add(hasher.hash(request));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Boolean>> checks = new ArrayList<>();
+            for (int t = 0; t < 16; t++) {
+                checks.add(pool.submit(() -> {
+                    for (int round = 0; round < 200; round++) {
+                        for (int i = 0; i < requests.size(); i++) {
+                            if (!Arrays.equals(hasher.hash(requests.get(i)), expected.get(i))) {
+                                return false;
+                            }
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> check : checks) {
+                assertThat(check.get()).isTrue();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void keepsTheEncodingOfStoredHashes() throws NoSuchAlgorithmException {
+        // Version, then the amount as BigDecimal("10.50").stripTrailingZeros() gave it: 105 at scale 1.
+        ByteBuffer encoding = ByteBuffer.allocate(64)
+                .put((byte) 1)
+                .put((byte) 1).put((byte) 1).putInt(1).putLong(105)
+                .put((byte) 2).putInt(3).put("EUR".getBytes(StandardCharsets.US_ASCII))
+                .put((byte) 3).putInt(2).put("c1".getBytes(StandardCharsets.US_ASCII))
+                .flip();
+
+        assertThat(hasher.hash(request("10.50", "eur", "c1")))
+                .isEqualTo(MessageDigest.getInstance("SHA-256").digest(Arrays.copyOf(encoding.array(), encoding.limit())));
+    }
+
+    @Test
+    void matchesLegacyRecordsByRecomputingTheJsonHash() {
+        CreatePaymentRequest request = request("10.50", "EUR", "c1");
+        // Hex digest as stored by the original hasher, decoded the way the bytea migration does.
+        byte[] legacyHash = HexFormat.of().parseHex(legacyHex(request));
+        IdempotencyKey legacy = record(legacyHash, IdempotencyKey.LEGACY_HASH_VERSION);
+
+        assertThat(hasher.matches(legacy, request, hasher.hash(request))).isTrue();
+        CreatePaymentRequest changed = request("10.51", "EUR", "c1");
+        assertThat(hasher.matches(legacy, changed, hasher.hash(changed))).isFalse();
+    }
+
+    @Test
+    void matchesCurrentRecordsByComparingBytes() {
+        CreatePaymentRequest request = request("10.50", "EUR", "c1");
+        IdempotencyKey current = record(hasher.hash(request), IdempotencyKey.CURRENT_HASH_VERSION);
+
+        assertThat(hasher.matches(current, request("10.5", "eur", "c1"), hasher.hash(request("10.5", "eur", "c1")))).isTrue();
+        assertThat(hasher.matches(current, request, hasher.hash(request("1", "EUR", "c1")))).isFalse();
+    }
+
+    private static String legacyHex(CreatePaymentRequest request) {
+        try {
+            byte[] json = JsonMapper.builder().build().writeValueAsBytes(request);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static IdempotencyKey record(byte[] hash, short version) {
+        return IdempotencyKey.builder()
+                .idempotencyKey("k-" + UUID.randomUUID())
+                .requestHash(hash)
+                .hashVersion(version)
+                .paymentId(UUID.randomUUID())
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    private static CreatePaymentRequest request(String amount, String currency, String customerId) {
+        return new CreatePaymentRequest(Amount.parse(amount), currency, customerId);
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.payment_gateway.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import com.example.payment_gateway.repository.PaymentJdbcRepository.PaymentAmount;
+
+/**
+ * Writes a settlement CSV for a stream of payments, in id order, with known defects: every n-th payment
+ * left out (missing), settled for a different amount (mismatched), followed by an unknown id in the same
+ * millisecond (extra) or by a repeat of its own line (extra), and malformed lines (rejected). Lines are
+ * shuffled within blocks, as acquirers do not sort their files. The first and last payments are always
+ * settled as is, so the file's id range covers every payment that was passed in.
+ */
+public final class SettlementFileGenerator {
+
+    private final Random random;
+
+    private int missingEvery;
+    private int mismatchEvery;
+    private int extraEvery;
+    private int duplicateEvery;
+    private int malformedEvery;
+    private int shuffleBlock = 1;
+
+    public SettlementFileGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public SettlementFileGenerator missingEvery(int n) {
+        this.missingEvery = n;
+        return this;
+    }
+
+    public SettlementFileGenerator mismatchEvery(int n) {
+        this.mismatchEvery = n;
+        return this;
+    }
+
+    public SettlementFileGenerator extraEvery(int n) {
+        this.extraEvery = n;
+        return this;
+    }
+
+    public SettlementFileGenerator duplicateEvery(int n) {
+        this.duplicateEvery = n;
+        return this;
+    }
+
+    public SettlementFileGenerator malformedEvery(int n) {
+        this.malformedEvery = n;
+        return this;
+    }
+
+    public SettlementFileGenerator shuffleBlock(int lines) {
+        this.shuffleBlock = lines;
+        return this;
+    }
+
+    // What reconciling the written file against the same payments must report.
+    public record Expected(long lines, long matched, long mismatched, long extra, long missing, long rejected) {}
+
+    public Expected write(Path file, Iterator<PaymentAmount> payments) throws IOException {
+        try (Session session = open(file)) {
+            payments.forEachRemaining(session);
+            return session.finish();
+        }
+    }
+
+    // Starts a file that payments are pushed into, in id order, e.g. from a database cursor.
+    public Session open(Path file) throws IOException {
+        return new Session(Files.newBufferedWriter(file, StandardCharsets.US_ASCII));
+    }
+
+    public final class Session implements Consumer<PaymentAmount>, AutoCloseable {
+
+        private final BufferedWriter out;
+        private final List<String> block = new ArrayList<>(shuffleBlock);
+        // Held back one payment, to know which one is last.
+        private PaymentAmount pending;
+        private long index;
+        private long lines = 1;
+        private long matched;
+        private long mismatched;
+        private long extra;
+        private long missing;
+        private long rejected;
+
+        private Session(BufferedWriter out) throws IOException {
+            this.out = out;
+            out.write("payment_id,amount,currency,settled_at\n");
+        }
+
+        @Override
+        public void accept(PaymentAmount payment) {
+            if (pending != null) {
+                settle(pending, false);
+            }
+            pending = payment;
+        }
+
+        public Expected finish() throws IOException {
+            if (pending != null) {
+                settle(pending, true);
+                pending = null;
+            }
+            lines += flush(block, out);
+            out.flush();
+            return new Expected(lines, matched, mismatched, extra, missing, rejected);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        private void settle(PaymentAmount payment, boolean last) {
+            boolean edge = index == 0 || last;
+            index++;
+            if (!edge && every(missingEvery, index)) {
+                missing++;
+            } else if (!edge && every(mismatchEvery, index)) {
+                block.add(line(payment.id(), payment.amount() + 10_000, payment.currency()));
+                mismatched++;
+            } else {
+                block.add(line(payment.id(), payment.amount(), payment.currency()));
+                matched++;
+                if (!edge && every(duplicateEvery, index)) {
+                    block.add(line(payment.id(), payment.amount(), payment.currency()));
+                    extra++;
+                }
+            }
+            if (!edge && every(extraEvery, index)) {
+                UUID unknown = new UUID(payment.id().getMostSignificantBits(), random.nextLong());
+                block.add(line(unknown, payment.amount(), payment.currency()));
+                extra++;
+            }
+            if (every(malformedEvery, index)) {
+                block.add(payment.id().toString().substring(0, 20) + ",oops," + payment.currency() + ",");
+                rejected++;
+            }
+            if (block.size() >= shuffleBlock) {
+                try {
+                    lines += flush(block, out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    private int flush(List<String> block, BufferedWriter out) throws IOException {
+        Collections.shuffle(block, random);
+        for (String line : block) {
+            out.write(line);
+            out.write('\n');
+        }
+        int written = block.size();
+        block.clear();
+        return written;
+    }
+
+    // Writes the amount, held in units of 0.0001, without trailing zeros.
+    private String line(UUID id, long amount, String currency) {
+        String plain = BigDecimal.valueOf(amount, 4).stripTrailingZeros().toPlainString();
+        return id + "," + plain + "," + currency + ",2026-01-01T00:00:00Z";
+    }
+
+    private static boolean every(int n, long index) {
+        return n > 0 && index % n == 0;
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.payment_gateway.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import com.example.payment_gateway.config.ReconciliationProperties;
+import com.example.payment_gateway.domain.CurrencyUnit;
+import com.example.payment_gateway.domain.Payment;
+import com.example.payment_gateway.domain.PaymentStatus;
+import com.example.payment_gateway.repository.PaymentJdbcRepository;
+import com.example.payment_gateway.repository.PaymentJdbcRepository.PaymentAmount;
+import com.example.payment_gateway.service.SettlementFileGenerator.Expected;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// Reconciles generated files against payments whose ids lie in a private, far-future millisecond range.
+@SpringBootTest
+class SettlementReconcilerTest {
+
+    @Autowired
+    private PaymentJdbcRepository paymentJdbcRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    private Path dir;
+
+    // Ids are built at most this many milliseconds after baseMillis.
+    private static final int MAX_OFFSET = 10_000_000;
+
+    // Ids are built on this millisecond, far from any id created by the clock.
+    private final long baseMillis = Instant.parse("2099-01-01T00:00:00Z").toEpochMilli()
+            + ThreadLocalRandom.current().nextLong(1_000_000_000L);
+
+    // Missing payments are counted over the file's id range, so rows left behind could land in a later run's.
+    @AfterEach
+    void deletePayments() {
+        jdbcTemplate.update("DELETE FROM payments WHERE id >= ? AND id < ?",
+                new UUID(baseMillis << 16, 0L), new UUID((baseMillis + MAX_OFFSET + 1) << 16, 0L));
+    }
+
+    @Test
+    void generatedFileIsClassifiedAcrossChunksAndPartitions() throws IOException {
+        List<Payment> payments = insertPayments(3000);
+        // A failed payment inside the range is not expected in the file.
+        insert(payment(3000, 999, PaymentStatus.FAILED));
+
+        Path file = dir.resolve("settlement.csv");
+        Expected expected = new SettlementFileGenerator(42)
+                .missingEvery(97)
+                .mismatchEvery(89)
+                .extraEvery(83)
+                .duplicateEvery(79)
+                .malformedEvery(211)
+                .shuffleBlock(500)
+                .write(file, payments.stream().map(SettlementReconcilerTest::amountOf).iterator());
+
+        ReconciliationSummary summary = reconciler(DataSize.ofKilobytes(8), 400).reconcile(file, dir.resolve("report"));
+
+        assertThat(summary.partitions()).isGreaterThan(1);
+        assertReports(summary, expected);
+    }
+
+    @Test
+    void skewedFileIsSplitUntilNoPartitionExceedsThePartitionSize() throws IOException {
+        // A busy hour: 2,900 payments in 3 s, then 100 spread over the rest of a three-hour period. Equal
+        // slices of the period would put nearly all of them in the first partition.
+        List<Payment> payments = new ArrayList<>(3000);
+        for (int i = 0; i < 3000; i++) {
+            int offset = i < 2900 ? i : 2900 + (i - 2900) * 100_000;
+            payments.add(payment(offset, 1050 + 100L * (i % 1000), PaymentStatus.CREATED));
+        }
+        paymentJdbcRepository.insertAll(payments);
+
+        Path file = dir.resolve("skewed.csv");
+        Expected expected = new SettlementFileGenerator(7)
+                .missingEvery(97)
+                .mismatchEvery(89)
+                .extraEvery(83)
+                .duplicateEvery(79)
+                .shuffleBlock(500)
+                .write(file, payments.stream().map(SettlementReconcilerTest::amountOf).iterator());
+
+        ReconciliationSummary summary = reconciler(DataSize.ofKilobytes(8), 400).reconcile(file, dir.resolve("report"));
+
+        assertThat(summary.largestPartition()).isLessThanOrEqualTo(400);
+        // Eight equal slices, plus the ones the busy first slice was split into.
+        assertThat(summary.partitions()).isGreaterThan(8);
+        assertReports(summary, expected);
+    }
+
+    @Test
+    void reportsNameEachDefect() throws IOException {
+        List<Payment> payments = insertPayments(4);
+        UUID unknown = id(2);
+        Path file = dir.resolve("small.csv");
+        Files.writeString(file, String.join("\r\n",
+                "payment_id,amount,currency",
+                payments.get(0).getId() + ",10.5,EUR",
+                payments.get(1).getId() + ",11.5,eur,ignored,columns",
+                "",
+                payments.get(3).getId() + ",13.5000,USD",
+                unknown + ",1.00,EUR",
+                payments.get(0).getId() + ",10.50,EUR",
+                "not-a-payment,1.00,EUR",
+                payments.get(3).getId() + ",1.00001,EUR",
+                payments.get(3).getId() + ",1.00,EURO") + "\r\n", StandardCharsets.US_ASCII);
+
+        ReconciliationSummary summary = reconciler(DataSize.ofMegabytes(1), 100).reconcile(file, dir.resolve("report"));
+
+        assertThat(summary.lines()).isEqualTo(10);
+        assertThat(report("matched")).containsExactly(
+                payments.get(0).getId() + ",10.5000,EUR,2",
+                payments.get(1).getId() + ",11.5000,EUR,3");
+        assertThat(report("mismatched")).containsExactly(
+                payments.get(3).getId() + ",13.5000,USD,13.5000,EUR,5");
+        assertThat(report("extra")).containsExactlyInAnyOrder(
+                payments.get(0).getId() + ",10.5000,EUR,7,duplicate",
+                unknown + ",1.0000,EUR,6,unknown_payment");
+        assertThat(report("missing")).containsExactly(payments.get(2).getId() + ",12.5000,EUR");
+        assertThat(report("rejected")).containsExactly(
+                "8,malformed payment_id", "9,malformed amount", "10,malformed currency");
+    }
+
+    private void assertReports(ReconciliationSummary summary, Expected expected) throws IOException {
+        assertThat(summary.lines()).isEqualTo(expected.lines());
+        assertThat(summary.matched()).isEqualTo(expected.matched());
+        assertThat(summary.mismatched()).isEqualTo(expected.mismatched());
+        assertThat(summary.extra()).isEqualTo(expected.extra());
+        assertThat(summary.missing()).isEqualTo(expected.missing());
+        assertThat(summary.rejected()).isEqualTo(expected.rejected());
+
+        assertThat(report("matched")).hasSize((int) expected.matched());
+        assertThat(report("missing")).hasSize((int) expected.missing());
+        assertThat(report("rejected")).hasSize((int) expected.rejected());
+        // Partitions are concatenated in id order, so each report is sorted by payment id.
+        List<String> matchedIds = report("matched").stream().map(line -> line.substring(0, 36)).toList();
+        assertThat(matchedIds).isSorted();
+        assertThat(dir.resolve("report/.work")).doesNotExist();
+    }
+
+    private SettlementReconciler reconciler(DataSize chunkSize, int partitionSize) {
+        ReconciliationProperties properties = new ReconciliationProperties(false, "unused", "unused",
+                Duration.ofMinutes(1), chunkSize, partitionSize, 3, 100);
+        return new SettlementReconciler(paymentJdbcRepository, transactionManager, properties, new SimpleMeterRegistry());
+    }
+
+    private List<String> report(String name) throws IOException {
+        List<String> lines = Files.readAllLines(dir.resolve("report").resolve(name + ".csv"));
+        return lines.subList(1, lines.size());
+    }
+
+    // Inserts payments one millisecond apart with amounts 10.50, 11.50, ... in cents.
+    private List<Payment> insertPayments(int count) {
+        List<Payment> payments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            payments.add(payment(i, 1050 + 100L * (i % 1000), PaymentStatus.CREATED));
+        }
+        paymentJdbcRepository.insertAll(payments);
+        return payments;
+    }
+
+    private void insert(Payment payment) {
+        paymentJdbcRepository.insertAll(List.of(payment));
+    }
+
+    private Payment payment(int offset, long amount, PaymentStatus status) {
+        return Payment.builder()
+                .id(id(offset))
+                .amount(amount)
+                .currency("EUR")
+                .customerId("reconciliation")
+                .status(status)
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    // A version 7 id in the test's millisecond range; the same offset gives ids in the same millisecond.
+    private UUID id(int offset) {
+        return new UUID((baseMillis + offset) << 16 | 0x7000 | ThreadLocalRandom.current().nextInt(0x1000),
+                0x8000_0000_0000_0000L | ThreadLocalRandom.current().nextLong() >>> 2);
+    }
+
+    private static PaymentAmount amountOf(Payment payment) {
+        return new PaymentAmount(payment.getId(),
+                CurrencyUnit.of(payment.getCurrency()).toStorageUnits(payment.getAmount()), payment.getCurrency());
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.payment_gateway.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import com.example.payment_gateway.config.ReconciliationProperties;
+
+// A reconciliation must not hold the scheduler thread that the other @Scheduled jobs share.
+class SettlementReconciliationJobTest {
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    void pollReturnsWhileTheFileIsReconciledAndSkipsUntilItIsDone() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        SettlementReconciler reconciler = mock(SettlementReconciler.class);
+        doAnswer(invocation -> {
+            Files.createDirectories(invocation.getArgument(1, Path.class));
+            started.countDown();
+            release.await();
+            return null;
+        }).when(reconciler).reconcile(any(), any());
+
+        Path inbox = Files.createDirectories(dir.resolve("inbox"));
+        Path reports = dir.resolve("reports");
+        Files.writeString(inbox.resolve("2026-10-18.csv"), "");
+        ReconciliationProperties properties = new ReconciliationProperties(true, inbox.toString(), reports.toString(),
+                Duration.ofMinutes(1), DataSize.ofMegabytes(1), 1000, 1, 100);
+
+        try (SettlementReconciliationJob job = new SettlementReconciliationJob(reconciler, properties)) {
+            assertThat(job.pollInbox()).isTrue();
+            assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+            // Still reconciling: the next poll returns at once without queueing a second pass.
+            assertThat(job.pollInbox()).isFalse();
+
+            release.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (!job.pollInbox() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(reports.resolve("2026-10-18").resolve("2026-10-18.csv")).exists();
+        }
+    }
+}
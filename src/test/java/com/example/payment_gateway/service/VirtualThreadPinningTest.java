@@ -0,0 +1,88 @@
+package com.example.payment_gateway.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import com.example.payment_gateway.api.dto.CreatePaymentRequest;
+import com.example.payment_gateway.domain.Amount;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+// Runs many concurrent creations on virtual threads and fails if any carrier thread got pinned.
+@SpringBootTest
+class VirtualThreadPinningTest {
+
+    // Well above the connection pool size, so callers park in Hikari and in single-flight joins.
+    private static final int CALLERS = 200;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Test
+    void createPathDoesNotPinCarrierThreads() throws Exception {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("pinning-test-");
+        executor.setVirtualThreads(true);
+
+        List<RecordedEvent> pinned;
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+
+            CountDownLatch start = new CountDownLatch(1);
+            List<CompletableFuture<Void>> calls = new ArrayList<>();
+            String idempotencyKey = null;
+            for (int i = 0; i < CALLERS; i++) {
+                // Every key is shared by four callers to exercise the single-flight wait as well.
+                if (i % 4 == 0) {
+                    idempotencyKey = "pinning-" + UUID.randomUUID();
+                }
+                String key = idempotencyKey;
+                CreatePaymentRequest request = new CreatePaymentRequest(Amount.parse("3.00"), "EUR", key);
+                calls.add(CompletableFuture.runAsync(() -> {
+                    await(start);
+                    paymentService.create(key, request);
+                }, executor));
+            }
+            start.countDown();
+            CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).get(60, TimeUnit.SECONDS);
+
+            recording.stop();
+            Path dump = Files.createTempFile("pinning", ".jfr");
+            try {
+                recording.dump(dump);
+                pinned = RecordingFile.readAllEvents(dump);
+            } finally {
+                Files.deleteIfExists(dump);
+            }
+        }
+
+        assertThat(pinned)
+                .as("virtual threads pinned on the create path:%n%s", pinned)
+                .isEmpty();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}